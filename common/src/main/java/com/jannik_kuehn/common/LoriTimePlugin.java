@@ -25,6 +25,7 @@ import com.jannik_kuehn.common.module.updater.version.Version;
 import com.jannik_kuehn.common.platform.CommonServer;
 import com.jannik_kuehn.common.player.LoriTimePlayerConverter;
 import com.jannik_kuehn.common.scheduler.PluginScheduler;
+import com.jannik_kuehn.common.scheduler.StorageExecutor;
 import com.jannik_kuehn.common.storage.DataStorageManager;
 import com.jannik_kuehn.common.storage.StorageMigrationService;
 import com.jannik_kuehn.common.storage.contract.AdminStorageMaintenance;
@@ -149,6 +150,11 @@ public class LoriTimePlugin {
      */
     private Updater updater;
 
+    /**
+     * Runs the storage work of events, placeholders, the API and plugin messages.
+     */
+    private StorageExecutor storageExecutor;
+
     /**
      * {@code true} if an error occurred and the plugin should be
      */
@@ -192,6 +198,7 @@ public class LoriTimePlugin {
         }
         log.debug("Enabling LoriTime main class");
         server.setServerMode(getServerModeFromConfig());
+        storageExecutor = createStorageExecutor();
         setupUpdater();
 
         if (!StorageMode.SLAVE.configValue().equalsIgnoreCase(server.getServerMode())) {
@@ -238,6 +245,28 @@ public class LoriTimePlugin {
         }
     }
 
+    private StorageExecutor createStorageExecutor() {
+        final int configuredThreads = config.getInt("storageExecutor.threads", 0);
+        final int threads = configuredThreads > 0 ? configuredThreads : databasePoolSize();
+        final int configuredLanes = config.getInt("storageExecutor.lanes", 0);
+        final int lanes = configuredLanes > 0 ? configuredLanes : threads;
+        final int queueCapacity = Math.max(1, config.getInt("storageExecutor.queueCapacity", 1_000));
+        final boolean virtualThreads = config.getBoolean("storageExecutor.virtualThreads", false);
+        final StorageExecutor.OverloadPolicy policy = StorageExecutor.OverloadPolicy.parse(
+                config.getString("storageExecutor.overloadPolicy", "coalesce"), StorageExecutor.OverloadPolicy.COALESCE);
+        log.debug("Storage executor uses " + threads + " threads, " + lanes + " player lanes, a queue of "
+                + queueCapacity + " tasks and the " + policy + " overload policy.");
+        return new StorageExecutor(loggerFactory.create(StorageExecutor.class), threads, lanes, queueCapacity,
+                virtualThreads, policy);
+    }
+
+    private int databasePoolSize() {
+        if ("sqlite".equalsIgnoreCase(config.getString("storageMethod", "sqlite"))) {
+            return Math.max(1, config.getInt("data.sqlite.readerPoolSize", 4));
+        }
+        return Math.max(1, config.getInt("data.poolSettings.maximumPoolSize", 10));
+    }
+
     private String getServerModeFromConfig() {
         try {
             return StorageMode.parse(config.getString("multiSetup.mode", StorageMode.STANDALONE.configValue())).configValue();
@@ -338,6 +367,15 @@ public class LoriTimePlugin {
         return recentPlayerSuggestionCache;
     }
 
+    /**
+     * Gets the executor for storage work.
+     *
+     * @return the storage executor, {@code null} before the plugin is enabled
+     */
+    public StorageExecutor getStorageExecutor() {
+        return storageExecutor;
+    }
+
     /**
      * Gets the scope suggestion cache.
      *
@@ -351,6 +389,9 @@ public class LoriTimePlugin {
      * Disables the plugin.
      */
     public void disable() {
+        if (storageExecutor != null) {
+            storageExecutor.shutdown(config.getLong("storageExecutor.shutdownTimeoutMs", 10_000L));
+        }
         dataStorageManager.disableCache();
         dataStorageManager.closeStorages();
     }
@@ -584,6 +625,13 @@ public class LoriTimePlugin {
         return dataStorageManager.getAdminStorageMaintenance();
     }
 
+    /**
+     * Reloads the in-memory leaderboard after totals were changed directly in the canonical storage.
+     */
+    public void reloadLeaderboard() {
+        dataStorageManager.reloadLeaderboard();
+    }
+
     /**
      * Returns whether this runtime owns canonical storage.
      *
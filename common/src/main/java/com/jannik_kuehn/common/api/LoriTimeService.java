@@ -4,6 +4,8 @@ import com.jannik_kuehn.common.api.storage.TimeRange;
 import com.jannik_kuehn.common.api.storage.TimeScope;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -87,6 +89,26 @@ public interface LoriTimeService {
      */
     CompletableFuture<Optional<Duration>> getOnlineTime(LoriTimePlayer player, TimeScope scope, TimeRange range);
 
+    /**
+     * Reads the online time of many players inside a scope with a few bulk queries.
+     *
+     * @param uniqueIds player UUIDs
+     * @param scope time scope to query
+     * @return future containing the online time by UUID, without players that have no stored data
+     */
+    CompletableFuture<Map<UUID, Duration>> getOnlineTimes(Collection<UUID> uniqueIds, TimeScope scope);
+
+    /**
+     * Reads the online time of many players inside a scope and time range with a few bulk queries.
+     *
+     * @param uniqueIds player UUIDs
+     * @param scope time scope to query
+     * @param range time range to query
+     * @return future containing the online time by UUID, without players that have no stored data
+     */
+    CompletableFuture<Map<UUID, Duration>> getOnlineTimes(Collection<UUID> uniqueIds, TimeScope scope,
+                                                          TimeRange range);
+
     /**
      * Adds a signed global time adjustment using the default API actor.
      *
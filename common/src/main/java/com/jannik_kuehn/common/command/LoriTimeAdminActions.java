@@ -4,10 +4,13 @@ import com.github.roleplaycauldron.spellbook.core.logger.WrappedLogger;
 import com.jannik_kuehn.common.LoriTimePlugin;
 import com.jannik_kuehn.common.command.core.CommandMessages;
 import com.jannik_kuehn.common.config.localization.Localization;
+import com.jannik_kuehn.common.exception.StorageException;
 import com.jannik_kuehn.common.platform.CommonSender;
 import com.jannik_kuehn.common.scheduler.PluginTask;
+import com.jannik_kuehn.common.storage.contract.AdminStorageMaintenance;
 import net.kyori.adventure.text.minimessage.MiniMessage;
 
+import java.util.Optional;
 import java.util.function.Consumer;
 
 /**
@@ -132,6 +135,34 @@ final class LoriTimeAdminActions {
         plugin.getUpdater().update(sender);
     }
 
+    /**
+     * Recomputes the materialized player totals from the stored history.
+     *
+     * @param sender command sender
+     * @param args   subcommand arguments
+     */
+    /* default */ void rebuildTotals(final CommonSender sender, final String... args) {
+        if (hasUnexpectedArgs(sender, args)) {
+            return;
+        }
+        final Optional<AdminStorageMaintenance> maintenance = plugin.getAdminStorageMaintenance();
+        if (maintenance.isEmpty()) {
+            CommandMessages.send(localization, plugin.getLanguageSelector(), sender, "message.storageMaintenance.unsupported");
+            return;
+        }
+        try {
+            final int totals = maintenance.get().rebuildTotals();
+            plugin.reloadLeaderboard();
+            log.info("Rebuilt " + totals + " player totals.");
+            sender.sendMessage(localization.formatTextComponent(
+                    localization.getRawMessage("message.command.loritimeadmin.rebuildTotals.success")
+                            .replace("[totals]", String.valueOf(totals))));
+        } catch (final StorageException e) {
+            log.error("Could not rebuild the player totals!", e);
+            CommandMessages.send(localization, plugin.getLanguageSelector(), sender, "message.storageMaintenance.failure");
+        }
+    }
+
     private boolean hasUnexpectedArgs(final CommonSender sender, final String... args) {
         if (args.length == 0) {
             return false;
@@ -49,7 +49,8 @@ public class LoriTimeAdminCommand implements CommonCommand {
                 .register(AdminAction.RELOAD, "reload")
                 .register(AdminAction.DEBUG, "debug")
                 .register(AdminAction.INFO, "info")
-                .register(AdminAction.UPDATE, "update");
+                .register(AdminAction.UPDATE, "update")
+                .register(AdminAction.REBUILD_TOTALS, "rebuildtotals");
         this.actions = new LoriTimeAdminActions(plugin, localization, this::usage);
     }
 
@@ -80,6 +81,7 @@ public class LoriTimeAdminCommand implements CommonCommand {
             case DEBUG -> actions.debug(sender, subCommandArgs);
             case INFO -> actions.info(sender, subCommandArgs);
             case UPDATE -> actions.update(sender, subCommandArgs);
+            case REBUILD_TOTALS -> actions.rebuildTotals(sender, subCommandArgs);
         }
     }
 
@@ -144,6 +146,10 @@ public class LoriTimeAdminCommand implements CommonCommand {
         /**
          * Starts the configured update flow.
          */
-        UPDATE
+        UPDATE,
+        /**
+         * Recomputes the materialized player totals.
+         */
+        REBUILD_TOTALS
     }
 }
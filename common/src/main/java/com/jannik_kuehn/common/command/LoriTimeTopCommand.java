@@ -1,23 +1,23 @@
 package com.jannik_kuehn.common.command;
 
 import com.jannik_kuehn.common.LoriTimePlugin;
+import com.jannik_kuehn.common.api.storage.TimeScope;
 import com.jannik_kuehn.common.command.core.CommandMessages;
 import com.jannik_kuehn.common.config.localization.Localization;
 import com.jannik_kuehn.common.exception.StorageException;
 import com.jannik_kuehn.common.platform.CommonCommand;
 import com.jannik_kuehn.common.platform.CommonSender;
 import com.jannik_kuehn.common.storage.contract.UnifiedStorage;
+import com.jannik_kuehn.common.storage.model.LeaderboardEntry;
+import com.jannik_kuehn.common.storage.model.LeaderboardSummary;
 import com.jannik_kuehn.common.utils.TimeUtil;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 /**
@@ -30,7 +30,7 @@ public class LoriTimeTopCommand implements CommonCommand {
     /**
      * Amount of players per page.
      */
-    private static final double PLAYER_AMOUNT_PER_PAGE = 8;
+    private static final int PLAYER_AMOUNT_PER_PAGE = 8;
 
     /**
      * LoriTime plugin instance.
@@ -85,27 +85,15 @@ public class LoriTimeTopCommand implements CommonCommand {
     }
 
     private void topOutput(final CommonSender sender, final int site) {
-        final List<Map.Entry<String, Long>> timeEntriesList;
-        final Map<String, Long> rawTimeEntries = new HashMap<>();
+        final UnifiedStorage storage = plugin.getStorage();
+        final LeaderboardSummary summary;
         try {
-            for (final Map.Entry<String, ?> allEntry : plugin.getStorage().getAllTimeEntries().entrySet()) {
-                if (allEntry.getValue() instanceof Long) {
-                    rawTimeEntries.put(allEntry.getKey(), (Long) allEntry.getValue());
-                } else if (allEntry.getValue() instanceof Integer) {
-                    rawTimeEntries.put(allEntry.getKey(), ((Integer) allEntry.getValue()).longValue());
-                }
-            }
-
-            timeEntriesList = rawTimeEntries.entrySet()
-                    .stream()
-                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                    .toList();
+            summary = storage.getLeaderboardSummary(TimeScope.GLOBAL, Optional.empty());
         } catch (final StorageException e) {
             throw new RuntimeException(e);
         }
-        final int amountOfPlayers = rawTimeEntries.size();
 
-        final int amountOfMaxPages = (int) Math.ceil(amountOfPlayers / PLAYER_AMOUNT_PER_PAGE);
+        final int amountOfMaxPages = (int) Math.ceil(summary.players() / (double) PLAYER_AMOUNT_PER_PAGE);
         if (site < 1 || site > amountOfMaxPages) {
             sender.sendMessage(localization.formatTextComponent(localization.getRawMessage("message.command.top.wrongPage")
                     .replace("[pages]", 1 + " and " + amountOfMaxPages)
@@ -114,49 +102,25 @@ public class LoriTimeTopCommand implements CommonCommand {
         }
         CommandMessages.send(localization, plugin.getLanguageSelector(), sender, "message.command.top.gatheringData");
 
-        final int minValue;
-        final int maxValue;
-        final int usedSite;
-        if (site * 8 > amountOfPlayers && site < amountOfMaxPages) {
-            usedSite = 1;
-            minValue = 0;
-            maxValue = amountOfPlayers;
-        } else if (site == amountOfMaxPages) {
-            usedSite = amountOfMaxPages;
-            minValue = amountOfMaxPages * 8 - 8;
-            maxValue = amountOfPlayers;
-        } else {
-            usedSite = site;
-            minValue = site * 8 - 8;
-            maxValue = site * 8;
-        }
-
-        long totalTimeSum = 0;
-        for (final Long value : rawTimeEntries.values()) {
-            totalTimeSum += value;
-        }
-
         sender.sendMessage(localization.formatTextComponentWithoutPrefix(localization.getRawMessage("message.command.top.headline")
                 .replace("[dateAndTime]", LocalDate.now() + " " + LocalTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss")))
-                .replace("[pages]", usedSite + " / " + amountOfMaxPages)
-                .replace("[totalTime]", TimeUtil.formatTime(totalTimeSum, localization))
+                .replace("[pages]", site + " / " + amountOfMaxPages)
+                .replace("[totalTime]", TimeUtil.formatTime(summary.totalSeconds(), localization))
         ));
         try {
-            final UnifiedStorage storage = plugin.getStorage();
-            int place = minValue;
-            for (final Map.Entry<String, Long> topEntry : timeEntriesList.subList(minValue, maxValue)) {
+            final int offset = (site - 1) * PLAYER_AMOUNT_PER_PAGE;
+            int place = offset;
+            for (final LeaderboardEntry topEntry : storage.getLeaderboard(TimeScope.GLOBAL, Optional.empty(),
+                    offset, PLAYER_AMOUNT_PER_PAGE)) {
                 place++;
-                final UUID uuid = UUID.fromString(topEntry.getKey());
-                final Optional<String> optionalName = storage.getName(uuid);
-                if (optionalName.isEmpty()) {
+                if (topEntry.name().isEmpty()) {
                     continue;
                 }
 
-                final String name = optionalName.get();
                 sender.sendMessage(localization.formatTextComponentWithoutPrefix(localization.getRawMessage("message.command.top.user")
                         .replace("[place]", String.valueOf(place))
-                        .replace("[player]", name)
-                        .replace("[time]", TimeUtil.formatTime(topEntry.getValue(), localization))
+                        .replace("[player]", topEntry.name().get())
+                        .replace("[time]", TimeUtil.formatTime(topEntry.seconds(), localization))
                 ));
             }
         } catch (final StorageException e) {
@@ -2,18 +2,25 @@ package com.jannik_kuehn.common.module.messaging;
 
 import com.jannik_kuehn.common.module.afk.AfkTransitionType;
 
-import java.util.Arrays;
 import java.util.Optional;
 
 /**
  * Versioned AFK plugin message protocol.
+ *
+ * <p>Version 3 frames carry the transition as a one-byte code after the player UUID and the version byte. Version 2
+ * payloads carry the protocol version as an integer and the transition name.</p>
  */
 public final class AfkMessageProtocol {
 
     /**
      * Current AFK plugin message protocol version.
      */
-    public static final int VERSION = 2;
+    public static final int VERSION = 3;
+
+    /**
+     * Previous AFK plugin message protocol version, still read and sent on request.
+     */
+    public static final int LEGACY_VERSION = 2;
 
     private AfkMessageProtocol() {
         throw new UnsupportedOperationException("Utility class");
@@ -26,19 +33,51 @@ public final class AfkMessageProtocol {
      * @return transition type when valid
      */
     public static Optional<AfkTransitionType> parseTransition(final String value) {
-        return Arrays.stream(AfkTransitionType.values())
-                .filter(type -> type.name().equals(value))
-                .findFirst();
+        for (final AfkTransitionType type : AfkTransitionType.values()) {
+            if (type.name().equals(value)) {
+                return Optional.of(type);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Parses a transition code of a binary frame.
+     *
+     * @param code raw transition code
+     * @return transition type when valid
+     */
+    public static Optional<AfkTransitionType> parseTransition(final int code) {
+        return switch (code) {
+            case 1 -> Optional.of(AfkTransitionType.START);
+            case 2 -> Optional.of(AfkTransitionType.RESUME);
+            case 3 -> Optional.of(AfkTransitionType.KICK);
+            default -> Optional.empty();
+        };
+    }
+
+    /**
+     * Returns the code of a transition in binary frames.
+     *
+     * @param transition transition type
+     * @return the transition code
+     */
+    public static int transitionCode(final AfkTransitionType transition) {
+        return switch (transition) {
+            case START -> 1;
+            case RESUME -> 2;
+            case KICK -> 3;
+        };
     }
 
     /**
-     * Checks whether the payload version is supported.
+     * Checks whether the payload version of a version 2 payload is supported.
      *
      * @param version raw protocol version
      * @return true when the version is supported
      */
     public static boolean isSupportedVersion(final int version) {
-        return version == VERSION;
+        return version == LEGACY_VERSION;
     }
 
     /**
@@ -0,0 +1,133 @@
+package com.jannik_kuehn.common.module.messaging;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Reader of binary plugin message frames written by a {@link FrameWriter}.
+ */
+public final class FrameReader {
+
+    /**
+     * Maximum number of bytes of a variable-length long.
+     */
+    private static final int MAX_VAR_LONG_BYTES = 10;
+
+    /**
+     * The frame bytes.
+     */
+    private final byte[] data;
+
+    /**
+     * Offset of the next unread byte.
+     */
+    private int position;
+
+    /**
+     * Creates a reader starting at the given offset.
+     *
+     * @param data   the frame bytes
+     * @param offset offset of the first field to read
+     */
+    public FrameReader(final byte[] data, final int offset) {
+        this.data = data;
+        this.position = offset;
+    }
+
+    /**
+     * Reads a single unsigned byte.
+     *
+     * @return the byte value from 0 to 255
+     * @throws EOFException if the frame ended
+     */
+    public int readByte() throws EOFException {
+        require(1);
+        return data[position++] & 0xFF;
+    }
+
+    /**
+     * Reads a boolean written as one byte.
+     *
+     * @return the boolean
+     * @throws EOFException if the frame ended
+     */
+    public boolean readBoolean() throws EOFException {
+        return readByte() != 0;
+    }
+
+    /**
+     * Reads a UUID written as sixteen big-endian bytes.
+     *
+     * @return the UUID
+     * @throws EOFException if the frame ended
+     */
+    public UUID readUuid() throws EOFException {
+        require(16);
+        return new UUID(readFixedLong(), readFixedLong());
+    }
+
+    /**
+     * Reads a zig-zag encoded variable-length integer.
+     *
+     * @return the number
+     * @throws IOException if the frame ended or the number does not fit an integer
+     */
+    public int readVarInt() throws IOException {
+        final long value = readVarLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IOException("Variable-length integer out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads a zig-zag encoded variable-length long.
+     *
+     * @return the number
+     * @throws IOException if the frame ended or the number is longer than ten bytes
+     */
+    public long readVarLong() throws IOException {
+        long raw = 0L;
+        for (int index = 0; index < MAX_VAR_LONG_BYTES; index++) {
+            final int next = readByte();
+            raw |= (long) (next & 0x7F) << (index * 7);
+            if ((next & 0x80) == 0) {
+                return (raw >>> 1) ^ -(raw & 1L);
+            }
+        }
+        throw new IOException("Variable-length long is longer than " + MAX_VAR_LONG_BYTES + " bytes");
+    }
+
+    /**
+     * Reads a string written as a variable-length byte count followed by its UTF-8 bytes.
+     *
+     * @return the string
+     * @throws IOException if the frame ended or the byte count is negative
+     */
+    public String readString() throws IOException {
+        final int length = readVarInt();
+        if (length < 0) {
+            throw new IOException("Negative string length: " + length);
+        }
+        require(length);
+        final String value = new String(data, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    private long readFixedLong() {
+        long value = 0L;
+        for (int index = 0; index < Long.BYTES; index++) {
+            value = (value << 8) | (data[position++] & 0xFFL);
+        }
+        return value;
+    }
+
+    private void require(final int bytes) throws EOFException {
+        if (bytes > data.length - position) {
+            throw new EOFException("Frame ended after " + data.length + " bytes");
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.jannik_kuehn.common.module.messaging;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Writer of binary plugin message frames into a reusable, growing byte buffer.
+ *
+ * <p>Fields are written without boxing. Numbers use zig-zag encoded variable-length integers, so small values such as
+ * counts, seconds and time differences take one to three bytes. Strings are written as a variable-length byte count
+ * followed by their UTF-8 bytes.</p>
+ */
+public final class FrameWriter {
+
+    /**
+     * Buffer the frame is written to.
+     */
+    private byte[] buffer;
+
+    /**
+     * Number of written bytes.
+     */
+    private int position;
+
+    /**
+     * Creates a writer with the given initial buffer size.
+     *
+     * @param initialCapacity initial buffer size in bytes
+     */
+    public FrameWriter(final int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    /**
+     * Starts a new frame, keeping the buffer for reuse.
+     *
+     * @param expectedSize expected frame size in bytes, the buffer grows to it at once
+     * @return this writer
+     */
+    public FrameWriter reset(final int expectedSize) {
+        position = 0;
+        ensureCapacity(expectedSize);
+        return this;
+    }
+
+    /**
+     * Writes a single byte.
+     *
+     * @param value the byte
+     * @return this writer
+     */
+    public FrameWriter writeByte(final int value) {
+        ensureCapacity(position + 1);
+        buffer[position++] = (byte) value;
+        return this;
+    }
+
+    /**
+     * Writes a boolean as one byte.
+     *
+     * @param value the boolean
+     * @return this writer
+     */
+    public FrameWriter writeBoolean(final boolean value) {
+        return writeByte(value ? 1 : 0);
+    }
+
+    /**
+     * Writes a UUID as sixteen big-endian bytes.
+     *
+     * @param value the UUID
+     * @return this writer
+     */
+    public FrameWriter writeUuid(final UUID value) {
+        ensureCapacity(position + 16);
+        writeFixedLong(value.getMostSignificantBits());
+        writeFixedLong(value.getLeastSignificantBits());
+        return this;
+    }
+
+    /**
+     * Writes a zig-zag encoded variable-length integer.
+     *
+     * @param value the number
+     * @return this writer
+     */
+    public FrameWriter writeVarInt(final int value) {
+        return writeVarLong(value);
+    }
+
+    /**
+     * Writes a zig-zag encoded variable-length long.
+     *
+     * @param value the number
+     * @return this writer
+     */
+    public FrameWriter writeVarLong(final long value) {
+        ensureCapacity(position + 10);
+        long remaining = (value << 1) ^ (value >> 63);
+        while ((remaining & ~0x7FL) != 0L) {
+            buffer[position++] = (byte) ((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        buffer[position++] = (byte) remaining;
+        return this;
+    }
+
+    /**
+     * Writes a string as a variable-length byte count followed by its UTF-8 bytes.
+     *
+     * @param value the string
+     * @return this writer
+     */
+    public FrameWriter writeString(final String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length);
+        ensureCapacity(position + bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+        return this;
+    }
+
+    /**
+     * Returns the written frame.
+     *
+     * @return a copy of the written bytes
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    private void writeFixedLong(final long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+        }
+    }
+}
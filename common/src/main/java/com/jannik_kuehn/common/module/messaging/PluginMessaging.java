@@ -2,6 +2,7 @@ package com.jannik_kuehn.common.module.messaging;
 
 import com.github.roleplaycauldron.spellbook.core.logger.WrappedLogger;
 import com.jannik_kuehn.common.LoriTimePlugin;
+import com.jannik_kuehn.common.api.storage.TimeScope;
 import com.jannik_kuehn.common.exception.PluginMessageException;
 import com.jannik_kuehn.common.exception.StorageException;
 import com.jannik_kuehn.common.module.afk.AfkTransitionType;
@@ -15,6 +16,11 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalLong;
 import java.util.UUID;
@@ -22,6 +28,10 @@ import java.util.UUID;
 /**
  * The PluginMessaging class is responsible for sending and computing PluginMessages.
  * They're used to communicate between proxy and subserver.
+ *
+ * <p>Messages are sent as binary version 3 frames, or as version 2 payloads if {@code multiSetup.protocolVersion}
+ * is {@value StorageMessageProtocol#LEGACY_VERSION} while older instances are still running. Both versions are always
+ * read, and read requests are answered in the version they were sent with.</p>
  */
 @SuppressWarnings("PMD.TooManyMethods")
 public abstract class PluginMessaging {
@@ -36,9 +46,35 @@ public abstract class PluginMessaging {
     protected static final String SLAVED_TIME_STORAGE = "loritime:storage";
 
     /**
-     * Current storage plugin message protocol version.
+     * Length of the player UUID at the start of every message.
      */
-    protected static final int STORAGE_PROTOCOL_VERSION = StorageMessageProtocol.VERSION;
+    private static final int UUID_BYTES = 16;
+
+    /**
+     * Maximum number of players in one pushed time snapshot frame, keeping frames far below the plugin message limit.
+     */
+    private static final int SNAPSHOT_FRAME_PLAYERS = 500;
+
+    /**
+     * Initial size of the reusable frame buffer of each thread, enough for every single-player frame.
+     */
+    private static final int FRAME_BUFFER_BYTES = 256;
+
+    /**
+     * Size of the frame header made of the player UUID, the version byte and the opcode.
+     */
+    private static final int FRAME_HEADER_BYTES = UUID_BYTES + 2;
+
+    /**
+     * Largest encoded size of one player entry of a time snapshot frame.
+     */
+    private static final int SNAPSHOT_ENTRY_BYTES = UUID_BYTES + 10 + 10 + 1;
+
+    /**
+     * Reusable frame buffers, one per sending thread.
+     */
+    private static final ThreadLocal<FrameWriter> FRAME_WRITERS =
+            ThreadLocal.withInitial(() -> new FrameWriter(FRAME_BUFFER_BYTES));
 
     /**
      * Prefix for ignored storage plugin message warnings.
@@ -55,6 +91,11 @@ public abstract class PluginMessaging {
      */
     private final WrappedLogger log;
 
+    /**
+     * Protocol version of sent messages.
+     */
+    private final int sendVersion;
+
     /**
      * Creates a new PluginMessaging instance.
      *
@@ -63,18 +104,109 @@ public abstract class PluginMessaging {
     public PluginMessaging(final LoriTimePlugin loriTimePlugin) {
         this.loriTimePlugin = loriTimePlugin;
         this.log = loriTimePlugin.getLoggerFactory().create(PluginMessaging.class, "PluginMessaging");
+        final int configuredVersion = loriTimePlugin.getConfig().getInt("multiSetup.protocolVersion",
+                StorageMessageProtocol.VERSION);
+        this.sendVersion = configuredVersion == StorageMessageProtocol.LEGACY_VERSION
+                ? StorageMessageProtocol.LEGACY_VERSION : StorageMessageProtocol.VERSION;
     }
 
     /**
-     * Sends a PluginMessage to the given channel.
+     * Sends a version 2 PluginMessage to the given channel.
      *
      * @param channelIdentifier the identifier of the channel
-     * @param message           the objects to send
+     * @param message           the objects to send, starting with the player UUID
      */
     public abstract void sendPluginMessage(String channelIdentifier, Object... message);
 
     /**
-     * Converts the given objects to a byte array.
+     * Sends an encoded PluginMessage frame to the given channel through the connection of a player.
+     *
+     * @param channelIdentifier the identifier of the channel
+     * @param playerUUID        the player whose connection carries the frame
+     * @param frame             the encoded frame
+     */
+    public abstract void sendPluginFrame(String channelIdentifier, UUID playerUUID, byte[] frame);
+
+    /**
+     * Asks the master for the current time of a player.
+     *
+     * @param playerUUID the player
+     */
+    public void sendTimeRequest(final UUID playerUUID) {
+        if (sendVersion == StorageMessageProtocol.LEGACY_VERSION) {
+            sendPluginMessage(SLAVED_TIME_STORAGE, playerUUID, StorageMessageType.GET.wireValue());
+            return;
+        }
+        sendPluginFrame(SLAVED_TIME_STORAGE, playerUUID,
+                storageFrame(playerUUID, StorageMessageType.GET, FRAME_HEADER_BYTES).toByteArray());
+    }
+
+    /**
+     * Subscribes the server of a player to the times pushed by the master.
+     *
+     * @param playerUUID the player whose connection carries the subscription
+     */
+    public void sendTimeSubscription(final UUID playerUUID) {
+        if (sendVersion == StorageMessageProtocol.LEGACY_VERSION) {
+            sendPluginMessage(SLAVED_TIME_STORAGE, playerUUID, StorageMessageType.SUBSCRIBE.wireValue(),
+                    StorageMessageProtocol.LEGACY_VERSION);
+            return;
+        }
+        sendPluginFrame(SLAVED_TIME_STORAGE, playerUUID,
+                storageFrame(playerUUID, StorageMessageType.SUBSCRIBE, FRAME_HEADER_BYTES).toByteArray());
+    }
+
+    /**
+     * Reports the observed world of a player to the master.
+     *
+     * @param playerUUID   the player
+     * @param world        the observed world
+     * @param observedAtMs time the world was observed in epoch milliseconds
+     * @param switched     {@code true} if the player switched to the world, {@code false} for a periodic report
+     */
+    public void sendWorldContext(final UUID playerUUID, final String world, final long observedAtMs,
+                                 final boolean switched) {
+        final StorageMessageType type = switched ? StorageMessageType.WORLD_SWITCH : StorageMessageType.WORLD;
+        if (sendVersion == StorageMessageProtocol.LEGACY_VERSION) {
+            sendPluginMessage(SLAVED_TIME_STORAGE, playerUUID, type.wireValue(), StorageMessageProtocol.LEGACY_VERSION,
+                    world, observedAtMs);
+            return;
+        }
+        sendPluginFrame(SLAVED_TIME_STORAGE, playerUUID, storageFrame(playerUUID, type, FRAME_BUFFER_BYTES)
+                .writeString(world)
+                .writeVarLong(observedAtMs)
+                .toByteArray());
+    }
+
+    /**
+     * Reports an AFK transition of a player to the master.
+     *
+     * @param playerUUID   the player
+     * @param transition   the transition, {@link AfkTransitionType#START} or {@link AfkTransitionType#RESUME}
+     * @param timeToRemove AFK time to remove on {@link AfkTransitionType#START}, ignored otherwise
+     */
+    public void sendAfkTransition(final UUID playerUUID, final AfkTransitionType transition, final long timeToRemove) {
+        final boolean start = transition == AfkTransitionType.START;
+        if (sendVersion == StorageMessageProtocol.LEGACY_VERSION) {
+            if (start) {
+                sendPluginMessage(AFK_IDENTIFIER, playerUUID, AfkMessageProtocol.LEGACY_VERSION, transition.name(),
+                        timeToRemove);
+            } else {
+                sendPluginMessage(AFK_IDENTIFIER, playerUUID, AfkMessageProtocol.LEGACY_VERSION, transition.name());
+            }
+            return;
+        }
+        final FrameWriter writer = frame(playerUUID, AfkMessageProtocol.VERSION,
+                AfkMessageProtocol.transitionCode(transition), FRAME_HEADER_BYTES + 10);
+        if (start) {
+            writer.writeVarLong(timeToRemove);
+        }
+        sendPluginFrame(AFK_IDENTIFIER, playerUUID, writer.toByteArray());
+    }
+
+
+    /**
+     * Converts the given objects to a version 2 payload.
      *
      * @param message the objects to convert
      * @return the byte array
@@ -110,6 +242,69 @@ public abstract class PluginMessaging {
         return new byte[0];
     }
 
+    /**
+     * Called on the master when a slave subscribes to the pushed times of the players on its server.
+     *
+     * @param playerUUID the player whose server subscribed
+     */
+    protected void subscribeTimes(final UUID playerUUID) {
+        log.debug("Time subscription of the server of player '" + playerUUID + "' is not supported here");
+    }
+
+    /**
+     * Called on the master after a plugin message changed the time or the counting state of a player.
+     *
+     * @param playerUUID the player whose time changed
+     */
+    protected void timeChanged(final UUID playerUUID) {
+        // Only platforms that push times to their slaves react to changes.
+    }
+
+    /**
+     * Reads the live times of the given players and encodes them as time snapshot frames.
+     *
+     * @param players the players to include
+     * @return one frame per {@value #SNAPSHOT_FRAME_PLAYERS} players, empty if there are no players
+     * @throws StorageException if the times cannot be read
+     */
+    protected List<byte[]> encodeTimeSnapshot(final Collection<UUID> players) throws StorageException {
+        final List<UUID> uniqueIds = List.copyOf(players);
+        final List<byte[]> frames = new ArrayList<>();
+        if (uniqueIds.isEmpty()) {
+            return frames;
+        }
+        final Map<UUID, Long> times = loriTimePlugin.getStorage().getTimes(uniqueIds, TimeScope.GLOBAL);
+        final long now = System.currentTimeMillis();
+        for (int from = 0; from < uniqueIds.size(); from += SNAPSHOT_FRAME_PLAYERS) {
+            final List<UUID> chunk = uniqueIds.subList(from, Math.min(from + SNAPSHOT_FRAME_PLAYERS, uniqueIds.size()));
+            frames.add(sendVersion == StorageMessageProtocol.LEGACY_VERSION
+                    ? legacySnapshotFrame(chunk, times, now) : snapshotFrame(chunk, times));
+        }
+        return frames;
+    }
+
+    /**
+     * Decodes the times in a time answer or time snapshot frame received from the master.
+     * The anchors are moved to the local clock, so a clock offset between master and slave does not shift the times.
+     *
+     * @param data         the received frame
+     * @param receivedAtMs local time the frame was received in epoch milliseconds
+     * @return the received live times, empty if the frame is malformed or carries another operation
+     */
+    protected List<PushedPlayerTime> decodeReceivedTimes(final byte[] data, final long receivedAtMs) {
+        try {
+            if (isBinaryFrame(data)) {
+                return decodeBinaryTimes(data, receivedAtMs);
+            }
+            return decodeLegacyTimes(data, receivedAtMs);
+        } catch (final EOFException e) {
+            log.warn("Storage plugin message ignored by the slave: malformed payload");
+        } catch (final IOException e) {
+            log.error("Storage plugin message failed during slave decoding", new PluginMessageException(e));
+        }
+        return List.of();
+    }
+
     /**
      * Processes the received PluginMessage.
      * The identifier is used to determine the type of the message.
@@ -120,34 +315,66 @@ public abstract class PluginMessaging {
      */
     protected void processPluginMessage(final String identifier, final byte[] data) {
         log.debug("Processing PluginMessage with identifier: " + identifier);
-        loriTimePlugin.getScheduler().runAsyncOnce(() -> {
+        final Runnable task = () -> {
             if (AFK_IDENTIFIER.equalsIgnoreCase(identifier)) {
                 setAfkStatus(data);
             } else if (SLAVED_TIME_STORAGE.equalsIgnoreCase(identifier)) {
                 slavedTimeStorageHandling(data);
             }
-        });
+        };
+        // Both message types start with the player UUID, so the messages of one player keep their order.
+        if (data.length >= UUID_BYTES) {
+            loriTimePlugin.getStorageExecutor().executeInOrder(UuidUtil.fromBytes(Arrays.copyOf(data, UUID_BYTES)), task);
+        } else {
+            loriTimePlugin.getStorageExecutor().execute(task);
+        }
     }
 
     private void setAfkStatus(final byte[] data) {
         log.debug("Processing AFK plugin message");
+        try {
+            if (isBinaryFrame(data)) {
+                readBinaryAfkStatus(data);
+            } else {
+                readLegacyAfkStatus(data);
+            }
+        } catch (final EOFException e) {
+            log.warn("AFK plugin message ignored: malformed payload");
+        } catch (final IOException e) {
+            final PluginMessageException pluginMessageException = new PluginMessageException(e);
+            log.error("AFK plugin message failed during decoding", pluginMessageException);
+        }
+    }
+
+    private void readBinaryAfkStatus(final byte[] data) throws IOException {
+        final FrameReader reader = new FrameReader(data, 0);
+        final UUID playerUUID = reader.readUuid();
+        final int protocolVersion = reader.readByte();
+        if (protocolVersion != AfkMessageProtocol.VERSION) {
+            warnAfkVersion(playerUUID, protocolVersion);
+            return;
+        }
+        final int transitionCode = reader.readByte();
+        final Optional<AfkTransitionType> transition = AfkMessageProtocol.parseTransition(transitionCode);
+        if (transition.isEmpty()) {
+            log.warn("AFK plugin message ignored for player " + playerUUID
+                    + ": invalid transition code " + transitionCode);
+            return;
+        }
+        final long timeToRemove = transition.get() == AfkTransitionType.START ? reader.readVarLong() : 0L;
+        applyAfkTransition(playerUUID, transition.get(), timeToRemove);
+    }
+
+    private void readLegacyAfkStatus(final byte[] data) throws IOException {
         try (ByteArrayInputStream byteInputStream = new ByteArrayInputStream(data);
              DataInputStream input = new DataInputStream(byteInputStream)) {
 
             final byte[] uuidBytes = new byte[16];
             input.readFully(uuidBytes);
             final UUID playerUUID = UuidUtil.fromBytes(uuidBytes);
-            final Optional<CommonPlayerSender> optionalPlayer = loriTimePlugin.getServer().getPlayer(playerUUID);
-            if (optionalPlayer.isEmpty()) {
-                log.debug("Player with the uuid '" + playerUUID + "' is not online or cant be found");
-                return;
-            }
-            final TrackedLoriTimePlayer player = loriTimePlugin.getPlayerConverter().getOnlinePlayer(playerUUID);
-
             final int protocolVersion = input.readInt();
             if (!AfkMessageProtocol.isSupportedVersion(protocolVersion)) {
-                log.warn("AFK plugin message ignored: unsupported protocol version " + protocolVersion
-                        + " for player " + playerUUID);
+                warnAfkVersion(playerUUID, protocolVersion);
                 return;
             }
             final String transitionValue = input.readUTF();
@@ -157,42 +384,73 @@ public abstract class PluginMessaging {
                         + ": invalid transition '" + transitionValue + "'");
                 return;
             }
-            if (!AfkMessageProtocol.isSlaveTransition(transition.get())) {
-                log.warn("AFK plugin message ignored for player " + playerUUID
-                        + ": transition '" + transitionValue + "' is not accepted from slaves");
-                return;
-            }
-            if (transition.get() == AfkTransitionType.START) {
-                log.debug("Setting player '" + player.getName() + "' to AFK");
-                loriTimePlugin.getAfkStatusProvider().setPlayerAFK(player, input.readLong());
-            } else {
-                log.debug("Resuming player '" + player.getName() + "' from AFK");
-                loriTimePlugin.getAfkStatusProvider().resumePlayerAFK(player);
-            }
-        } catch (final EOFException e) {
-            log.warn("AFK plugin message ignored: malformed payload");
-        } catch (final IOException e) {
-            final PluginMessageException pluginMessageException = new PluginMessageException(e);
-            log.error("AFK plugin message failed during decoding", pluginMessageException);
+            final long timeToRemove = transition.get() == AfkTransitionType.START ? input.readLong() : 0L;
+            applyAfkTransition(playerUUID, transition.get(), timeToRemove);
+        }
+    }
+
+    private void applyAfkTransition(final UUID playerUUID, final AfkTransitionType transition, final long timeToRemove) {
+        if (!AfkMessageProtocol.isSlaveTransition(transition)) {
+            log.warn("AFK plugin message ignored for player " + playerUUID
+                    + ": transition '" + transition.name() + "' is not accepted from slaves");
+            return;
+        }
+        final Optional<CommonPlayerSender> optionalPlayer = loriTimePlugin.getServer().getPlayer(playerUUID);
+        if (optionalPlayer.isEmpty()) {
+            log.debug("Player with the uuid '" + playerUUID + "' is not online or cant be found");
+            return;
+        }
+        final TrackedLoriTimePlayer player = loriTimePlugin.getPlayerConverter().getOnlinePlayer(playerUUID);
+        if (transition == AfkTransitionType.START) {
+            log.debug("Setting player '" + player.getName() + "' to AFK");
+            loriTimePlugin.getAfkStatusProvider().setPlayerAFK(player, timeToRemove);
+        } else {
+            log.debug("Resuming player '" + player.getName() + "' from AFK");
+            loriTimePlugin.getAfkStatusProvider().resumePlayerAFK(player);
         }
+        timeChanged(playerUUID);
+    }
+
+    private void warnAfkVersion(final UUID playerUUID, final int protocolVersion) {
+        log.warn("AFK plugin message ignored: unsupported protocol version " + protocolVersion
+                + " for player " + playerUUID);
     }
 
     private void slavedTimeStorageHandling(final byte[] data) {
         log.debug("Processing storage plugin message");
         String operationValue = "<unknown>";
-        try (ByteArrayInputStream byteInputStream = new ByteArrayInputStream(data);
-             DataInputStream input = new DataInputStream(byteInputStream)) {
-
-            final byte[] uuidBytes = new byte[16];
-            input.readFully(uuidBytes);
-            final UUID playerUUID = UuidUtil.fromBytes(uuidBytes);
-            operationValue = input.readUTF();
-            final Optional<StorageMessageType> messageType = StorageMessageProtocol.parseType(operationValue);
-            if (messageType.isEmpty()) {
-                warnStorageIgnored(playerUUID, "unknown operation '" + operationValue + "'");
+        try {
+            if (isBinaryFrame(data)) {
+                final FrameReader reader = new FrameReader(data, 0);
+                final UUID playerUUID = reader.readUuid();
+                final int protocolVersion = reader.readByte();
+                final int opcode = reader.readByte();
+                operationValue = String.valueOf(opcode);
+                final Optional<StorageMessageType> messageType = StorageMessageProtocol.parseOpcode(opcode);
+                if (protocolVersion != StorageMessageProtocol.VERSION) {
+                    warnStorageIgnored(playerUUID, "unsupported protocol version " + protocolVersion);
+                } else if (messageType.isEmpty()) {
+                    warnStorageIgnored(playerUUID, "unknown operation code " + opcode);
+                } else {
+                    operationValue = messageType.get().wireValue();
+                    handleBinaryStorageMessage(playerUUID, messageType.get(), reader);
+                }
                 return;
             }
-            handleStorageMessage(playerUUID, messageType.get(), input);
+            try (ByteArrayInputStream byteInputStream = new ByteArrayInputStream(data);
+                 DataInputStream input = new DataInputStream(byteInputStream)) {
+
+                final byte[] uuidBytes = new byte[16];
+                input.readFully(uuidBytes);
+                final UUID playerUUID = UuidUtil.fromBytes(uuidBytes);
+                operationValue = input.readUTF();
+                final Optional<StorageMessageType> messageType = StorageMessageProtocol.parseType(operationValue);
+                if (messageType.isEmpty()) {
+                    warnStorageIgnored(playerUUID, "unknown operation '" + operationValue + "'");
+                    return;
+                }
+                handleStorageMessage(playerUUID, messageType.get(), input);
+            }
         } catch (final EOFException e) {
             log.warn("Storage plugin message ignored: malformed payload for operation '" + operationValue + "'");
         } catch (final IOException e) {
@@ -204,32 +462,72 @@ public abstract class PluginMessaging {
         }
     }
 
+    private void handleBinaryStorageMessage(final UUID playerUUID, final StorageMessageType messageType,
+                                            final FrameReader reader) throws IOException, StorageException {
+        switch (messageType) {
+            case GET -> sendTime(playerUUID, StorageMessageProtocol.VERSION);
+            case ADD -> addRemoteTime(playerUUID, reader.readVarLong());
+            case WORLD -> updateRemoteWorldContext(playerUUID, reader.readString(), reader.readVarLong());
+            case WORLD_SWITCH -> switchRemoteWorldContext(playerUUID, reader.readString(), reader.readVarLong());
+            case SUBSCRIBE -> subscribeTimes(playerUUID);
+            case SESSION, SEND, SNAPSHOT -> warnStorageIgnored(playerUUID,
+                    "operation '" + messageType.wireValue() + "' is not accepted by the master");
+        }
+    }
+
     private void handleStorageMessage(final UUID playerUUID, final StorageMessageType messageType, final DataInputStream input)
             throws IOException, StorageException {
         switch (messageType) {
             case GET:
-                log.debug("Sending time for player '" + playerUUID + "'");
-                sendPluginMessage(SLAVED_TIME_STORAGE, playerUUID, StorageMessageType.SEND.wireValue(), getTime(playerUUID));
+                sendTime(playerUUID, StorageMessageProtocol.LEGACY_VERSION);
                 break;
             case ADD:
-                log.debug("Adding time for player '" + playerUUID + "'");
-                loriTimePlugin.getStorage().addTime(playerUUID, input.readLong());
+                addRemoteTime(playerUUID, input.readLong());
                 break;
             case SESSION:
                 rejectRemoteSession(playerUUID, input);
                 break;
             case WORLD:
-                updateRemoteWorldContext(playerUUID, input);
+                if (isSupportedStorageVersion(StorageMessageType.WORLD, input.readInt(), playerUUID)) {
+                    updateRemoteWorldContext(playerUUID, input.readUTF(), input.readLong());
+                }
                 break;
             case WORLD_SWITCH:
-                switchRemoteWorldContext(playerUUID, input);
+                if (isSupportedStorageVersion(StorageMessageType.WORLD_SWITCH, input.readInt(), playerUUID)) {
+                    switchRemoteWorldContext(playerUUID, input.readUTF(), input.readLong());
+                }
+                break;
+            case SUBSCRIBE:
+                if (isSupportedStorageVersion(StorageMessageType.SUBSCRIBE, input.readInt(), playerUUID)) {
+                    subscribeTimes(playerUUID);
+                }
                 break;
             case SEND:
+            case SNAPSHOT:
                 warnStorageIgnored(playerUUID, "operation '" + messageType.wireValue() + "' is not accepted by the master");
                 break;
         }
     }
 
+    private void sendTime(final UUID playerUUID, final int protocolVersion) {
+        log.debug("Sending time for player '" + playerUUID + "'");
+        if (protocolVersion == StorageMessageProtocol.LEGACY_VERSION) {
+            sendPluginMessage(SLAVED_TIME_STORAGE, playerUUID, StorageMessageType.SEND.wireValue(), getTime(playerUUID));
+            return;
+        }
+        sendPluginFrame(SLAVED_TIME_STORAGE, playerUUID, storageFrame(playerUUID, StorageMessageType.SEND,
+                FRAME_HEADER_BYTES + 11)
+                .writeVarLong(getTime(playerUUID))
+                .writeBoolean(loriTimePlugin.getAccumulator().getActiveSessionContext(playerUUID).isPresent())
+                .toByteArray());
+    }
+
+    private void addRemoteTime(final UUID playerUUID, final long seconds) throws StorageException {
+        log.debug("Adding time for player '" + playerUUID + "'");
+        loriTimePlugin.getStorage().addTime(playerUUID, seconds);
+        timeChanged(playerUUID);
+    }
+
     private void rejectRemoteSession(final UUID playerUUID, final DataInputStream input) throws IOException {
         final int protocolVersion = input.readInt();
         if (!isSupportedStorageVersion(StorageMessageType.SESSION, protocolVersion, playerUUID)) {
@@ -238,30 +536,136 @@ public abstract class PluginMessaging {
         warnStorageIgnored(playerUUID, "stale completed remote session payload");
     }
 
-    private void updateRemoteWorldContext(final UUID playerUUID, final DataInputStream input) throws IOException, StorageException {
-        if (!isSupportedStorageVersion(StorageMessageType.WORLD, input.readInt(), playerUUID)) {
-            return;
-        }
-        final String world = input.readUTF();
-        final long observedAtMs = input.readLong();
+    private void updateRemoteWorldContext(final UUID playerUUID, final String world, final long observedAtMs)
+            throws StorageException {
         loriTimePlugin.getAccumulator().updateWorldContext(playerUUID, world, observedAtMs);
         loriTimePlugin.getAccumulator().getActiveSessionContext(playerUUID)
                 .ifPresent(context -> loriTimePlugin.rememberScope(context.server(), world));
     }
 
-    private void switchRemoteWorldContext(final UUID playerUUID, final DataInputStream input) throws IOException, StorageException {
-        if (!isSupportedStorageVersion(StorageMessageType.WORLD_SWITCH, input.readInt(), playerUUID)) {
-            return;
-        }
-        final String world = input.readUTF();
-        final long observedAtMs = input.readLong();
+    private void switchRemoteWorldContext(final UUID playerUUID, final String world, final long observedAtMs)
+            throws StorageException {
         loriTimePlugin.getAccumulator().switchWorldContext(playerUUID, world, observedAtMs);
         loriTimePlugin.getAccumulator().getActiveSessionContext(playerUUID)
                 .ifPresent(context -> loriTimePlugin.rememberScope(context.server(), world));
     }
 
+    private List<PushedPlayerTime> decodeBinaryTimes(final byte[] data, final long receivedAtMs) throws IOException {
+        final FrameReader reader = new FrameReader(data, 0);
+        final UUID playerUUID = reader.readUuid();
+        final int protocolVersion = reader.readByte();
+        final int opcode = reader.readByte();
+        final Optional<StorageMessageType> messageType = StorageMessageProtocol.parseOpcode(opcode);
+        if (protocolVersion != StorageMessageProtocol.VERSION) {
+            warnStorageIgnored(playerUUID, "unsupported protocol version " + protocolVersion);
+            return List.of();
+        }
+        if (messageType.isPresent() && messageType.get() == StorageMessageType.SEND) {
+            return List.of(new PushedPlayerTime(playerUUID, reader.readVarLong(), receivedAtMs, reader.readBoolean()));
+        }
+        if (messageType.isEmpty() || messageType.get() != StorageMessageType.SNAPSHOT) {
+            warnStorageIgnored(playerUUID, "unexpected operation code " + opcode + " for the slave");
+            return List.of();
+        }
+        final int count = reader.readVarInt();
+        final List<PushedPlayerTime> times = new ArrayList<>(Math.max(0, Math.min(count, SNAPSHOT_FRAME_PLAYERS)));
+        for (int i = 0; i < count; i++) {
+            final UUID uniqueId = reader.readUuid();
+            final long baseSeconds = reader.readVarLong();
+            final long ageMs = reader.readVarLong();
+            times.add(new PushedPlayerTime(uniqueId, baseSeconds, receivedAtMs - Math.max(0L, ageMs),
+                    reader.readBoolean()));
+        }
+        return times;
+    }
+
+    private List<PushedPlayerTime> decodeLegacyTimes(final byte[] data, final long receivedAtMs) throws IOException {
+        try (ByteArrayInputStream byteInputStream = new ByteArrayInputStream(data);
+             DataInputStream input = new DataInputStream(byteInputStream)) {
+            final byte[] uuidBytes = new byte[UUID_BYTES];
+            input.readFully(uuidBytes);
+            final UUID playerUUID = UuidUtil.fromBytes(uuidBytes);
+            final String action = input.readUTF();
+            final Optional<StorageMessageType> messageType = StorageMessageProtocol.parseType(action);
+            if (messageType.isPresent() && messageType.get() == StorageMessageType.SEND) {
+                // Version 2 answers do not carry the counting state, the next push corrects it.
+                return List.of(new PushedPlayerTime(playerUUID, input.readLong(), receivedAtMs, true));
+            }
+            if (messageType.isEmpty() || messageType.get() != StorageMessageType.SNAPSHOT) {
+                warnStorageIgnored(playerUUID, "unexpected operation '" + action + "' for the slave");
+                return List.of();
+            }
+            if (!isSupportedStorageVersion(StorageMessageType.SNAPSHOT, input.readInt(), playerUUID)) {
+                return List.of();
+            }
+            final long sentAtMs = input.readLong();
+            final int count = input.readInt();
+            final List<PushedPlayerTime> times = new ArrayList<>(Math.max(0, Math.min(count, SNAPSHOT_FRAME_PLAYERS)));
+            for (int i = 0; i < count; i++) {
+                input.readFully(uuidBytes);
+                final UUID uniqueId = UuidUtil.fromBytes(uuidBytes);
+                final long baseSeconds = input.readLong();
+                final long anchorMs = input.readLong();
+                final boolean counting = input.readBoolean();
+                times.add(new PushedPlayerTime(uniqueId, baseSeconds, receivedAtMs - Math.max(0L, sentAtMs - anchorMs),
+                        counting));
+            }
+            return times;
+        }
+    }
+
+    private byte[] snapshotFrame(final List<UUID> chunk, final Map<UUID, Long> times) {
+        final FrameWriter writer = storageFrame(chunk.get(0), StorageMessageType.SNAPSHOT,
+                FRAME_HEADER_BYTES + 5 + chunk.size() * SNAPSHOT_ENTRY_BYTES);
+        writer.writeVarInt(chunk.size());
+        for (final UUID uniqueId : chunk) {
+            // The master reads the times right before sending, so every anchor is the send time.
+            writer.writeUuid(uniqueId)
+                    .writeVarLong(times.getOrDefault(uniqueId, 0L))
+                    .writeVarLong(0L)
+                    .writeBoolean(loriTimePlugin.getAccumulator().getActiveSessionContext(uniqueId).isPresent());
+        }
+        return writer.toByteArray();
+    }
+
+    private byte[] legacySnapshotFrame(final List<UUID> chunk, final Map<UUID, Long> times, final long now) {
+        final List<Object> parts = new ArrayList<>(List.of(chunk.get(0), StorageMessageType.SNAPSHOT.wireValue(),
+                StorageMessageProtocol.LEGACY_VERSION, now, chunk.size()));
+        for (final UUID uniqueId : chunk) {
+            parts.add(uniqueId);
+            parts.add(times.getOrDefault(uniqueId, 0L));
+            parts.add(now);
+            parts.add(loriTimePlugin.getAccumulator().getActiveSessionContext(uniqueId).isPresent());
+        }
+        return getDataAsByte(parts.toArray());
+    }
+
+    private FrameWriter storageFrame(final UUID playerUUID, final StorageMessageType messageType,
+                                     final int expectedSize) {
+        return frame(playerUUID, StorageMessageProtocol.VERSION, messageType.opcode(), expectedSize);
+    }
+
+    private static FrameWriter frame(final UUID playerUUID, final int protocolVersion, final int opcode,
+                                     final int expectedSize) {
+        return FRAME_WRITERS.get().reset(expectedSize)
+                .writeUuid(playerUUID)
+                .writeByte(protocolVersion)
+                .writeByte(opcode);
+    }
+
+    /**
+     * Checks whether a message is a binary frame. Version 2 payloads continue after the player UUID with the length
+     * of the operation name or the integer protocol version, so their first byte after the UUID is always zero.
+     *
+     * @param data the received message
+     * @return {@code true} for a binary frame
+     */
+    private static boolean isBinaryFrame(final byte[] data) {
+        return data.length > UUID_BYTES && data[UUID_BYTES] != 0;
+    }
+
     private boolean isSupportedStorageVersion(final StorageMessageType messageType, final int protocolVersion, final UUID playerUUID) {
-        if (protocolVersion == StorageMessageProtocol.VERSION) {
+        if (protocolVersion == StorageMessageProtocol.LEGACY_VERSION) {
             return true;
         }
         warnStorageIgnored(playerUUID, "operation '" + messageType.wireValue()
@@ -0,0 +1,14 @@
+package com.jannik_kuehn.common.module.messaging;
+
+import java.util.UUID;
+
+/**
+ * Live time of one player in a time snapshot pushed from the master to a slave.
+ *
+ * @param uuid        the player
+ * @param baseSeconds the online time in seconds at the anchor
+ * @param anchorMs    time of the anchor in epoch milliseconds of the receiving instance
+ * @param counting    {@code true} if the time grows after the anchor
+ */
+public record PushedPlayerTime(UUID uuid, long baseSeconds, long anchorMs, boolean counting) {
+}
@@ -1,17 +1,44 @@
 package com.jannik_kuehn.common.module.messaging;
 
-import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * Versioned storage plugin message protocol.
+ *
+ * <p>Version 3 frames start with the player UUID, the version byte and a one-byte operation code followed by binary
+ * fields. Version 2 payloads start with the player UUID and the operation name, so their seventeenth byte is always
+ * zero and both versions can be read side by side during rolling upgrades.</p>
  */
 public final class StorageMessageProtocol {
 
     /**
      * Current storage plugin message protocol version.
      */
-    public static final int VERSION = 2;
+    public static final int VERSION = 3;
+
+    /**
+     * Previous storage plugin message protocol version, still read and sent on request.
+     */
+    public static final int LEGACY_VERSION = 2;
+
+    /**
+     * Operation types by payload value of version 2 payloads.
+     */
+    private static final Map<String, StorageMessageType> TYPES_BY_VALUE = new HashMap<>();
+
+    /**
+     * Operation types by opcode of version 3 frames.
+     */
+    private static final StorageMessageType[] TYPES_BY_OPCODE = new StorageMessageType[256];
+
+    static {
+        for (final StorageMessageType type : StorageMessageType.values()) {
+            TYPES_BY_VALUE.put(type.wireValue(), type);
+            TYPES_BY_OPCODE[type.opcode()] = type;
+        }
+    }
 
     private StorageMessageProtocol() {
         throw new UnsupportedOperationException("Utility class");
@@ -24,8 +51,17 @@ public final class StorageMessageProtocol {
      * @return operation type when valid
      */
     public static Optional<StorageMessageType> parseType(final String value) {
-        return Arrays.stream(StorageMessageType.values())
-                .filter(type -> type.wireValue().equals(value))
-                .findFirst();
+        return Optional.ofNullable(TYPES_BY_VALUE.get(value));
+    }
+
+    /**
+     * Parses a storage operation code of a binary frame.
+     *
+     * @param opcode raw operation code from 0 to 255
+     * @return operation type when valid
+     */
+    public static Optional<StorageMessageType> parseOpcode(final int opcode) {
+        return opcode >= 0 && opcode < TYPES_BY_OPCODE.length ? Optional.ofNullable(TYPES_BY_OPCODE[opcode])
+                : Optional.empty();
     }
 }
@@ -7,40 +7,56 @@ public enum StorageMessageType {
     /**
      * Slave requests the current total from the master.
      */
-    GET("get"),
+    GET("get", 1),
 
     /**
      * Master sends the current total to a slave.
      */
-    SEND("send"),
+    SEND("send", 2),
 
     /**
      * Slave requests a manual time write on the master.
      */
-    ADD("add"),
+    ADD("add", 3),
 
     /**
      * Legacy completed remote session payload.
      */
-    SESSION("session"),
+    SESSION("session", 4),
 
     /**
      * Slave reports the currently observed world context.
      */
-    WORLD("world"),
+    WORLD("world", 5),
 
     /**
      * Slave reports an observed world switch.
      */
-    WORLD_SWITCH("world_switch");
+    WORLD_SWITCH("world_switch", 6),
+
+    /**
+     * Slave subscribes to the pushed times of the players on its server.
+     */
+    SUBSCRIBE("subscribe", 7),
+
+    /**
+     * Master pushes the live times of the players on a slave's server.
+     */
+    SNAPSHOT("snapshot", 8);
 
     /**
      * Wire payload value.
      */
     private final String payloadValue;
 
-    StorageMessageType(final String payloadValue) {
+    /**
+     * One-byte operation code of binary frames.
+     */
+    private final int opcode;
+
+    StorageMessageType(final String payloadValue, final int opcode) {
         this.payloadValue = payloadValue;
+        this.opcode = opcode;
     }
 
     /**
@@ -51,4 +67,13 @@ public enum StorageMessageType {
     public String wireValue() {
         return payloadValue;
     }
+
+    /**
+     * Returns the operation code of binary frames.
+     *
+     * @return the opcode
+     */
+    public int opcode() {
+        return opcode;
+    }
 }
@@ -0,0 +1,396 @@
+package com.jannik_kuehn.common.scheduler;
+
+import com.github.roleplaycauldron.spellbook.core.logger.WrappedLogger;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded executor owned by LoriTime for storage work.
+ *
+ * <p>Storage work does not share the platform's async scheduler with other plugins. The number of parallel tasks
+ * matches the database pool, so tasks wait in the queue instead of waiting for a connection. A full queue is handled
+ * by the configured {@link OverloadPolicy}. Tasks submitted with a coalesce key are merged with a queued task of the
+ * same key, because only one of them has to run.</p>
+ *
+ * <p>Session events of one player must run in the order they happened. They are submitted to a fixed set of lanes
+ * instead. Every lane runs its tasks one after another on its own thread, and a player is always hashed to the same
+ * lane, so different players are still processed in parallel without a shared lock. The lanes are not bounded, so an
+ * event is never dropped and the submitting thread never waits for a lane.</p>
+ */
+public final class StorageExecutor {
+
+    /**
+     * Minimum time between two overload warnings in milliseconds.
+     */
+    private static final long OVERLOAD_LOG_INTERVAL_MS = 10_000L;
+
+    /**
+     * The {@link WrappedLogger} instance.
+     */
+    private final WrappedLogger log;
+
+    /**
+     * Runs the queued tasks.
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Single threaded executors that keep the order of the tasks of one player.
+     */
+    private final ThreadPoolExecutor[] lanes;
+
+    /**
+     * Handles a full queue.
+     */
+    private final OverloadPolicy overloadPolicy;
+
+    /**
+     * Queued tasks by coalesce key.
+     */
+    private final Map<Object, QueuedTask> queuedByKey;
+
+    /**
+     * Number of accepted tasks.
+     */
+    private final AtomicLong submitted;
+
+    /**
+     * Number of tasks merged with a queued task of the same key.
+     */
+    private final AtomicLong coalesced;
+
+    /**
+     * Number of tasks dropped because the queue was full.
+     */
+    private final AtomicLong rejected;
+
+    /**
+     * Number of tasks that ran on the submitting thread because the queue was full.
+     */
+    private final AtomicLong callerRuns;
+
+    /**
+     * Number of tasks that left the queue.
+     */
+    private final AtomicLong started;
+
+    /**
+     * Summed queue wait of all started tasks in nanoseconds.
+     */
+    private final AtomicLong totalWaitNanos;
+
+    /**
+     * Longest queue wait of a started task in nanoseconds.
+     */
+    private final AtomicLong maxWaitNanos;
+
+    /**
+     * Time of the last overload warning in milliseconds.
+     */
+    private final AtomicLong lastOverloadLogMs;
+
+    /**
+     * Creates a new storage executor.
+     *
+     * @param log            the logger
+     * @param parallelism    number of unordered tasks that run at the same time
+     * @param laneCount      number of lanes for ordered tasks
+     * @param queueCapacity  number of unordered tasks that may wait for a free thread
+     * @param virtualThreads {@code true} to run the tasks on virtual threads
+     * @param overloadPolicy handles a full queue
+     */
+    public StorageExecutor(final WrappedLogger log, final int parallelism, final int laneCount,
+                           final int queueCapacity, final boolean virtualThreads,
+                           final OverloadPolicy overloadPolicy) {
+        this.log = log;
+        this.overloadPolicy = Objects.requireNonNull(overloadPolicy, "overloadPolicy");
+        final int threads = Math.max(1, parallelism);
+        final int capacity = Math.max(1, queueCapacity);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity), threadFactory("LoriTime-Storage-", virtualThreads),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.lanes = new ThreadPoolExecutor[Math.max(1, laneCount)];
+        final ThreadFactory laneThreads = threadFactory("LoriTime-Storage-Lane-", virtualThreads);
+        for (int lane = 0; lane < lanes.length; lane++) {
+            lanes[lane] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), laneThreads,
+                    new ThreadPoolExecutor.AbortPolicy());
+            lanes[lane].prestartAllCoreThreads();
+        }
+        this.queuedByKey = new ConcurrentHashMap<>();
+        this.submitted = new AtomicLong();
+        this.coalesced = new AtomicLong();
+        this.rejected = new AtomicLong();
+        this.callerRuns = new AtomicLong();
+        this.started = new AtomicLong();
+        this.totalWaitNanos = new AtomicLong();
+        this.maxWaitNanos = new AtomicLong();
+        this.lastOverloadLogMs = new AtomicLong();
+    }
+
+    /**
+     * Runs a storage task.
+     *
+     * @param task the task
+     * @return {@code false} if the task was dropped because the queue was full
+     */
+    public boolean execute(final Runnable task) {
+        return submit(new QueuedTask(null, task));
+    }
+
+    /**
+     * Runs a storage task unless a task with the same key is still queued.
+     *
+     * <p>Use this only for tasks that may be merged, such as cache refreshes. If the queue is full and the policy is
+     * {@link OverloadPolicy#COALESCE}, the task is dropped because a later refresh will follow.</p>
+     *
+     * @param coalesceKey key of tasks that may be merged
+     * @param task        the task
+     * @return {@code false} if the task was dropped because the queue was full
+     */
+    public boolean execute(final Object coalesceKey, final Runnable task) {
+        Objects.requireNonNull(coalesceKey, "coalesceKey");
+        final QueuedTask queued = new QueuedTask(coalesceKey, task);
+        if (queuedByKey.putIfAbsent(coalesceKey, queued) != null) {
+            coalesced.incrementAndGet();
+            return true;
+        }
+        return submit(queued);
+    }
+
+    /**
+     * Runs a storage task after all earlier ordered tasks of the same player.
+     *
+     * <p>Ordered tasks are never run on the submitting thread, because that would overtake the queued tasks of the
+     * player, and they are never dropped because of the {@link OverloadPolicy}, because a lost quit would leave the
+     * session open.</p>
+     *
+     * @param player the player whose tasks keep their order
+     * @param task   the task
+     * @return {@code false} if the task was dropped because the executor is shut down
+     */
+    public boolean executeInOrder(final UUID player, final Runnable task) {
+        final ThreadPoolExecutor lane = lanes[Math.floorMod(player.hashCode(), lanes.length)];
+        final QueuedTask queued = new QueuedTask(null, task);
+        try {
+            lane.execute(queued);
+            submitted.incrementAndGet();
+            return true;
+        } catch (final RejectedExecutionException ex) {
+            rejected.incrementAndGet();
+            log.warn("Ordered storage task dropped, the storage executor is shut down.");
+            return false;
+        }
+    }
+
+    /**
+     * Returns the current queue and wait time metrics.
+     *
+     * @return the metrics
+     */
+    public Metrics metrics() {
+        final long startedTasks = started.get();
+        int queueDepth = executor.getQueue().size();
+        int activeTasks = executor.getActiveCount();
+        for (final ThreadPoolExecutor lane : lanes) {
+            queueDepth += lane.getQueue().size();
+            activeTasks += lane.getActiveCount();
+        }
+        return new Metrics(queueDepth, activeTasks, submitted.get(), coalesced.get(), rejected.get(),
+                callerRuns.get(),
+                startedTasks == 0 ? 0L : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / startedTasks),
+                TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+    }
+
+    /**
+     * Stops accepting tasks and waits for the queued tasks to finish.
+     *
+     * @param timeoutMs maximum time to wait in milliseconds
+     */
+    public void shutdown(final long timeoutMs) {
+        for (final ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        executor.shutdown();
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        try {
+            for (final ThreadPoolExecutor lane : lanes) {
+                awaitTermination(lane, deadline);
+            }
+            awaitTermination(executor, deadline);
+        } catch (final InterruptedException ex) {
+            for (final ThreadPoolExecutor lane : lanes) {
+                lane.shutdownNow();
+            }
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void awaitTermination(final ThreadPoolExecutor pool, final long deadline) throws InterruptedException {
+        if (!pool.awaitTermination(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+            log.warn("Storage executor did not finish " + pool.getQueue().size()
+                    + " queued tasks in time, they are dropped.");
+            pool.shutdownNow();
+        }
+    }
+
+    private boolean submit(final QueuedTask task) {
+        try {
+            executor.execute(task);
+            submitted.incrementAndGet();
+            return true;
+        } catch (final RejectedExecutionException ex) {
+            if (task.key != null) {
+                queuedByKey.remove(task.key, task);
+            }
+            return overloaded(task);
+        }
+    }
+
+    private boolean overloaded(final QueuedTask task) {
+        if (executor.isShutdown()) {
+            rejected.incrementAndGet();
+            log.warn("Storage task dropped, the storage executor is shut down.");
+            return false;
+        }
+        final boolean runOnCaller = overloadPolicy == OverloadPolicy.CALLER_RUNS
+                || overloadPolicy == OverloadPolicy.COALESCE && task.key == null;
+        logOverload(runOnCaller ? "running tasks on the caller" : "dropping tasks");
+        if (!runOnCaller) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        callerRuns.incrementAndGet();
+        task.run();
+        return true;
+    }
+
+    private void logOverload(final String action) {
+        final long now = System.currentTimeMillis();
+        final long last = lastOverloadLogMs.get();
+        if (now - last < OVERLOAD_LOG_INTERVAL_MS || !lastOverloadLogMs.compareAndSet(last, now)) {
+            return;
+        }
+        log.warn("Storage executor queue is full, " + action + ". " + metrics());
+    }
+
+    private ThreadFactory threadFactory(final String prefix, final boolean virtualThreads) {
+        if (virtualThreads) {
+            return Thread.ofVirtual().name(prefix, 0).factory();
+        }
+        final AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, prefix + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Handles a task that does not fit into the full queue.
+     */
+    public enum OverloadPolicy {
+        /**
+         * Drops tasks with a coalesce key and runs all other tasks on the submitting thread.
+         */
+        COALESCE,
+        /**
+         * Drops the task.
+         */
+        REJECT,
+        /**
+         * Runs the task on the submitting thread.
+         */
+        CALLER_RUNS;
+
+        /**
+         * Parses a configured policy name.
+         *
+         * @param value        the configured name
+         * @param defaultValue the policy used for unknown names
+         * @return the policy
+         */
+        public static OverloadPolicy parse(final String value, final OverloadPolicy defaultValue) {
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (final IllegalArgumentException ex) {
+                return defaultValue;
+            }
+        }
+    }
+
+    /**
+     * Queue and wait time metrics of the executor.
+     *
+     * @param queueDepth    tasks waiting in the queue
+     * @param activeTasks   tasks that are running
+     * @param submitted     accepted tasks
+     * @param coalesced     tasks merged with a queued task of the same key
+     * @param rejected      tasks dropped because the queue was full
+     * @param callerRuns    tasks that ran on the submitting thread because the queue was full
+     * @param averageWaitMs average queue wait of the started tasks in milliseconds
+     * @param maxWaitMs     longest queue wait of a started task in milliseconds
+     */
+    public record Metrics(int queueDepth, int activeTasks, long submitted, long coalesced, long rejected,
+                          long callerRuns, long averageWaitMs, long maxWaitMs) {
+    }
+
+    /**
+     * Task with its submit time.
+     */
+    private final class QueuedTask implements Runnable {
+
+        /**
+         * Coalesce key, {@code null} for tasks that must not be merged.
+         */
+        private final Object key;
+
+        /**
+         * The task.
+         */
+        private final Runnable task;
+
+        /**
+         * Submit time in nanoseconds.
+         */
+        private final long submittedAtNanos;
+
+        private QueuedTask(final Object key, final Runnable task) {
+            this.key = key;
+            this.task = Objects.requireNonNull(task, "task");
+            this.submittedAtNanos = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            if (key != null) {
+                queuedByKey.remove(key, this);
+            }
+            final long waitNanos = System.nanoTime() - submittedAtNanos;
+            started.incrementAndGet();
+            totalWaitNanos.addAndGet(waitNanos);
+            maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+            try {
+                task.run();
+            } catch (final RuntimeException ex) {
+                log.error("Storage task failed", ex);
+            }
+        }
+    }
+}
@@ -11,11 +11,16 @@ import com.jannik_kuehn.common.storage.model.ManualTimeAdjustment;
 import com.jannik_kuehn.common.storage.model.TimeEntryReason;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.OptionalLong;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Default public facade implementation.
@@ -32,6 +37,11 @@ public final class LoriTimeServiceImpl implements LoriTimeService {
      */
     private static final String UNIQUE_ID_PARAMETER = "uniqueId";
 
+    /**
+     * Parameter name used for UUID collection validation.
+     */
+    private static final String UNIQUE_IDS_PARAMETER = "uniqueIds";
+
     /**
      * Actor name used for API adjustments without an explicit actor.
      */
@@ -159,6 +169,41 @@ public final class LoriTimeServiceImpl implements LoriTimeService {
         return getOnlineTime(validate(player, PLAYER_PARAMETER).getUniqueId(), scope, range);
     }
 
+    /**
+     * Returns the current scoped online time of many players.
+     *
+     * @param uniqueIds the player UUIDs.
+     * @param scope     the requested time scope.
+     * @return future for the online time by UUID, without players that have no stored time in that scope.
+     */
+    @Override
+    public CompletableFuture<Map<UUID, Duration>> getOnlineTimes(final Collection<UUID> uniqueIds,
+                                                                 final TimeScope scope) {
+        final List<UUID> players = List.copyOf(Objects.requireNonNull(uniqueIds, UNIQUE_IDS_PARAMETER));
+        Objects.requireNonNull(scope, "scope");
+        return supplyAsync("Could not query online time for " + players.size() + " players",
+                () -> durations(plugin.getStorage().getTimes(players, scope)));
+    }
+
+    /**
+     * Returns the current scoped online time of many players inside a time range.
+     *
+     * @param uniqueIds the player UUIDs.
+     * @param scope     the requested time scope.
+     * @param range     the requested time range.
+     * @return future for the ranged online time by UUID, without players that have no matching stored time.
+     */
+    @Override
+    public CompletableFuture<Map<UUID, Duration>> getOnlineTimes(final Collection<UUID> uniqueIds,
+                                                                 final TimeScope scope,
+                                                                 final TimeRange range) {
+        final List<UUID> players = List.copyOf(Objects.requireNonNull(uniqueIds, UNIQUE_IDS_PARAMETER));
+        Objects.requireNonNull(scope, "scope");
+        Objects.requireNonNull(range, "range");
+        return supplyAsync("Could not query online time for " + players.size() + " players",
+                () -> durations(plugin.getStorage().getTimes(players, scope, range)));
+    }
+
     /**
      * Adds a signed manual time adjustment using the stable API actor.
      *
@@ -283,13 +328,17 @@ public final class LoriTimeServiceImpl implements LoriTimeService {
 
     private <T> CompletableFuture<T> supplyAsync(final String failureMessage, final StorageSupplier<T> supplier) {
         final CompletableFuture<T> future = new CompletableFuture<>();
-        plugin.getScheduler().runAsyncOnce(() -> {
+        final boolean scheduled = plugin.getStorageExecutor().execute(() -> {
             try {
                 future.complete(supplier.get());
             } catch (final StorageException ex) {
                 future.completeExceptionally(new LoriTimeApiException(failureMessage, ex));
             }
         });
+        if (!scheduled) {
+            future.completeExceptionally(new LoriTimeApiException(failureMessage,
+                    new RejectedExecutionException("The storage executor is overloaded")));
+        }
         return future;
     }
 
@@ -303,6 +352,12 @@ public final class LoriTimeServiceImpl implements LoriTimeService {
         return player;
     }
 
+    private Map<UUID, Duration> durations(final Map<UUID, Long> seconds) {
+        final Map<UUID, Duration> durations = new HashMap<>();
+        seconds.forEach((uniqueId, value) -> durations.put(uniqueId, Duration.ofSeconds(value)));
+        return durations;
+    }
+
     private long seconds(final Duration amount) {
         Objects.requireNonNull(amount, "amount");
         if (amount.getNano() != 0) {
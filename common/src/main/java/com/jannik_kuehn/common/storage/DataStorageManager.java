@@ -3,22 +3,30 @@ package com.jannik_kuehn.common.storage;
 import com.github.roleplaycauldron.spellbook.core.logger.LoggerFactory;
 import com.github.roleplaycauldron.spellbook.core.logger.WrappedLogger;
 import com.jannik_kuehn.common.LoriTimePlugin;
+import com.jannik_kuehn.common.api.storage.TimeScope;
 import com.jannik_kuehn.common.exception.StorageException;
 import com.jannik_kuehn.common.scheduler.PluginTask;
 import com.jannik_kuehn.common.storage.contract.AccumulatingTimeStorage;
 import com.jannik_kuehn.common.storage.contract.AdminStorageMaintenance;
+import com.jannik_kuehn.common.storage.contract.SessionRecoveryJournal;
 import com.jannik_kuehn.common.storage.contract.TimeAccumulator;
 import com.jannik_kuehn.common.storage.contract.UnifiedStorage;
+import com.jannik_kuehn.common.storage.contract.WriteBehindSessionJournal;
 import com.jannik_kuehn.common.storage.database.DatabaseStorage;
 import com.jannik_kuehn.common.storage.database.UnifiedDatabaseStorage;
 import com.jannik_kuehn.common.storage.database.table.ManualAdjustmentTable;
 import com.jannik_kuehn.common.storage.database.table.PlayerTable;
+import com.jannik_kuehn.common.storage.database.table.PlayerTotalTable;
 import com.jannik_kuehn.common.storage.database.table.ServerTable;
+import com.jannik_kuehn.common.storage.database.table.TimeBucketTable;
 import com.jannik_kuehn.common.storage.database.table.TimeTable;
 import com.jannik_kuehn.common.storage.database.table.WorldTable;
+import com.jannik_kuehn.common.storage.leaderboard.LeaderboardService;
+import com.jannik_kuehn.common.storage.model.PlayerSessionChunk;
 import com.jannik_kuehn.common.storage.model.StorageMode;
 
 import java.io.File;
+import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
 
@@ -66,6 +74,31 @@ public class DataStorageManager {
      */
     private TimeAccumulator accumulator;
 
+    /**
+     * The in-memory leaderboard, {@code null} if leaderboards are read from storage.
+     */
+    private LeaderboardService leaderboard;
+
+    /**
+     * The running or finished inactive history cleanup, {@code null} if cleanup is disabled.
+     */
+    private PlayerHistoryJob storageCleanup;
+
+    /**
+     * The running or finished session compaction, {@code null} if compaction is disabled.
+     */
+    private PlayerHistoryJob sessionCompaction;
+
+    /**
+     * The running or finished daily time bucket backfill, {@code null} if the buckets were already filled.
+     */
+    private PlayerHistoryJob bucketBackfill;
+
+    /**
+     * The local journal of open sessions, {@code null} if the journal is disabled.
+     */
+    private SessionRecoveryJournal recoveryJournal;
+
     /**
      * The configured storage responsibility mode.
      */
@@ -81,6 +114,11 @@ public class DataStorageManager {
      */
     private PluginTask flushCacheTask;
 
+    /**
+     * The {@link PluginTask} for the session journal heartbeats.
+     */
+    private PluginTask heartbeatTask;
+
     /**
      * Creates a new {@link DataStorageManager} instance.
      *
@@ -124,12 +162,22 @@ public class DataStorageManager {
     public void startCache() {
         final int saveInterval = loriTime.getConfig().getInt("general.saveInterval");
         flushCacheTask = loriTime.getScheduler().scheduleAsync(saveInterval / 2L, saveInterval, this::flushOnlineTimeCache);
+        if (recoveryJournal != null) {
+            final SessionRecoveryJournal heartbeatJournal = recoveryJournal;
+            final long heartbeatSeconds = Math.max(1, loriTime.getConfig().getInt("sessionJournal.heartbeatSeconds", 5));
+            heartbeatTask = loriTime.getScheduler().scheduleAsync(heartbeatSeconds, heartbeatSeconds,
+                    () -> heartbeatJournal.heartbeat(System.currentTimeMillis()));
+        }
     }
 
     /**
      * Disables the cache flushing {@link PluginTask} and calls {@link #flushOnlineTimeCache()}.
      */
     public void disableCache() {
+        if (heartbeatTask != null) {
+            heartbeatTask.cancel();
+            heartbeatTask = null;
+        }
         if (flushCacheTask != null) {
             flushCacheTask.cancel();
             flushOnlineTimeCache();
@@ -187,6 +235,18 @@ public class DataStorageManager {
      * If you want to load the custom storages again, you have to inject them again.
      */
     public void closeStorages() {
+        if (storageCleanup != null) {
+            storageCleanup.cancel();
+            storageCleanup = null;
+        }
+        if (sessionCompaction != null) {
+            sessionCompaction.cancel();
+            sessionCompaction = null;
+        }
+        if (bucketBackfill != null) {
+            bucketBackfill.cancel();
+            bucketBackfill = null;
+        }
         if (accumulator != null) {
             try {
                 accumulator.close();
@@ -203,6 +263,23 @@ public class DataStorageManager {
         storage = null;
         runtimeStorage = null;
         accumulator = null;
+        leaderboard = null;
+        recoveryJournal = null;
+    }
+
+    /**
+     * Reloads the in-memory leaderboard from the canonical storage.
+     * This is required after storage operations that change totals without going through the runtime storage.
+     */
+    public void reloadLeaderboard() {
+        if (leaderboard == null || storage == null) {
+            return;
+        }
+        try {
+            leaderboard.load(storage);
+        } catch (final StorageException ex) {
+            log.error("Could not reload the leaderboard", ex);
+        }
     }
 
     /**
@@ -223,34 +300,147 @@ public class DataStorageManager {
         final DatabaseStorage dbStorage = new DatabaseStorage(loggerFactory, loriTime.getConfig(), dataFolder);
         dbStorage.initializeRuntime();
 
-        final PlayerTable playerTable = new PlayerTable(dbStorage.getTablePrefix() + "_player");
+        final PlayerTable playerTable = new PlayerTable(dbStorage.getTablePrefix() + "_player", dbStorage.getDialect());
         final ServerTable serverTable = new ServerTable(dbStorage.getTablePrefix() + "_server");
         final WorldTable worldTable = new WorldTable(dbStorage.getTablePrefix() + "_world", serverTable);
         final TimeTable timeTable = new TimeTable(dbStorage.getTablePrefix() + "_time", playerTable, dbStorage.getDialect());
         final ManualAdjustmentTable adjustmentTable = new ManualAdjustmentTable(dbStorage.getTablePrefix() + "_time_adjustment", playerTable);
+        final PlayerTotalTable totalTable = new PlayerTotalTable(dbStorage.getTablePrefix() + "_player_total", playerTable, dbStorage.getDialect());
+        final TimeBucketTable bucketTable = new TimeBucketTable(dbStorage.getTablePrefix() + "_time_bucket", playerTable, dbStorage.getDialect());
 
         final UnifiedDatabaseStorage nameAndTimeStorage = new UnifiedDatabaseStorage(dbStorage.getProvider(), playerTable,
-                serverTable, worldTable, timeTable, adjustmentTable, dbStorage.getDialect());
-        final AccumulatingTimeStorage accumulatingStorage = new AccumulatingTimeStorage(
-                loriTime.getLoggerFactory().create(AccumulatingTimeStorage.class), nameAndTimeStorage);
+                serverTable, worldTable, timeTable, adjustmentTable, totalTable, bucketTable, dbStorage.getDialect());
+        nameAndTimeStorage.warmIdentityCache(Math.max(0, loriTime.getConfig().getInt("storageIdentityCache.warmupPlayers", 10_000)));
         this.storage = nameAndTimeStorage;
+        this.recoveryJournal = openRecoveryJournal(nameAndTimeStorage);
+        this.leaderboard = loadLeaderboardIfEnabled(nameAndTimeStorage);
+        final AccumulatingTimeStorage accumulatingStorage = new AccumulatingTimeStorage(
+                loriTime.getLoggerFactory().create(AccumulatingTimeStorage.class), nameAndTimeStorage,
+                createWriteBehindJournal(nameAndTimeStorage), leaderboard, recoveryJournal);
         this.runtimeStorage = accumulatingStorage;
         this.accumulator = accumulatingStorage;
-        runStorageCleanupIfEnabled();
+        this.storageCleanup = startStorageCleanupIfEnabled(nameAndTimeStorage);
+        this.sessionCompaction = startSessionCompactionIfEnabled(nameAndTimeStorage);
+        this.bucketBackfill = startBucketBackfillIfNeeded(nameAndTimeStorage);
     }
 
-    private void runStorageCleanupIfEnabled() {
-        if (!loriTime.getConfig().getBoolean("storageCleanup.enabled", false)) {
-            return;
+    private SessionRecoveryJournal openRecoveryJournal(final UnifiedDatabaseStorage backingStorage) {
+        if (!loriTime.getConfig().getBoolean("sessionJournal.enabled", false)) {
+            return null;
         }
-        final long inactiveDays = loriTime.getConfig().getInt("storageCleanup.inactiveAfterDays", 365);
+        final File file = new File(dataFolder, "session-journal.dat");
+        final SessionRecoveryJournal openedJournal;
+        try {
+            openedJournal = SessionRecoveryJournal.open(loggerFactory.create(SessionRecoveryJournal.class), file,
+                    Math.max(1, loriTime.getConfig().getInt("sessionJournal.initialSlots", 256)));
+        } catch (final StorageException ex) {
+            log.error("Could not open the session journal, open sessions are only persisted by flushes", ex);
+            return null;
+        }
+        try {
+            final List<PlayerSessionChunk> unfinished = openedJournal.unfinishedSessions();
+            if (!unfinished.isEmpty()) {
+                backingStorage.persistSessions(unfinished);
+                log.info("Recovered the online time of " + unfinished.size()
+                        + " sessions that were open when the server stopped unexpectedly.");
+            }
+            openedJournal.clear();
+        } catch (final StorageException ex) {
+            log.error("Could not recover the open sessions of the session journal, it is kept for the next start", ex);
+            closeQuietly(openedJournal);
+            return null;
+        }
+        return openedJournal;
+    }
+
+    private void closeQuietly(final SessionRecoveryJournal openedJournal) {
         try {
-            final int deletedRows = storage.deleteInactiveHistory(inactiveDays);
-            log.info("Storage cleanup removed " + deletedRows + " history rows for players inactive for more than "
-                    + inactiveDays + " days.");
+            openedJournal.close();
         } catch (final StorageException ex) {
-            log.error("Could not run storage cleanup", ex);
+            log.warn("Could not close the session journal", ex);
+        }
+    }
+
+    private LeaderboardService loadLeaderboardIfEnabled(final UnifiedStorage backingStorage) {
+        if (!loriTime.getConfig().getBoolean("storageLeaderboard.enabled", true)) {
+            return null;
+        }
+        final LeaderboardService loadedLeaderboard = new LeaderboardService();
+        try {
+            loadedLeaderboard.load(backingStorage);
+        } catch (final StorageException ex) {
+            log.error("Could not load the leaderboard, leaderboards are read from storage instead", ex);
+            return null;
+        }
+        log.info("Loaded the leaderboard of " + loadedLeaderboard.summary(TimeScope.GLOBAL).players()
+                + " players into memory.");
+        return loadedLeaderboard;
+    }
+
+    private WriteBehindSessionJournal createWriteBehindJournal(final UnifiedStorage backingStorage) {
+        if (!loriTime.getConfig().getBoolean("storageWriteBehind.enabled", false)) {
+            return null;
+        }
+        final int maxBatchSize = Math.max(1, loriTime.getConfig().getInt("storageWriteBehind.maxBatchSize", 500));
+        final long maxLatencyMs = Math.max(1, loriTime.getConfig().getInt("storageWriteBehind.maxLatencyMs", 1000));
+        log.info("Write-behind session writes enabled (maxBatchSize " + maxBatchSize + ", maxLatencyMs " + maxLatencyMs + ").");
+        return new WriteBehindSessionJournal(loggerFactory.create(WriteBehindSessionJournal.class), backingStorage,
+                maxBatchSize, maxLatencyMs);
+    }
+
+    private PlayerHistoryJob startStorageCleanupIfEnabled(final UnifiedDatabaseStorage backingStorage) {
+        if (!loriTime.getConfig().getBoolean("storageCleanup.enabled", false)) {
+            return null;
+        }
+        final long inactiveDays = loriTime.getConfig().getInt("storageCleanup.inactiveAfterDays", 365);
+        final int chunkSize = Math.max(1, loriTime.getConfig().getInt("storageCleanup.chunkSize", 500));
+        final long pauseMs = loriTime.getConfig().getInt("storageCleanup.pauseMs", 250);
+        log.info("Storage cleanup of players inactive for more than " + inactiveDays + " days started.");
+        return startPlayerHistoryJob("Storage cleanup", pauseMs,
+                afterPlayerId -> backingStorage.deleteInactiveHistoryChunk(inactiveDays, afterPlayerId, chunkSize),
+                this::reloadLeaderboard);
+    }
+
+    private PlayerHistoryJob startSessionCompactionIfEnabled(final UnifiedDatabaseStorage backingStorage)
+            throws StorageException {
+        if (!loriTime.getConfig().getBoolean("storageCompaction.enabled", false)) {
+            return null;
         }
+        final long olderThanDays = Math.max(1, loriTime.getConfig().getInt("storageCompaction.olderThanDays", 30));
+        if (!backingStorage.startSessionCompaction(olderThanDays)) {
+            return null;
+        }
+        final int chunkSize = Math.max(1, loriTime.getConfig().getInt("storageCompaction.chunkSize", 50));
+        final long pauseMs = loriTime.getConfig().getInt("storageCompaction.pauseMs", 250);
+        log.info("Session compaction of sessions older than " + olderThanDays + " days started.");
+        // Compaction keeps every total unchanged, so the leaderboard does not need to be reloaded.
+        return startPlayerHistoryJob("Session compaction", pauseMs,
+                afterPlayerId -> backingStorage.compactSessionsChunk(afterPlayerId, chunkSize),
+                () -> {
+                });
+    }
+
+    private PlayerHistoryJob startBucketBackfillIfNeeded(final UnifiedDatabaseStorage backingStorage)
+            throws StorageException {
+        if (!backingStorage.startTimeBucketBackfill()) {
+            return null;
+        }
+        final int chunkSize = Math.max(1, loriTime.getConfig().getInt("storageBucketBackfill.chunkSize", 500));
+        final long pauseMs = loriTime.getConfig().getInt("storageBucketBackfill.pauseMs", 250);
+        log.info("Filling the daily time buckets from session history, ranged lookups read raw sessions until done.");
+        // The backfill only rebuilds buckets, so the leaderboard does not need to be reloaded.
+        return startPlayerHistoryJob("Time bucket backfill", pauseMs,
+                afterPlayerId -> backingStorage.backfillTimeBucketsChunk(afterPlayerId, chunkSize),
+                () -> {
+                });
+    }
+
+    private PlayerHistoryJob startPlayerHistoryJob(final String name, final long pauseMs,
+                                                   final PlayerHistoryJob.ChunkStep step, final Runnable afterRemoval) {
+        final PlayerHistoryJob job = new PlayerHistoryJob(loggerFactory.create(PlayerHistoryJob.class), name, step,
+                pauseMs, afterRemoval);
+        loriTime.getScheduler().runAsyncOnce(job);
+        return job;
     }
 
     /**
@@ -271,6 +461,33 @@ public class DataStorageManager {
         return accumulator;
     }
 
+    /**
+     * Returns the in-memory leaderboard.
+     *
+     * @return the leaderboard, or empty if leaderboards are read from storage
+     */
+    public Optional<LeaderboardService> getLeaderboard() {
+        return Optional.ofNullable(leaderboard);
+    }
+
+    /**
+     * Returns the inactive history cleanup of the current storage.
+     *
+     * @return the cleanup, or empty if cleanup is disabled
+     */
+    public Optional<PlayerHistoryJob> getStorageCleanup() {
+        return Optional.ofNullable(storageCleanup);
+    }
+
+    /**
+     * Returns the session compaction of the current storage.
+     *
+     * @return the compaction, or empty if compaction is disabled or had nothing to compact
+     */
+    public Optional<PlayerHistoryJob> getSessionCompaction() {
+        return Optional.ofNullable(sessionCompaction);
+    }
+
     /**
      * Returns optional admin storage maintenance support.
      *
@@ -0,0 +1,184 @@
+package com.jannik_kuehn.common.storage;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Streams the top-level {@code key: value} entries of a legacy flat-file without loading the whole document.
+ *
+ * <p>The legacy {@code names.yml} and {@code time.yml} files only contain flat scalar mappings. Plain, single quoted
+ * and double quoted scalars are supported. Any other YAML construct makes {@link #next()} fail with an
+ * {@link UnsupportedFormatException}, so the caller can fall back to a full YAML parse.</p>
+ */
+final class LegacyFlatFileReader implements Closeable {
+
+    /**
+     * The underlying line reader.
+     */
+    private final BufferedReader reader;
+
+    /**
+     * Number of the last read line.
+     */
+    private int lineNumber;
+
+    /**
+     * Opens a legacy flat-file for streaming.
+     *
+     * @param file the legacy file
+     * @throws IOException if the file cannot be opened
+     */
+    /* default */ LegacyFlatFileReader(final File file) throws IOException {
+        this.reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the next entry.
+     *
+     * @return the next key and value, or empty at the end of the file
+     * @throws IOException if the file cannot be read or contains unsupported YAML
+     */
+    /* default */ Optional<Map.Entry<String, String>> next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            final String trimmed = stripBom(line).strip();
+            if (trimmed.isEmpty() || trimmed.charAt(0) == '#' || "{}".equals(trimmed)) {
+                continue;
+            }
+            if (Character.isWhitespace(line.charAt(0))) {
+                throw unsupported();
+            }
+            return Optional.of(parseEntry(trimmed));
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Map.Entry<String, String> parseEntry(final String line) throws UnsupportedFormatException {
+        final int[] position = {0};
+        final String key = parseScalar(line, position, true);
+        if (position[0] >= line.length() || line.charAt(position[0]) != ':') {
+            throw unsupported();
+        }
+        position[0]++;
+        while (position[0] < line.length() && line.charAt(position[0]) == ' ') {
+            position[0]++;
+        }
+        final String value = parseScalar(line, position, false);
+        if (position[0] < line.length() && !line.substring(position[0]).strip().startsWith("#")) {
+            throw unsupported();
+        }
+        return new AbstractMap.SimpleImmutableEntry<>(key, value);
+    }
+
+    private String parseScalar(final String line, final int[] position, final boolean key)
+            throws UnsupportedFormatException {
+        if (position[0] >= line.length()) {
+            throw unsupported();
+        }
+        final char first = line.charAt(position[0]);
+        if (first == '\'') {
+            return parseSingleQuoted(line, position);
+        }
+        if (first == '"') {
+            return parseDoubleQuoted(line, position);
+        }
+        if ("[]{}&*!|>%@`".indexOf(first) >= 0) {
+            throw unsupported();
+        }
+        final int end = key ? line.indexOf(": ") : line.indexOf(" #", position[0]);
+        final int stop = key && end < 0 && line.endsWith(":") ? line.length() - 1 : end;
+        if (key && stop < 0) {
+            throw unsupported();
+        }
+        final String scalar = (stop < 0 ? line.substring(position[0]) : line.substring(position[0], stop)).strip();
+        position[0] = stop < 0 ? line.length() : stop;
+        if (scalar.isEmpty()) {
+            throw unsupported();
+        }
+        return scalar;
+    }
+
+    private String parseSingleQuoted(final String line, final int[] position) throws UnsupportedFormatException {
+        final StringBuilder scalar = new StringBuilder();
+        int index = position[0] + 1;
+        while (index < line.length()) {
+            final char current = line.charAt(index);
+            if (current == '\'') {
+                if (index + 1 < line.length() && line.charAt(index + 1) == '\'') {
+                    scalar.append('\'');
+                    index += 2;
+                    continue;
+                }
+                position[0] = index + 1;
+                return scalar.toString();
+            }
+            scalar.append(current);
+            index++;
+        }
+        throw unsupported();
+    }
+
+    private String parseDoubleQuoted(final String line, final int[] position) throws UnsupportedFormatException {
+        final StringBuilder scalar = new StringBuilder();
+        int index = position[0] + 1;
+        while (index < line.length()) {
+            final char current = line.charAt(index);
+            if (current == '"') {
+                position[0] = index + 1;
+                return scalar.toString();
+            }
+            if (current == '\\') {
+                if (index + 1 >= line.length() || "\"\\/".indexOf(line.charAt(index + 1)) < 0) {
+                    throw unsupported();
+                }
+                scalar.append(line.charAt(index + 1));
+                index += 2;
+                continue;
+            }
+            scalar.append(current);
+            index++;
+        }
+        throw unsupported();
+    }
+
+    private String stripBom(final String line) {
+        return lineNumber == 1 && !line.isEmpty() && line.charAt(0) == '\uFEFF' ? line.substring(1) : line;
+    }
+
+    private UnsupportedFormatException unsupported() {
+        return new UnsupportedFormatException("Unsupported legacy flat-file syntax in line " + lineNumber);
+    }
+
+    /**
+     * Signals YAML syntax that is not a flat scalar mapping.
+     */
+    /* default */ static final class UnsupportedFormatException extends IOException {
+
+        /**
+         * Serialization version.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Creates a new exception.
+         *
+         * @param message the message
+         */
+        /* default */ UnsupportedFormatException(final String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.jannik_kuehn.common.storage;
+
+import com.github.roleplaycauldron.spellbook.core.logger.WrappedLogger;
+import com.jannik_kuehn.common.exception.StorageException;
+import com.jannik_kuehn.common.storage.model.PlayerHistoryChunk;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processes the stored history of all players chunk by chunk in the background.
+ *
+ * <p>Every chunk is processed by the storage in its own short transaction, followed by a pause so that session writes
+ * can take the database lock in between. Startup does not wait for the job. The progress is logged periodically and
+ * can be read while the job runs. Used by the inactive history cleanup, the session compaction and the daily time
+ * bucket backfill.</p>
+ */
+public class PlayerHistoryJob implements Runnable {
+
+    /**
+     * Minimum time between two progress messages in milliseconds.
+     */
+    private static final long PROGRESS_LOG_INTERVAL_MS = 10_000L;
+
+    /**
+     * The {@link WrappedLogger} instance.
+     */
+    private final WrappedLogger log;
+
+    /**
+     * Name of the job used in log messages.
+     */
+    private final String name;
+
+    /**
+     * Processes the chunk after a player id.
+     */
+    private final ChunkStep step;
+
+    /**
+     * Pause between two chunks in milliseconds.
+     */
+    private final long pauseMs;
+
+    /**
+     * Runs after the job finished if any rows were removed.
+     */
+    private final Runnable afterRemoval;
+
+    /**
+     * Number of processed players.
+     */
+    private volatile long players;
+
+    /**
+     * Number of removed history rows.
+     */
+    private volatile long removedRows;
+
+    /**
+     * Start of the job in nanoseconds, zero before it started.
+     */
+    private volatile long startedAtNanos;
+
+    /**
+     * {@code true} once the job has ended.
+     */
+    private volatile boolean finished;
+
+    /**
+     * {@code true} if the job should stop after the current chunk.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Creates a new player history job.
+     *
+     * @param log          the logger
+     * @param name         name of the job used in log messages
+     * @param step         processes the chunk after a player id
+     * @param pauseMs      pause between two chunks in milliseconds
+     * @param afterRemoval runs after the job finished if any rows were removed
+     */
+    public PlayerHistoryJob(final WrappedLogger log, final String name, final ChunkStep step, final long pauseMs,
+                            final Runnable afterRemoval) {
+        this.log = log;
+        this.name = name;
+        this.step = step;
+        this.pauseMs = Math.max(0L, pauseMs);
+        this.afterRemoval = afterRemoval;
+    }
+
+    @Override
+    public void run() {
+        startedAtNanos = System.nanoTime();
+        long lastLogNanos = startedAtNanos;
+        try {
+            PlayerHistoryChunk chunk = step.process(0L);
+            while (chunk.players() > 0 && !cancelled) {
+                players += chunk.players();
+                removedRows += chunk.removedRows();
+                if (System.nanoTime() - lastLogNanos >= TimeUnit.MILLISECONDS.toNanos(PROGRESS_LOG_INTERVAL_MS)) {
+                    lastLogNanos = System.nanoTime();
+                    log.info(name + " processed " + players + " players and removed " + removedRows
+                            + " history rows so far (" + rowsPerSecond() + " rows per second).");
+                }
+                if (pauseMs > 0) {
+                    Thread.sleep(pauseMs);
+                }
+                chunk = step.process(chunk.lastPlayerId());
+            }
+        } catch (final StorageException ex) {
+            log.error(name + " failed", ex);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            finished = true;
+        }
+        log.info(name + " processed " + players + " players and removed " + removedRows + " history rows ("
+                + rowsPerSecond() + " rows per second).");
+        if (removedRows > 0) {
+            afterRemoval.run();
+        }
+    }
+
+    /**
+     * Stops the job after the current chunk.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Returns the current progress.
+     *
+     * @return the progress
+     */
+    public Progress progress() {
+        return new Progress(players, removedRows, rowsPerSecond(), finished);
+    }
+
+    private long rowsPerSecond() {
+        if (startedAtNanos == 0L) {
+            return 0L;
+        }
+        final long elapsedNanos = Math.max(1L, System.nanoTime() - startedAtNanos);
+        return removedRows * 1_000_000_000L / elapsedNanos;
+    }
+
+    /**
+     * Processes the history of one chunk of players.
+     */
+    @FunctionalInterface
+    public interface ChunkStep {
+
+        /**
+         * Processes the next chunk.
+         *
+         * @param afterPlayerId only players with a greater id are processed
+         * @return the processed chunk, without players once no players are left
+         * @throws StorageException if the chunk could not be processed
+         */
+        PlayerHistoryChunk process(long afterPlayerId) throws StorageException;
+    }
+
+    /**
+     * Progress of the job.
+     *
+     * @param players       processed players
+     * @param removedRows   removed history rows
+     * @param rowsPerSecond removed rows per second
+     * @param finished      {@code true} once the job has ended
+     */
+    public record Progress(long players, long removedRows, long rowsPerSecond, boolean finished) {
+    }
+}
@@ -10,7 +10,9 @@ import com.jannik_kuehn.common.storage.database.UnifiedDatabaseStorage;
 import com.jannik_kuehn.common.storage.database.migration.DatabaseMigrationPreflight;
 import com.jannik_kuehn.common.storage.database.table.ManualAdjustmentTable;
 import com.jannik_kuehn.common.storage.database.table.PlayerTable;
+import com.jannik_kuehn.common.storage.database.table.PlayerTotalTable;
 import com.jannik_kuehn.common.storage.database.table.ServerTable;
+import com.jannik_kuehn.common.storage.database.table.TimeBucketTable;
 import com.jannik_kuehn.common.storage.database.table.TimeTable;
 import com.jannik_kuehn.common.storage.database.table.WorldTable;
 import com.jannik_kuehn.common.storage.model.PlayerSessionChunk;
@@ -21,6 +23,9 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
@@ -62,6 +67,16 @@ public class StorageMigrationService {
      */
     private static final String CANONICAL_TABLE_PREFIX = "loritime";
 
+    /**
+     * Number of legacy entries written per transaction.
+     */
+    private static final int IMPORT_CHUNK_SIZE = 1000;
+
+    /**
+     * Number of imported legacy entries between progress messages.
+     */
+    private static final long IMPORT_PROGRESS_INTERVAL = 25_000L;
+
     /**
      * The plugin instance.
      */
@@ -167,13 +182,17 @@ public class StorageMigrationService {
 
     @SuppressWarnings("PMD.CloseResource")
     private void importLegacyFiles(final DatabaseStorage databaseStorage, final File namesFile, final File timeFile) throws StorageException {
-        final PlayerTable playerTable = new PlayerTable(databaseStorage.getTablePrefix() + "_player");
+        final PlayerTable playerTable = new PlayerTable(databaseStorage.getTablePrefix() + "_player", databaseStorage.getDialect());
         final ServerTable serverTable = new ServerTable(databaseStorage.getTablePrefix() + "_server");
         final WorldTable worldTable = new WorldTable(databaseStorage.getTablePrefix() + "_world", serverTable);
         final TimeTable timeTable = new TimeTable(databaseStorage.getTablePrefix() + "_time", playerTable, databaseStorage.getDialect());
         final ManualAdjustmentTable adjustmentTable = new ManualAdjustmentTable(databaseStorage.getTablePrefix() + "_time_adjustment", playerTable);
-        final UnifiedDatabaseStorage storage = new UnifiedDatabaseStorage(
-                databaseStorage.getProvider(), playerTable, serverTable, worldTable, timeTable, adjustmentTable, databaseStorage.getDialect());
+        final PlayerTotalTable totalTable = new PlayerTotalTable(databaseStorage.getTablePrefix() + "_player_total", playerTable,
+                databaseStorage.getDialect());
+        final TimeBucketTable bucketTable = new TimeBucketTable(databaseStorage.getTablePrefix() + "_time_bucket", playerTable,
+                databaseStorage.getDialect());
+        final UnifiedDatabaseStorage storage = new UnifiedDatabaseStorage(databaseStorage.getProvider(), playerTable, serverTable,
+                worldTable, timeTable, adjustmentTable, totalTable, bucketTable, databaseStorage.getDialect());
 
         importNames(storage, namesFile);
         importTimes(storage, timeFile);
@@ -183,29 +202,81 @@ public class StorageMigrationService {
         if (!namesFile.exists()) {
             return;
         }
-        final Configuration names = loadFlatDataFile(namesFile);
-        for (final Map.Entry<String, Object> entry : names.getAll().entrySet()) {
-            final Optional<UUID> uuid = parseUuid(entry.getValue());
+        final Map<UUID, String> chunk = new LinkedHashMap<>();
+        final ImportProgress progress = new ImportProgress("player names");
+        forEachLegacyEntry(namesFile, (name, value) -> {
+            final Optional<UUID> uuid = parseUuid(value);
             if (uuid.isPresent()) {
-                storage.setPlayerName(uuid.get(), entry.getKey());
+                chunk.put(uuid.get(), name);
             }
-        }
+            if (chunk.size() >= IMPORT_CHUNK_SIZE) {
+                storage.setPlayerNames(chunk);
+                progress.add(chunk.size());
+                chunk.clear();
+            }
+        });
+        storage.setPlayerNames(chunk);
+        progress.add(chunk.size());
+        progress.finish();
     }
 
     private void importTimes(final UnifiedDatabaseStorage storage, final File timeFile) throws StorageException {
         if (!timeFile.exists()) {
             return;
         }
-        final Configuration times = loadFlatDataFile(timeFile);
-        for (final Map.Entry<String, Object> entry : times.getAll().entrySet()) {
-            final Optional<UUID> uuid = parseUuid(entry.getKey());
-            final Optional<Long> time = parseLong(entry.getValue());
+        final List<PlayerSessionChunk> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        final ImportProgress progress = new ImportProgress("player times");
+        final long now = System.currentTimeMillis();
+        forEachLegacyEntry(timeFile, (player, value) -> {
+            final Optional<UUID> uuid = parseUuid(player);
+            final Optional<Long> time = parseLong(value);
             if (uuid.isPresent() && time.isPresent()) {
-                final long now = System.currentTimeMillis();
-                storage.persistSession(new PlayerSessionChunk(uuid.get(), Optional.empty(),
+                chunk.add(new PlayerSessionChunk(uuid.get(), Optional.empty(),
                         SessionContextDefaults.SERVER, SessionContextDefaults.WORLD, now - time.get() * 1000L, now,
                         TimeEntryReason.LEGACY_IMPORT));
             }
+            if (chunk.size() >= IMPORT_CHUNK_SIZE) {
+                storage.persistSessions(chunk);
+                progress.add(chunk.size());
+                chunk.clear();
+            }
+        });
+        storage.persistSessions(chunk);
+        progress.add(chunk.size());
+        progress.finish();
+    }
+
+    private void forEachLegacyEntry(final File file, final LegacyEntryConsumer consumer) throws StorageException {
+        if (!isStreamable(file)) {
+            log.info("Legacy file " + file.getName() + " is not a flat mapping, loading it completely instead.");
+            for (final Map.Entry<String, Object> entry : loadFlatDataFile(file).getAll().entrySet()) {
+                consumer.accept(entry.getKey(), entry.getValue());
+            }
+            return;
+        }
+        try (LegacyFlatFileReader reader = new LegacyFlatFileReader(file)) {
+            Optional<Map.Entry<String, String>> entry;
+            while ((entry = reader.next()).isPresent()) {
+                consumer.accept(entry.get().getKey(), entry.get().getValue());
+            }
+        } catch (final IOException ex) {
+            throw new StorageException("Could not read legacy flat data file: " + file.getName(), ex);
+        }
+    }
+
+    private boolean isStreamable(final File file) throws StorageException {
+        try (LegacyFlatFileReader reader = new LegacyFlatFileReader(file)) {
+            // Validate every line before the first entry is written.
+            boolean hasNext = true;
+            while (hasNext) {
+                hasNext = reader.next().isPresent();
+            }
+            return true;
+        } catch (final LegacyFlatFileReader.UnsupportedFormatException ex) {
+            log.debug(ex.getMessage());
+            return false;
+        } catch (final IOException ex) {
+            throw new StorageException("Could not read legacy flat data file: " + file.getName(), ex);
         }
     }
 
@@ -253,4 +324,61 @@ public class StorageMigrationService {
             throw new StorageException("Could not mark legacy file as migrated: " + file.getName(), ex);
         }
     }
+
+    /**
+     * Receives one entry of a legacy flat-file.
+     */
+    @FunctionalInterface
+    private interface LegacyEntryConsumer {
+        void accept(String key, Object value) throws StorageException;
+    }
+
+    /**
+     * Logs the progress and throughput of one legacy import.
+     */
+    private final class ImportProgress {
+
+        /**
+         * Description of the imported entries.
+         */
+        private final String description;
+
+        /**
+         * Start of the import in nanoseconds.
+         */
+        private final long startedAtNanos;
+
+        /**
+         * Number of imported entries.
+         */
+        private long imported;
+
+        /**
+         * Creates a progress logger.
+         *
+         * @param description description of the imported entries
+         */
+        private ImportProgress(final String description) {
+            this.description = description;
+            this.startedAtNanos = System.nanoTime();
+        }
+
+        private void add(final int entries) {
+            final long previous = imported;
+            imported += entries;
+            if (imported / IMPORT_PROGRESS_INTERVAL > previous / IMPORT_PROGRESS_INTERVAL) {
+                log.info("Imported " + imported + " legacy " + description + " (" + rate() + " per second).");
+            }
+        }
+
+        private void finish() {
+            log.info("Imported " + imported + " legacy " + description + " in "
+                    + (System.nanoTime() - startedAtNanos) / 1_000_000L + " ms (" + rate() + " per second).");
+        }
+
+        private long rate() {
+            final long elapsedNanos = Math.max(1L, System.nanoTime() - startedAtNanos);
+            return imported * 1_000_000_000L / elapsedNanos;
+        }
+    }
 }
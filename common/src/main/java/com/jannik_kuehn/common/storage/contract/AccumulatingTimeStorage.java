@@ -4,13 +4,19 @@ import com.github.roleplaycauldron.spellbook.core.logger.WrappedLogger;
 import com.jannik_kuehn.common.api.storage.TimeRange;
 import com.jannik_kuehn.common.api.storage.TimeScope;
 import com.jannik_kuehn.common.exception.StorageException;
+import com.jannik_kuehn.common.storage.leaderboard.LeaderboardService;
+import com.jannik_kuehn.common.storage.model.LeaderboardEntry;
+import com.jannik_kuehn.common.storage.model.LeaderboardSummary;
 import com.jannik_kuehn.common.storage.model.ManualTimeAdjustment;
 import com.jannik_kuehn.common.storage.model.PersistedPlayerSession;
 import com.jannik_kuehn.common.storage.model.PlayerSessionChunk;
 import com.jannik_kuehn.common.storage.model.PlayerSessionContext;
 import com.jannik_kuehn.common.storage.model.RecentPlayerIdentity;
+import com.jannik_kuehn.common.storage.model.SessionWrite;
 import com.jannik_kuehn.common.storage.model.TimeEntryReason;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -42,6 +48,21 @@ public class AccumulatingTimeStorage implements UnifiedStorage, TimeAccumulator
      */
     private final ConcurrentMap<UUID, PersistedPlayerSession> onlineSessions = new ConcurrentHashMap<>();
 
+    /**
+     * Optional write-behind journal for session writes, {@code null} when session writes are synchronous.
+     */
+    private final WriteBehindSessionJournal journal;
+
+    /**
+     * Optional in-memory leaderboard that receives written time, {@code null} when leaderboards are read from storage.
+     */
+    private final LeaderboardService leaderboard;
+
+    /**
+     * Optional local journal of the open sessions, {@code null} when open sessions are only persisted by flushes.
+     */
+    private final SessionRecoveryJournal recoveryJournal;
+
     /**
      * Creates a new accumulating storage wrapper.
      *
@@ -49,8 +70,54 @@ public class AccumulatingTimeStorage implements UnifiedStorage, TimeAccumulator
      * @param timeStorage the backing storage.
      */
     public AccumulatingTimeStorage(final WrappedLogger log, final UnifiedStorage timeStorage) {
+        this(log, timeStorage, null);
+    }
+
+    /**
+     * Creates a new accumulating storage wrapper with an optional write-behind journal.
+     * Session ids of active sessions are journal placeholders while the journal is used.
+     *
+     * @param log         the logger.
+     * @param timeStorage the backing storage.
+     * @param journal     the write-behind journal, or {@code null} to write sessions synchronously.
+     */
+    public AccumulatingTimeStorage(final WrappedLogger log, final UnifiedStorage timeStorage,
+                                   final WriteBehindSessionJournal journal) {
+        this(log, timeStorage, journal, null);
+    }
+
+    /**
+     * Creates a new accumulating storage wrapper with an optional write-behind journal and in-memory leaderboard.
+     * Unranged global and server leaderboards are answered by the in-memory leaderboard while it is used.
+     *
+     * @param log         the logger.
+     * @param timeStorage the backing storage.
+     * @param journal     the write-behind journal, or {@code null} to write sessions synchronously.
+     * @param leaderboard the loaded in-memory leaderboard, or {@code null} to read leaderboards from storage.
+     */
+    public AccumulatingTimeStorage(final WrappedLogger log, final UnifiedStorage timeStorage,
+                                   final WriteBehindSessionJournal journal, final LeaderboardService leaderboard) {
+        this(log, timeStorage, journal, leaderboard, null);
+    }
+
+    /**
+     * Creates a new accumulating storage wrapper with all optional components.
+     * Open sessions are recorded in the recovery journal while it is used, so they can be replayed after a crash.
+     *
+     * @param log             the logger.
+     * @param timeStorage     the backing storage.
+     * @param journal         the write-behind journal, or {@code null} to write sessions synchronously.
+     * @param leaderboard     the loaded in-memory leaderboard, or {@code null} to read leaderboards from storage.
+     * @param recoveryJournal the local journal of open sessions, or {@code null} to rely on flushes only.
+     */
+    public AccumulatingTimeStorage(final WrappedLogger log, final UnifiedStorage timeStorage,
+                                   final WriteBehindSessionJournal journal, final LeaderboardService leaderboard,
+                                   final SessionRecoveryJournal recoveryJournal) {
         this.log = log;
         this.storage = Objects.requireNonNull(timeStorage);
+        this.journal = journal;
+        this.leaderboard = leaderboard;
+        this.recoveryJournal = recoveryJournal;
     }
 
     @Override
@@ -66,11 +133,17 @@ public class AccumulatingTimeStorage implements UnifiedStorage, TimeAccumulator
     @Override
     public void setPlayerName(final UUID uniqueId, final String name) throws StorageException {
         storage.setPlayerName(uniqueId, name);
+        if (leaderboard != null) {
+            leaderboard.setName(uniqueId, name);
+        }
     }
 
     @Override
     public void setPlayerNames(final Map<UUID, String> entries) throws StorageException {
         storage.setPlayerNames(entries);
+        if (leaderboard != null) {
+            entries.forEach(leaderboard::setName);
+        }
     }
 
     @Override
@@ -128,24 +201,71 @@ public class AccumulatingTimeStorage implements UnifiedStorage, TimeAccumulator
         return storedTime;
     }
 
+    @Override
+    public Map<UUID, Long> getTimes(final Collection<UUID> uniqueIds, final TimeScope scope) throws StorageException {
+        Objects.requireNonNull(scope, "scope");
+        final Map<UUID, Long> times = new HashMap<>(storage.getTimes(uniqueIds, scope));
+        final long now = System.currentTimeMillis();
+        for (final UUID uniqueId : Set.copyOf(uniqueIds)) {
+            final PersistedPlayerSession activeSession = onlineSessions.get(uniqueId);
+            if (activeSession != null && scope.matches(activeSession.context())) {
+                times.merge(uniqueId, (now - activeSession.lastPersistedAtMs()) / 1000L, Long::sum);
+            }
+        }
+        return times;
+    }
+
+    @Override
+    public Map<UUID, Long> getTimes(final Collection<UUID> uniqueIds, final TimeScope scope, final TimeRange range)
+            throws StorageException {
+        Objects.requireNonNull(scope, "scope");
+        Objects.requireNonNull(range, "range");
+        final Map<UUID, Long> times = new HashMap<>(storage.getTimes(uniqueIds, scope, range));
+        final long now = System.currentTimeMillis();
+        for (final UUID uniqueId : Set.copyOf(uniqueIds)) {
+            final PersistedPlayerSession activeSession = onlineSessions.get(uniqueId);
+            if (activeSession != null && scope.matches(activeSession.context())) {
+                final long accumulatedTime = range.overlapSeconds(activeSession.lastPersistedAtMs(), now);
+                if (accumulatedTime > 0L) {
+                    times.merge(uniqueId, accumulatedTime, Long::sum);
+                }
+            }
+        }
+        return times;
+    }
+
     @Override
     public void addTime(final UUID uuid, final long additionalTime, final TimeEntryReason reason) throws StorageException {
         storage.addTime(uuid, additionalTime, reason);
+        if (leaderboard != null) {
+            leaderboard.addAdjustments(List.of(new ManualTimeAdjustment(uuid, additionalTime, reason, "")));
+        }
     }
 
     @Override
     public void addTime(final ManualTimeAdjustment adjustment) throws StorageException {
         storage.addTime(adjustment);
+        if (leaderboard != null) {
+            leaderboard.addAdjustments(List.of(adjustment));
+        }
     }
 
     @Override
     public void addTimes(final Map<UUID, Long> additionalTimes, final TimeEntryReason reason) throws StorageException {
         storage.addTimes(additionalTimes, reason);
+        if (leaderboard != null && additionalTimes != null) {
+            leaderboard.addAdjustments(additionalTimes.entrySet().stream()
+                    .map(entry -> new ManualTimeAdjustment(entry.getKey(), entry.getValue(), reason, ""))
+                    .toList());
+        }
     }
 
     @Override
     public void addAdjustments(final List<ManualTimeAdjustment> adjustments) throws StorageException {
         storage.addAdjustments(adjustments);
+        if (leaderboard != null && adjustments != null) {
+            leaderboard.addAdjustments(adjustments);
+        }
     }
 
     @Override
@@ -153,6 +273,24 @@ public class AccumulatingTimeStorage implements UnifiedStorage, TimeAccumulator
         return storage.getAllTimeEntries();
     }
 
+    @Override
+    public List<LeaderboardEntry> getLeaderboard(final TimeScope scope, final Optional<TimeRange> range,
+                                                 final int offset, final int limit) throws StorageException {
+        if (leaderboard != null && range.isEmpty() && leaderboard.covers(scope)) {
+            return leaderboard.page(scope, offset, limit);
+        }
+        return storage.getLeaderboard(scope, range, offset, limit);
+    }
+
+    @Override
+    public LeaderboardSummary getLeaderboardSummary(final TimeScope scope, final Optional<TimeRange> range)
+            throws StorageException {
+        if (leaderboard != null && range.isEmpty() && leaderboard.covers(scope)) {
+            return leaderboard.summary(scope);
+        }
+        return storage.getLeaderboardSummary(scope, range);
+    }
+
     @Override
     public long startSession(final PlayerSessionContext context, final TimeEntryReason reason) throws StorageException {
         return storage.startSession(context, reason);
@@ -163,24 +301,44 @@ public class AccumulatingTimeStorage implements UnifiedStorage, TimeAccumulator
         storage.updateSession(sessionId, stoppedAtMs, reason);
     }
 
+    @Override
+    public void updateSessions(final Map<Long, Long> sessionIdToStoppedAt, final TimeEntryReason reason)
+            throws StorageException {
+        storage.updateSessions(sessionIdToStoppedAt, reason);
+    }
+
     @Override
     public void updateSessionWorld(final long sessionId, final String server, final String world) throws StorageException {
         storage.updateSessionWorld(sessionId, server, world);
     }
 
+    @Override
+    public Map<Long, Long> writeSessions(final List<SessionWrite> writes) throws StorageException {
+        return storage.writeSessions(writes);
+    }
+
     @Override
     public void deletePlayer(final UUID uniqueId) throws StorageException {
         onlineSessions.remove(uniqueId);
+        recordClosed(uniqueId);
+        flushJournal();
         try {
             storage.deletePlayer(uniqueId);
         } catch (final java.sql.SQLException ex) {
             throw new StorageException(ex);
         }
+        if (leaderboard != null) {
+            leaderboard.removePlayer(uniqueId);
+        }
     }
 
     @Override
     public int deleteInactiveHistory(final long inactiveDays) throws StorageException {
-        return storage.deleteInactiveHistory(inactiveDays);
+        final int deletedRows = storage.deleteInactiveHistory(inactiveDays);
+        if (leaderboard != null && deletedRows > 0) {
+            leaderboard.load(storage);
+        }
+        return deletedRows;
     }
 
     @Override
@@ -192,11 +350,12 @@ public class AccumulatingTimeStorage implements UnifiedStorage, TimeAccumulator
     public void startAccumulating(final UUID uuid, final String name, final String server, final String world, final long when)
             throws StorageException {
         final PlayerSessionContext context = new PlayerSessionContext(uuid, name, server, world, when);
-        final long sessionId = storage.startSession(context, TimeEntryReason.PLAYER_JOIN);
+        final long sessionId = beginSession(context);
         final PersistedPlayerSession previous = onlineSessions.put(uuid, new PersistedPlayerSession(sessionId, context, when));
         if (previous != null) {
-            storage.updateSession(previous.sessionId(), when, switchReason(previous.context(), context));
+            finishSession(previous, when, switchReason(previous.context(), context));
         }
+        recordOpened(context, when);
     }
 
     @Override
@@ -204,7 +363,8 @@ public class AccumulatingTimeStorage implements UnifiedStorage, TimeAccumulator
             throws StorageException {
         final PersistedPlayerSession session = onlineSessions.remove(uuid);
         if (session != null) {
-            storage.updateSession(session.sessionId(), when, reason);
+            finishSession(session, when, reason);
+            recordClosed(uuid);
         }
     }
 
@@ -218,11 +378,12 @@ public class AccumulatingTimeStorage implements UnifiedStorage, TimeAccumulator
                 && current.context().world().equals(world)) {
             return;
         }
-        final long sessionId = storage.startSession(next, TimeEntryReason.PLAYER_JOIN);
+        final long sessionId = beginSession(next);
         final PersistedPlayerSession previous = onlineSessions.put(uuid, new PersistedPlayerSession(sessionId, next, when));
         if (previous != null) {
-            storage.updateSession(previous.sessionId(), when, switchReason(previous.context(), next));
+            finishSession(previous, when, switchReason(previous.context(), next));
         }
+        recordOpened(next, when);
     }
 
     @Override
@@ -235,7 +396,12 @@ public class AccumulatingTimeStorage implements UnifiedStorage, TimeAccumulator
         final PlayerSessionContext updated = new PlayerSessionContext(previous.uuid(), previous.name(),
                 previous.server(), world, previous.startedAtMs());
         if (onlineSessions.replace(uuid, current, new PersistedPlayerSession(current.sessionId(), updated, current.lastPersistedAtMs()))) {
-            storage.updateSessionWorld(current.sessionId(), updated.server(), updated.world());
+            if (journal == null) {
+                storage.updateSessionWorld(current.sessionId(), updated.server(), updated.world());
+            } else {
+                journal.updateSessionWorld(current.sessionId(), updated.server(), updated.world());
+            }
+            recordOpened(updated, current.lastPersistedAtMs());
         }
     }
 
@@ -248,27 +414,42 @@ public class AccumulatingTimeStorage implements UnifiedStorage, TimeAccumulator
         final PlayerSessionContext previous = current.context();
         final PlayerSessionContext next = new PlayerSessionContext(previous.uuid(), previous.name(),
                 previous.server(), world, observedAtMs);
-        final long sessionId = storage.startSession(next, TimeEntryReason.PLAYER_JOIN);
+        final long sessionId = beginSession(next);
         if (onlineSessions.replace(uuid, current, new PersistedPlayerSession(sessionId, next, observedAtMs))) {
-            storage.updateSession(current.sessionId(), observedAtMs, TimeEntryReason.WORLD_SWITCH);
+            finishSession(current, observedAtMs, TimeEntryReason.WORLD_SWITCH);
+            recordOpened(next, observedAtMs);
         }
     }
 
     @Override
     public void flushOnlineTimeCache() throws StorageException {
         if (onlineSessions.isEmpty()) {
+            flushJournal();
             return;
         }
         log.debug("Flushing online time cache");
         final long now = System.currentTimeMillis();
+        final Map<Long, Long> flushedSessions = new HashMap<>();
+        final Map<UUID, Long> previousPersistedAt = new HashMap<>();
         for (final Map.Entry<UUID, PersistedPlayerSession> entry : onlineSessions.entrySet()) {
             final UUID uuid = entry.getKey();
             final PersistedPlayerSession current = entry.getValue();
             if (current != null && onlineSessions.replace(uuid, current,
                     new PersistedPlayerSession(current.sessionId(), current.context(), now))) {
-                storage.updateSession(current.sessionId(), now, TimeEntryReason.AUTO_FLUSH);
+                if (journal == null) {
+                    flushedSessions.put(current.sessionId(), now);
+                } else {
+                    journal.updateSession(current.sessionId(), now, TimeEntryReason.AUTO_FLUSH);
+                }
+                addSessionTime(current, now);
+                previousPersistedAt.put(uuid, current.lastPersistedAtMs());
             }
         }
+        storage.updateSessions(flushedSessions, TimeEntryReason.AUTO_FLUSH);
+        flushJournal();
+        if (recoveryJournal != null) {
+            previousPersistedAt.forEach((uuid, persistedAtMs) -> recoveryJournal.persisted(uuid, persistedAtMs, now));
+        }
     }
 
     @Override
@@ -286,12 +467,71 @@ public class AccumulatingTimeStorage implements UnifiedStorage, TimeAccumulator
                 for (final UUID uuid : List.copyOf(onlineSessions.keySet())) {
                     final PersistedPlayerSession session = onlineSessions.remove(uuid);
                     if (session != null) {
-                        storage.updateSession(session.sessionId(), now, TimeEntryReason.SHUTDOWN_FLUSH);
+                        finishSession(session, now, TimeEntryReason.SHUTDOWN_FLUSH);
+                        recordClosed(uuid);
                     }
                 }
             }
         } finally {
-            this.storage.close();
+            closeJournalAndStorage();
+        }
+    }
+
+    @SuppressWarnings("PMD.UseTryWithResources")
+    private void closeJournalAndStorage() throws StorageException {
+        try {
+            if (journal != null) {
+                journal.close();
+            }
+        } finally {
+            try {
+                if (recoveryJournal != null) {
+                    recoveryJournal.close();
+                }
+            } finally {
+                this.storage.close();
+            }
+        }
+    }
+
+    private void flushJournal() throws StorageException {
+        if (journal != null) {
+            journal.flush();
+        }
+    }
+
+    private void recordOpened(final PlayerSessionContext context, final long persistedAtMs) {
+        if (recoveryJournal != null) {
+            recoveryJournal.open(context, persistedAtMs);
+        }
+    }
+
+    private void recordClosed(final UUID uuid) {
+        if (recoveryJournal != null) {
+            recoveryJournal.close(uuid);
+        }
+    }
+
+    private long beginSession(final PlayerSessionContext context) throws StorageException {
+        if (journal == null) {
+            return storage.startSession(context, TimeEntryReason.PLAYER_JOIN);
+        }
+        return journal.startSession(context, TimeEntryReason.PLAYER_JOIN);
+    }
+
+    private void finishSession(final PersistedPlayerSession session, final long stoppedAtMs,
+                               final TimeEntryReason reason) throws StorageException {
+        if (journal == null) {
+            storage.updateSession(session.sessionId(), stoppedAtMs, reason);
+        } else {
+            journal.finishSession(session.sessionId(), stoppedAtMs, reason);
+        }
+        addSessionTime(session, stoppedAtMs);
+    }
+
+    private void addSessionTime(final PersistedPlayerSession session, final long persistedAtMs) {
+        if (leaderboard != null) {
+            leaderboard.addSessionTime(session.context(), Math.max(0L, persistedAtMs - session.lastPersistedAtMs()));
         }
     }
 
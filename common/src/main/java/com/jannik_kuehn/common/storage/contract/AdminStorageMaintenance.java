@@ -5,8 +5,11 @@ import com.jannik_kuehn.common.storage.model.StorageDeleteRequest;
 import com.jannik_kuehn.common.storage.model.StorageMaintenanceConfirmation;
 import com.jannik_kuehn.common.storage.model.StorageMaintenancePreview;
 import com.jannik_kuehn.common.storage.model.StorageMaintenanceResult;
+import com.jannik_kuehn.common.storage.model.StorageTransferProgress;
 import com.jannik_kuehn.common.storage.model.StorageTransferRequest;
 
+import java.util.function.Consumer;
+
 /**
  * Optional admin-only maintenance contract for bulk storage operations.
  */
@@ -35,6 +38,26 @@ public interface AdminStorageMaintenance {
     default StorageMaintenanceResult applyStorageTransferTo(final AdminStorageMaintenance target,
                                                             final StorageMaintenanceConfirmation confirmation)
             throws StorageException {
+        return applyStorageTransferTo(target, confirmation, progress -> {
+        });
+    }
+
+    /**
+     * Applies a full storage-to-storage transfer into a target maintenance backend and reports its progress.
+     *
+     * <p>An interrupted transfer leaves a checkpoint in the target, so applying the transfer again continues after the
+     * last committed batch instead of rejecting the partially filled target.</p>
+     *
+     * @param target       target maintenance backend
+     * @param confirmation confirmation from the preview
+     * @param progress     receives the progress after every committed batch
+     * @return operation result
+     * @throws StorageException if the transfer fails or the target is unsupported
+     */
+    default StorageMaintenanceResult applyStorageTransferTo(final AdminStorageMaintenance target,
+                                                            final StorageMaintenanceConfirmation confirmation,
+                                                            final Consumer<StorageTransferProgress> progress)
+            throws StorageException {
         throw new StorageException("Storage-type transfer is not supported by this storage");
     }
 
@@ -77,4 +100,14 @@ public interface AdminStorageMaintenance {
      */
     StorageMaintenanceResult applyDelete(StorageDeleteRequest request,
                                          StorageMaintenanceConfirmation confirmation) throws StorageException;
+
+    /**
+     * Recomputes materialized player totals from the stored session and adjustment history.
+     *
+     * @return number of total rows written
+     * @throws StorageException if the rebuild fails or the storage keeps no materialized totals
+     */
+    default int rebuildTotals() throws StorageException {
+        throw new StorageException("Rebuilding totals is not supported by this storage");
+    }
 }
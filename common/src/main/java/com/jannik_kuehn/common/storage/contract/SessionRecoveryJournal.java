@@ -0,0 +1,350 @@
+package com.jannik_kuehn.common.storage.contract;
+
+import com.github.roleplaycauldron.spellbook.core.logger.WrappedLogger;
+import com.jannik_kuehn.common.exception.StorageException;
+import com.jannik_kuehn.common.storage.model.PlayerSessionChunk;
+import com.jannik_kuehn.common.storage.model.PlayerSessionContext;
+import com.jannik_kuehn.common.storage.model.TimeEntryReason;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Crash-safe local record of the open sessions, kept in a preallocated memory-mapped file in the plugin data folder.
+ *
+ * <p>Every online player owns one fixed-size slot with the session context, the time up to which the session is
+ * persisted in the database and the time of the last heartbeat. Heartbeats and flush marks only overwrite a single
+ * value in the mapped memory, so they are cheap enough to run every few seconds. The operating system writes the
+ * mapped pages back even if the server process dies. On the next startup every slot that is still open is replayed
+ * as a session from its persisted time up to its last heartbeat, so only the time since the last heartbeat is lost
+ * instead of the time since the last database flush.</p>
+ */
+public final class SessionRecoveryJournal implements AutoCloseable {
+
+    /**
+     * Marks a LoriTime session journal file.
+     */
+    private static final int MAGIC = 0x4C54_534A;
+
+    /**
+     * Layout version of the journal file.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Size of the file header in bytes.
+     */
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * Size of one session slot in bytes.
+     */
+    private static final int SLOT_SIZE = 512;
+
+    /**
+     * Offset of the UUID inside a slot, after the state byte.
+     */
+    private static final int UUID_OFFSET = 1;
+
+    /**
+     * Offset of the persisted time inside a slot.
+     */
+    private static final int PERSISTED_OFFSET = 17;
+
+    /**
+     * Offset of the heartbeat time inside a slot.
+     */
+    private static final int HEARTBEAT_OFFSET = 25;
+
+    /**
+     * Offset of the encoded name, server and world inside a slot.
+     */
+    private static final int CONTEXT_OFFSET = 33;
+
+    /**
+     * State of a free slot.
+     */
+    private static final byte FREE = 0;
+
+    /**
+     * State of a slot with an open session.
+     */
+    private static final byte OPEN = 1;
+
+    /**
+     * Logger for journal operations.
+     */
+    private final WrappedLogger log;
+
+    /**
+     * The journal file channel.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Slot index by player UUID.
+     */
+    private final Map<UUID, Integer> slots;
+
+    /**
+     * Occupied slot indexes.
+     */
+    private final BitSet occupied;
+
+    /**
+     * The mapped journal file.
+     */
+    private MappedByteBuffer buffer;
+
+    /**
+     * Number of slots in the mapped file.
+     */
+    private int capacity;
+
+    private SessionRecoveryJournal(final WrappedLogger log, final FileChannel channel, final MappedByteBuffer buffer,
+                                   final int capacity) {
+        this.log = log;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.slots = new HashMap<>();
+        this.occupied = new BitSet(capacity);
+    }
+
+    /**
+     * Opens the journal file, or creates it with the given number of slots.
+     *
+     * @param log          the logger
+     * @param file         the journal file
+     * @param initialSlots number of slots of a new file, the file grows if more players are online
+     * @return the opened journal
+     * @throws StorageException if the file cannot be opened or is not a session journal
+     */
+    @SuppressWarnings("PMD.CloseResource")
+    public static SessionRecoveryJournal open(final WrappedLogger log, final File file, final int initialSlots)
+            throws StorageException {
+        try {
+            final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                final long size = channel.size();
+                final int capacity = size < HEADER_SIZE ? Math.max(1, initialSlots)
+                        : (int) ((size - HEADER_SIZE) / SLOT_SIZE);
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L,
+                        HEADER_SIZE + (long) capacity * SLOT_SIZE);
+                if (size < HEADER_SIZE) {
+                    buffer.putInt(0, MAGIC);
+                    buffer.putInt(4, VERSION);
+                    buffer.putInt(8, SLOT_SIZE);
+                } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                        || buffer.getInt(8) != SLOT_SIZE) {
+                    throw new StorageException("Unsupported session journal file " + file.getAbsolutePath());
+                }
+                return new SessionRecoveryJournal(log, channel, buffer, capacity);
+            } catch (final IOException | StorageException | RuntimeException ex) {
+                channel.close();
+                throw ex;
+            }
+        } catch (final IOException ex) {
+            throw new StorageException("Could not open the session journal " + file.getAbsolutePath(), ex);
+        }
+    }
+
+    /**
+     * Reads the sessions that were still open when the journal was last written.
+     *
+     * @return one session chunk per open slot with time after its persisted time, up to the last heartbeat
+     */
+    public synchronized List<PlayerSessionChunk> unfinishedSessions() {
+        final List<PlayerSessionChunk> sessions = new ArrayList<>();
+        for (int slot = 0; slot < capacity; slot++) {
+            final int offset = offset(slot);
+            if (buffer.get(offset) != OPEN) {
+                continue;
+            }
+            final long persistedAtMs = buffer.getLong(offset + PERSISTED_OFFSET);
+            final long heartbeatMs = buffer.getLong(offset + HEARTBEAT_OFFSET);
+            if (heartbeatMs <= persistedAtMs) {
+                continue;
+            }
+            final UUID uuid = new UUID(buffer.getLong(offset + UUID_OFFSET), buffer.getLong(offset + UUID_OFFSET + 8));
+            final int[] position = {offset + CONTEXT_OFFSET};
+            final String name = readString(position);
+            final String server = readString(position);
+            final String world = readString(position);
+            sessions.add(new PlayerSessionChunk(uuid, Optional.ofNullable(name), server, world, persistedAtMs,
+                    heartbeatMs, TimeEntryReason.CRASH_RECOVERY));
+        }
+        return sessions;
+    }
+
+    /**
+     * Frees all slots, after the unfinished sessions were written to the database.
+     */
+    public synchronized void clear() {
+        for (int slot = 0; slot < capacity; slot++) {
+            buffer.put(offset(slot), FREE);
+        }
+        slots.clear();
+        occupied.clear();
+    }
+
+    /**
+     * Records the open session of a player, replacing an earlier session of the same player.
+     *
+     * @param context       the session context
+     * @param persistedAtMs time up to which the session is persisted in the database
+     */
+    public synchronized void open(final PlayerSessionContext context, final long persistedAtMs) {
+        final byte[] name = context.name().map(value -> value.getBytes(StandardCharsets.UTF_8)).orElse(null);
+        final byte[] server = context.server().getBytes(StandardCharsets.UTF_8);
+        final byte[] world = context.world().getBytes(StandardCharsets.UTF_8);
+        final int length = encodedLength(name) + encodedLength(server) + encodedLength(world);
+        if (CONTEXT_OFFSET + length > SLOT_SIZE) {
+            log.debug("Session of " + context.uuid() + " is not journaled, its server or world name is too long.");
+            close(context.uuid());
+            return;
+        }
+        final Integer existing = slots.get(context.uuid());
+        final int slot = existing == null ? allocate(context.uuid()) : existing;
+        if (slot < 0) {
+            return;
+        }
+        final int offset = offset(slot);
+        buffer.put(offset, FREE);
+        buffer.putLong(offset + UUID_OFFSET, context.uuid().getMostSignificantBits());
+        buffer.putLong(offset + UUID_OFFSET + 8, context.uuid().getLeastSignificantBits());
+        buffer.putLong(offset + PERSISTED_OFFSET, persistedAtMs);
+        buffer.putLong(offset + HEARTBEAT_OFFSET, persistedAtMs);
+        int position = offset + CONTEXT_OFFSET;
+        position = writeString(position, name);
+        position = writeString(position, server);
+        writeString(position, world);
+        buffer.put(offset, OPEN);
+    }
+
+    /**
+     * Moves the persisted time of a player's session after a database flush.
+     *
+     * @param uuid                  the player
+     * @param expectedPersistedAtMs persisted time before the flush, other sessions of the player are left unchanged
+     * @param persistedAtMs         time up to which the session is persisted now
+     */
+    public synchronized void persisted(final UUID uuid, final long expectedPersistedAtMs, final long persistedAtMs) {
+        final Integer slot = slots.get(uuid);
+        if (slot == null) {
+            return;
+        }
+        final int offset = offset(slot);
+        if (buffer.getLong(offset + PERSISTED_OFFSET) == expectedPersistedAtMs) {
+            buffer.putLong(offset + PERSISTED_OFFSET, persistedAtMs);
+            buffer.putLong(offset + HEARTBEAT_OFFSET,
+                    Math.max(persistedAtMs, buffer.getLong(offset + HEARTBEAT_OFFSET)));
+        }
+    }
+
+    /**
+     * Removes the session of a player after it was closed in the database.
+     *
+     * @param uuid the player
+     */
+    public synchronized void close(final UUID uuid) {
+        final Integer slot = slots.remove(uuid);
+        if (slot != null) {
+            buffer.put(offset(slot), FREE);
+            occupied.clear(slot);
+        }
+    }
+
+    /**
+     * Records that all open sessions were still running at the given time.
+     *
+     * @param nowMs the current time in milliseconds
+     */
+    public synchronized void heartbeat(final long nowMs) {
+        for (int slot = occupied.nextSetBit(0); slot >= 0; slot = occupied.nextSetBit(slot + 1)) {
+            buffer.putLong(offset(slot) + HEARTBEAT_OFFSET, nowMs);
+        }
+    }
+
+    /**
+     * Returns the number of journaled open sessions.
+     *
+     * @return the number of open sessions
+     */
+    public synchronized int size() {
+        return slots.size();
+    }
+
+    @Override
+    public synchronized void close() throws StorageException {
+        try {
+            buffer.force();
+            channel.close();
+        } catch (final IOException ex) {
+            throw new StorageException("Could not close the session journal", ex);
+        }
+    }
+
+    private int allocate(final UUID uuid) {
+        final int slot = occupied.nextClearBit(0);
+        if (slot >= capacity && !grow(capacity * 2)) {
+            return -1;
+        }
+        occupied.set(slot);
+        slots.put(uuid, slot);
+        return slot;
+    }
+
+    private boolean grow(final int newCapacity) {
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L, HEADER_SIZE + (long) newCapacity * SLOT_SIZE);
+            capacity = newCapacity;
+            return true;
+        } catch (final IOException ex) {
+            log.error("Could not grow the session journal, new sessions are not journaled", ex);
+            return false;
+        }
+    }
+
+    private int writeString(final int position, final byte[] value) {
+        if (value == null) {
+            buffer.putShort(position, (short) -1);
+            return position + Short.BYTES;
+        }
+        buffer.putShort(position, (short) value.length);
+        buffer.put(position + Short.BYTES, value);
+        return position + Short.BYTES + value.length;
+    }
+
+    private String readString(final int[] position) {
+        final short length = buffer.getShort(position[0]);
+        position[0] += Short.BYTES;
+        if (length < 0) {
+            return null;
+        }
+        final byte[] value = new byte[length];
+        buffer.get(position[0], value);
+        position[0] += length;
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static int encodedLength(final byte[] value) {
+        return Short.BYTES + (value == null ? 0 : value.length);
+    }
+
+    private static int offset(final int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+}
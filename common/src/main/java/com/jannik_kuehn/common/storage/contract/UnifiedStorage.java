@@ -3,13 +3,18 @@ package com.jannik_kuehn.common.storage.contract;
 import com.jannik_kuehn.common.api.storage.TimeRange;
 import com.jannik_kuehn.common.api.storage.TimeScope;
 import com.jannik_kuehn.common.exception.StorageException;
+import com.jannik_kuehn.common.storage.model.LeaderboardEntry;
+import com.jannik_kuehn.common.storage.model.LeaderboardSummary;
 import com.jannik_kuehn.common.storage.model.ManualTimeAdjustment;
 import com.jannik_kuehn.common.storage.model.PlayerSessionChunk;
 import com.jannik_kuehn.common.storage.model.PlayerSessionContext;
 import com.jannik_kuehn.common.storage.model.RecentPlayerIdentity;
+import com.jannik_kuehn.common.storage.model.SessionWrite;
 import com.jannik_kuehn.common.storage.model.TimeEntryReason;
 
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -100,6 +105,48 @@ public interface UnifiedStorage extends TimeQueryStorage, TimeAdjustmentStorage,
     @Override
     OptionalLong getTime(UUID uniqueId, TimeScope scope, TimeRange range) throws StorageException;
 
+    /**
+     * Returns the stored time of many players in seconds for a specific scope.
+     * Implementations should read all players with a few bulk queries when the backing storage supports it.
+     *
+     * @param uniqueIds the player UUIDs.
+     * @param scope     the time scope.
+     * @return the scoped time by UUID, without players that have no stored time in that scope.
+     * @throws StorageException if the lookup fails.
+     */
+    default Map<UUID, Long> getTimes(final Collection<UUID> uniqueIds, final TimeScope scope) throws StorageException {
+        final Map<UUID, Long> times = new HashMap<>();
+        for (final UUID uniqueId : uniqueIds) {
+            final OptionalLong time = getTime(uniqueId, scope);
+            if (time.isPresent()) {
+                times.put(uniqueId, time.getAsLong());
+            }
+        }
+        return times;
+    }
+
+    /**
+     * Returns the stored time of many players in seconds for a specific scope and time range.
+     * Implementations should read all players with a few bulk queries when the backing storage supports it.
+     *
+     * @param uniqueIds the player UUIDs.
+     * @param scope     the time scope.
+     * @param range     the time range.
+     * @return the scoped time by UUID, without players that have no stored time in that scope and range.
+     * @throws StorageException if the lookup fails.
+     */
+    default Map<UUID, Long> getTimes(final Collection<UUID> uniqueIds, final TimeScope scope, final TimeRange range)
+            throws StorageException {
+        final Map<UUID, Long> times = new HashMap<>();
+        for (final UUID uniqueId : uniqueIds) {
+            final OptionalLong time = getTime(uniqueId, scope, range);
+            if (time.isPresent()) {
+                times.put(uniqueId, time.getAsLong());
+            }
+        }
+        return times;
+    }
+
     @Override
     void addTime(UUID uuid, long additionalTime, TimeEntryReason reason) throws StorageException;
 
@@ -132,6 +179,21 @@ public interface UnifiedStorage extends TimeQueryStorage, TimeAdjustmentStorage,
      */
     void updateSession(long sessionId, long stoppedAtMs, TimeEntryReason reason) throws StorageException;
 
+    /**
+     * Updates multiple persisted session rows with stop timestamps and one shared reason.
+     * Implementations should write all rows in one batch when the backing storage supports it.
+     *
+     * @param sessionIdToStoppedAt stop timestamps in epoch milliseconds keyed by persisted session id.
+     * @param reason               the update reason.
+     * @throws StorageException if the write fails.
+     */
+    default void updateSessions(final Map<Long, Long> sessionIdToStoppedAt, final TimeEntryReason reason)
+            throws StorageException {
+        for (final Map.Entry<Long, Long> entry : sessionIdToStoppedAt.entrySet()) {
+            updateSession(entry.getKey(), entry.getValue(), reason);
+        }
+    }
+
     /**
      * Updates the world context for an existing session row without changing its time range.
      *
@@ -142,6 +204,29 @@ public interface UnifiedStorage extends TimeQueryStorage, TimeAdjustmentStorage,
      */
     void updateSessionWorld(long sessionId, String server, String world) throws StorageException;
 
+    /**
+     * Applies queued session writes in order.
+     *
+     * <p>Stop and world writes may reference the placeholder id of a start write from the same batch.
+     * Implementations should apply the whole batch atomically when the backing storage supports it.</p>
+     *
+     * @param writes the queued session writes.
+     * @return persisted session ids keyed by start placeholder id.
+     * @throws StorageException if the write fails.
+     */
+    default Map<Long, Long> writeSessions(final List<SessionWrite> writes) throws StorageException {
+        final Map<Long, Long> startedSessionIds = new HashMap<>();
+        for (final SessionWrite write : writes) {
+            final long sessionId = startedSessionIds.getOrDefault(write.sessionId(), write.sessionId());
+            switch (write.type()) {
+                case START -> startedSessionIds.put(write.sessionId(), startSession(write.context(), write.reason()));
+                case STOP -> updateSession(sessionId, write.stoppedAtMs(), write.reason());
+                case WORLD -> updateSessionWorld(sessionId, write.server(), write.world());
+            }
+        }
+        return startedSessionIds;
+    }
+
     /**
      * Persists a completed session chunk.
      *
@@ -153,6 +238,29 @@ public interface UnifiedStorage extends TimeQueryStorage, TimeAdjustmentStorage,
     @Override
     Map<String, ?> getAllTimeEntries() throws StorageException;
 
+    /**
+     * Reads one page of players ranked by their time in a scope, highest time first.
+     *
+     * @param scope  the time scope.
+     * @param range  the optional time range; without a range the all-time totals are ranked.
+     * @param offset the number of ranked players to skip.
+     * @param limit  the maximum number of players to return.
+     * @return the ranked players of the page.
+     * @throws StorageException if the lookup fails.
+     */
+    List<LeaderboardEntry> getLeaderboard(TimeScope scope, Optional<TimeRange> range, int offset, int limit)
+            throws StorageException;
+
+    /**
+     * Counts the ranked players of a leaderboard and sums their time.
+     *
+     * @param scope the time scope.
+     * @param range the optional time range; without a range the all-time totals are used.
+     * @return the leaderboard summary.
+     * @throws StorageException if the lookup fails.
+     */
+    LeaderboardSummary getLeaderboardSummary(TimeScope scope, Optional<TimeRange> range) throws StorageException;
+
     /**
      * Deletes a player identity and associated history.
      *
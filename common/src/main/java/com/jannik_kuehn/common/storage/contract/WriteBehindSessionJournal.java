@@ -0,0 +1,347 @@
+package com.jannik_kuehn.common.storage.contract;
+
+import com.github.roleplaycauldron.spellbook.core.logger.WrappedLogger;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.jannik_kuehn.common.exception.StorageException;
+import com.jannik_kuehn.common.storage.model.PlayerSessionContext;
+import com.jannik_kuehn.common.storage.model.SessionWrite;
+import com.jannik_kuehn.common.storage.model.SessionWriteType;
+import com.jannik_kuehn.common.storage.model.TimeEntryReason;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind queue for session starts, stops and world updates.
+ *
+ * <p>Writes are queued in memory and drained by one writer thread, either when {@code maxBatchSize} writes are
+ * pending or at the latest after {@code maxLatencyMs}. Each drain cycle is handed to
+ * {@link UnifiedStorage#writeSessions(List)} as one batch. Started sessions receive a negative placeholder id right
+ * away, which stays valid for the whole session and is resolved to the persisted id by the journal.</p>
+ *
+ * <p>A batch that fails is never dropped, because the accumulator already counted its time and later writes of the
+ * same sessions depend on its placeholder ids. It is retried before any newer write with a growing delay of up to
+ * {@value #MAX_RETRY_DELAY_MS} milliseconds, while new writes keep queueing in memory.</p>
+ */
+@SuppressWarnings("PMD.AvoidCatchingGenericException")
+public final class WriteBehindSessionJournal implements AutoCloseable {
+
+    /**
+     * Longest delay in milliseconds between two attempts of a failing batch.
+     */
+    private static final long MAX_RETRY_DELAY_MS = 60_000L;
+
+    /**
+     * Seconds to wait for a running drain while closing.
+     */
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10L;
+
+    /**
+     * Logger for journal operations.
+     */
+    private final WrappedLogger log;
+
+    /**
+     * Backing storage that receives the drained batches.
+     */
+    private final UnifiedStorage storage;
+
+    /**
+     * Maximum writes handed to the storage per batch.
+     */
+    private final int maxBatchSize;
+
+    /**
+     * Delay in milliseconds before the first retry of a failing batch.
+     */
+    private final long retryDelayMs;
+
+    /**
+     * Queued writes in submission order.
+     */
+    private final Deque<SessionWrite> pending;
+
+    /**
+     * Persisted session ids keyed by placeholder id.
+     */
+    private final ConcurrentMap<Long, Long> resolvedSessionIds;
+
+    /**
+     * Placeholder ids whose final stop is queued.
+     */
+    private final Set<Long> finishedPlaceholders;
+
+    /**
+     * Source of negative placeholder ids.
+     */
+    private final AtomicLong placeholderSequence;
+
+    /**
+     * Whether a size-triggered drain is already scheduled.
+     */
+    private final AtomicBoolean drainScheduled;
+
+    /**
+     * Lock guaranteeing that only one drain runs at a time.
+     */
+    private final Object drainLock;
+
+    /**
+     * Single writer thread.
+     */
+    private final ScheduledExecutorService writer;
+
+    /**
+     * Batch that failed during the last drain and is retried first.
+     */
+    private volatile List<SessionWrite> failedBatch;
+
+    /**
+     * Number of failed attempts for {@link #failedBatch}.
+     */
+    private final AtomicInteger failedAttempts;
+
+    /**
+     * Earliest time in epoch milliseconds the writer thread retries {@link #failedBatch}.
+     */
+    private final AtomicLong nextRetryAtMs;
+
+    /**
+     * Whether the journal accepts new writes.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Creates a write-behind journal and starts its writer thread.
+     *
+     * @param log          the logger
+     * @param storage      the backing storage
+     * @param maxBatchSize maximum writes per batch
+     * @param maxLatencyMs maximum time in milliseconds a write stays queued
+     */
+    public WriteBehindSessionJournal(final WrappedLogger log, final UnifiedStorage storage,
+                                     final int maxBatchSize, final long maxLatencyMs) {
+        if (maxBatchSize < 1 || maxLatencyMs < 1) {
+            throw new IllegalArgumentException("maxBatchSize and maxLatencyMs must be positive");
+        }
+        this.log = log;
+        this.storage = Objects.requireNonNull(storage);
+        this.maxBatchSize = maxBatchSize;
+        this.retryDelayMs = Math.min(maxLatencyMs, MAX_RETRY_DELAY_MS);
+        this.pending = new ArrayDeque<>();
+        this.resolvedSessionIds = new ConcurrentHashMap<>();
+        this.finishedPlaceholders = ConcurrentHashMap.newKeySet();
+        this.placeholderSequence = new AtomicLong();
+        this.drainScheduled = new AtomicBoolean();
+        this.drainLock = new Object();
+        this.failedBatch = List.of();
+        this.failedAttempts = new AtomicInteger();
+        this.nextRetryAtMs = new AtomicLong();
+        this.writer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("loritime-session-writer")
+                .setDaemon(true)
+                .build());
+        this.writer.scheduleWithFixedDelay(this::drainQuietly, maxLatencyMs, maxLatencyMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues a session start.
+     *
+     * @param context the session context
+     * @param reason  the start reason
+     * @return placeholder id for the new session
+     * @throws StorageException if the journal is closed
+     */
+    public long startSession(final PlayerSessionContext context, final TimeEntryReason reason) throws StorageException {
+        final long placeholderId = placeholderSequence.decrementAndGet();
+        enqueue(SessionWrite.start(placeholderId, context, reason));
+        return placeholderId;
+    }
+
+    /**
+     * Queues a stop timestamp for a session that keeps running.
+     *
+     * @param sessionId   persisted or placeholder session id
+     * @param stoppedAtMs the stop timestamp in epoch milliseconds
+     * @param reason      the update reason
+     * @throws StorageException if the journal is closed
+     */
+    public void updateSession(final long sessionId, final long stoppedAtMs, final TimeEntryReason reason) throws StorageException {
+        enqueue(SessionWrite.stop(sessionId, stoppedAtMs, reason));
+    }
+
+    /**
+     * Queues the final stop for a session. The placeholder mapping is released once the stop is written.
+     *
+     * @param sessionId   persisted or placeholder session id
+     * @param stoppedAtMs the stop timestamp in epoch milliseconds
+     * @param reason      the stop reason
+     * @throws StorageException if the journal is closed
+     */
+    public void finishSession(final long sessionId, final long stoppedAtMs, final TimeEntryReason reason) throws StorageException {
+        if (sessionId < 0L) {
+            finishedPlaceholders.add(sessionId);
+        }
+        enqueue(SessionWrite.stop(sessionId, stoppedAtMs, reason));
+    }
+
+    /**
+     * Queues a world context update for a session.
+     *
+     * @param sessionId persisted or placeholder session id
+     * @param server    the canonical server context
+     * @param world     the current world context
+     * @throws StorageException if the journal is closed
+     */
+    public void updateSessionWorld(final long sessionId, final String server, final String world) throws StorageException {
+        enqueue(SessionWrite.world(sessionId, server, world));
+    }
+
+    /**
+     * Writes all queued writes on the calling thread.
+     *
+     * @throws StorageException if a batch could not be written
+     */
+    public void flush() throws StorageException {
+        synchronized (drainLock) {
+            while (drainBatch()) {
+                log.debug("Flushed write-behind session batch");
+            }
+        }
+    }
+
+    /**
+     * Returns the number of queued writes.
+     *
+     * @return queued writes
+     */
+    public int pendingWrites() {
+        synchronized (pending) {
+            return pending.size() + failedBatch.size();
+        }
+    }
+
+    /**
+     * Stops the writer thread and writes everything that is still queued.
+     *
+     * @throws StorageException if the final flush fails
+     */
+    @Override
+    public void close() throws StorageException {
+        closed = true;
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Write-behind session writer did not stop in time, flushing on the closing thread");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        nextRetryAtMs.set(0L);
+        flush();
+    }
+
+    private void enqueue(final SessionWrite write) throws StorageException {
+        if (closed) {
+            throw new StorageException("closed");
+        }
+        final int size;
+        synchronized (pending) {
+            pending.addLast(write);
+            size = pending.size();
+        }
+        if (size >= maxBatchSize && drainScheduled.compareAndSet(false, true)) {
+            try {
+                writer.execute(() -> {
+                    drainScheduled.set(false);
+                    drainQuietly();
+                });
+            } catch (final RejectedExecutionException e) {
+                drainScheduled.set(false);
+            }
+        }
+    }
+
+    private void drainQuietly() {
+        synchronized (drainLock) {
+            if (!failedBatch.isEmpty() && System.currentTimeMillis() < nextRetryAtMs.get()) {
+                return;
+            }
+            try {
+                while (drainBatch()) {
+                    log.debug("Drained write-behind session batch");
+                }
+            } catch (final StorageException | RuntimeException e) {
+                log.error("Could not write queued session batch, retrying after "
+                        + (nextRetryAtMs.get() - System.currentTimeMillis()) + " ms", e);
+            }
+        }
+    }
+
+    private boolean drainBatch() throws StorageException {
+        final List<SessionWrite> batch = failedBatch.isEmpty() ? pollBatch() : failedBatch;
+        if (batch.isEmpty()) {
+            return false;
+        }
+        final List<SessionWrite> resolved = new ArrayList<>(batch.size());
+        for (final SessionWrite write : batch) {
+            final Long sessionId = resolvedSessionIds.get(write.sessionId());
+            resolved.add(sessionId == null ? write : write.withSessionId(sessionId));
+        }
+        final Map<Long, Long> startedSessionIds;
+        try {
+            startedSessionIds = storage.writeSessions(resolved);
+        } catch (final StorageException | RuntimeException e) {
+            retryLater(batch);
+            throw e;
+        }
+        failedBatch = List.of();
+        if (failedAttempts.getAndSet(0) > 0) {
+            log.info("Wrote the queued session batch again after an earlier failure");
+        }
+        resolvedSessionIds.putAll(startedSessionIds);
+        releaseFinished(batch);
+        return true;
+    }
+
+    private List<SessionWrite> pollBatch() {
+        synchronized (pending) {
+            final List<SessionWrite> batch = new ArrayList<>(Math.min(pending.size(), maxBatchSize));
+            while (batch.size() < maxBatchSize && !pending.isEmpty()) {
+                batch.add(pending.pollFirst());
+            }
+            return batch;
+        }
+    }
+
+    private void retryLater(final List<SessionWrite> batch) {
+        final int attempts = failedAttempts.incrementAndGet();
+        final long delayMs = Math.min(MAX_RETRY_DELAY_MS, retryDelayMs << Math.min(attempts - 1, 16));
+        nextRetryAtMs.set(System.currentTimeMillis() + delayMs);
+        failedBatch = batch;
+        log.warn("Session batch of " + batch.size() + " writes failed " + attempts + " times, "
+                + pendingWrites() + " writes are waiting for the storage");
+    }
+
+    private void releaseFinished(final List<SessionWrite> batch) {
+        for (final SessionWrite write : batch) {
+            if (write.type() == SessionWriteType.STOP && finishedPlaceholders.remove(write.sessionId())) {
+                resolvedSessionIds.remove(write.sessionId());
+            }
+        }
+    }
+}
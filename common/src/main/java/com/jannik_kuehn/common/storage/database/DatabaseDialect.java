@@ -16,6 +16,26 @@ public enum DatabaseDialect implements SqlDialect {
         public String durationSecondsExpression(final String join, final String leave) {
             return "TIMESTAMPDIFF(SECOND, " + join + ", " + leave + ")";
         }
+
+        @Override
+        public String greatestExpression(final String first, final String second) {
+            return "GREATEST(" + first + ", " + second + ")";
+        }
+
+        @Override
+        public String leastExpression(final String first, final String second) {
+            return "LEAST(" + first + ", " + second + ")";
+        }
+
+        @Override
+        public String currentTimestampExpression() {
+            return "CURRENT_TIMESTAMP";
+        }
+
+        @Override
+        public String daysAgoTimestampExpression(final long days) {
+            return "DATE_SUB(NOW(3), INTERVAL " + days + " DAY)";
+        }
     },
 
     /**
@@ -29,6 +49,26 @@ public enum DatabaseDialect implements SqlDialect {
         public String durationSecondsExpression(final String join, final String leave) {
             return "TIMESTAMPDIFF(SECOND, " + join + ", " + leave + ")";
         }
+
+        @Override
+        public String greatestExpression(final String first, final String second) {
+            return "GREATEST(" + first + ", " + second + ")";
+        }
+
+        @Override
+        public String leastExpression(final String first, final String second) {
+            return "LEAST(" + first + ", " + second + ")";
+        }
+
+        @Override
+        public String currentTimestampExpression() {
+            return "CURRENT_TIMESTAMP";
+        }
+
+        @Override
+        public String daysAgoTimestampExpression(final long days) {
+            return "DATE_SUB(NOW(3), INTERVAL " + days + " DAY)";
+        }
     },
 
     /**
@@ -39,10 +79,35 @@ public enum DatabaseDialect implements SqlDialect {
     SQLITE {
         @Override
         public String durationSecondsExpression(final String joinColumn, final String leaveColumn) {
-            return "CAST((" + leaveColumn + " - " + joinColumn + ") / 1000 AS INTEGER)";
+            return "((" + leaveColumn + " - " + joinColumn + ") / 1000)";
+        }
+
+        @Override
+        public String greatestExpression(final String first, final String second) {
+            return "MAX(" + first + ", " + second + ")";
+        }
+
+        @Override
+        public String leastExpression(final String first, final String second) {
+            return "MIN(" + first + ", " + second + ")";
+        }
+
+        @Override
+        public String currentTimestampExpression() {
+            return EPOCH_MILLIS_NOW;
+        }
+
+        @Override
+        public String daysAgoTimestampExpression(final long days) {
+            return "(" + EPOCH_MILLIS_NOW + " - " + days + " * 86400000)";
         }
     };
 
+    /**
+     * SQLite expression for the current time in epoch milliseconds.
+     */
+    private static final String EPOCH_MILLIS_NOW = "CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)";
+
     /**
      * Retrieves an {@code Dialect} instance by its name.
      *
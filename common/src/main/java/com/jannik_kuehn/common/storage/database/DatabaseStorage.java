@@ -2,6 +2,7 @@ package com.jannik_kuehn.common.storage.database;
 
 import com.github.roleplaycauldron.spellbook.core.logger.LoggerFactory;
 import com.github.roleplaycauldron.spellbook.core.logger.WrappedLogger;
+import com.github.roleplaycauldron.spellbook.database.ConnectionProvider;
 import com.github.roleplaycauldron.spellbook.database.updater.DatabaseUpdateException;
 import com.github.roleplaycauldron.spellbook.database.updater.DatabaseUpdater;
 import com.github.roleplaycauldron.spellbook.database.updater.DatabaseVersion;
@@ -17,6 +18,7 @@ import com.jannik_kuehn.common.storage.database.provider.SQLite;
 
 import java.io.File;
 import java.io.IOException;
+import java.sql.SQLException;
 import java.util.List;
 
 /**
@@ -149,7 +151,7 @@ public class DatabaseStorage {
     private DatabaseUpdater createUpdater() {
         return DatabaseUpdater.builder()
                 .logger(loggerFactory.create(DatabaseUpdater.class))
-                .connectionProvider(provider)
+                .connectionProvider(writeConnections())
                 .versionRepository(new DefaultVersionRepository(getDatabaseMigrationVersionList(dialect)))
                 .versionTable(tablePrefix + "_version",
                         "SELECT MAX(version_no) AS latest_version FROM `" + tablePrefix + "_version`;",
@@ -157,6 +159,18 @@ public class DatabaseStorage {
                 .build();
     }
 
+    private ConnectionProvider writeConnections() {
+        // Schema updates are writes, so they must use the writer connection of providers that have one.
+        return () -> {
+            try {
+                return provider.getWriteConnection();
+            } catch (final SQLException ex) {
+                log.error("Failed to get database connection", ex);
+                return null;
+            }
+        };
+    }
+
     private LoriTimeConnectionProvider initializeProvider() throws StorageException {
         LoriTimeConnectionProvider provider = null;
         switch (dialect) {
@@ -164,7 +178,7 @@ public class DatabaseStorage {
                     provider = new MySQL(config, loggerFactory.create(MySQL.class), dialect, "com.mysql.cj.jdbc.Driver");
             case MARIADB ->
                     provider = new MySQL(config, loggerFactory.create(MySQL.class), dialect, "org.mariadb.jdbc.Driver");
-            case SQLITE -> provider = new SQLite(loggerFactory.create(SQLite.class), dataFolder.getPath());
+            case SQLITE -> provider = new SQLite(loggerFactory.create(SQLite.class), config, dataFolder.getPath());
         }
 
         if (provider == null) {
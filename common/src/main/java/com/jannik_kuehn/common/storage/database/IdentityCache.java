@@ -0,0 +1,209 @@
+package com.jannik_kuehn.common.storage.database;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Concurrent cache for surrogate keys of players, servers, and worlds, and the last stored player names.
+ *
+ * <p>Identity rows are practically immutable once created, so cached ids stay valid until a maintenance
+ * operation deletes or merges the row and evicts the entry.</p>
+ */
+final class IdentityCache {
+
+    /**
+     * Upper bound for cached player ids. Further players are looked up without being cached.
+     */
+    private static final int MAX_PLAYERS = 100_000;
+
+    /**
+     * Player ids keyed by UUID.
+     */
+    private final ConcurrentMap<UUID, Long> playerIds;
+
+    /**
+     * Last stored player names keyed by UUID.
+     */
+    private final ConcurrentMap<UUID, String> playerNames;
+
+    /**
+     * Server ids keyed by server name.
+     */
+    private final ConcurrentMap<String, Long> serverIds;
+
+    /**
+     * World ids keyed by server and world name.
+     */
+    private final ConcurrentMap<WorldKey, Long> worldIds;
+
+    /**
+     * Creates an empty identity cache.
+     */
+    /* default */ IdentityCache() {
+        this.playerIds = new ConcurrentHashMap<>();
+        this.playerNames = new ConcurrentHashMap<>();
+        this.serverIds = new ConcurrentHashMap<>();
+        this.worldIds = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns a cached player id.
+     *
+     * @param uuid player UUID
+     * @return player id, if cached
+     */
+    /* default */ Optional<Long> playerId(final UUID uuid) {
+        return Optional.ofNullable(playerIds.get(uuid));
+    }
+
+    /**
+     * Caches a player id.
+     *
+     * @param uuid     player UUID
+     * @param playerId player id
+     */
+    /* default */ void putPlayer(final UUID uuid, final long playerId) {
+        if (playerIds.size() < MAX_PLAYERS || playerIds.containsKey(uuid)) {
+            playerIds.put(uuid, playerId);
+        }
+    }
+
+    /**
+     * Returns the cached name of a player.
+     *
+     * @param uuid player UUID
+     * @return last stored player name, if cached
+     */
+    /* default */ Optional<String> playerName(final UUID uuid) {
+        return Optional.ofNullable(playerNames.get(uuid));
+    }
+
+    /**
+     * Caches the stored name of a cached player. Another player holding the same name loses it, matching the
+     * player table where a name belongs to at most one player.
+     *
+     * @param uuid player UUID
+     * @param name stored player name
+     */
+    /* default */ void putPlayerName(final UUID uuid, final String name) {
+        playerNames.values().removeIf(name::equals);
+        if (playerIds.containsKey(uuid)) {
+            playerNames.put(uuid, name);
+        }
+    }
+
+    /**
+     * Returns a cached server id.
+     *
+     * @param server server name
+     * @return server id, if cached
+     */
+    /* default */ Optional<Long> serverId(final String server) {
+        return Optional.ofNullable(serverIds.get(server));
+    }
+
+    /**
+     * Caches a server id.
+     *
+     * @param server   server name
+     * @param serverId server id
+     */
+    /* default */ void putServer(final String server, final long serverId) {
+        serverIds.put(server, serverId);
+    }
+
+    /**
+     * Returns a cached world id.
+     *
+     * @param server server name
+     * @param world  world name
+     * @return world id, if cached
+     */
+    /* default */ Optional<Long> worldId(final String server, final String world) {
+        return Optional.ofNullable(worldIds.get(new WorldKey(server, world)));
+    }
+
+    /**
+     * Caches a world id.
+     *
+     * @param server  server name
+     * @param world   world name
+     * @param worldId world id
+     */
+    /* default */ void putWorld(final String server, final String world, final long worldId) {
+        worldIds.put(new WorldKey(server, world), worldId);
+    }
+
+    /**
+     * Caches all world ids of a warm-up read.
+     *
+     * @param worlds world ids keyed by server name and world name
+     */
+    /* default */ void putWorlds(final Map<String, Map<String, Long>> worlds) {
+        worlds.forEach((server, serverWorlds) -> serverWorlds.forEach((world, worldId) -> putWorld(server, world, worldId)));
+    }
+
+    /**
+     * Evicts a player id.
+     *
+     * @param uuid player UUID
+     */
+    /* default */ void evictPlayer(final UUID uuid) {
+        playerIds.remove(uuid);
+        playerNames.remove(uuid);
+    }
+
+    /**
+     * Evicts a server id and all world ids on that server.
+     *
+     * @param server server name
+     */
+    /* default */ void evictServer(final String server) {
+        serverIds.remove(server);
+        worldIds.keySet().removeIf(key -> key.server().equals(server));
+    }
+
+    /**
+     * Evicts one world id.
+     *
+     * @param server server name
+     * @param world  world name
+     */
+    /* default */ void evictWorld(final String server, final String world) {
+        worldIds.remove(new WorldKey(server, world));
+    }
+
+    /**
+     * Evicts all cached ids.
+     */
+    /* default */ void clear() {
+        playerIds.clear();
+        playerNames.clear();
+        serverIds.clear();
+        worldIds.clear();
+    }
+
+    /**
+     * Returns the number of cached player ids.
+     *
+     * @return cached player ids
+     */
+    /* default */ int playerCount() {
+        return playerIds.size();
+    }
+
+    /**
+     * Returns the number of cached world ids.
+     *
+     * @return cached world ids
+     */
+    /* default */ int worldCount() {
+        return worldIds.size();
+    }
+
+    private record WorldKey(String server, String world) {
+    }
+}
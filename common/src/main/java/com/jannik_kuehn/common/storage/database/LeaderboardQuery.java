@@ -0,0 +1,212 @@
+package com.jannik_kuehn.common.storage.database;
+
+import com.jannik_kuehn.common.api.storage.TimeRange;
+import com.jannik_kuehn.common.api.storage.TimeScope;
+import com.jannik_kuehn.common.storage.database.table.ManualAdjustmentTable;
+import com.jannik_kuehn.common.storage.database.table.PlayerTable;
+import com.jannik_kuehn.common.storage.database.table.PlayerTotalTable;
+import com.jannik_kuehn.common.storage.database.table.ServerTable;
+import com.jannik_kuehn.common.storage.database.table.TimeBucketTable;
+import com.jannik_kuehn.common.storage.database.table.TimeTable;
+import com.jannik_kuehn.common.storage.database.table.WorldTable;
+import com.jannik_kuehn.common.storage.model.LeaderboardEntry;
+import com.jannik_kuehn.common.storage.model.LeaderboardSummary;
+import com.jannik_kuehn.common.utils.UuidUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Ranks players by their time in one scope with ordering, paging and the name join done in SQL.
+ *
+ * <p>Without a time range the materialized totals are ranked through their scope and total index, so a page costs
+ * the same regardless of the number of players. With a time range the per-player time is summed from the edge-day
+ * sessions, the daily buckets and the adjustments of that range before it is ranked.</p>
+ */
+@SuppressWarnings("PMD.AvoidDuplicateLiterals")
+public class LeaderboardQuery {
+
+    /**
+     * Shared ranking order, highest time first. Both keys descend so the total index can be read backwards.
+     */
+    private static final String RANK_ORDER = "ORDER BY total DESC, player_id DESC LIMIT ? OFFSET ?";
+
+    /**
+     * Unranged page SQL by scope type.
+     */
+    private final Map<TimeScope.Type, String> pageSql;
+
+    /**
+     * Unranged summary SQL by scope type.
+     */
+    private final Map<TimeScope.Type, String> summarySql;
+
+    /**
+     * Ranged page SQL by scope type.
+     */
+    private final Map<TimeScope.Type, String> rangedPageSql;
+
+    /**
+     * Ranged summary SQL by scope type.
+     */
+    private final Map<TimeScope.Type, String> rangedSummarySql;
+
+    /**
+     * Creates a leaderboard query.
+     *
+     * @param playerTable     player table helper
+     * @param serverTable     server table helper
+     * @param worldTable      world table helper
+     * @param timeTable       session table helper
+     * @param adjustmentTable adjustment table helper
+     * @param totalTable      materialized total table helper
+     * @param bucketTable     daily bucket table helper
+     * @param dialect         SQL dialect
+     */
+    @SuppressWarnings("PMD.ExcessiveParameterList")
+    public LeaderboardQuery(final PlayerTable playerTable, final ServerTable serverTable, final WorldTable worldTable,
+                            final TimeTable timeTable, final ManualAdjustmentTable adjustmentTable,
+                            final PlayerTotalTable totalTable, final TimeBucketTable bucketTable,
+                            final SqlDialect dialect) {
+        this.pageSql = new EnumMap<>(TimeScope.Type.class);
+        this.summarySql = new EnumMap<>(TimeScope.Type.class);
+        this.rangedPageSql = new EnumMap<>(TimeScope.Type.class);
+        this.rangedSummarySql = new EnumMap<>(TimeScope.Type.class);
+        for (final TimeScope.Type type : TimeScope.Type.values()) {
+            final String scope = PlayerTimeQuery.scopeSql(type, serverTable, worldTable) + " sc ";
+            final String totals = "FROM " + scope + "JOIN `" + totalTable + "` pt "
+                    + "ON pt.`scope_type` = '" + type.name() + "' "
+                    + "AND pt.`server_id` = sc.`server_id` AND pt.`world_id` = sc.`world_id` ";
+            final String ranged = "FROM (" + rangedTotalsSql(type, scope, timeTable, adjustmentTable, bucketTable,
+                    worldTable, dialect) + ") c ";
+            pageSql.put(type, "SELECT p.`uuid` AS uuid, p.`name` AS name, "
+                    + "pt.`player_id` AS player_id, pt.`total_seconds` AS total " + totals
+                    + "JOIN `" + playerTable + "` p ON p.`id` = pt.`player_id` " + RANK_ORDER);
+            summarySql.put(type, "SELECT COUNT(*) AS players, SUM(pt.`total_seconds`) AS total " + totals);
+            rangedPageSql.put(type, "SELECT p.`uuid` AS uuid, p.`name` AS name, "
+                    + "c.`player_id` AS player_id, c.`total` AS total " + ranged
+                    + "JOIN `" + playerTable + "` p ON p.`id` = c.`player_id` " + RANK_ORDER);
+            rangedSummarySql.put(type, "SELECT COUNT(*) AS players, SUM(c.`total`) AS total " + ranged);
+        }
+    }
+
+    /**
+     * Reads one page of ranked players.
+     *
+     * @param connection database connection
+     * @param scope      time scope
+     * @param range      optional time range
+     * @param useBuckets {@code false} to read ranges from raw sessions while the buckets are filled
+     * @param offset     number of ranked players to skip
+     * @param limit      maximum number of players
+     * @return ranked players
+     * @throws SQLException if the query fails
+     */
+    public List<LeaderboardEntry> page(final Connection connection, final TimeScope scope,
+                                       final Optional<TimeRange> range, final boolean useBuckets,
+                                       final int offset, final int limit) throws SQLException {
+        final List<LeaderboardEntry> entries = new ArrayList<>();
+        final String sql = range.isPresent() ? rangedPageSql.get(scope.type()) : pageSql.get(scope.type());
+        try (PreparedStatement select = connection.prepareStatement(sql)) {
+            final int index = bind(select, scope, range, useBuckets);
+            select.setInt(index, limit);
+            select.setInt(index + 1, offset);
+            try (ResultSet result = select.executeQuery()) {
+                while (result.next()) {
+                    entries.add(new LeaderboardEntry(UuidUtil.fromBytes(result.getBytes("uuid")),
+                            Optional.ofNullable(result.getString("name")), result.getLong("total")));
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Counts the ranked players and sums their time.
+     *
+     * @param connection database connection
+     * @param scope      time scope
+     * @param range      optional time range
+     * @param useBuckets {@code false} to read ranges from raw sessions while the buckets are filled
+     * @return leaderboard summary
+     * @throws SQLException if the query fails
+     */
+    public LeaderboardSummary summary(final Connection connection, final TimeScope scope,
+                                      final Optional<TimeRange> range, final boolean useBuckets)
+            throws SQLException {
+        final String sql = range.isPresent() ? rangedSummarySql.get(scope.type()) : summarySql.get(scope.type());
+        try (PreparedStatement select = connection.prepareStatement(sql)) {
+            bind(select, scope, range, useBuckets);
+            try (ResultSet result = select.executeQuery()) {
+                if (result.next()) {
+                    return new LeaderboardSummary(result.getLong("players"), result.getLong("total"));
+                }
+            }
+        }
+        return new LeaderboardSummary(0L, 0L);
+    }
+
+    private int bind(final PreparedStatement select, final TimeScope scope, final Optional<TimeRange> range,
+                     final boolean useBuckets) throws SQLException {
+        if (range.isEmpty()) {
+            return PlayerTimeQuery.bindScope(select, 1, scope);
+        }
+        final PlayerTimeQuery.RangeWindows windows = PlayerTimeQuery.RangeWindows.of(range.get(), useBuckets);
+        int index = PlayerTimeQuery.bindScope(select, 1, scope);
+        index = windows.bindSessionWindows(select, index);
+        index = PlayerTimeQuery.bindScope(select, index, scope);
+        index = windows.bindDays(select, index);
+        index = PlayerTimeQuery.bindScope(select, index, scope);
+        return windows.bindRange(select, index);
+    }
+
+    private static String rangedTotalsSql(final TimeScope.Type type, final String scope, final TimeTable timeTable,
+                                          final ManualAdjustmentTable adjustmentTable,
+                                          final TimeBucketTable bucketTable, final WorldTable worldTable,
+                                          final SqlDialect dialect) {
+        final String overlap = dialect.durationSecondsExpression(
+                dialect.greatestExpression("t.`join_time`", "r.range_start"),
+                dialect.leastExpression("t.`leave_time`", "r.range_end"));
+        final String sessionWorldJoin = type == TimeScope.Type.SERVER
+                ? "JOIN `" + worldTable + "` w ON w.`id` = t.`world_id` " : "";
+        final String bucketWorldJoin = type == TimeScope.Type.SERVER
+                ? "JOIN `" + worldTable + "` w ON w.`id` = b.`world_id` " : "";
+        final String adjustmentWorldJoin = type == TimeScope.Type.SERVER
+                ? "LEFT JOIN `" + worldTable + "` w ON w.`id` = a.`world_id` " : "";
+        final String sessionScope = switch (type) {
+            case GLOBAL -> "";
+            case SERVER -> "AND w.`server_id` = sc.`server_id` ";
+            case WORLD -> "AND t.`world_id` = sc.`world_id` ";
+        };
+        final String bucketScope = switch (type) {
+            case GLOBAL -> "";
+            case SERVER -> "AND w.`server_id` = sc.`server_id` ";
+            case WORLD -> "AND b.`world_id` = sc.`world_id` ";
+        };
+        final String adjustmentScope = switch (type) {
+            case GLOBAL -> "";
+            case SERVER -> "WHERE (a.`scope_type` = 'SERVER' AND a.`server_id` = sc.`server_id`) "
+                    + "OR (a.`scope_type` = 'WORLD' AND w.`server_id` = sc.`server_id`) ";
+            case WORLD -> "WHERE a.`scope_type` = 'WORLD' AND a.`world_id` = sc.`world_id` ";
+        };
+        return "SELECT x.`player_id` AS player_id, SUM(x.`seconds`) AS total FROM ("
+                + "SELECT t.`player_id` AS player_id, " + overlap + " AS seconds FROM " + scope
+                + "CROSS JOIN (SELECT ? AS range_start, ? AS range_end UNION ALL SELECT ?, ?) r "
+                + "JOIN `" + timeTable + "` t ON t.`leave_time` > r.range_start AND t.`join_time` < r.range_end "
+                + sessionWorldJoin + "WHERE " + overlap + " > 0 " + sessionScope
+                + "UNION ALL SELECT b.`player_id`, b.`seconds` FROM " + scope
+                + "JOIN `" + bucketTable + "` b ON b.`day` >= ? AND b.`day` < ? " + bucketWorldJoin
+                + "WHERE b.`seconds` <> 0 " + bucketScope
+                + "UNION ALL SELECT a.`player_id`, a.`amount_seconds` FROM " + scope
+                + "JOIN `" + adjustmentTable + "` a ON a.`created_at` >= ? AND a.`created_at` < ? "
+                + adjustmentWorldJoin + adjustmentScope
+                + ") x GROUP BY x.`player_id`";
+    }
+}
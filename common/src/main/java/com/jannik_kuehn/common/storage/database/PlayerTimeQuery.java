@@ -0,0 +1,417 @@
+package com.jannik_kuehn.common.storage.database;
+
+import com.jannik_kuehn.common.api.storage.TimeRange;
+import com.jannik_kuehn.common.api.storage.TimeScope;
+import com.jannik_kuehn.common.storage.database.table.ManualAdjustmentTable;
+import com.jannik_kuehn.common.storage.database.table.PlayerTable;
+import com.jannik_kuehn.common.storage.database.table.PlayerTotalTable;
+import com.jannik_kuehn.common.storage.database.table.ServerTable;
+import com.jannik_kuehn.common.storage.database.table.TimeBucketTable;
+import com.jannik_kuehn.common.storage.database.table.TimeTable;
+import com.jannik_kuehn.common.storage.database.table.WorldTable;
+import com.jannik_kuehn.common.utils.UuidUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Reads the time of one player in one scope with a single statement.
+ *
+ * <p>The player and the scope are resolved by name inside the statement, so a lookup does not need separate id
+ * queries. Unranged lookups read the materialized totals. Ranged lookups return the raw session seconds of the
+ * partial edge days, the daily bucket seconds of the whole days and the adjustment seconds together. The SQL is
+ * built once per scope type. Bulk lookups read many players with the same statements, filtered by chunks of
+ * UUIDs.</p>
+ */
+@SuppressWarnings("PMD.AvoidDuplicateLiterals")
+public class PlayerTimeQuery {
+
+    /**
+     * Maximum number of UUIDs bound to one bulk statement, below the parameter limit of older SQLite versions.
+     */
+    private static final int BULK_CHUNK_SIZE = 500;
+
+    /**
+     * Unranged total SQL by scope type.
+     */
+    private final Map<TimeScope.Type, String> totalSql;
+
+    /**
+     * Ranged total SQL by scope type.
+     */
+    private final Map<TimeScope.Type, String> rangedSql;
+
+    /**
+     * Bulk unranged total SQL by scope type, without the UUID placeholders of the closing {@code IN} list.
+     */
+    private final Map<TimeScope.Type, String> bulkTotalSql;
+
+    /**
+     * Bulk ranged total SQL by scope type, without the UUID placeholders of the closing {@code IN} list.
+     */
+    private final Map<TimeScope.Type, String> bulkRangedSql;
+
+    /**
+     * Creates a player time query.
+     *
+     * @param playerTable     player table helper
+     * @param serverTable     server table helper
+     * @param worldTable      world table helper
+     * @param timeTable       session table helper
+     * @param adjustmentTable adjustment table helper
+     * @param totalTable      materialized total table helper
+     * @param bucketTable     daily bucket table helper
+     * @param dialect         SQL dialect
+     */
+    @SuppressWarnings("PMD.ExcessiveParameterList")
+    public PlayerTimeQuery(final PlayerTable playerTable, final ServerTable serverTable, final WorldTable worldTable,
+                           final TimeTable timeTable, final ManualAdjustmentTable adjustmentTable,
+                           final PlayerTotalTable totalTable, final TimeBucketTable bucketTable,
+                           final SqlDialect dialect) {
+        this.totalSql = new EnumMap<>(TimeScope.Type.class);
+        this.rangedSql = new EnumMap<>(TimeScope.Type.class);
+        this.bulkTotalSql = new EnumMap<>(TimeScope.Type.class);
+        this.bulkRangedSql = new EnumMap<>(TimeScope.Type.class);
+        for (final TimeScope.Type type : TimeScope.Type.values()) {
+            final String scope = "CROSS JOIN " + scopeSql(type, serverTable, worldTable) + " sc ";
+            final String playerAndScope = "FROM (SELECT `id` FROM `" + playerTable + "` WHERE `uuid` = ?) p " + scope;
+            final String playersAndScope = "FROM `" + playerTable + "` p " + scope;
+            final String totalJoin = "JOIN `" + totalTable + "` pt ON pt.`player_id` = p.`id` "
+                    + "AND pt.`scope_type` = '" + type.name() + "' "
+                    + "AND pt.`server_id` = sc.`server_id` AND pt.`world_id` = sc.`world_id`";
+            final String rangedColumns = "(" + sessionSql(type, timeTable, worldTable, dialect) + ") AS sessions, "
+                    + "(" + bucketSql(type, bucketTable, worldTable) + ") AS days, "
+                    + "(" + adjustmentSql(type, adjustmentTable, worldTable) + ") AS adjustments ";
+            totalSql.put(type, "SELECT pt.`total_seconds` AS total " + playerAndScope + totalJoin);
+            rangedSql.put(type, "SELECT " + rangedColumns + playerAndScope);
+            bulkTotalSql.put(type, "SELECT p.`uuid` AS uuid, pt.`total_seconds` AS total " + playersAndScope
+                    + totalJoin + " WHERE p.`uuid` IN (");
+            bulkRangedSql.put(type, "SELECT p.`uuid` AS uuid, " + rangedColumns + playersAndScope
+                    + "WHERE p.`uuid` IN (");
+        }
+    }
+
+    /**
+     * Reads the materialized total of a player in a scope.
+     *
+     * @param connection database connection
+     * @param uuid       player UUID
+     * @param scope      time scope
+     * @return total seconds, or empty if the player or scope is unknown or has no history
+     * @throws SQLException if the query fails
+     */
+    public OptionalLong total(final Connection connection, final UUID uuid, final TimeScope scope) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(totalSql.get(scope.type()))) {
+            select.setBytes(1, UuidUtil.toBytes(uuid));
+            bindScope(select, 2, scope);
+            try (ResultSet result = select.executeQuery()) {
+                if (result.next()) {
+                    return OptionalLong.of(result.getLong("total"));
+                }
+            }
+        }
+        return OptionalLong.empty();
+    }
+
+    /**
+     * Reads the session and adjustment time of a player in a scope within a time range.
+     *
+     * @param connection database connection
+     * @param uuid       player UUID
+     * @param scope      time scope
+     * @param range      time range
+     * @param useBuckets {@code false} to read the whole range from raw sessions while the buckets are filled
+     * @return total seconds, or empty if the player or scope is unknown or has no history in the range
+     * @throws SQLException if the query fails
+     */
+    public OptionalLong rangedTotal(final Connection connection, final UUID uuid, final TimeScope scope,
+                                    final TimeRange range, final boolean useBuckets) throws SQLException {
+        final RangeWindows windows = RangeWindows.of(range, useBuckets);
+        try (PreparedStatement select = connection.prepareStatement(rangedSql.get(scope.type()))) {
+            int index = windows.bindSessionWindows(select, 1);
+            index = windows.bindDays(select, index);
+            index = windows.bindRange(select, index);
+            select.setBytes(index, UuidUtil.toBytes(uuid));
+            bindScope(select, index + 1, scope);
+            try (ResultSet result = select.executeQuery()) {
+                return result.next() ? rangedTotal(result) : OptionalLong.empty();
+            }
+        }
+    }
+
+    /**
+     * Reads the materialized totals of many players in a scope, in chunks of UUIDs.
+     *
+     * @param connection database connection
+     * @param uuids      player UUIDs
+     * @param scope      time scope
+     * @return total seconds by UUID, without players that are unknown or have no history in the scope
+     * @throws SQLException if the query fails
+     */
+    public Map<UUID, Long> totals(final Connection connection, final Collection<UUID> uuids, final TimeScope scope)
+            throws SQLException {
+        final Map<UUID, Long> totals = new HashMap<>();
+        final List<UUID> distinct = List.copyOf(new LinkedHashSet<>(uuids));
+        for (int from = 0; from < distinct.size(); from += BULK_CHUNK_SIZE) {
+            final List<UUID> chunk = distinct.subList(from, Math.min(distinct.size(), from + BULK_CHUNK_SIZE));
+            try (PreparedStatement select = connection.prepareStatement(
+                    bulkTotalSql.get(scope.type()) + placeholders(chunk.size()))) {
+                bindUuids(select, bindScope(select, 1, scope), chunk);
+                try (ResultSet result = select.executeQuery()) {
+                    while (result.next()) {
+                        totals.put(UuidUtil.fromBytes(result.getBytes("uuid")), result.getLong("total"));
+                    }
+                }
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Reads the session and adjustment time of many players in a scope within a time range, in chunks of UUIDs.
+     *
+     * @param connection database connection
+     * @param uuids      player UUIDs
+     * @param scope      time scope
+     * @param range      time range
+     * @param useBuckets {@code false} to read the whole range from raw sessions while the buckets are filled
+     * @return total seconds by UUID, without players that are unknown or have no history in the scope and range
+     * @throws SQLException if the query fails
+     */
+    public Map<UUID, Long> rangedTotals(final Connection connection, final Collection<UUID> uuids,
+                                        final TimeScope scope, final TimeRange range, final boolean useBuckets)
+            throws SQLException {
+        final RangeWindows windows = RangeWindows.of(range, useBuckets);
+        final Map<UUID, Long> totals = new HashMap<>();
+        final List<UUID> distinct = List.copyOf(new LinkedHashSet<>(uuids));
+        for (int from = 0; from < distinct.size(); from += BULK_CHUNK_SIZE) {
+            final List<UUID> chunk = distinct.subList(from, Math.min(distinct.size(), from + BULK_CHUNK_SIZE));
+            try (PreparedStatement select = connection.prepareStatement(
+                    bulkRangedSql.get(scope.type()) + placeholders(chunk.size()))) {
+                int index = windows.bindSessionWindows(select, 1);
+                index = windows.bindDays(select, index);
+                index = windows.bindRange(select, index);
+                bindUuids(select, bindScope(select, index, scope), chunk);
+                try (ResultSet result = select.executeQuery()) {
+                    while (result.next()) {
+                        final UUID uuid = UuidUtil.fromBytes(result.getBytes("uuid"));
+                        rangedTotal(result).ifPresent(total -> totals.put(uuid, total));
+                    }
+                }
+            }
+        }
+        return totals;
+    }
+
+    private static OptionalLong rangedTotal(final ResultSet result) throws SQLException {
+        long total = 0L;
+        boolean matched = false;
+        for (final String column : new String[]{"sessions", "days", "adjustments"}) {
+            final long value = result.getLong(column);
+            if (!result.wasNull()) {
+                total += value;
+                matched = true;
+            }
+        }
+        return matched ? OptionalLong.of(total) : OptionalLong.empty();
+    }
+
+    private static String placeholders(final int count) {
+        return String.join(", ", Collections.nCopies(count, "?")) + ")";
+    }
+
+    private static void bindUuids(final PreparedStatement select, final int firstIndex, final List<UUID> uuids)
+            throws SQLException {
+        for (int i = 0; i < uuids.size(); i++) {
+            select.setBytes(firstIndex + i, UuidUtil.toBytes(uuids.get(i)));
+        }
+    }
+
+    /**
+     * Binds the names of a scope derived table built by {@link #scopeSql(TimeScope.Type, ServerTable, WorldTable)}.
+     *
+     * @param select     statement to bind
+     * @param firstIndex index of the first scope parameter
+     * @param scope      time scope
+     * @return index of the next parameter
+     * @throws SQLException if binding fails
+     */
+    static int bindScope(final PreparedStatement select, final int firstIndex, final TimeScope scope)
+            throws SQLException {
+        return switch (scope.type()) {
+            case GLOBAL -> firstIndex;
+            case SERVER -> {
+                select.setString(firstIndex, scope.server());
+                yield firstIndex + 1;
+            }
+            case WORLD -> {
+                select.setString(firstIndex, scope.server());
+                select.setString(firstIndex + 1, scope.world());
+                yield firstIndex + 2;
+            }
+        };
+    }
+
+    /**
+     * Builds a single row derived table holding the {@code server_id} and {@code world_id} of a scope. The row is
+     * missing if the server or world is unknown. Scopes that do not reference a server or world use {@code 0}, like
+     * the materialized totals.
+     *
+     * @param type        scope type
+     * @param serverTable server table helper
+     * @param worldTable  world table helper
+     * @return derived table SQL without alias
+     */
+    static String scopeSql(final TimeScope.Type type, final ServerTable serverTable, final WorldTable worldTable) {
+        return switch (type) {
+            case GLOBAL -> "(SELECT 0 AS `server_id`, 0 AS `world_id`)";
+            case SERVER -> "(SELECT `id` AS `server_id`, 0 AS `world_id` FROM `" + serverTable + "` WHERE `server` = ?)";
+            case WORLD -> "(SELECT sw.`server_id` AS `server_id`, sw.`id` AS `world_id` FROM `" + worldTable + "` sw "
+                    + "JOIN `" + serverTable + "` ss ON ss.`id` = sw.`server_id` WHERE ss.`server` = ? AND sw.`world` = ?)";
+        };
+    }
+
+    private static String sessionSql(final TimeScope.Type type, final TimeTable timeTable, final WorldTable worldTable,
+                                     final SqlDialect dialect) {
+        // The head and tail windows are bound as the two rows of r; an empty window yields no positive overlap.
+        final String overlap = dialect.durationSecondsExpression(
+                dialect.greatestExpression("t.`join_time`", "r.range_start"),
+                dialect.leastExpression("t.`leave_time`", "r.range_end"));
+        final String scopeJoin = switch (type) {
+            case GLOBAL, WORLD -> "";
+            case SERVER -> "JOIN `" + worldTable + "` w ON w.`id` = t.`world_id` ";
+        };
+        final String scopeCondition = switch (type) {
+            case GLOBAL -> "";
+            case SERVER -> "AND w.`server_id` = sc.`server_id` ";
+            case WORLD -> "AND t.`world_id` = sc.`world_id` ";
+        };
+        return "SELECT SUM(" + overlap + ") "
+                + "FROM (SELECT ? AS range_start, ? AS range_end UNION ALL SELECT ?, ?) r "
+                + "JOIN `" + timeTable + "` t ON t.`leave_time` > r.range_start AND t.`join_time` < r.range_end "
+                + scopeJoin
+                + "WHERE t.`player_id` = p.`id` " + scopeCondition
+                + "AND " + overlap + " > 0";
+    }
+
+    private static String bucketSql(final TimeScope.Type type, final TimeBucketTable bucketTable,
+                                    final WorldTable worldTable) {
+        final String scopeJoin = switch (type) {
+            case GLOBAL, WORLD -> "";
+            case SERVER -> "JOIN `" + worldTable + "` w ON w.`id` = b.`world_id` ";
+        };
+        final String scopeCondition = switch (type) {
+            case GLOBAL -> "";
+            case SERVER -> " AND w.`server_id` = sc.`server_id`";
+            case WORLD -> " AND b.`world_id` = sc.`world_id`";
+        };
+        return "SELECT SUM(b.`seconds`) FROM `" + bucketTable + "` b " + scopeJoin
+                + "WHERE b.`player_id` = p.`id` AND b.`day` >= ? AND b.`day` < ? AND b.`seconds` <> 0" + scopeCondition;
+    }
+
+    private static String adjustmentSql(final TimeScope.Type type, final ManualAdjustmentTable adjustmentTable,
+                                        final WorldTable worldTable) {
+        final String scopeJoin = switch (type) {
+            case GLOBAL, WORLD -> "";
+            case SERVER -> "LEFT JOIN `" + worldTable + "` w ON w.`id` = a.`world_id` ";
+        };
+        final String scopeCondition = switch (type) {
+            case GLOBAL -> "";
+            case SERVER -> " AND ((a.`scope_type` = 'SERVER' AND a.`server_id` = sc.`server_id`) "
+                    + "OR (a.`scope_type` = 'WORLD' AND w.`server_id` = sc.`server_id`))";
+            case WORLD -> " AND a.`scope_type` = 'WORLD' AND a.`world_id` = sc.`world_id`";
+        };
+        return "SELECT SUM(a.`amount_seconds`) FROM `" + adjustmentTable + "` a " + scopeJoin
+                + "WHERE a.`player_id` = p.`id` AND a.`created_at` >= ? AND a.`created_at` < ?" + scopeCondition;
+    }
+
+    /**
+     * Splits a time range into the whole days served by the daily buckets and the partial head and tail windows
+     * that are read from raw sessions.
+     *
+     * @param startMs     range start in epoch milliseconds, inclusive
+     * @param headEndMs   end of the head window in epoch milliseconds
+     * @param tailStartMs start of the tail window in epoch milliseconds
+     * @param endMs       range end in epoch milliseconds, exclusive
+     * @param firstDay    first whole epoch day, inclusive
+     * @param endDay      last whole epoch day, exclusive
+     */
+    record RangeWindows(long startMs, long headEndMs, long tailStartMs, long endMs, long firstDay, long endDay) {
+
+        /**
+         * Splits a time range.
+         *
+         * @param range      time range
+         * @param useBuckets {@code false} to read the whole range from raw sessions
+         * @return range windows
+         */
+        static RangeWindows of(final TimeRange range, final boolean useBuckets) {
+            final long startMs = range.startInclusive().toEpochMilli();
+            final long endMs = range.endExclusive().toEpochMilli();
+            final long firstDay = Math.floorDiv(startMs + TimeBucketTable.MILLIS_PER_DAY - 1L, TimeBucketTable.MILLIS_PER_DAY);
+            final long endDay = Math.floorDiv(endMs, TimeBucketTable.MILLIS_PER_DAY);
+            if (useBuckets && firstDay < endDay) {
+                return new RangeWindows(startMs, TimeBucketTable.dayStartMs(firstDay), TimeBucketTable.dayStartMs(endDay),
+                        endMs, firstDay, endDay);
+            }
+            // Without whole days, or while the buckets are filled, the head window covers the whole range.
+            return new RangeWindows(startMs, endMs, endMs, endMs, 0L, 0L);
+        }
+
+        /**
+         * Binds the head and tail windows as four timestamps.
+         *
+         * @param select     statement to bind
+         * @param firstIndex index of the first parameter
+         * @return index of the next parameter
+         * @throws SQLException if binding fails
+         */
+        int bindSessionWindows(final PreparedStatement select, final int firstIndex) throws SQLException {
+            select.setTimestamp(firstIndex, new Timestamp(startMs));
+            select.setTimestamp(firstIndex + 1, new Timestamp(headEndMs));
+            select.setTimestamp(firstIndex + 2, new Timestamp(tailStartMs));
+            select.setTimestamp(firstIndex + 3, new Timestamp(endMs));
+            return firstIndex + 4;
+        }
+
+        /**
+         * Binds the whole day bounds.
+         *
+         * @param select     statement to bind
+         * @param firstIndex index of the first parameter
+         * @return index of the next parameter
+         * @throws SQLException if binding fails
+         */
+        int bindDays(final PreparedStatement select, final int firstIndex) throws SQLException {
+            select.setLong(firstIndex, firstDay);
+            select.setLong(firstIndex + 1, endDay);
+            return firstIndex + 2;
+        }
+
+        /**
+         * Binds the full range as two timestamps.
+         *
+         * @param select     statement to bind
+         * @param firstIndex index of the first parameter
+         * @return index of the next parameter
+         * @throws SQLException if binding fails
+         */
+        int bindRange(final PreparedStatement select, final int firstIndex) throws SQLException {
+            select.setTimestamp(firstIndex, new Timestamp(startMs));
+            select.setTimestamp(firstIndex + 1, new Timestamp(endMs));
+            return firstIndex + 2;
+        }
+    }
+}
@@ -68,10 +68,6 @@ public class RecentPlayerIdentityReader {
     }
 
     private String recentConditionSql(final long recentDays) {
-        return switch (sqlDialect) {
-            case MYSQL, MARIADB -> "`last_seen` >= DATE_SUB(NOW(3), INTERVAL " + recentDays + " DAY)";
-            case SQLITE -> "(DATETIME(`last_seen` / 1000, 'unixepoch') >= DATETIME('now', '-" + recentDays + " days') "
-                    + "OR DATETIME(`last_seen`) >= DATETIME('now', '-" + recentDays + " days'))";
-        };
+        return "`last_seen` >= " + sqlDialect.daysAgoTimestampExpression(recentDays);
     }
 }
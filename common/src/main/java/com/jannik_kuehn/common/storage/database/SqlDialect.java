@@ -3,7 +3,6 @@ package com.jannik_kuehn.common.storage.database;
 /**
  * Provides SQL fragments for a specific database dialect.
  */
-@FunctionalInterface
 public interface SqlDialect {
 
     /**
@@ -14,4 +13,37 @@ public interface SqlDialect {
      * @return the SQL expression
      */
     String durationSecondsExpression(String joinColumn, String leaveColumn);
+
+    /**
+     * Returns the SQL expression for the larger of two values.
+     *
+     * @param first  the first value expression
+     * @param second the second value expression
+     * @return the SQL expression
+     */
+    String greatestExpression(String first, String second);
+
+    /**
+     * Returns the SQL expression for the smaller of two values.
+     *
+     * @param first  the first value expression
+     * @param second the second value expression
+     * @return the SQL expression
+     */
+    String leastExpression(String first, String second);
+
+    /**
+     * Returns the SQL expression for the current timestamp in the dialect's timestamp column format.
+     *
+     * @return the SQL expression
+     */
+    String currentTimestampExpression();
+
+    /**
+     * Returns the SQL expression for the timestamp the given number of days before now.
+     *
+     * @param days number of days
+     * @return the SQL expression
+     */
+    String daysAgoTimestampExpression(long days);
 }
@@ -0,0 +1,440 @@
+package com.jannik_kuehn.common.storage.database;
+
+import com.jannik_kuehn.common.storage.database.table.DatabaseInstantReader;
+import com.jannik_kuehn.common.storage.database.table.PlayerTable;
+import com.jannik_kuehn.common.storage.database.table.PlayerTotalTable;
+import com.jannik_kuehn.common.storage.database.table.ServerTable;
+import com.jannik_kuehn.common.storage.database.table.TimeBucketDeltas;
+import com.jannik_kuehn.common.storage.database.table.TimeBucketTable;
+import com.jannik_kuehn.common.storage.database.table.WorldTable;
+import com.jannik_kuehn.common.storage.model.StorageTransferProgress;
+import com.jannik_kuehn.common.utils.UuidUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Copies the full history of one database storage into an empty database storage of another type.
+ *
+ * <p>Players, sessions and adjustments are read in id order with keyset pagination and a driver fetch size, and are
+ * written in fixed-size batches. Every batch is committed together with a checkpoint of the last copied source id,
+ * so memory stays bounded by the batch size and an interrupted transfer continues after the last committed batch.
+ * Servers and worlds are few and are copied up front by name. The player ids of a batch of sessions or adjustments
+ * are resolved with one lookup per batch.</p>
+ *
+ * <p>Once all rows are copied, the totals and daily buckets of the target are recomputed in committed chunks of
+ * players with the same checkpoint, so no step runs over the whole history in one transaction.</p>
+ */
+@SuppressWarnings("PMD.AvoidDuplicateLiterals")
+final class StorageTypeTransfer {
+
+    /**
+     * Number of rows read and written per batch.
+     */
+    /* default */ static final int BATCH_SIZE = 5000;
+
+    /**
+     * Number of players whose totals and daily buckets are recomputed per transaction.
+     */
+    private static final int TOTALS_CHUNK_SIZE = 500;
+
+    /**
+     * Maximum number of UUIDs bound to one target player lookup.
+     */
+    private static final int PLAYER_LOOKUP_CHUNK_SIZE = 500;
+
+    /**
+     * Source table names.
+     */
+    private final Tables source;
+
+    /**
+     * Target table names.
+     */
+    private final Tables target;
+
+    /**
+     * Target server table helper.
+     */
+    private final ServerTable targetServerTable;
+
+    /**
+     * Target world table helper.
+     */
+    private final WorldTable targetWorldTable;
+
+    /**
+     * Target player table helper.
+     */
+    private final PlayerTable targetPlayerTable;
+
+    /**
+     * Target total table helper.
+     */
+    private final PlayerTotalTable targetTotalTable;
+
+    /**
+     * Target daily bucket table helper.
+     */
+    private final TimeBucketTable targetBucketTable;
+
+    /**
+     * Receives the progress after every committed batch.
+     */
+    private final Consumer<StorageTransferProgress> progress;
+
+    /**
+     * Creates a storage-type transfer.
+     *
+     * @param source            source table names
+     * @param target            target table names
+     * @param targetServerTable target server table helper
+     * @param targetWorldTable  target world table helper
+     * @param targetPlayerTable target player table helper
+     * @param targetTotalTable  target total table helper
+     * @param targetBucketTable target daily bucket table helper
+     * @param progress          receives the progress after every committed batch
+     */
+    /* default */ StorageTypeTransfer(final Tables source, final Tables target, final ServerTable targetServerTable,
+                                      final WorldTable targetWorldTable, final PlayerTable targetPlayerTable,
+                                      final PlayerTotalTable targetTotalTable, final TimeBucketTable targetBucketTable,
+                                      final Consumer<StorageTransferProgress> progress) {
+        this.source = source;
+        this.target = target;
+        this.targetServerTable = targetServerTable;
+        this.targetWorldTable = targetWorldTable;
+        this.targetPlayerTable = targetPlayerTable;
+        this.targetTotalTable = targetTotalTable;
+        this.targetBucketTable = targetBucketTable;
+        this.progress = progress;
+    }
+
+    /**
+     * Returns whether the target holds the checkpoint of an interrupted transfer.
+     *
+     * @param targetConnection target connection
+     * @return true if an interrupted transfer can be continued
+     * @throws SQLException if the checkpoint cannot be read
+     */
+    /* default */ boolean hasCheckpoint(final Connection targetConnection) throws SQLException {
+        try (PreparedStatement select = targetConnection.prepareStatement(
+                "SELECT COUNT(*) FROM `" + target.checkpoint() + "`");
+             ResultSet result = select.executeQuery()) {
+            return result.next() && result.getLong(1) > 0;
+        }
+    }
+
+    /**
+     * Copies all remaining rows and recomputes the totals and daily buckets of the target, committing the target
+     * after every batch.
+     *
+     * @param sourceConnection source connection
+     * @param targetConnection target connection without auto-commit
+     * @throws SQLException if a row cannot be read or written
+     */
+    /* default */ void copy(final Connection sourceConnection, final Connection targetConnection) throws SQLException {
+        final Map<Long, Long> serverIds = copyServers(sourceConnection, targetConnection);
+        final Map<Long, Long> worldIds = copyWorlds(sourceConnection, targetConnection);
+        startCheckpoint(targetConnection);
+        targetConnection.commit();
+
+        copyStage(sourceConnection, targetConnection, StorageTransferProgress.Stage.PLAYERS,
+                "SELECT `id`, `uuid`, `name`, `last_seen` FROM `" + source.player() + "` "
+                        + "WHERE `id` > ? ORDER BY `id` LIMIT ?",
+                "INSERT INTO `" + target.player() + "` (`uuid`, `name`, `last_seen`) VALUES (?, ?, ?)",
+                null,
+                (result, insert, playerIds) -> {
+                    insert.setBytes(1, result.getBytes("uuid"));
+                    insert.setString(2, result.getString("name"));
+                    insert.setTimestamp(3, readTimestamp(result, "last_seen"));
+                });
+        copyStage(sourceConnection, targetConnection, StorageTransferProgress.Stage.SESSIONS,
+                "SELECT t.`id`, t.`player_id`, t.`world_id`, t.`join_time`, t.`leave_time`, t.`reason` "
+                        + "FROM `" + source.time() + "` t "
+                        + "JOIN `" + source.player() + "` p ON p.`id` = t.`player_id` "
+                        + "WHERE t.`id` > ? ORDER BY t.`id` LIMIT ?",
+                "INSERT INTO `" + target.time() + "` (`player_id`, `world_id`, `join_time`, `leave_time`, `reason`) "
+                        + "VALUES (?, ?, ?, ?, ?)",
+                batchPlayersSql(source.time()),
+                (result, insert, playerIds) -> {
+                    insert.setLong(1, mapId(playerIds, result.getLong("player_id")));
+                    insert.setLong(2, mapId(worldIds, result.getLong("world_id")));
+                    insert.setTimestamp(3, readTimestamp(result, "join_time"));
+                    insert.setTimestamp(4, readTimestamp(result, "leave_time"));
+                    insert.setString(5, result.getString("reason"));
+                });
+        copyStage(sourceConnection, targetConnection, StorageTransferProgress.Stage.ADJUSTMENTS,
+                "SELECT a.`id`, a.`player_id`, a.`scope_type`, a.`server_id`, a.`world_id`, a.`amount_seconds`, "
+                        + "a.`reason`, a.`actor_uuid`, a.`actor_name`, a.`created_at` "
+                        + "FROM `" + source.adjustment() + "` a "
+                        + "JOIN `" + source.player() + "` p ON p.`id` = a.`player_id` "
+                        + "WHERE a.`id` > ? ORDER BY a.`id` LIMIT ?",
+                "INSERT INTO `" + target.adjustment() + "` (`player_id`, `scope_type`, `server_id`, `world_id`, "
+                        + "`amount_seconds`, `reason`, `actor_uuid`, `actor_name`, `created_at`) VALUES "
+                        + "(?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                batchPlayersSql(source.adjustment()),
+                (result, insert, playerIds) -> {
+                    insert.setLong(1, mapId(playerIds, result.getLong("player_id")));
+                    insert.setString(2, result.getString("scope_type"));
+                    setNullableId(insert, 3, serverIds, result, "server_id");
+                    setNullableId(insert, 4, worldIds, result, "world_id");
+                    insert.setLong(5, result.getLong("amount_seconds"));
+                    insert.setString(6, result.getString("reason"));
+                    insert.setBytes(7, result.getBytes("actor_uuid"));
+                    insert.setString(8, result.getString("actor_name"));
+                    insert.setTimestamp(9, readTimestamp(result, "created_at"));
+                });
+        rebuildTotals(targetConnection);
+    }
+
+    /**
+     * Removes the checkpoint once the copied history has been finalized.
+     *
+     * @param targetConnection target connection
+     * @throws SQLException if the checkpoint cannot be removed
+     */
+    /* default */ void clearCheckpoint(final Connection targetConnection) throws SQLException {
+        try (PreparedStatement delete = targetConnection.prepareStatement(
+                "DELETE FROM `" + target.checkpoint() + "`")) {
+            delete.executeUpdate();
+        }
+    }
+
+    private Map<Long, Long> copyServers(final Connection sourceConnection, final Connection targetConnection)
+            throws SQLException {
+        final Map<Long, Long> serverIds = new HashMap<>();
+        try (PreparedStatement select = sourceConnection.prepareStatement(
+                "SELECT `id`, `server` FROM `" + source.server() + "` ORDER BY `id`");
+             ResultSet result = select.executeQuery()) {
+            while (result.next()) {
+                serverIds.put(result.getLong("id"),
+                        targetServerTable.ensureServer(targetConnection, result.getString("server")));
+            }
+        }
+        return serverIds;
+    }
+
+    private Map<Long, Long> copyWorlds(final Connection sourceConnection, final Connection targetConnection)
+            throws SQLException {
+        final Map<Long, Long> worldIds = new HashMap<>();
+        try (PreparedStatement select = sourceConnection.prepareStatement(
+                "SELECT w.`id`, s.`server`, w.`world` FROM `" + source.world() + "` w "
+                        + "JOIN `" + source.server() + "` s ON s.`id` = w.`server_id` ORDER BY w.`id`");
+             ResultSet result = select.executeQuery()) {
+            while (result.next()) {
+                worldIds.put(result.getLong("id"), targetWorldTable.ensureWorld(targetConnection,
+                        result.getString("server"), result.getString("world")));
+            }
+        }
+        return worldIds;
+    }
+
+    private void startCheckpoint(final Connection targetConnection) throws SQLException {
+        if (hasCheckpoint(targetConnection)) {
+            return;
+        }
+        try (PreparedStatement insert = targetConnection.prepareStatement(
+                "INSERT INTO `" + target.checkpoint() + "` (`stage`, `last_id`, `rows_copied`) VALUES (?, 0, 0)")) {
+            for (final StorageTransferProgress.Stage stage : StorageTransferProgress.Stage.values()) {
+                insert.setString(1, stage.name());
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    @SuppressWarnings("PMD.CloseResource")
+    private void copyStage(final Connection sourceConnection, final Connection targetConnection,
+                           final StorageTransferProgress.Stage stage, final String selectSql, final String insertSql,
+                           final String batchPlayersSql, final RowCopier copier) throws SQLException {
+        final long[] checkpoint = readCheckpoint(targetConnection, stage);
+        long lastId = checkpoint[0];
+        long copiedRows = checkpoint[1];
+        long runRows = 0;
+        final long startedAt = System.nanoTime();
+        try (PreparedStatement select = sourceConnection.prepareStatement(selectSql);
+             PreparedStatement insert = targetConnection.prepareStatement(insertSql);
+             PreparedStatement update = targetConnection.prepareStatement(checkpointUpdateSql())) {
+            select.setFetchSize(BATCH_SIZE);
+            int batchRows;
+            do {
+                batchRows = 0;
+                final Map<Long, Long> playerIds = batchPlayersSql == null ? Map.of()
+                        : resolvePlayerIds(sourceConnection, targetConnection, batchPlayersSql, lastId);
+                select.setLong(1, lastId);
+                select.setInt(2, BATCH_SIZE);
+                try (ResultSet result = select.executeQuery()) {
+                    while (result.next()) {
+                        lastId = result.getLong("id");
+                        copier.copy(result, insert, playerIds);
+                        insert.addBatch();
+                        batchRows++;
+                    }
+                }
+                if (batchRows == 0) {
+                    break;
+                }
+                insert.executeBatch();
+                copiedRows += batchRows;
+                runRows += batchRows;
+                update.setLong(1, lastId);
+                update.setLong(2, copiedRows);
+                update.setString(3, stage.name());
+                update.executeUpdate();
+                targetConnection.commit();
+                final long elapsedMs = Math.max(1L, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+                progress.accept(new StorageTransferProgress(stage, copiedRows, runRows * 1000L / elapsedMs));
+            } while (batchRows == BATCH_SIZE);
+        }
+    }
+
+    private void rebuildTotals(final Connection targetConnection) throws SQLException {
+        final StorageTransferProgress.Stage stage = StorageTransferProgress.Stage.TOTALS;
+        final long[] checkpoint = readCheckpoint(targetConnection, stage);
+        long lastId = checkpoint[0];
+        long players = checkpoint[1];
+        long runPlayers = 0;
+        final long startedAt = System.nanoTime();
+        try (PreparedStatement update = targetConnection.prepareStatement(checkpointUpdateSql())) {
+            List<Long> playerIds = targetPlayerTable.findIds(targetConnection, lastId, TOTALS_CHUNK_SIZE);
+            while (!playerIds.isEmpty()) {
+                final long chunkLastId = playerIds.get(playerIds.size() - 1);
+                targetTotalTable.rebuildPlayers(targetConnection, lastId, chunkLastId);
+                final TimeBucketDeltas buckets = new TimeBucketDeltas();
+                targetBucketTable.rebuildPlayers(targetConnection, playerIds, buckets);
+                targetBucketTable.addDeltas(targetConnection, buckets);
+                lastId = chunkLastId;
+                players += playerIds.size();
+                runPlayers += playerIds.size();
+                update.setLong(1, lastId);
+                update.setLong(2, players);
+                update.setString(3, stage.name());
+                update.executeUpdate();
+                targetConnection.commit();
+                final long elapsedMs = Math.max(1L, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+                progress.accept(new StorageTransferProgress(stage, players, runPlayers * 1000L / elapsedMs));
+                playerIds = targetPlayerTable.findIds(targetConnection, lastId, TOTALS_CHUNK_SIZE);
+            }
+        }
+    }
+
+    private String batchPlayersSql(final String sourceTable) {
+        return "SELECT DISTINCT b.`player_id`, b.`uuid` FROM (SELECT r.`player_id`, p.`uuid` "
+                + "FROM `" + sourceTable + "` r JOIN `" + source.player() + "` p ON p.`id` = r.`player_id` "
+                + "WHERE r.`id` > ? ORDER BY r.`id` LIMIT " + BATCH_SIZE + ") b";
+    }
+
+    private Map<Long, Long> resolvePlayerIds(final Connection sourceConnection, final Connection targetConnection,
+                                             final String batchPlayersSql, final long lastId) throws SQLException {
+        final Map<UUID, Long> sourceIds = new HashMap<>();
+        try (PreparedStatement select = sourceConnection.prepareStatement(batchPlayersSql)) {
+            select.setLong(1, lastId);
+            try (ResultSet result = select.executeQuery()) {
+                while (result.next()) {
+                    sourceIds.put(UuidUtil.fromBytes(result.getBytes("uuid")), result.getLong("player_id"));
+                }
+            }
+        }
+        final Map<Long, Long> playerIds = new HashMap<>();
+        final List<UUID> uuids = new ArrayList<>(sourceIds.keySet());
+        for (int from = 0; from < uuids.size(); from += PLAYER_LOOKUP_CHUNK_SIZE) {
+            final List<UUID> chunk = uuids.subList(from, Math.min(from + PLAYER_LOOKUP_CHUNK_SIZE, uuids.size()));
+            try (PreparedStatement select = targetConnection.prepareStatement(
+                    "SELECT `id`, `uuid` FROM `" + target.player() + "` WHERE `uuid` IN ("
+                            + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")")) {
+                for (int index = 0; index < chunk.size(); index++) {
+                    select.setBytes(index + 1, UuidUtil.toBytes(chunk.get(index)));
+                }
+                try (ResultSet result = select.executeQuery()) {
+                    while (result.next()) {
+                        playerIds.put(sourceIds.get(UuidUtil.fromBytes(result.getBytes("uuid"))),
+                                result.getLong("id"));
+                    }
+                }
+            }
+        }
+        return playerIds;
+    }
+
+    private String checkpointUpdateSql() {
+        return "UPDATE `" + target.checkpoint() + "` SET `last_id` = ?, `rows_copied` = ? WHERE `stage` = ?";
+    }
+
+    private long[] readCheckpoint(final Connection targetConnection, final StorageTransferProgress.Stage stage)
+            throws SQLException {
+        try (PreparedStatement select = targetConnection.prepareStatement(
+                "SELECT `last_id`, `rows_copied` FROM `" + target.checkpoint() + "` WHERE `stage` = ?")) {
+            select.setString(1, stage.name());
+            try (ResultSet result = select.executeQuery()) {
+                return result.next() ? new long[]{result.getLong("last_id"), result.getLong("rows_copied")}
+                        : new long[]{0L, 0L};
+            }
+        }
+    }
+
+    private static Timestamp readTimestamp(final ResultSet result, final String column) throws SQLException {
+        return result.getObject(column) == null ? null
+                : Timestamp.from(DatabaseInstantReader.readInstant(result, column));
+    }
+
+    private static void setNullableId(final PreparedStatement insert, final int index, final Map<Long, Long> ids,
+                                      final ResultSet result, final String column) throws SQLException {
+        final long sourceId = result.getLong(column);
+        if (result.wasNull()) {
+            insert.setNull(index, Types.BIGINT);
+        } else {
+            insert.setLong(index, mapId(ids, sourceId));
+        }
+    }
+
+    private static long mapId(final Map<Long, Long> ids, final long sourceId) throws SQLException {
+        final Long targetId = ids.get(sourceId);
+        if (targetId == null) {
+            throw new SQLException("Source row references unknown id " + sourceId);
+        }
+        return targetId;
+    }
+
+    /**
+     * Copies the columns of one source row into the parameters of a target insert.
+     */
+    @FunctionalInterface
+    private interface RowCopier {
+
+        /**
+         * Copies one row.
+         *
+         * @param result    source row
+         * @param insert    target insert
+         * @param playerIds target player ids of the batch keyed by source player id
+         * @throws SQLException if a column cannot be read or written
+         */
+        void copy(ResultSet result, PreparedStatement insert, Map<Long, Long> playerIds) throws SQLException;
+    }
+
+    /**
+     * Table names of one side of a transfer.
+     *
+     * @param player     player table name
+     * @param server     server table name
+     * @param world      world table name
+     * @param time       session table name
+     * @param adjustment adjustment table name
+     * @param checkpoint transfer checkpoint table name
+     */
+    /* default */ record Tables(String player, String server, String world, String time, String adjustment,
+                                String checkpoint) {
+    }
+}
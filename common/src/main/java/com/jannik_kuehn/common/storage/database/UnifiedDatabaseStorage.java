@@ -8,13 +8,21 @@ import com.jannik_kuehn.common.storage.contract.UnifiedStorage;
 import com.jannik_kuehn.common.storage.database.provider.LoriTimeConnectionProvider;
 import com.jannik_kuehn.common.storage.database.table.ManualAdjustmentTable;
 import com.jannik_kuehn.common.storage.database.table.PlayerTable;
+import com.jannik_kuehn.common.storage.database.table.PlayerTotalDeltas;
+import com.jannik_kuehn.common.storage.database.table.PlayerTotalTable;
 import com.jannik_kuehn.common.storage.database.table.ServerTable;
+import com.jannik_kuehn.common.storage.database.table.TimeBucketDeltas;
+import com.jannik_kuehn.common.storage.database.table.TimeBucketTable;
 import com.jannik_kuehn.common.storage.database.table.TimeTable;
 import com.jannik_kuehn.common.storage.database.table.WorldTable;
+import com.jannik_kuehn.common.storage.model.PlayerHistoryChunk;
+import com.jannik_kuehn.common.storage.model.LeaderboardEntry;
+import com.jannik_kuehn.common.storage.model.LeaderboardSummary;
 import com.jannik_kuehn.common.storage.model.ManualTimeAdjustment;
 import com.jannik_kuehn.common.storage.model.PlayerSessionChunk;
 import com.jannik_kuehn.common.storage.model.PlayerSessionContext;
 import com.jannik_kuehn.common.storage.model.RecentPlayerIdentity;
+import com.jannik_kuehn.common.storage.model.SessionWrite;
 import com.jannik_kuehn.common.storage.model.StorageDeleteRequest;
 import com.jannik_kuehn.common.storage.model.StorageMaintenanceConfirmation;
 import com.jannik_kuehn.common.storage.model.StorageMaintenanceOperation;
@@ -22,6 +30,7 @@ import com.jannik_kuehn.common.storage.model.StorageMaintenancePreview;
 import com.jannik_kuehn.common.storage.model.StorageMaintenanceResult;
 import com.jannik_kuehn.common.storage.model.StorageMaintenanceScope;
 import com.jannik_kuehn.common.storage.model.StorageTransferMapping;
+import com.jannik_kuehn.common.storage.model.StorageTransferProgress;
 import com.jannik_kuehn.common.storage.model.StorageTransferRequest;
 import com.jannik_kuehn.common.storage.model.TimeEntryReason;
 
@@ -32,7 +41,9 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -42,6 +53,7 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
 /**
  * Database-backed unified storage implementation for player identity, sessions, and adjustments.
@@ -62,6 +74,11 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
      */
     private static final String SYSTEM_ACTOR = "SYSTEM";
 
+    /**
+     * Number of inactive players whose history is deleted per transaction.
+     */
+    private static final int INACTIVE_CLEANUP_CHUNK_SIZE = 500;
+
     /**
      * Database connection provider.
      */
@@ -97,11 +114,36 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
      */
     private final ManualAdjustmentTable adjustmentTable;
 
+    /**
+     * Materialized player total table helper.
+     */
+    private final PlayerTotalTable totalTable;
+
+    /**
+     * Daily session time bucket table helper.
+     */
+    private final TimeBucketTable bucketTable;
+
     /**
      * Recent player identity reader.
      */
     private final RecentPlayerIdentityReader recentPlayerIdentityReader;
 
+    /**
+     * Single statement player time query.
+     */
+    private final PlayerTimeQuery playerTimeQuery;
+
+    /**
+     * Paginated leaderboard query.
+     */
+    private final LeaderboardQuery leaderboardQuery;
+
+    /**
+     * Cache for player, server, and world surrogate keys.
+     */
+    private final IdentityCache identityCache;
+
     /**
      * Lock protecting storage access while the provider is closing.
      */
@@ -132,6 +174,16 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
      */
     private final String adjustmentTableName;
 
+    /**
+     * storage-type transfer checkpoint table name.
+     */
+    private final String checkpointTableName;
+
+    /**
+     * {@code false} while the daily buckets are filled from history, ranged lookups then read raw sessions only.
+     */
+    private volatile boolean bucketsFilled;
+
     /**
      * Creates a database-backed unified storage instance.
      *
@@ -141,6 +193,8 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
      * @param worldTable      the world table helper.
      * @param timeTable       the timetable helper.
      * @param adjustmentTable the manual adjustment table helper.
+     * @param totalTable      the materialized player total table helper.
+     * @param bucketTable     the daily session time bucket table helper.
      * @param dialect         the database dialect.
      */
     public UnifiedDatabaseStorage(final LoriTimeConnectionProvider provider,
@@ -149,6 +203,8 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
                                   final WorldTable worldTable,
                                   final TimeTable timeTable,
                                   final ManualAdjustmentTable adjustmentTable,
+                                  final PlayerTotalTable totalTable,
+                                  final TimeBucketTable bucketTable,
                                   final DatabaseDialect dialect) {
         this.provider = provider;
         this.dialect = dialect;
@@ -157,13 +213,45 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
         this.worldTable = worldTable;
         this.timeTable = timeTable;
         this.adjustmentTable = adjustmentTable;
+        this.totalTable = totalTable;
+        this.bucketTable = bucketTable;
         this.recentPlayerIdentityReader = new RecentPlayerIdentityReader(provider, playerTable, dialect);
+        this.playerTimeQuery = new PlayerTimeQuery(playerTable, serverTable, worldTable, timeTable, adjustmentTable,
+                totalTable, bucketTable, dialect);
+        this.leaderboardQuery = new LeaderboardQuery(playerTable, serverTable, worldTable, timeTable, adjustmentTable,
+                totalTable, bucketTable, dialect);
+        this.identityCache = new IdentityCache();
         this.poolLock = new ReentrantReadWriteLock();
         this.playerTableName = playerTable.toString();
         this.serverTableName = serverTable.toString();
         this.worldTableName = worldTable.toString();
         this.timeTableName = timeTable.toString();
         this.adjustmentTableName = adjustmentTable.toString();
+        this.checkpointTableName = playerTableName.substring(0, playerTableName.lastIndexOf("_player"))
+                + "_transfer_checkpoint";
+        this.bucketsFilled = true;
+    }
+
+    /**
+     * Loads all server and world ids and the ids of the most recently seen players into the identity cache.
+     *
+     * @param maxPlayers maximum number of player ids to load
+     * @throws StorageException if the ids could not be read
+     */
+    public void warmIdentityCache(final int maxPlayers) throws StorageException {
+        poolLock.readLock().lock();
+        try {
+            checkClosed();
+            try (Connection connection = provider.getConnection()) {
+                serverTable.getAllIds(connection).forEach(identityCache::putServer);
+                identityCache.putWorlds(worldTable.getAllIds(connection));
+                playerTable.getRecentIds(connection, maxPlayers).forEach(identityCache::putPlayer);
+            }
+        } catch (final SQLException ex) {
+            throw new StorageException(ex);
+        } finally {
+            poolLock.readLock().unlock();
+        }
     }
 
     @Override
@@ -211,19 +299,7 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
         try {
             checkClosed();
             try (Connection connection = provider.getConnection()) {
-                final Optional<Long> playerId = playerTable.findIdByUuid(connection, uniqueId);
-                if (playerId.isEmpty()) {
-                    return OptionalLong.empty();
-                }
-                final OptionalLong sessionSum = sumSessions(connection, uniqueId, scope);
-                final OptionalLong adjustmentSum = sumAdjustments(connection, playerId.get(), scope);
-                if (sessionSum.isEmpty() && adjustmentSum.isEmpty()) {
-                    return OptionalLong.empty();
-                }
-                final long sessions = sessionSum.orElse(0L);
-                final long adjustments = adjustmentSum.orElse(0L);
-                final long total = sessions + adjustments;
-                return OptionalLong.of(total);
+                return playerTimeQuery.total(connection, uniqueId, scope);
             }
         } catch (final SQLException ex) {
             throw new StorageException(ex);
@@ -243,19 +319,10 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
         Objects.requireNonNull(adjustment.playerUuid());
         Objects.requireNonNull(adjustment.reason());
         Objects.requireNonNull(adjustment.actorName());
-        poolLock.readLock().lock();
-        try {
-            checkClosed();
-            try (Connection connection = provider.getConnection()) {
-                final long playerId = playerTable.ensurePlayer(connection, adjustment.playerUuid(), Optional.empty());
-                final ScopeReferences references = resolveScopeReferences(connection, adjustment.scope(), true);
-                adjustmentTable.insert(connection, playerId, references.serverId(), references.worldId(), adjustment);
-            }
-        } catch (final SQLException ex) {
-            throw new StorageException(ex);
-        } finally {
-            poolLock.readLock().unlock();
-        }
+        writeWithTotals((connection, deltas, buckets) -> {
+            insertAdjustment(connection, adjustment, deltas);
+            return null;
+        });
     }
 
     @Override
@@ -273,15 +340,79 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
         if (adjustments == null || adjustments.isEmpty()) {
             return;
         }
+        writeWithTotals((connection, deltas, buckets) -> {
+            for (final ManualTimeAdjustment adjustment : adjustments) {
+                insertAdjustment(connection, adjustment, deltas);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public long startSession(final PlayerSessionContext context, final TimeEntryReason reason) throws StorageException {
+        Objects.requireNonNull(context);
+        Objects.requireNonNull(reason);
+        return writeWithTotals((connection, deltas, buckets) -> insertSession(connection, context.server(), context.world(),
+                context.uuid(), context.name(), context.startedAtMs(), context.startedAtMs(), reason, deltas, buckets));
+    }
+
+    @Override
+    public void updateSession(final long sessionId, final long stoppedAtMs, final TimeEntryReason reason) throws StorageException {
+        Objects.requireNonNull(reason);
+        writeWithTotals((connection, deltas, buckets) -> {
+            final Map<Long, TimeTable.StoredSession> before = timeTable.findSessions(connection, List.of(sessionId));
+            timeTable.updateSession(connection, sessionId, Instant.ofEpochMilli(stoppedAtMs), reason);
+            addSessionDeltas(deltas, buckets, before, timeTable.findSessions(connection, List.of(sessionId)));
+            return null;
+        });
+    }
+
+    @Override
+    public void updateSessions(final Map<Long, Long> sessionIdToStoppedAt, final TimeEntryReason reason)
+            throws StorageException {
+        Objects.requireNonNull(reason);
+        if (sessionIdToStoppedAt == null || sessionIdToStoppedAt.isEmpty()) {
+            return;
+        }
+        writeWithTotals((connection, deltas, buckets) -> {
+            final Set<Long> sessionIds = sessionIdToStoppedAt.keySet();
+            final Map<Long, TimeTable.StoredSession> before = timeTable.findSessions(connection, sessionIds);
+            timeTable.updateSessions(connection, sessionIdToStoppedAt, reason);
+            addSessionDeltas(deltas, buckets, before, timeTable.findSessions(connection, sessionIds));
+            return null;
+        });
+    }
+
+    @Override
+    public void updateSessionWorld(final long sessionId, final String server, final String world) throws StorageException {
+        Objects.requireNonNull(server);
+        Objects.requireNonNull(world);
+        writeWithTotals((connection, deltas, buckets) -> {
+            final long worldId = ensureWorldId(connection, server, world);
+            final Map<Long, TimeTable.StoredSession> before = timeTable.findSessions(connection, List.of(sessionId));
+            timeTable.updateSessionWorld(connection, sessionId, worldId);
+            addSessionDeltas(deltas, buckets, before, timeTable.findSessions(connection, List.of(sessionId)));
+            return null;
+        });
+    }
+
+    @Override
+    public Map<Long, Long> writeSessions(final List<SessionWrite> writes) throws StorageException {
+        if (writes == null || writes.isEmpty()) {
+            return Map.of();
+        }
+        return writeWithTotals((connection, deltas, buckets) -> applySessionWrites(connection, writes, deltas, buckets));
+    }
+
+    @Override
+    public void setPlayerName(final UUID uuid, final String name) throws StorageException {
+        Objects.requireNonNull(uuid);
+        Objects.requireNonNull(name);
         poolLock.readLock().lock();
         try {
             checkClosed();
-            try (Connection connection = provider.getConnection()) {
-                for (final ManualTimeAdjustment adjustment : adjustments) {
-                    final long playerId = playerTable.ensurePlayer(connection, adjustment.playerUuid(), Optional.empty());
-                    final ScopeReferences references = resolveScopeReferences(connection, adjustment.scope(), true);
-                    adjustmentTable.insert(connection, playerId, references.serverId(), references.worldId(), adjustment);
-                }
+            try (Connection connection = provider.getWriteConnection()) {
+                ensurePlayerId(connection, uuid, Optional.of(name));
             }
         } catch (final SQLException ex) {
             throw new StorageException(ex);
@@ -291,19 +422,28 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
     }
 
     @Override
-    public long startSession(final PlayerSessionContext context, final TimeEntryReason reason) throws StorageException {
-        Objects.requireNonNull(context);
-        Objects.requireNonNull(reason);
+    public void setPlayerNames(final Map<UUID, String> entries) throws StorageException {
+        if (entries == null || entries.isEmpty()) {
+            return;
+        }
         poolLock.readLock().lock();
         try {
             checkClosed();
-            try (Connection connection = provider.getConnection()) {
-                final long worldId = worldTable.ensureWorld(connection, context.server(), context.world());
-                final long playerId = playerTable.ensurePlayer(connection, context.uuid(), context.name());
-                return timeTable.insertSession(connection, playerId, worldId,
-                        Instant.ofEpochMilli(context.startedAtMs()),
-                        Instant.ofEpochMilli(context.startedAtMs()),
-                        reason);
+            try (Connection connection = provider.getWriteConnection()) {
+                final boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                try {
+                    final Map<UUID, Optional<String>> players = new LinkedHashMap<>();
+                    entries.forEach((uuid, name) -> players.put(uuid, Optional.ofNullable(name)));
+                    ensurePlayerIds(connection, players);
+                    connection.commit();
+                } catch (final SQLException | RuntimeException ex) {
+                    connection.rollback();
+                    identityCache.clear();
+                    throw ex;
+                } finally {
+                    connection.setAutoCommit(autoCommit);
+                }
             }
         } catch (final SQLException ex) {
             throw new StorageException(ex);
@@ -313,13 +453,12 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
     }
 
     @Override
-    public void updateSession(final long sessionId, final long stoppedAtMs, final TimeEntryReason reason) throws StorageException {
-        Objects.requireNonNull(reason);
+    public Set<String> getNameEntries() throws StorageException {
         poolLock.readLock().lock();
         try {
             checkClosed();
             try (Connection connection = provider.getConnection()) {
-                timeTable.updateSession(connection, sessionId, Instant.ofEpochMilli(stoppedAtMs), reason);
+                return playerTable.getAllNames(connection);
             }
         } catch (final SQLException ex) {
             throw new StorageException(ex);
@@ -329,15 +468,15 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
     }
 
     @Override
-    public void updateSessionWorld(final long sessionId, final String server, final String world) throws StorageException {
-        Objects.requireNonNull(server);
-        Objects.requireNonNull(world);
+    public OptionalLong getTime(final UUID uniqueId, final TimeScope scope, final TimeRange range) throws StorageException {
+        Objects.requireNonNull(uniqueId);
+        Objects.requireNonNull(scope);
+        Objects.requireNonNull(range);
         poolLock.readLock().lock();
         try {
             checkClosed();
             try (Connection connection = provider.getConnection()) {
-                final long worldId = worldTable.ensureWorld(connection, server, world);
-                timeTable.updateSessionWorld(connection, sessionId, worldId);
+                return playerTimeQuery.rangedTotal(connection, uniqueId, scope, range, bucketsFilled);
             }
         } catch (final SQLException ex) {
             throw new StorageException(ex);
@@ -347,14 +486,17 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
     }
 
     @Override
-    public void setPlayerName(final UUID uuid, final String name) throws StorageException {
-        Objects.requireNonNull(uuid);
-        Objects.requireNonNull(name);
+    public Map<UUID, Long> getTimes(final Collection<UUID> uniqueIds, final TimeScope scope) throws StorageException {
+        Objects.requireNonNull(uniqueIds);
+        Objects.requireNonNull(scope);
+        if (uniqueIds.isEmpty()) {
+            return Map.of();
+        }
         poolLock.readLock().lock();
         try {
             checkClosed();
             try (Connection connection = provider.getConnection()) {
-                playerTable.ensurePlayer(connection, uuid, Optional.of(name));
+                return playerTimeQuery.totals(connection, uniqueIds, scope);
             }
         } catch (final SQLException ex) {
             throw new StorageException(ex);
@@ -364,17 +506,19 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
     }
 
     @Override
-    public void setPlayerNames(final Map<UUID, String> entries) throws StorageException {
-        if (entries == null || entries.isEmpty()) {
-            return;
+    public Map<UUID, Long> getTimes(final Collection<UUID> uniqueIds, final TimeScope scope, final TimeRange range)
+            throws StorageException {
+        Objects.requireNonNull(uniqueIds);
+        Objects.requireNonNull(scope);
+        Objects.requireNonNull(range);
+        if (uniqueIds.isEmpty()) {
+            return Map.of();
         }
         poolLock.readLock().lock();
         try {
             checkClosed();
             try (Connection connection = provider.getConnection()) {
-                for (final Map.Entry<UUID, String> entry : entries.entrySet()) {
-                    playerTable.ensurePlayer(connection, entry.getKey(), Optional.ofNullable(entry.getValue()));
-                }
+                return playerTimeQuery.rangedTotals(connection, uniqueIds, scope, range, bucketsFilled);
             }
         } catch (final SQLException ex) {
             throw new StorageException(ex);
@@ -384,41 +528,23 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
     }
 
     @Override
-    public Set<String> getNameEntries() throws StorageException {
+    public List<RecentPlayerIdentity> getRecentPlayerIdentities(final long recentDays) throws StorageException {
         poolLock.readLock().lock();
         try {
             checkClosed();
-            try (Connection connection = provider.getConnection()) {
-                return playerTable.getAllNames(connection);
-            }
-        } catch (final SQLException ex) {
-            throw new StorageException(ex);
+            return recentPlayerIdentityReader.read(recentDays);
         } finally {
             poolLock.readLock().unlock();
         }
     }
 
     @Override
-    public OptionalLong getTime(final UUID uniqueId, final TimeScope scope, final TimeRange range) throws StorageException {
-        Objects.requireNonNull(uniqueId);
-        Objects.requireNonNull(scope);
-        Objects.requireNonNull(range);
+    public Set<String> getKnownServerNames() throws StorageException {
         poolLock.readLock().lock();
         try {
             checkClosed();
             try (Connection connection = provider.getConnection()) {
-                final Optional<Long> playerId = playerTable.findIdByUuid(connection, uniqueId);
-                if (playerId.isEmpty()) {
-                    return OptionalLong.empty();
-                }
-                final OptionalLong sessionSum = sumSessions(connection, uniqueId, scope, range);
-                final OptionalLong adjustmentSum = sumAdjustments(connection, playerId.get(), scope, range);
-                if (sessionSum.isEmpty() && adjustmentSum.isEmpty()) {
-                    return OptionalLong.empty();
-                }
-                final long sessions = sessionSum.orElse(0L);
-                final long adjustments = adjustmentSum.orElse(0L);
-                return OptionalLong.of(sessions + adjustments);
+                return serverTable.getAllServers(connection);
             }
         } catch (final SQLException ex) {
             throw new StorageException(ex);
@@ -428,23 +554,27 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
     }
 
     @Override
-    public List<RecentPlayerIdentity> getRecentPlayerIdentities(final long recentDays) throws StorageException {
+    public Set<String> getKnownWorldNames() throws StorageException {
         poolLock.readLock().lock();
         try {
             checkClosed();
-            return recentPlayerIdentityReader.read(recentDays);
+            try (Connection connection = provider.getConnection()) {
+                return worldTable.getAllWorlds(connection);
+            }
+        } catch (final SQLException ex) {
+            throw new StorageException(ex);
         } finally {
             poolLock.readLock().unlock();
         }
     }
 
     @Override
-    public Set<String> getKnownServerNames() throws StorageException {
+    public Map<String, ?> getAllTimeEntries() throws StorageException {
         poolLock.readLock().lock();
         try {
             checkClosed();
             try (Connection connection = provider.getConnection()) {
-                return serverTable.getAllServers(connection);
+                return totalTable.getAllGlobalTotals(connection);
             }
         } catch (final SQLException ex) {
             throw new StorageException(ex);
@@ -454,12 +584,18 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
     }
 
     @Override
-    public Set<String> getKnownWorldNames() throws StorageException {
+    public List<LeaderboardEntry> getLeaderboard(final TimeScope scope, final Optional<TimeRange> range,
+                                                 final int offset, final int limit) throws StorageException {
+        Objects.requireNonNull(scope);
+        Objects.requireNonNull(range);
+        if (offset < 0 || limit <= 0) {
+            return List.of();
+        }
         poolLock.readLock().lock();
         try {
             checkClosed();
             try (Connection connection = provider.getConnection()) {
-                return worldTable.getAllWorlds(connection);
+                return leaderboardQuery.page(connection, scope, range, bucketsFilled, offset, limit);
             }
         } catch (final SQLException ex) {
             throw new StorageException(ex);
@@ -469,14 +605,15 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
     }
 
     @Override
-    public Map<String, ?> getAllTimeEntries() throws StorageException {
+    public LeaderboardSummary getLeaderboardSummary(final TimeScope scope, final Optional<TimeRange> range)
+            throws StorageException {
+        Objects.requireNonNull(scope);
+        Objects.requireNonNull(range);
         poolLock.readLock().lock();
         try {
             checkClosed();
             try (Connection connection = provider.getConnection()) {
-                final Map<String, Long> totals = new HashMap<>(timeTable.getAllTotals(connection));
-                adjustmentTable.getAllTotals(connection).forEach((uuid, value) -> totals.merge(uuid, value, Long::sum));
-                return totals;
+                return leaderboardQuery.summary(connection, scope, range, bucketsFilled);
             }
         } catch (final SQLException ex) {
             throw new StorageException(ex);
@@ -492,20 +629,165 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
 
     @Override
     public int deleteInactiveHistory(final long inactiveDays) throws StorageException {
-        if (inactiveDays < 0) {
-            return 0;
+        int deletedRows = 0;
+        PlayerHistoryChunk chunk = deleteInactiveHistoryChunk(inactiveDays, 0L, INACTIVE_CLEANUP_CHUNK_SIZE);
+        while (chunk.players() > 0) {
+            deletedRows += chunk.removedRows();
+            chunk = deleteInactiveHistoryChunk(inactiveDays, chunk.lastPlayerId(), INACTIVE_CLEANUP_CHUNK_SIZE);
+        }
+        return deletedRows;
+    }
+
+    /**
+     * Deletes the history of the next chunk of inactive players in one short transaction. Players that became active
+     * again since the chunk was selected are skipped, so history and totals of a player are always deleted together.
+     *
+     * @param inactiveDays  the inactivity threshold in days
+     * @param afterPlayerId only players with a greater id are considered
+     * @param maxPlayers    maximum number of players in the chunk
+     * @return the deleted chunk, without players once no inactive players are left
+     * @throws StorageException if the chunk could not be deleted
+     */
+    public PlayerHistoryChunk deleteInactiveHistoryChunk(final long inactiveDays, final long afterPlayerId,
+                                                           final int maxPlayers) throws StorageException {
+        if (inactiveDays < 0 || maxPlayers <= 0) {
+            return new PlayerHistoryChunk(afterPlayerId, 0, 0);
+        }
+        return writeWithTotals((connection, deltas, buckets) -> {
+            final String cutoffSql = dialect.daysAgoTimestampExpression(inactiveDays);
+            final List<Long> playerIds = playerTable.findInactiveIds(connection, cutoffSql, afterPlayerId, maxPlayers);
+            if (playerIds.isEmpty()) {
+                return new PlayerHistoryChunk(afterPlayerId, 0, 0);
+            }
+            final int timeRows = timeTable.deleteInactiveHistory(connection, cutoffSql, playerIds);
+            final int adjustmentRows = adjustmentTable.deleteInactiveHistory(connection, cutoffSql, playerIds);
+            totalTable.deleteInactiveHistory(connection, cutoffSql, playerIds);
+            bucketTable.deleteInactiveHistory(connection, cutoffSql, playerIds);
+            return new PlayerHistoryChunk(playerIds.get(playerIds.size() - 1), playerIds.size(),
+                    timeRows + adjustmentRows);
+        });
+    }
+
+    /**
+     * Starts a session compaction run up to the start of the day the given number of days ago. Only sessions that
+     * ended after the cutoff of the last finished run are compacted, so every session is read by a single run. An
+     * interrupted run continues after its last compacted player.
+     *
+     * @param olderThanDays only sessions that ended before the start of the day this many days ago are merged
+     * @return {@code true} if {@link #compactSessionsChunk(long, int)} has sessions to compact
+     * @throws StorageException if the compaction watermark could not be read or written
+     */
+    public boolean startSessionCompaction(final long olderThanDays) throws StorageException {
+        if (olderThanDays < 1) {
+            return false;
+        }
+        final long beforeMs = TimeBucketTable.dayStartMs(
+                Math.floorDiv(System.currentTimeMillis(), TimeBucketTable.MILLIS_PER_DAY) - olderThanDays);
+        return writeWithTotals((connection, deltas, buckets) -> timeTable.startCompaction(connection, beforeMs));
+    }
+
+    /**
+     * Merges the closed sessions of the next chunk of players that ended inside the running compaction window into
+     * one row per player, world and UTC day in one short transaction. The chunk after the last player finishes the
+     * run. Totals and daily buckets are not changed by the compaction.
+     *
+     * @param afterPlayerId only players with a greater id are considered
+     * @param maxPlayers    maximum number of players in the chunk
+     * @return the compacted chunk, without players once no players are left
+     * @throws StorageException if the chunk could not be compacted
+     */
+    public PlayerHistoryChunk compactSessionsChunk(final long afterPlayerId, final int maxPlayers)
+            throws StorageException {
+        if (maxPlayers <= 0) {
+            return new PlayerHistoryChunk(afterPlayerId, 0, 0);
         }
+        return writeWithTotals((connection, deltas, buckets) -> {
+            final Optional<TimeTable.CompactionWindow> window = timeTable.compactionWindow(connection);
+            if (window.isEmpty()) {
+                return new PlayerHistoryChunk(afterPlayerId, 0, 0);
+            }
+            final List<Long> playerIds = playerTable.findIds(connection,
+                    Math.max(afterPlayerId, window.get().lastPlayerId()), maxPlayers);
+            if (playerIds.isEmpty()) {
+                timeTable.finishCompaction(connection);
+                return new PlayerHistoryChunk(afterPlayerId, 0, 0);
+            }
+            return new PlayerHistoryChunk(playerIds.get(playerIds.size() - 1), playerIds.size(),
+                    timeTable.compactSessions(connection, playerIds, window.get()));
+        });
+    }
+
+    @Override
+    public void persistSession(final PlayerSessionChunk session) throws StorageException {
+        Objects.requireNonNull(session);
+        writeWithTotals((connection, deltas, buckets) -> insertSession(connection, session.server(), session.world(),
+                session.uuid(), session.name(), session.startedAtMs(), session.stoppedAtMs(), session.reason(),
+                deltas, buckets));
+    }
+
+    /**
+     * Persists many closed sessions in one transaction. Players, servers and worlds are resolved once per batch and
+     * the sessions are inserted with a single JDBC batch, so bulk imports avoid one round trip per session.
+     *
+     * @param sessions closed sessions to persist
+     * @throws StorageException if the sessions could not be written
+     */
+    public void persistSessions(final List<PlayerSessionChunk> sessions) throws StorageException {
+        if (sessions == null || sessions.isEmpty()) {
+            return;
+        }
+        writeWithTotals((connection, deltas, buckets) -> {
+            final Map<UUID, Optional<String>> players = new LinkedHashMap<>();
+            for (final PlayerSessionChunk session : sessions) {
+                players.merge(session.uuid(), session.name(), (previous, next) -> next.isPresent() ? next : previous);
+            }
+            final Map<UUID, Long> playerIds = ensurePlayerIds(connection, players);
+            final List<TimeTable.StoredSession> rows = new ArrayList<>(sessions.size());
+            TimeEntryReason reason = null;
+            for (final PlayerSessionChunk session : sessions) {
+                if (reason != null && reason != session.reason()) {
+                    timeTable.insertSessions(connection, rows, reason);
+                    rows.clear();
+                }
+                reason = session.reason();
+                final long playerId = playerIds.get(session.uuid());
+                final long serverId = ensureServerId(connection, session.server());
+                final long worldId = ensureWorldId(connection, session.server(), session.world());
+                rows.add(new TimeTable.StoredSession(playerId, serverId, worldId, session.startedAtMs(),
+                        session.stoppedAtMs()));
+                deltas.addSession(playerId, serverId, worldId, (session.stoppedAtMs() - session.startedAtMs()) / 1000L);
+                buckets.addSession(playerId, worldId, session.startedAtMs(), session.stoppedAtMs());
+            }
+            timeTable.insertSessions(connection, rows, reason);
+            return null;
+        });
+    }
+
+    /**
+     * Recomputes all materialized player totals and daily time buckets from session and adjustment history.
+     *
+     * @return number of total rows written
+     * @throws StorageException if the totals could not be rebuilt
+     */
+    @Override
+    public int rebuildTotals() throws StorageException {
         poolLock.readLock().lock();
         try {
             checkClosed();
-            try (Connection connection = provider.getConnection()) {
-                final String cutoffSql = switch (dialect) {
-                    case MYSQL, MARIADB -> "DATE_SUB(NOW(3), INTERVAL " + inactiveDays + " DAY)";
-                    case SQLITE -> "DATETIME('now', '-" + inactiveDays + " days')";
-                };
-                final int timeRows = timeTable.deleteInactiveHistory(connection, cutoffSql);
-                final int adjustmentRows = adjustmentTable.deleteInactiveHistory(connection, cutoffSql);
-                return timeRows + adjustmentRows;
+            try (Connection connection = provider.getWriteConnection()) {
+                final boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                try {
+                    final int rows = totalTable.rebuild(connection);
+                    bucketTable.rebuild(connection);
+                    connection.commit();
+                    return rows;
+                } catch (final SQLException | RuntimeException ex) {
+                    connection.rollback();
+                    throw ex;
+                } finally {
+                    connection.setAutoCommit(autoCommit);
+                }
             }
         } catch (final SQLException ex) {
             throw new StorageException(ex);
@@ -514,19 +796,22 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
         }
     }
 
-    @Override
-    public void persistSession(final PlayerSessionChunk session) throws StorageException {
-        Objects.requireNonNull(session);
+    /**
+     * Checks whether the daily time buckets have to be filled from session history, which is the case once after
+     * upgrading an existing database or if an earlier backfill was interrupted. Until
+     * {@link #backfillTimeBucketsChunk(long, int)} has filled all players, ranged lookups read raw sessions only.
+     *
+     * @return {@code true} if the buckets have to be filled
+     * @throws StorageException if the buckets could not be checked
+     */
+    public boolean startTimeBucketBackfill() throws StorageException {
         poolLock.readLock().lock();
         try {
             checkClosed();
-            try (Connection connection = provider.getConnection()) {
-                final long worldId = worldTable.ensureWorld(connection, session.server(), session.world());
-                final long playerId = playerTable.ensurePlayer(connection, session.uuid(), session.name());
-                timeTable.insertSession(connection, playerId, worldId,
-                        Instant.ofEpochMilli(session.startedAtMs()),
-                        Instant.ofEpochMilli(session.stoppedAtMs()),
-                        session.reason());
+            try (Connection connection = provider.getWriteConnection()) {
+                final boolean needed = bucketTable.startBackfill(connection);
+                bucketsFilled = !needed;
+                return needed;
             }
         } catch (final SQLException ex) {
             throw new StorageException(ex);
@@ -535,20 +820,63 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
         }
     }
 
-    private void deleteUser(final UUID uuid) throws StorageException {
-        if (uuid == null) {
-            return;
+    /**
+     * Fills the daily time buckets of the next chunk of players from their sessions in one short transaction.
+     * The chunk after the last player finishes the backfill, after which ranged lookups use the buckets again.
+     *
+     * @param afterPlayerId only players with a greater id are filled
+     * @param maxPlayers    maximum number of players in the chunk
+     * @return the filled chunk, without players once all players are filled
+     * @throws StorageException if the chunk could not be filled
+     */
+    public PlayerHistoryChunk backfillTimeBucketsChunk(final long afterPlayerId, final int maxPlayers)
+            throws StorageException {
+        if (maxPlayers <= 0) {
+            return new PlayerHistoryChunk(afterPlayerId, 0, 0);
+        }
+        final PlayerHistoryChunk chunk = writeWithTotals((connection, deltas, buckets) -> {
+            final OptionalLong checkpoint = bucketTable.backfillCheckpoint(connection);
+            if (checkpoint.isEmpty()) {
+                return new PlayerHistoryChunk(afterPlayerId, 0, 0);
+            }
+            final List<Long> playerIds = playerTable.findIds(connection,
+                    Math.max(afterPlayerId, checkpoint.getAsLong()), maxPlayers);
+            if (playerIds.isEmpty()) {
+                bucketTable.finishBackfill(connection);
+                return new PlayerHistoryChunk(afterPlayerId, 0, 0);
+            }
+            bucketTable.backfillPlayers(connection, playerIds, buckets);
+            return new PlayerHistoryChunk(playerIds.get(playerIds.size() - 1), playerIds.size(), 0);
+        });
+        if (chunk.players() == 0) {
+            bucketsFilled = true;
         }
+        return chunk;
+    }
+
+    private <T> T writeWithTotals(final TotalsWrite<T> write) throws StorageException {
         poolLock.readLock().lock();
         try {
             checkClosed();
-            try (Connection connection = provider.getConnection()) {
-                final Optional<Long> playerId = playerTable.findIdByUuid(connection, uuid);
-                if (playerId.isPresent()) {
-                    timeTable.deleteForPlayer(connection, playerId.get());
-                    adjustmentTable.deleteForPlayer(connection, playerId.get());
+            try (Connection connection = provider.getWriteConnection()) {
+                final boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                try {
+                    final PlayerTotalDeltas deltas = new PlayerTotalDeltas();
+                    final TimeBucketDeltas buckets = new TimeBucketDeltas();
+                    final T result = write.execute(connection, deltas, buckets);
+                    totalTable.addDeltas(connection, deltas);
+                    bucketTable.addDeltas(connection, buckets);
+                    connection.commit();
+                    return result;
+                } catch (final SQLException | StorageException | RuntimeException ex) {
+                    connection.rollback();
+                    // Ids created inside the rolled back transaction may have been cached.
+                    identityCache.clear();
+                    throw ex;
+                } finally {
+                    connection.setAutoCommit(autoCommit);
                 }
-                playerTable.deleteByUuid(connection, uuid);
             }
         } catch (final SQLException ex) {
             throw new StorageException(ex);
@@ -557,56 +885,138 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
         }
     }
 
-    private OptionalLong sumSessions(final Connection connection, final UUID uniqueId, final TimeScope scope)
-            throws SQLException {
-        return switch (scope.type()) {
-            case GLOBAL -> timeTable.sumForPlayer(connection, uniqueId);
-            case SERVER -> timeTable.sumForPlayerAndServer(connection, uniqueId, scope.server());
-            case WORLD -> timeTable.sumForPlayerAndWorld(connection, uniqueId, scope.server(), scope.world());
-        };
-    }
-
-    private OptionalLong sumSessions(final Connection connection, final UUID uniqueId,
-                                     final TimeScope scope, final TimeRange range) throws SQLException {
-        return switch (scope.type()) {
-            case GLOBAL -> timeTable.sumForPlayer(connection, uniqueId, range);
-            case SERVER -> timeTable.sumForPlayerAndServer(connection, uniqueId, scope.server(), range);
-            case WORLD -> timeTable.sumForPlayerAndWorld(connection, uniqueId, scope.server(), scope.world(), range);
+    @SuppressWarnings("PMD.ExcessiveParameterList")
+    private long insertSession(final Connection connection, final String server, final String world, final UUID uuid,
+                               final Optional<String> name, final long startedAtMs, final long stoppedAtMs,
+                               final TimeEntryReason reason, final PlayerTotalDeltas deltas,
+                               final TimeBucketDeltas buckets) throws SQLException {
+        final long worldId = ensureWorldId(connection, server, world);
+        final long playerId = ensurePlayerId(connection, uuid, name);
+        final long sessionId = timeTable.insertSession(connection, playerId, worldId,
+                Instant.ofEpochMilli(startedAtMs), Instant.ofEpochMilli(stoppedAtMs), reason);
+        deltas.addSession(playerId, ensureServerId(connection, server), worldId, (stoppedAtMs - startedAtMs) / 1000L);
+        buckets.addSession(playerId, worldId, startedAtMs, stoppedAtMs);
+        return sessionId;
+    }
+
+    private void insertAdjustment(final Connection connection, final ManualTimeAdjustment adjustment,
+                                  final PlayerTotalDeltas deltas) throws SQLException {
+        final long playerId = ensurePlayerId(connection, adjustment.playerUuid(), Optional.empty());
+        final TimeScope scope = adjustment.scope();
+        final ScopeReferences references = resolveScopeReferences(connection, scope, true);
+        adjustmentTable.insert(connection, playerId, references.serverId(), references.worldId(), adjustment);
+        final long serverId = switch (scope.type()) {
+            case GLOBAL -> 0L;
+            case SERVER -> references.serverId().orElseThrow();
+            case WORLD -> ensureServerId(connection, scope.server());
         };
-    }
-
-    private OptionalLong sumAdjustments(final Connection connection, final long playerId, final TimeScope scope)
-            throws SQLException {
-        return switch (scope.type()) {
-            case GLOBAL -> adjustmentTable.sums().sumForPlayer(connection, playerId);
-            case SERVER -> {
-                final Optional<Long> serverId = serverTable.findId(connection, scope.server());
-                yield serverId.isEmpty() ? OptionalLong.empty()
-                        : adjustmentTable.sums().sumForPlayerAndServer(connection, playerId, serverId.get());
+        deltas.addAdjustment(playerId, scope.type(), serverId, references.worldId().orElse(0L), adjustment.amountSeconds());
+    }
+
+    private void addSessionDeltas(final PlayerTotalDeltas deltas,
+                                  final TimeBucketDeltas buckets,
+                                  final Map<Long, TimeTable.StoredSession> before,
+                                  final Map<Long, TimeTable.StoredSession> after) {
+        for (final TimeTable.StoredSession session : before.values()) {
+            deltas.addSession(session.playerId(), session.serverId(), session.worldId(), -session.durationSeconds());
+            buckets.removeSession(session.playerId(), session.worldId(), session.joinMs(), session.leaveMs());
+        }
+        for (final TimeTable.StoredSession session : after.values()) {
+            deltas.addSession(session.playerId(), session.serverId(), session.worldId(), session.durationSeconds());
+            buckets.addSession(session.playerId(), session.worldId(), session.joinMs(), session.leaveMs());
+        }
+    }
+
+    private Map<Long, Long> applySessionWrites(final Connection connection, final List<SessionWrite> writes,
+                                               final PlayerTotalDeltas deltas, final TimeBucketDeltas buckets)
+            throws SQLException, StorageException {
+        final Map<Long, Long> startedSessionIds = new HashMap<>();
+        final List<SessionWrite> stops = new ArrayList<>();
+        final Map<Long, Long> sessionWorldIds = new LinkedHashMap<>();
+        for (final SessionWrite write : writes) {
+            switch (write.type()) {
+                case START -> {
+                    final PlayerSessionContext context = write.context();
+                    startedSessionIds.put(write.sessionId(), insertSession(connection, context.server(), context.world(),
+                            context.uuid(), context.name(), context.startedAtMs(), context.startedAtMs(),
+                            write.reason(), deltas, buckets));
+                }
+                case STOP -> stops.add(write.withSessionId(resolveSessionId(startedSessionIds, write)));
+                case WORLD -> sessionWorldIds.put(resolveSessionId(startedSessionIds, write),
+                        ensureWorldId(connection, write.server(), write.world()));
             }
-            case WORLD -> {
-                final Optional<Long> worldId = worldTable.findId(connection, scope.server(), scope.world());
-                yield worldId.isEmpty() ? OptionalLong.empty()
-                        : adjustmentTable.sums().sumForPlayerAndWorld(connection, playerId, worldId.get());
+        }
+        final Collection<Long> touchedSessionIds = new ArrayList<>(sessionWorldIds.keySet());
+        stops.forEach(stop -> touchedSessionIds.add(stop.sessionId()));
+        final Map<Long, TimeTable.StoredSession> before = timeTable.findSessions(connection, touchedSessionIds);
+        updateStoppedSessions(connection, stops);
+        timeTable.updateSessionWorlds(connection, sessionWorldIds);
+        addSessionDeltas(deltas, buckets, before, timeTable.findSessions(connection, touchedSessionIds));
+        return startedSessionIds;
+    }
+
+    private void updateStoppedSessions(final Connection connection, final List<SessionWrite> stops) throws SQLException {
+        // Consecutive stops with the same reason share one batch, so a later stop of a session still wins.
+        final Map<Long, Long> stoppedAt = new LinkedHashMap<>();
+        TimeEntryReason reason = null;
+        for (final SessionWrite stop : stops) {
+            if (reason != null && reason != stop.reason()) {
+                timeTable.updateSessions(connection, stoppedAt, reason);
+                stoppedAt.clear();
             }
-        };
+            reason = stop.reason();
+            stoppedAt.put(stop.sessionId(), stop.stoppedAtMs());
+        }
+        if (reason != null) {
+            timeTable.updateSessions(connection, stoppedAt, reason);
+        }
     }
 
-    private OptionalLong sumAdjustments(final Connection connection, final long playerId,
-                                        final TimeScope scope, final TimeRange range) throws SQLException {
-        return switch (scope.type()) {
-            case GLOBAL -> adjustmentTable.sums().sumForPlayer(connection, playerId, range);
-            case SERVER -> {
-                final Optional<Long> serverId = serverTable.findId(connection, scope.server());
-                yield serverId.isEmpty() ? OptionalLong.empty()
-                        : adjustmentTable.sums().sumForPlayerAndServer(connection, playerId, serverId.get(), range);
-            }
-            case WORLD -> {
-                final Optional<Long> worldId = worldTable.findId(connection, scope.server(), scope.world());
-                yield worldId.isEmpty() ? OptionalLong.empty()
-                        : adjustmentTable.sums().sumForPlayerAndWorld(connection, playerId, worldId.get(), range);
+    private long resolveSessionId(final Map<Long, Long> startedSessionIds, final SessionWrite write) throws StorageException {
+        if (write.sessionId() >= 0L) {
+            return write.sessionId();
+        }
+        final Long sessionId = startedSessionIds.get(write.sessionId());
+        if (sessionId == null) {
+            throw new StorageException("Unresolved session placeholder " + write.sessionId());
+        }
+        return sessionId;
+    }
+
+    private void deleteUser(final UUID uuid) throws StorageException {
+        if (uuid == null) {
+            return;
+        }
+        poolLock.readLock().lock();
+        try {
+            checkClosed();
+            try (Connection connection = provider.getWriteConnection()) {
+                final boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                try {
+                    final Optional<Long> playerId = playerTable.findIdByUuid(connection, uuid);
+                    if (playerId.isPresent()) {
+                        timeTable.deleteForPlayer(connection, playerId.get());
+                        adjustmentTable.deleteForPlayer(connection, playerId.get());
+                        totalTable.deleteForPlayer(connection, playerId.get());
+                        bucketTable.deleteForPlayer(connection, playerId.get());
+                    }
+                    playerTable.deleteByUuid(connection, uuid);
+                    connection.commit();
+                } catch (final SQLException | RuntimeException ex) {
+                    connection.rollback();
+                    throw ex;
+                } finally {
+                    // Evicted after a rollback as well, so the next lookup reads the id from the database again.
+                    identityCache.evictPlayer(uuid);
+                    connection.setAutoCommit(autoCommit);
+                }
             }
-        };
+        } catch (final SQLException ex) {
+            throw new StorageException(ex);
+        } finally {
+            poolLock.readLock().unlock();
+        }
     }
 
     private ScopeReferences resolveScopeReferences(final Connection connection, final TimeScope scope,
@@ -621,17 +1031,102 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
     private OptionalLong resolveServerId(final Connection connection, final TimeScope scope, final boolean createMissing)
             throws SQLException {
         if (createMissing) {
-            return OptionalLong.of(serverTable.ensureServer(connection, scope.server()));
+            return OptionalLong.of(ensureServerId(connection, scope.server()));
         }
-        return serverTable.findId(connection, scope.server()).map(OptionalLong::of).orElseGet(OptionalLong::empty);
+        return findServerId(connection, scope.server()).map(OptionalLong::of).orElseGet(OptionalLong::empty);
     }
 
     private OptionalLong resolveWorldId(final Connection connection, final TimeScope scope, final boolean createMissing)
             throws SQLException {
         if (createMissing) {
-            return OptionalLong.of(worldTable.ensureWorld(connection, scope.server(), scope.world()));
+            return OptionalLong.of(ensureWorldId(connection, scope.server(), scope.world()));
+        }
+        return findWorldId(connection, scope.server(), scope.world()).map(OptionalLong::of).orElseGet(OptionalLong::empty);
+    }
+
+    private long ensurePlayerId(final Connection connection, final UUID uuid, final Optional<String> name) throws SQLException {
+        final Optional<Long> cached = identityCache.playerId(uuid);
+        if (cached.isPresent()) {
+            if (name.isPresent() && !name.equals(identityCache.playerName(uuid))) {
+                playerTable.updateName(connection, cached.get(), name.get());
+                identityCache.putPlayerName(uuid, name.get());
+            }
+            return cached.get();
+        }
+        final long playerId = playerTable.ensurePlayer(connection, uuid, name);
+        identityCache.putPlayer(uuid, playerId);
+        name.ifPresent(value -> identityCache.putPlayerName(uuid, value));
+        return playerId;
+    }
+
+    private Map<UUID, Long> ensurePlayerIds(final Connection connection, final Map<UUID, Optional<String>> players)
+            throws SQLException {
+        final Map<UUID, Long> playerIds = new HashMap<>();
+        final Map<UUID, Optional<String>> pending = new LinkedHashMap<>();
+        for (final Map.Entry<UUID, Optional<String>> player : players.entrySet()) {
+            final Optional<Long> cached = identityCache.playerId(player.getKey());
+            if (cached.isPresent() && player.getValue().isEmpty()) {
+                playerIds.put(player.getKey(), cached.get());
+            } else {
+                pending.put(player.getKey(), player.getValue());
+            }
+        }
+        final Map<UUID, Long> ensured = playerTable.ensurePlayers(connection, pending);
+        ensured.forEach(identityCache::putPlayer);
+        pending.forEach((uuid, name) -> name.ifPresent(value -> identityCache.putPlayerName(uuid, value)));
+        playerIds.putAll(ensured);
+        return playerIds;
+    }
+
+    private Optional<Long> findPlayerId(final Connection connection, final UUID uuid) throws SQLException {
+        final Optional<Long> cached = identityCache.playerId(uuid);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        final Optional<Long> playerId = playerTable.findIdByUuid(connection, uuid);
+        playerId.ifPresent(id -> identityCache.putPlayer(uuid, id));
+        return playerId;
+    }
+
+    private long ensureServerId(final Connection connection, final String server) throws SQLException {
+        final Optional<Long> cached = identityCache.serverId(server);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        final long serverId = serverTable.ensureServer(connection, server);
+        identityCache.putServer(server, serverId);
+        return serverId;
+    }
+
+    private Optional<Long> findServerId(final Connection connection, final String server) throws SQLException {
+        final Optional<Long> cached = identityCache.serverId(server);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        final Optional<Long> serverId = serverTable.findId(connection, server);
+        serverId.ifPresent(id -> identityCache.putServer(server, id));
+        return serverId;
+    }
+
+    private long ensureWorldId(final Connection connection, final String server, final String world) throws SQLException {
+        final Optional<Long> cached = identityCache.worldId(server, world);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        final long worldId = worldTable.ensureWorld(connection, server, world);
+        identityCache.putWorld(server, world, worldId);
+        return worldId;
+    }
+
+    private Optional<Long> findWorldId(final Connection connection, final String server, final String world)
+            throws SQLException {
+        final Optional<Long> cached = identityCache.worldId(server, world);
+        if (cached.isPresent()) {
+            return cached;
         }
-        return worldTable.findId(connection, scope.server(), scope.world()).map(OptionalLong::of).orElseGet(OptionalLong::empty);
+        final Optional<Long> worldId = worldTable.findId(connection, server, world);
+        worldId.ifPresent(id -> identityCache.putWorld(server, world, id));
+        return worldId;
     }
 
     @Override
@@ -659,9 +1154,11 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
 
     @Override
     public StorageMaintenanceResult applyStorageTransferTo(final AdminStorageMaintenance target,
-                                                           final StorageMaintenanceConfirmation confirmation)
+                                                           final StorageMaintenanceConfirmation confirmation,
+                                                           final Consumer<StorageTransferProgress> progress)
             throws StorageException {
         Objects.requireNonNull(confirmation, "confirmation");
+        Objects.requireNonNull(progress, "progress");
         if (!(target instanceof final UnifiedDatabaseStorage targetStorage)) {
             throw new StorageException("Target storage does not support database storage-type transfer");
         }
@@ -671,16 +1168,23 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
             checkClosed();
             targetStorage.checkClosed();
             try (Connection sourceConnection = provider.getConnection();
-                 Connection targetConnection = targetStorage.provider.getConnection()) {
+                 Connection targetConnection = targetStorage.provider.getWriteConnection()) {
                 final boolean autoCommit = targetConnection.getAutoCommit();
                 targetConnection.setAutoCommit(false);
                 try {
                     final StorageMaintenancePreview preview =
                             buildStorageTypeTransferPreview(sourceConnection, targetStorage, targetConnection);
                     validateConfirmation(preview, confirmation);
-                    targetStorage.rejectNonEmptyStorageTypeTarget(targetConnection);
-                    targetStorage.importStorageSnapshot(targetConnection, exportStorageSnapshot(sourceConnection));
+                    final StorageTypeTransfer transfer = new StorageTypeTransfer(transferTables(),
+                            targetStorage.transferTables(), targetStorage.serverTable, targetStorage.worldTable,
+                            targetStorage.playerTable, targetStorage.totalTable, targetStorage.bucketTable, progress);
+                    if (!transfer.hasCheckpoint(targetConnection)) {
+                        targetStorage.rejectNonEmptyStorageTypeTarget(targetConnection);
+                    }
+                    transfer.copy(sourceConnection, targetConnection);
+                    transfer.clearCheckpoint(targetConnection);
                     targetConnection.commit();
+                    targetStorage.identityCache.clear();
                     return new StorageMaintenanceResult(preview.operation(), preview.affectedSessions(),
                             preview.affectedAdjustments(), preview.affectedPlayers());
                 } catch (final SQLException | StorageException | RuntimeException ex) {
@@ -722,7 +1226,7 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
         poolLock.readLock().lock();
         try {
             checkClosed();
-            try (Connection connection = provider.getConnection()) {
+            try (Connection connection = provider.getWriteConnection()) {
                 final boolean autoCommit = connection.getAutoCommit();
                 connection.setAutoCommit(false);
                 try {
@@ -734,7 +1238,10 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
                         case WORLD_TRANSFER -> applyWorldTransfers(connection, request.mappings());
                         default -> throw new StorageException("Unsupported transfer operation: " + request.operation());
                     }
+                    totalTable.rebuild(connection);
+                    bucketTable.rebuild(connection);
                     connection.commit();
+                    request.mappings().forEach(mapping -> evictScope(mapping.source()));
                     return new StorageMaintenanceResult(preview.operation(), preview.affectedSessions(),
                             preview.affectedAdjustments(), preview.affectedPlayers());
                 } catch (final SQLException | StorageException | RuntimeException ex) {
@@ -775,7 +1282,7 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
         poolLock.readLock().lock();
         try {
             checkClosed();
-            try (Connection connection = provider.getConnection()) {
+            try (Connection connection = provider.getWriteConnection()) {
                 final boolean autoCommit = connection.getAutoCommit();
                 connection.setAutoCommit(false);
                 try {
@@ -786,7 +1293,10 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
                     } else {
                         deleteWorldScope(connection, request.scope().server(), request.scope().world());
                     }
+                    totalTable.rebuild(connection);
+                    bucketTable.rebuild(connection);
                     connection.commit();
+                    evictScope(request.scope());
                     return new StorageMaintenanceResult(preview.operation(), preview.affectedSessions(),
                             preview.affectedAdjustments(), preview.affectedPlayers());
                 } catch (final SQLException | StorageException | RuntimeException ex) {
@@ -862,144 +1372,9 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
                         null, counts, targetDataExists, collisions));
     }
 
-    private StorageSnapshot exportStorageSnapshot(final Connection connection) throws SQLException {
-        final List<PlayerRow> players = new ArrayList<>();
-        try (PreparedStatement select = connection.prepareStatement(
-                "SELECT `uuid`, `name`, `last_seen` FROM `" + playerTableName + "` ORDER BY `id`");
-             ResultSet result = select.executeQuery()) {
-            while (result.next()) {
-                players.add(new PlayerRow(result.getBytes("uuid"), result.getString("name"),
-                        result.getObject("last_seen")));
-            }
-        }
-
-        final List<ServerRow> servers = new ArrayList<>();
-        try (PreparedStatement select = connection.prepareStatement(
-                "SELECT `server` FROM `" + serverTableName + "` ORDER BY `id`");
-             ResultSet result = select.executeQuery()) {
-            while (result.next()) {
-                servers.add(new ServerRow(result.getString("server")));
-            }
-        }
-
-        final List<WorldSnapshotRow> worlds = new ArrayList<>();
-        try (PreparedStatement select = connection.prepareStatement(
-                "SELECT s.`server`, w.`world` FROM `" + worldTableName + "` w "
-                        + "JOIN `" + serverTableName + "` s ON s.`id` = w.`server_id` ORDER BY w.`id`");
-             ResultSet result = select.executeQuery()) {
-            while (result.next()) {
-                worlds.add(new WorldSnapshotRow(result.getString("server"), result.getString("world")));
-            }
-        }
-
-        final List<SessionRow> sessions = new ArrayList<>();
-        try (PreparedStatement select = connection.prepareStatement(
-                "SELECT p.`uuid`, s.`server`, w.`world`, t.`join_time`, t.`leave_time`, t.`reason` "
-                        + "FROM `" + timeTableName + "` t "
-                        + "JOIN `" + playerTableName + "` p ON p.`id` = t.`player_id` "
-                        + "JOIN `" + worldTableName + "` w ON w.`id` = t.`world_id` "
-                        + "JOIN `" + serverTableName + "` s ON s.`id` = w.`server_id` ORDER BY t.`id`");
-             ResultSet result = select.executeQuery()) {
-            while (result.next()) {
-                sessions.add(new SessionRow(result.getBytes("uuid"), result.getString("server"),
-                        result.getString("world"), result.getObject("join_time"),
-                        result.getObject("leave_time"), result.getString("reason")));
-            }
-        }
-
-        final List<AdjustmentRow> adjustments = new ArrayList<>();
-        try (PreparedStatement select = connection.prepareStatement(
-                "SELECT p.`uuid`, a.`scope_type`, ss.`server` AS scope_server, ws.`server` AS world_server, "
-                        + "w.`world`, a.`amount_seconds`, a.`reason`, a.`actor_uuid`, a.`actor_name`, a.`created_at` "
-                        + "FROM `" + adjustmentTableName + "` a "
-                        + "JOIN `" + playerTableName + "` p ON p.`id` = a.`player_id` "
-                        + "LEFT JOIN `" + serverTableName + "` ss ON ss.`id` = a.`server_id` "
-                        + "LEFT JOIN `" + worldTableName + "` w ON w.`id` = a.`world_id` "
-                        + "LEFT JOIN `" + serverTableName + "` ws ON ws.`id` = w.`server_id` ORDER BY a.`id`");
-             ResultSet result = select.executeQuery()) {
-            while (result.next()) {
-                adjustments.add(new AdjustmentRow(result.getBytes("uuid"), result.getString("scope_type"),
-                        result.getString("scope_server"), result.getString("world_server"),
-                        result.getString("world"), result.getLong("amount_seconds"),
-                        result.getString("reason"), result.getBytes("actor_uuid"),
-                        result.getString("actor_name"), result.getObject("created_at")));
-            }
-        }
-        return new StorageSnapshot(players, servers, worlds, sessions, adjustments);
-    }
-
-    private void importStorageSnapshot(final Connection connection, final StorageSnapshot snapshot)
-            throws SQLException {
-        insertSnapshotPlayers(connection, snapshot.players());
-        for (final ServerRow server : snapshot.servers()) {
-            serverTable.ensureServer(connection, server.server());
-        }
-        for (final WorldSnapshotRow world : snapshot.worlds()) {
-            worldTable.ensureWorld(connection, world.server(), world.world());
-        }
-        insertSnapshotSessions(connection, snapshot.sessions());
-        insertSnapshotAdjustments(connection, snapshot.adjustments());
-    }
-
-    private void insertSnapshotPlayers(final Connection connection, final List<PlayerRow> players) throws SQLException {
-        try (PreparedStatement insert = connection.prepareStatement(
-                "INSERT INTO `" + playerTableName + "` (`uuid`, `name`, `last_seen`) VALUES (?, ?, ?)")) {
-            for (final PlayerRow player : players) {
-                insert.setBytes(1, player.uuid());
-                insert.setString(2, player.name());
-                insert.setObject(3, player.lastSeen());
-                insert.addBatch();
-            }
-            insert.executeBatch();
-        }
-    }
-
-    private void insertSnapshotSessions(final Connection connection, final List<SessionRow> sessions)
-            throws SQLException {
-        try (PreparedStatement insert = connection.prepareStatement(
-                "INSERT INTO `" + timeTableName + "` (`player_id`, `world_id`, `join_time`, `leave_time`, `reason`) "
-                        + "VALUES ((SELECT `id` FROM `" + playerTableName + "` WHERE `uuid` = ?), "
-                        + "(SELECT w.`id` FROM `" + worldTableName + "` w "
-                        + "JOIN `" + serverTableName + "` s ON s.`id` = w.`server_id` "
-                        + "WHERE s.`server` = ? AND w.`world` = ?), ?, ?, ?)")) {
-            for (final SessionRow session : sessions) {
-                insert.setBytes(1, session.playerUuid());
-                insert.setString(2, session.server());
-                insert.setString(3, session.world());
-                insert.setObject(4, session.joinTime());
-                insert.setObject(5, session.leaveTime());
-                insert.setString(6, session.reason());
-                insert.addBatch();
-            }
-            insert.executeBatch();
-        }
-    }
-
-    private void insertSnapshotAdjustments(final Connection connection, final List<AdjustmentRow> adjustments)
-            throws SQLException {
-        try (PreparedStatement insert = connection.prepareStatement(
-                "INSERT INTO `" + adjustmentTableName + "` (`player_id`, `scope_type`, `server_id`, `world_id`, "
-                        + "`amount_seconds`, `reason`, `actor_uuid`, `actor_name`, `created_at`) VALUES "
-                        + "((SELECT `id` FROM `" + playerTableName + "` WHERE `uuid` = ?), ?, "
-                        + "(SELECT `id` FROM `" + serverTableName + "` WHERE `server` = ?), "
-                        + "(SELECT w.`id` FROM `" + worldTableName + "` w "
-                        + "JOIN `" + serverTableName + "` s ON s.`id` = w.`server_id` "
-                        + "WHERE s.`server` = ? AND w.`world` = ?), ?, ?, ?, ?, ?)")) {
-            for (final AdjustmentRow adjustment : adjustments) {
-                insert.setBytes(1, adjustment.playerUuid());
-                insert.setString(2, adjustment.scopeType());
-                insert.setString(3, adjustment.scopeServer());
-                insert.setString(4, adjustment.worldServer());
-                insert.setString(5, adjustment.world());
-                insert.setLong(6, adjustment.amountSeconds());
-                insert.setString(7, adjustment.reason());
-                insert.setBytes(8, adjustment.actorUuid());
-                insert.setString(9, adjustment.actorName());
-                insert.setObject(10, adjustment.createdAt());
-                insert.addBatch();
-            }
-            insert.executeBatch();
-        }
+    private StorageTypeTransfer.Tables transferTables() {
+        return new StorageTypeTransfer.Tables(playerTableName, serverTableName, worldTableName, timeTableName,
+                adjustmentTableName, checkpointTableName);
     }
 
     private StorageMaintenancePreview buildDeletePreview(final Connection connection,
@@ -1193,6 +1568,14 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
         }
     }
 
+    private void evictScope(final StorageMaintenanceScope scope) {
+        if (scope.type() == StorageMaintenanceScope.Type.SERVER) {
+            identityCache.evictServer(scope.server());
+        } else {
+            identityCache.evictWorld(scope.server(), scope.world());
+        }
+    }
+
     private void rejectNonEmptyStorageTypeTarget(final Connection connection) throws SQLException, StorageException {
         if (storageHasTransferBlockingData(connection)) {
             throw new StorageException("Target storage must be empty before storage-type transfer");
@@ -1334,6 +1717,17 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
     private record ScopeReferences(OptionalLong serverId, OptionalLong worldId) {
     }
 
+    /**
+     * Write statements that run in one transaction together with their materialized total and bucket deltas.
+     *
+     * @param <T> write result type
+     */
+    @FunctionalInterface
+    private interface TotalsWrite<T> {
+        T execute(Connection connection, PlayerTotalDeltas deltas, TimeBucketDeltas buckets)
+                throws SQLException, StorageException;
+    }
+
     private record Counts(long sessions, long adjustments, long players) {
 
         private static Counts empty() {
@@ -1351,40 +1745,4 @@ public class UnifiedDatabaseStorage implements UnifiedStorage, AdminStorageMaint
 
     private record WorldRow(long worldId, String world) {
     }
-
-    private record StorageSnapshot(List<PlayerRow> players,
-                                   List<ServerRow> servers,
-                                   List<WorldSnapshotRow> worlds,
-                                   List<SessionRow> sessions,
-                                   List<AdjustmentRow> adjustments) {
-    }
-
-    private record PlayerRow(byte[] uuid, String name, Object lastSeen) {
-    }
-
-    private record ServerRow(String server) {
-    }
-
-    private record WorldSnapshotRow(String server, String world) {
-    }
-
-    private record SessionRow(byte[] playerUuid,
-                              String server,
-                              String world,
-                              Object joinTime,
-                              Object leaveTime,
-                              String reason) {
-    }
-
-    private record AdjustmentRow(byte[] playerUuid,
-                                 String scopeType,
-                                 String scopeServer,
-                                 String worldServer,
-                                 String world,
-                                 long amountSeconds,
-                                 String reason,
-                                 byte[] actorUuid,
-                                 String actorName,
-                                 Object createdAt) {
-    }
 }
@@ -55,7 +55,9 @@ public class DatabaseMigrationPreflight {
         databaseStorage.openProvider();
         final String tablePrefix = databaseStorage.getTablePrefix();
         final String versionTable = tablePrefix + "_version";
-        try (Connection connection = databaseStorage.getProvider().getConnection()) {
+        final boolean freshDatabase;
+        // The writer connection is released before the updater runs, because the updater needs it as well.
+        try (Connection connection = databaseStorage.getProvider().getWriteConnection()) {
             if (connection == null) {
                 throw new StorageException("Could not open database connection for migration preflight");
             }
@@ -65,20 +67,34 @@ public class DatabaseMigrationPreflight {
                     log.info("Version 1 marker exists without legacy aggregate rows. Preparing empty migration source.");
                     createLegacyAggregateTable(connection, tablePrefix);
                 }
-                databaseStorage.applyUpdates();
-                return;
-            }
-            if (isLegacyAggregateTable(connection, tablePrefix)) {
+                freshDatabase = false;
+            } else if (isLegacyAggregateTable(connection, tablePrefix)) {
                 log.info("Detected LoriTime 1.x database table. Seeding database version 1 before migration.");
                 seedVersionOne(connection, versionTable);
-                databaseStorage.applyUpdates();
-                return;
+                freshDatabase = false;
+            } else {
+                log.info("Detected fresh database. Running first startup database initialization.");
+                freshDatabase = true;
             }
-            log.info("Detected fresh database. Running first startup database initialization.");
-            databaseStorage.applyFirstStartup();
         } catch (final SQLException ex) {
             throw new StorageException("Database migration preflight failed", ex);
         }
+        if (freshDatabase) {
+            databaseStorage.applyFirstStartup();
+        } else {
+            databaseStorage.applyUpdates();
+        }
+        if (databaseStorage.getDialect() == DatabaseDialect.SQLITE) {
+            convertSqliteTimestamps(tablePrefix);
+        }
+    }
+
+    private void convertSqliteTimestamps(final String tablePrefix) throws StorageException {
+        try (Connection connection = databaseStorage.getProvider().getWriteConnection()) {
+            new SQLiteTimestampMigration(connection, tablePrefix, log).migrate();
+        } catch (final SQLException ex) {
+            throw new StorageException("SQLite timestamp conversion failed", ex);
+        }
     }
 
     private boolean tableExists(final Connection connection, final String tableName) {
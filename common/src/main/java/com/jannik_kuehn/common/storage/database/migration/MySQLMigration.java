@@ -2,6 +2,8 @@ package com.jannik_kuehn.common.storage.database.migration;
 
 import com.github.roleplaycauldron.spellbook.database.updater.DatabaseVersion;
 import com.github.roleplaycauldron.spellbook.database.updater.builder.VersionListBuilder;
+import com.jannik_kuehn.common.storage.database.DatabaseDialect;
+import com.jannik_kuehn.common.storage.database.table.PlayerTotalTable;
 
 import java.util.List;
 
@@ -30,6 +32,14 @@ public final class MySQLMigration {
         final VersionListBuilder builder = new VersionListBuilder();
         addMigrationOne(builder, tablePrefix);
         addMigrationTwo(builder, tablePrefix);
+        addMigrationThree(builder, tablePrefix);
+        addMigrationFour(builder, tablePrefix);
+        addMigrationFive(builder, tablePrefix);
+        addMigrationSix(builder, tablePrefix);
+        addMigrationSeven(builder, tablePrefix);
+        addMigrationEight(builder, tablePrefix);
+        addMigrationNine(builder, tablePrefix);
+        addMigrationTen(builder, tablePrefix);
 
         return builder.finish();
     }
@@ -252,4 +262,160 @@ public final class MySQLMigration {
                 )
                 .finishVersion();
     }
+
+    private static void addMigrationThree(final VersionListBuilder builder, final String tablePrefix) {
+        builder.version(3)
+                .addFirstStartupQuery(
+                        "CREATE TABLE IF NOT EXISTS `" + tablePrefix + "_player_total` ("
+                                + "`player_id` BIGINT NOT NULL,"
+                                + "`scope_type` VARCHAR(16) NOT NULL,"
+                                + "`server_id` BIGINT NOT NULL DEFAULT 0,"
+                                + "`world_id` BIGINT NOT NULL DEFAULT 0,"
+                                + "`total_seconds` BIGINT NOT NULL DEFAULT 0,"
+                                + "PRIMARY KEY (`player_id`, `scope_type`, `server_id`, `world_id`),"
+                                + "CONSTRAINT `fk_player_total_player` FOREIGN KEY (`player_id`) "
+                                + "REFERENCES `" + tablePrefix + "_player`(`id`) ON DELETE CASCADE"
+                                + ") ENGINE InnoDB"
+                )
+                .addUnconditionalQuery(
+                        "CREATE TABLE IF NOT EXISTS `" + tablePrefix + "_player_total` ("
+                                + "`player_id` BIGINT NOT NULL,"
+                                + "`scope_type` VARCHAR(16) NOT NULL,"
+                                + "`server_id` BIGINT NOT NULL DEFAULT 0,"
+                                + "`world_id` BIGINT NOT NULL DEFAULT 0,"
+                                + "`total_seconds` BIGINT NOT NULL DEFAULT 0,"
+                                + "PRIMARY KEY (`player_id`, `scope_type`, `server_id`, `world_id`),"
+                                + "CONSTRAINT `fk_player_total_player` FOREIGN KEY (`player_id`) "
+                                + "REFERENCES `" + tablePrefix + "_player`(`id`) ON DELETE CASCADE"
+                                + ") ENGINE InnoDB"
+                )
+                .addUnconditionalQuery(
+                        "DELETE FROM `" + tablePrefix + "_player_total`"
+                )
+                .addUnconditionalQuery(
+                        PlayerTotalTable.rebuildQuery(tablePrefix, DatabaseDialect.MYSQL)
+                )
+                .finishVersion();
+    }
+
+    private static void addMigrationFour(final VersionListBuilder builder, final String tablePrefix) {
+        builder.version(4)
+                .addFirstStartupQuery(
+                        "CREATE TABLE IF NOT EXISTS `" + tablePrefix + "_time_bucket` ("
+                                + "`player_id` BIGINT NOT NULL,"
+                                + "`world_id` BIGINT NOT NULL,"
+                                + "`day` BIGINT NOT NULL,"
+                                + "`seconds` BIGINT NOT NULL DEFAULT 0,"
+                                + "PRIMARY KEY (`player_id`, `day`, `world_id`),"
+                                + "CONSTRAINT `fk_time_bucket_player` FOREIGN KEY (`player_id`) "
+                                + "REFERENCES `" + tablePrefix + "_player`(`id`) ON DELETE CASCADE"
+                                + ") ENGINE InnoDB"
+                )
+                .addUnconditionalQuery(
+                        "CREATE TABLE IF NOT EXISTS `" + tablePrefix + "_time_bucket` ("
+                                + "`player_id` BIGINT NOT NULL,"
+                                + "`world_id` BIGINT NOT NULL,"
+                                + "`day` BIGINT NOT NULL,"
+                                + "`seconds` BIGINT NOT NULL DEFAULT 0,"
+                                + "PRIMARY KEY (`player_id`, `day`, `world_id`),"
+                                + "CONSTRAINT `fk_time_bucket_player` FOREIGN KEY (`player_id`) "
+                                + "REFERENCES `" + tablePrefix + "_player`(`id`) ON DELETE CASCADE"
+                                + ") ENGINE InnoDB"
+                )
+                .finishVersion();
+    }
+
+    private static void addMigrationFive(final VersionListBuilder builder, final String tablePrefix) {
+        builder.version(5)
+                .addFirstStartupQuery(
+                        "ALTER TABLE `" + tablePrefix + "_time` "
+                                + "ADD INDEX `idx_time_player_range` (`player_id`, `leave_time`, `join_time`)"
+                )
+                .addUnconditionalQuery(
+                        "ALTER TABLE `" + tablePrefix + "_time` "
+                                + "ADD INDEX `idx_time_player_range` (`player_id`, `leave_time`, `join_time`)"
+                )
+                .finishVersion();
+    }
+
+    private static void addMigrationSix(final VersionListBuilder builder, final String tablePrefix) {
+        builder.version(6)
+                .addFirstStartupQuery(
+                        "ALTER TABLE `" + tablePrefix + "_player` ADD INDEX `idx_player_last_seen` (`last_seen`)"
+                )
+                .addUnconditionalQuery(
+                        "ALTER TABLE `" + tablePrefix + "_player` ADD INDEX `idx_player_last_seen` (`last_seen`)"
+                )
+                .finishVersion();
+    }
+
+    private static void addMigrationSeven(final VersionListBuilder builder, final String tablePrefix) {
+        builder.version(7)
+                .addFirstStartupQuery(
+                        "ALTER TABLE `" + tablePrefix + "_player_total` "
+                                + "ADD INDEX `idx_player_total_rank` (`scope_type`, `server_id`, `world_id`, `total_seconds`)"
+                )
+                .addUnconditionalQuery(
+                        "ALTER TABLE `" + tablePrefix + "_player_total` "
+                                + "ADD INDEX `idx_player_total_rank` (`scope_type`, `server_id`, `world_id`, `total_seconds`)"
+                )
+                .finishVersion();
+    }
+
+    private static void addMigrationEight(final VersionListBuilder builder, final String tablePrefix) {
+        builder.version(8)
+                .addFirstStartupQuery(
+                        "CREATE TABLE IF NOT EXISTS `" + tablePrefix + "_transfer_checkpoint` ("
+                                + "`stage` VARCHAR(32) NOT NULL PRIMARY KEY,"
+                                + "`last_id` BIGINT NOT NULL,"
+                                + "`rows_copied` BIGINT NOT NULL DEFAULT 0"
+                                + ") ENGINE InnoDB"
+                )
+                .addUnconditionalQuery(
+                        "CREATE TABLE IF NOT EXISTS `" + tablePrefix + "_transfer_checkpoint` ("
+                                + "`stage` VARCHAR(32) NOT NULL PRIMARY KEY,"
+                                + "`last_id` BIGINT NOT NULL,"
+                                + "`rows_copied` BIGINT NOT NULL DEFAULT 0"
+                                + ") ENGINE InnoDB"
+                )
+                .finishVersion();
+    }
+
+    private static void addMigrationNine(final VersionListBuilder builder, final String tablePrefix) {
+        builder.version(9)
+                .addFirstStartupQuery(
+                        "CREATE TABLE IF NOT EXISTS `" + tablePrefix + "_time_bucket_backfill` ("
+                                + "`id` TINYINT NOT NULL PRIMARY KEY,"
+                                + "`last_player_id` BIGINT NOT NULL"
+                                + ") ENGINE InnoDB"
+                )
+                .addUnconditionalQuery(
+                        "CREATE TABLE IF NOT EXISTS `" + tablePrefix + "_time_bucket_backfill` ("
+                                + "`id` TINYINT NOT NULL PRIMARY KEY,"
+                                + "`last_player_id` BIGINT NOT NULL"
+                                + ") ENGINE InnoDB"
+                )
+                .finishVersion();
+    }
+
+    private static void addMigrationTen(final VersionListBuilder builder, final String tablePrefix) {
+        builder.version(10)
+                .addFirstStartupQuery(
+                        "CREATE TABLE IF NOT EXISTS `" + tablePrefix + "_time_compaction` ("
+                                + "`id` TINYINT NOT NULL PRIMARY KEY,"
+                                + "`compacted_before` BIGINT NOT NULL,"
+                                + "`target_before` BIGINT NOT NULL,"
+                                + "`last_player_id` BIGINT NOT NULL"
+                                + ") ENGINE InnoDB"
+                )
+                .addUnconditionalQuery(
+                        "CREATE TABLE IF NOT EXISTS `" + tablePrefix + "_time_compaction` ("
+                                + "`id` TINYINT NOT NULL PRIMARY KEY,"
+                                + "`compacted_before` BIGINT NOT NULL,"
+                                + "`target_before` BIGINT NOT NULL,"
+                                + "`last_player_id` BIGINT NOT NULL"
+                                + ") ENGINE InnoDB"
+                )
+                .finishVersion();
+    }
 }
@@ -2,6 +2,8 @@ package com.jannik_kuehn.common.storage.database.migration;
 
 import com.github.roleplaycauldron.spellbook.database.updater.DatabaseVersion;
 import com.github.roleplaycauldron.spellbook.database.updater.builder.VersionListBuilder;
+import com.jannik_kuehn.common.storage.database.DatabaseDialect;
+import com.jannik_kuehn.common.storage.database.table.PlayerTotalTable;
 
 import java.util.List;
 
@@ -33,6 +35,14 @@ public final class SQLiteMigration {
         final VersionListBuilder builder = new VersionListBuilder();
         addMigrationOne(builder, tablePrefix);
         addMigrationTwo(builder, tablePrefix);
+        addMigrationThree(builder, tablePrefix);
+        addMigrationFour(builder, tablePrefix);
+        addMigrationFive(builder, tablePrefix);
+        addMigrationSix(builder, tablePrefix);
+        addMigrationSeven(builder, tablePrefix);
+        addMigrationEight(builder, tablePrefix);
+        addMigrationNine(builder, tablePrefix);
+        addMigrationTen(builder, tablePrefix);
 
         return builder.finish();
     }
@@ -57,7 +67,7 @@ public final class SQLiteMigration {
                                 + "`id` INTEGER PRIMARY KEY AUTOINCREMENT,"
                                 + "`uuid` BLOB NOT NULL UNIQUE,"
                                 + "`name` TEXT UNIQUE,"
-                                + "`last_seen` TEXT NULL"
+                                + "`last_seen` INTEGER NULL"
                                 + ")"
                 )
                 .addFirstStartupQuery(
@@ -80,8 +90,8 @@ public final class SQLiteMigration {
                                 + "`id` INTEGER PRIMARY KEY AUTOINCREMENT,"
                                 + "`player_id` INTEGER NOT NULL,"
                                 + "`world_id` INTEGER NOT NULL,"
-                                + "`join_time` TEXT NOT NULL,"
-                                + "`leave_time` TEXT NOT NULL,"
+                                + "`join_time` INTEGER NOT NULL,"
+                                + "`leave_time` INTEGER NOT NULL,"
                                 + "`reason` TEXT NOT NULL DEFAULT 'UNSPECIFIED',"
                                 + "FOREIGN KEY (`player_id`) REFERENCES `" + tablePrefix + "_player`(`id`) ON DELETE CASCADE,"
                                 + "FOREIGN KEY (`world_id`) REFERENCES `" + tablePrefix + "_world`(`id`) ON DELETE CASCADE"
@@ -98,7 +108,7 @@ public final class SQLiteMigration {
                                 + "`reason` TEXT NOT NULL DEFAULT 'MANUAL_ADJUSTMENT',"
                                 + "`actor_uuid` BLOB NULL,"
                                 + "`actor_name` TEXT NOT NULL,"
-                                + "`created_at` TEXT NOT NULL DEFAULT CURRENT_TIMESTAMP,"
+                                + "`created_at` INTEGER NOT NULL DEFAULT (CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)),"
                                 + "FOREIGN KEY (`player_id`) REFERENCES `" + tablePrefix + "_player`(`id`) ON DELETE CASCADE,"
                                 + "FOREIGN KEY (`server_id`) REFERENCES `" + tablePrefix + "_server`(`id`) ON DELETE CASCADE,"
                                 + "FOREIGN KEY (`world_id`) REFERENCES `" + tablePrefix + "_world`(`id`) ON DELETE CASCADE"
@@ -270,4 +280,160 @@ public final class SQLiteMigration {
                 )
                 .finishVersion();
     }
+
+    private static void addMigrationThree(final VersionListBuilder builder, final String tablePrefix) {
+        builder.version(3)
+                .addFirstStartupQuery(
+                        "CREATE TABLE IF NOT EXISTS `" + tablePrefix + "_player_total` ("
+                                + "`player_id` INTEGER NOT NULL,"
+                                + "`scope_type` TEXT NOT NULL,"
+                                + "`server_id` INTEGER NOT NULL DEFAULT 0,"
+                                + "`world_id` INTEGER NOT NULL DEFAULT 0,"
+                                + "`total_seconds` INTEGER NOT NULL DEFAULT 0,"
+                                + "PRIMARY KEY (`player_id`, `scope_type`, `server_id`, `world_id`),"
+                                + "FOREIGN KEY (`player_id`) REFERENCES `" + tablePrefix + "_player`(`id`) ON DELETE CASCADE"
+                                + ")"
+                )
+                .addUnconditionalQuery(
+                        "CREATE TABLE IF NOT EXISTS `" + tablePrefix + "_player_total` ("
+                                + "`player_id` INTEGER NOT NULL,"
+                                + "`scope_type` TEXT NOT NULL,"
+                                + "`server_id` INTEGER NOT NULL DEFAULT 0,"
+                                + "`world_id` INTEGER NOT NULL DEFAULT 0,"
+                                + "`total_seconds` INTEGER NOT NULL DEFAULT 0,"
+                                + "PRIMARY KEY (`player_id`, `scope_type`, `server_id`, `world_id`),"
+                                + "FOREIGN KEY (`player_id`) REFERENCES `" + tablePrefix + "_player`(`id`) ON DELETE CASCADE"
+                                + ")"
+                )
+                .addUnconditionalQuery(
+                        "DELETE FROM `" + tablePrefix + "_player_total`"
+                )
+                .addUnconditionalQuery(
+                        PlayerTotalTable.rebuildQuery(tablePrefix, DatabaseDialect.SQLITE)
+                )
+                .finishVersion();
+    }
+
+    private static void addMigrationFour(final VersionListBuilder builder, final String tablePrefix) {
+        builder.version(4)
+                .addFirstStartupQuery(
+                        "CREATE TABLE IF NOT EXISTS `" + tablePrefix + "_time_bucket` ("
+                                + "`player_id` INTEGER NOT NULL,"
+                                + "`world_id` INTEGER NOT NULL,"
+                                + "`day` INTEGER NOT NULL,"
+                                + "`seconds` INTEGER NOT NULL DEFAULT 0,"
+                                + "PRIMARY KEY (`player_id`, `day`, `world_id`),"
+                                + "FOREIGN KEY (`player_id`) REFERENCES `" + tablePrefix + "_player`(`id`) ON DELETE CASCADE"
+                                + ")"
+                )
+                .addUnconditionalQuery(
+                        "CREATE TABLE IF NOT EXISTS `" + tablePrefix + "_time_bucket` ("
+                                + "`player_id` INTEGER NOT NULL,"
+                                + "`world_id` INTEGER NOT NULL,"
+                                + "`day` INTEGER NOT NULL,"
+                                + "`seconds` INTEGER NOT NULL DEFAULT 0,"
+                                + "PRIMARY KEY (`player_id`, `day`, `world_id`),"
+                                + "FOREIGN KEY (`player_id`) REFERENCES `" + tablePrefix + "_player`(`id`) ON DELETE CASCADE"
+                                + ")"
+                )
+                .finishVersion();
+    }
+
+    private static void addMigrationFive(final VersionListBuilder builder, final String tablePrefix) {
+        builder.version(5)
+                .addFirstStartupQuery(
+                        "CREATE INDEX IF NOT EXISTS `idx_" + tablePrefix + "_time_player_range` "
+                                + "ON `" + tablePrefix + "_time` (`player_id`, `leave_time`, `join_time`)"
+                )
+                .addUnconditionalQuery(
+                        "CREATE INDEX IF NOT EXISTS `idx_" + tablePrefix + "_time_player_range` "
+                                + "ON `" + tablePrefix + "_time` (`player_id`, `leave_time`, `join_time`)"
+                )
+                .finishVersion();
+    }
+
+    private static void addMigrationSix(final VersionListBuilder builder, final String tablePrefix) {
+        builder.version(6)
+                .addFirstStartupQuery(
+                        "CREATE INDEX IF NOT EXISTS `idx_" + tablePrefix + "_player_last_seen` "
+                                + "ON `" + tablePrefix + "_player` (`last_seen`)"
+                )
+                .addUnconditionalQuery(
+                        "CREATE INDEX IF NOT EXISTS `idx_" + tablePrefix + "_player_last_seen` "
+                                + "ON `" + tablePrefix + "_player` (`last_seen`)"
+                )
+                .finishVersion();
+    }
+
+    private static void addMigrationSeven(final VersionListBuilder builder, final String tablePrefix) {
+        builder.version(7)
+                .addFirstStartupQuery(
+                        "CREATE INDEX IF NOT EXISTS `idx_" + tablePrefix + "_player_total_rank` "
+                                + "ON `" + tablePrefix + "_player_total` "
+                                + "(`scope_type`, `server_id`, `world_id`, `total_seconds`, `player_id`)"
+                )
+                .addUnconditionalQuery(
+                        "CREATE INDEX IF NOT EXISTS `idx_" + tablePrefix + "_player_total_rank` "
+                                + "ON `" + tablePrefix + "_player_total` "
+                                + "(`scope_type`, `server_id`, `world_id`, `total_seconds`, `player_id`)"
+                )
+                .finishVersion();
+    }
+
+    private static void addMigrationEight(final VersionListBuilder builder, final String tablePrefix) {
+        builder.version(8)
+                .addFirstStartupQuery(
+                        "CREATE TABLE IF NOT EXISTS `" + tablePrefix + "_transfer_checkpoint` ("
+                                + "`stage` TEXT NOT NULL PRIMARY KEY,"
+                                + "`last_id` INTEGER NOT NULL,"
+                                + "`rows_copied` INTEGER NOT NULL DEFAULT 0"
+                                + ")"
+                )
+                .addUnconditionalQuery(
+                        "CREATE TABLE IF NOT EXISTS `" + tablePrefix + "_transfer_checkpoint` ("
+                                + "`stage` TEXT NOT NULL PRIMARY KEY,"
+                                + "`last_id` INTEGER NOT NULL,"
+                                + "`rows_copied` INTEGER NOT NULL DEFAULT 0"
+                                + ")"
+                )
+                .finishVersion();
+    }
+
+    private static void addMigrationNine(final VersionListBuilder builder, final String tablePrefix) {
+        builder.version(9)
+                .addFirstStartupQuery(
+                        "CREATE TABLE IF NOT EXISTS `" + tablePrefix + "_time_bucket_backfill` ("
+                                + "`id` INTEGER NOT NULL PRIMARY KEY,"
+                                + "`last_player_id` INTEGER NOT NULL"
+                                + ")"
+                )
+                .addUnconditionalQuery(
+                        "CREATE TABLE IF NOT EXISTS `" + tablePrefix + "_time_bucket_backfill` ("
+                                + "`id` INTEGER NOT NULL PRIMARY KEY,"
+                                + "`last_player_id` INTEGER NOT NULL"
+                                + ")"
+                )
+                .finishVersion();
+    }
+
+    private static void addMigrationTen(final VersionListBuilder builder, final String tablePrefix) {
+        builder.version(10)
+                .addFirstStartupQuery(
+                        "CREATE TABLE IF NOT EXISTS `" + tablePrefix + "_time_compaction` ("
+                                + "`id` INTEGER NOT NULL PRIMARY KEY,"
+                                + "`compacted_before` INTEGER NOT NULL,"
+                                + "`target_before` INTEGER NOT NULL,"
+                                + "`last_player_id` INTEGER NOT NULL"
+                                + ")"
+                )
+                .addUnconditionalQuery(
+                        "CREATE TABLE IF NOT EXISTS `" + tablePrefix + "_time_compaction` ("
+                                + "`id` INTEGER NOT NULL PRIMARY KEY,"
+                                + "`compacted_before` INTEGER NOT NULL,"
+                                + "`target_before` INTEGER NOT NULL,"
+                                + "`last_player_id` INTEGER NOT NULL"
+                                + ")"
+                )
+                .finishVersion();
+    }
 }
@@ -0,0 +1,267 @@
+package com.jannik_kuehn.common.storage.database.migration;
+
+import com.github.roleplaycauldron.spellbook.core.logger.WrappedLogger;
+import com.jannik_kuehn.common.storage.database.DatabaseDialect;
+import com.jannik_kuehn.common.storage.database.table.PlayerTotalTable;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Converts the SQLite timestamp columns from {@code TEXT} to {@code INTEGER} epoch milliseconds.
+ *
+ * <p>SQLite cannot change a column type in place, so every affected table is rebuilt: a copy with the new column
+ * types is filled from the old table in rowid chunks, after which the old table is dropped, the copy takes its name
+ * and the indexes are recreated. Legacy date strings and numeric text are both converted. Tables whose columns are
+ * already {@code INTEGER} are skipped, so an interrupted conversion simply resumes on the next startup.</p>
+ *
+ * <p>The versioned migrations run before this conversion, so materialized totals may have been computed from text
+ * timestamps. They are recomputed in the same transaction that swaps in the converted session table.</p>
+ */
+public final class SQLiteTimestampMigration {
+
+    /**
+     * Number of rows copied per chunk.
+     */
+    private static final int CHUNK_SIZE = 10_000;
+
+    /**
+     * Default expression for epoch millisecond columns filled on insert.
+     */
+    private static final String EPOCH_MILLIS_DEFAULT = "DEFAULT (CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER))";
+
+    /**
+     * Suffix of the temporary table used while a table is rebuilt.
+     */
+    private static final String REBUILD_SUFFIX = "_rebuild";
+
+    /**
+     * The connection used for the conversion.
+     */
+    private final Connection connection;
+
+    /**
+     * The table prefix.
+     */
+    private final String tablePrefix;
+
+    /**
+     * The logger.
+     */
+    private final WrappedLogger log;
+
+    /**
+     * Creates a timestamp migration.
+     *
+     * @param connection  connection used for the conversion
+     * @param tablePrefix table prefix
+     * @param log         logger
+     */
+    public SQLiteTimestampMigration(final Connection connection, final String tablePrefix, final WrappedLogger log) {
+        this.connection = connection;
+        this.tablePrefix = tablePrefix;
+        this.log = log;
+    }
+
+    /**
+     * Converts every timestamp column that is still stored as text.
+     *
+     * @return {@code true} if at least one table was converted
+     * @throws SQLException if the conversion fails
+     */
+    public boolean migrate() throws SQLException {
+        final Map<String, Set<String>> pending = new LinkedHashMap<>();
+        addIfText(pending, tablePrefix + "_player", Set.of("last_seen"));
+        addIfText(pending, tablePrefix + "_time", Set.of("join_time", "leave_time"));
+        addIfText(pending, tablePrefix + "_time_adjustment", Set.of("created_at"));
+        if (pending.isEmpty()) {
+            return false;
+        }
+
+        final long sizeBefore = usedBytes();
+        log.info("Converting SQLite timestamp columns to epoch milliseconds in " + pending.size() + " table(s).");
+        final boolean previousAutoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(true);
+        execute("PRAGMA foreign_keys = OFF");
+        try {
+            for (final Map.Entry<String, Set<String>> table : pending.entrySet()) {
+                rebuild(table.getKey(), table.getValue());
+            }
+        } finally {
+            execute("PRAGMA foreign_keys = ON");
+            connection.setAutoCommit(previousAutoCommit);
+        }
+        log.info("Converted SQLite timestamp columns. Used database size changed from " + sizeBefore
+                + " to " + usedBytes() + " bytes.");
+        return true;
+    }
+
+    private void addIfText(final Map<String, Set<String>> pending, final String table, final Set<String> columns)
+            throws SQLException {
+        for (final Map.Entry<String, String> column : columnTypes(table).entrySet()) {
+            if (columns.contains(column.getKey()) && column.getValue().toUpperCase(Locale.ROOT).startsWith("TEXT")) {
+                pending.put(table, columns);
+                return;
+            }
+        }
+    }
+
+    private void rebuild(final String table, final Set<String> timestampColumns) throws SQLException {
+        final String rebuildTable = table + REBUILD_SUFFIX;
+        final List<String> indexes = indexSql(table);
+        execute("DROP TABLE IF EXISTS `" + rebuildTable + "`");
+        execute(rebuildTableSql(table, rebuildTable, timestampColumns));
+
+        final List<String> columns = new ArrayList<>(columnTypes(table).keySet());
+        final StringBuilder targetColumns = new StringBuilder();
+        final StringBuilder sourceColumns = new StringBuilder();
+        for (final String column : columns) {
+            if (!targetColumns.isEmpty()) {
+                targetColumns.append(", ");
+                sourceColumns.append(", ");
+            }
+            targetColumns.append('`').append(column).append('`');
+            sourceColumns.append(timestampColumns.contains(column) ? epochMillisExpression(column) : "`" + column + "`");
+        }
+
+        final long total = count(table);
+        long copied = 0L;
+        long lastRowId = 0L;
+        try (PreparedStatement copy = connection.prepareStatement(
+                "INSERT INTO `" + rebuildTable + "` (" + targetColumns + ") "
+                        + "SELECT " + sourceColumns + " FROM `" + table + "` "
+                        + "WHERE rowid > ? ORDER BY rowid LIMIT " + CHUNK_SIZE);
+             PreparedStatement lastRow = connection.prepareStatement(
+                     "SELECT MAX(rowid) FROM `" + rebuildTable + "`")) {
+            int inserted;
+            do {
+                copy.setLong(1, lastRowId);
+                inserted = copy.executeUpdate();
+                try (ResultSet result = lastRow.executeQuery()) {
+                    lastRowId = result.next() ? result.getLong(1) : lastRowId;
+                }
+                copied += inserted;
+                if (inserted > 0) {
+                    log.info("Converted " + copied + "/" + total + " rows of " + table + ".");
+                }
+            } while (inserted == CHUNK_SIZE);
+        }
+
+        connection.setAutoCommit(false);
+        try {
+            execute("DROP TABLE `" + table + "`");
+            execute("ALTER TABLE `" + rebuildTable + "` RENAME TO `" + table + "`");
+            for (final String index : indexes) {
+                execute(index);
+            }
+            if (table.equals(tablePrefix + "_time")) {
+                rebuildTotals();
+            }
+            connection.commit();
+        } catch (final SQLException ex) {
+            connection.rollback();
+            throw ex;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private void rebuildTotals() throws SQLException {
+        if (columnTypes(tablePrefix + "_player_total").isEmpty()) {
+            return;
+        }
+        execute("DELETE FROM `" + tablePrefix + "_player_total`");
+        execute(PlayerTotalTable.rebuildQuery(tablePrefix, DatabaseDialect.SQLITE));
+        log.info("Recomputed the player totals from the converted sessions.");
+    }
+
+    private String rebuildTableSql(final String table, final String rebuildTable, final Set<String> timestampColumns)
+            throws SQLException {
+        String sql = null;
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT `sql` FROM sqlite_master WHERE `type` = 'table' AND `name` = ?")) {
+            select.setString(1, table);
+            try (ResultSet result = select.executeQuery()) {
+                if (result.next()) {
+                    sql = result.getString(1);
+                }
+            }
+        }
+        if (sql == null) {
+            throw new SQLException("Missing table definition for " + table);
+        }
+        sql = sql.replaceFirst(Pattern.quote("`" + table + "`"), Matcher.quoteReplacement("`" + rebuildTable + "`"));
+        for (final String column : timestampColumns) {
+            sql = sql.replaceFirst("(?i)(`" + Pattern.quote(column) + "`\\s+)TEXT", "$1INTEGER");
+        }
+        return sql.replaceAll("(?i)DEFAULT\\s+CURRENT_TIMESTAMP", Matcher.quoteReplacement(EPOCH_MILLIS_DEFAULT));
+    }
+
+    private String epochMillisExpression(final String column) {
+        final String value = "`" + column + "`";
+        return "CASE WHEN " + value + " IS NULL THEN NULL "
+                + "WHEN typeof(" + value + ") IN ('integer', 'real') THEN CAST(" + value + " AS INTEGER) "
+                + "WHEN " + value + " <> '' AND " + value + " NOT GLOB '*[^0-9]*' THEN CAST(" + value + " AS INTEGER) "
+                + "ELSE CAST(ROUND((julianday(" + value + ") - 2440587.5) * 86400000) AS INTEGER) END";
+    }
+
+    private Map<String, String> columnTypes(final String table) throws SQLException {
+        final Map<String, String> columns = new LinkedHashMap<>();
+        try (PreparedStatement select = connection.prepareStatement("PRAGMA table_info(`" + table + "`)");
+             ResultSet result = select.executeQuery()) {
+            while (result.next()) {
+                columns.put(result.getString("name"), result.getString("type"));
+            }
+        }
+        return columns;
+    }
+
+    private List<String> indexSql(final String table) throws SQLException {
+        final List<String> indexes = new ArrayList<>();
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT `sql` FROM sqlite_master WHERE `type` = 'index' AND `tbl_name` = ? AND `sql` IS NOT NULL")) {
+            select.setString(1, table);
+            try (ResultSet result = select.executeQuery()) {
+                while (result.next()) {
+                    indexes.add(result.getString(1));
+                }
+            }
+        }
+        return indexes;
+    }
+
+    private long count(final String table) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement("SELECT COUNT(*) FROM `" + table + "`");
+             ResultSet result = select.executeQuery()) {
+            return result.next() ? result.getLong(1) : 0L;
+        }
+    }
+
+    private long usedBytes() throws SQLException {
+        return (pragmaValue("page_count") - pragmaValue("freelist_count")) * pragmaValue("page_size");
+    }
+
+    private long pragmaValue(final String pragma) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement("PRAGMA " + pragma);
+             ResultSet result = select.executeQuery()) {
+            return result.next() ? result.getLong(1) : 0L;
+        }
+    }
+
+    private void execute(final String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
@@ -4,9 +4,12 @@ import com.github.roleplaycauldron.spellbook.core.logger.WrappedLogger;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.jannik_kuehn.common.config.ConfigSection;
 import com.jannik_kuehn.common.config.Configuration;
+import com.jannik_kuehn.common.storage.database.DatabaseDialect;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 
+import java.util.Properties;
+
 /**
  * Factory class for creating and configuring HikariDataSource instances.
  * <p>
@@ -39,11 +42,12 @@ public final class HikariDataSourceFactory {
      * @param config       the configuration section containing necessary properties such as
      *                     user credentials, pool size, and timing configurations
      * @param startJdbcUrl the JDBC URL to connect to the database
+     * @param dialect      the database engine, used for driver specific properties
      * @return a fully configured {@link HikariDataSource} instance
      */
     /* default */
     static HikariDataSource create(final WrappedLogger log, final Configuration config,
-                                   final String startJdbcUrl) {
+                                   final String startJdbcUrl, final DatabaseDialect dialect) {
         final HikariConfig databaseConfig = new HikariConfig();
 
         final String jdbcUrl = String.format("%s%s:%s/%s",
@@ -86,10 +90,51 @@ public final class HikariDataSourceFactory {
         final int connectionTimeout = poolSettings.getInt("connectionTimeout", config.getInt(POOL_SECTION + "connectionTimeout", 5_000));
         databaseConfig.setConnectionTimeout(connectionTimeout);
 
+        // Lets the driver send JDBC batches, such as online time flushes, in one round trip. MySQL Connector/J
+        // rewrites them into multi-row statements, MariaDB Connector/J uses the bulk protocol instead.
+        if (dialect == DatabaseDialect.MARIADB) {
+            databaseConfig.addDataSourceProperty("useBulkStmts", "true");
+        } else {
+            databaseConfig.addDataSourceProperty("rewriteBatchedStatements", "true");
+        }
+        // Keeps the parsed hot path statements per connection, so repeated lookups and flushes skip the SQL parse.
+        databaseConfig.addDataSourceProperty("cachePrepStmts", "true");
+        databaseConfig.addDataSourceProperty("prepStmtCacheSize", "250");
+        databaseConfig.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        databaseConfig.addDataSourceProperty("useServerPrepStmts", "true");
+
         final ThreadFactoryBuilder builder = new ThreadFactoryBuilder();
         builder.setNameFormat("HikariThread-%d");
         databaseConfig.setThreadFactory(builder.build());
 
         return new HikariDataSource(databaseConfig);
     }
+
+    /**
+     * Creates a fixed size {@link HikariDataSource} for a local SQLite database.
+     *
+     * @param jdbcUrl  the SQLite JDBC URL
+     * @param poolName the pool name
+     * @param poolSize the number of connections
+     * @param pragmas  the driver properties applied once when a connection is opened
+     * @return a fully configured {@link HikariDataSource} instance
+     */
+    /* default */
+    static HikariDataSource createSqlite(final String jdbcUrl, final String poolName, final int poolSize,
+                                         final Properties pragmas) {
+        final HikariConfig databaseConfig = new HikariConfig();
+        databaseConfig.setJdbcUrl(jdbcUrl);
+        databaseConfig.setPoolName(poolName);
+        databaseConfig.setMaximumPoolSize(poolSize);
+        databaseConfig.setMinimumIdle(poolSize);
+        // Local connections never time out on the server side.
+        databaseConfig.setMaxLifetime(0);
+        databaseConfig.setDataSourceProperties(pragmas);
+
+        final ThreadFactoryBuilder builder = new ThreadFactoryBuilder();
+        builder.setNameFormat(poolName + "-%d");
+        databaseConfig.setThreadFactory(builder.build());
+
+        return new HikariDataSource(databaseConfig);
+    }
 }
@@ -3,6 +3,8 @@ package com.jannik_kuehn.common.storage.database.provider;
 import com.github.roleplaycauldron.spellbook.database.ConnectionProvider;
 
 import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
 
 /**
  * Abstraction for SQL connection providers used by the storage layer.
@@ -20,4 +22,15 @@ public interface LoriTimeConnectionProvider extends Closeable, ConnectionProvide
      * @return {@code true} if closed
      */
     boolean isClosed();
+
+    /**
+     * Returns a connection for write transactions. Providers with a dedicated writer connection hand out that
+     * connection, all others return a regular pooled connection.
+     *
+     * @return a connection for writes
+     * @throws SQLException if no connection could be obtained
+     */
+    default Connection getWriteConnection() throws SQLException {
+        return getConnection();
+    }
 }
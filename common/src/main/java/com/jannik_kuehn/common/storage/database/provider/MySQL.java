@@ -68,7 +68,7 @@ public class MySQL implements LoriTimeConnectionProvider {
         if (isClosed()) {
             log.info("Connecting to database...");
             final String jdbcUrl = "jdbc:" + dialect.name().toLowerCase(Locale.ROOT) + "://";
-            this.hikari = HikariDataSourceFactory.create(log, config, jdbcUrl);
+            this.hikari = HikariDataSourceFactory.create(log, config, jdbcUrl, dialect);
 
             if (hikari == null) {
                 log.error("Could not connect to the database server!");
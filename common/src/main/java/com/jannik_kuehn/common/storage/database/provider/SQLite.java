@@ -1,17 +1,24 @@
 package com.jannik_kuehn.common.storage.database.provider;
 
 import com.github.roleplaycauldron.spellbook.core.logger.WrappedLogger;
+import com.jannik_kuehn.common.config.Configuration;
+import com.zaxxer.hikari.HikariDataSource;
 import org.sqlite.JDBC;
+import org.sqlite.SQLiteConfig;
 
 import java.io.File;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Properties;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
- * SQLite connection provider backed by direct JDBC connections.
+ * SQLite connection provider backed by a small pool of reader connections and one dedicated writer connection.
+ * <p>
+ * Every connection is opened once in WAL mode with the configured PRAGMAs and reused afterward, so reads do not
+ * wait for the writer and concurrent writers queue for the writer connection instead of failing with
+ * {@code SQLITE_BUSY}.
  */
 public class SQLite implements LoriTimeConnectionProvider {
 
@@ -20,11 +27,41 @@ public class SQLite implements LoriTimeConnectionProvider {
      */
     private static final String DEFAULT_DATABASE_NAME = "loritime.db";
 
+    /**
+     * Prefix for SQLite configuration keys.
+     */
+    private static final String SQLITE_SECTION = "data.sqlite.";
+
+    /**
+     * Default number of reader connections.
+     */
+    private static final int DEFAULT_READER_POOL_SIZE = 4;
+
+    /**
+     * Default page cache size per connection in KiB.
+     */
+    private static final int DEFAULT_CACHE_SIZE_KB = 8192;
+
+    /**
+     * Default memory map size per connection in MiB.
+     */
+    private static final int DEFAULT_MMAP_SIZE_MB = 64;
+
+    /**
+     * Default time in milliseconds a connection waits for a database lock.
+     */
+    private static final int DEFAULT_BUSY_TIMEOUT_MS = 5000;
+
     /**
      * The {@link WrappedLogger} instance.
      */
     private final WrappedLogger log;
 
+    /**
+     * The configuration containing the SQLite settings.
+     */
+    private final Configuration config;
+
     /**
      * The file path to the SQLite database.
      */
@@ -36,28 +73,35 @@ public class SQLite implements LoriTimeConnectionProvider {
     private final ReadWriteLock stateLock;
 
     /**
-     * The current state of the database connection.
+     * Pool of reader connections.
+     */
+    private HikariDataSource readers;
+
+    /**
+     * Pool holding the single writer connection.
      */
-    private boolean isOpen;
+    private HikariDataSource writer;
 
     /**
      * Constructs a new SQLite database connection provider.
      *
      * @param log          the logger instance used for logging operations
+     * @param config       the configuration containing the SQLite settings
      * @param databasePath the file path to the SQLite database
      */
-    public SQLite(final WrappedLogger log, final String databasePath) {
+    public SQLite(final WrappedLogger log, final Configuration config, final String databasePath) {
         this.log = log;
+        this.config = config;
         this.databasePath = databasePath + "/" + DEFAULT_DATABASE_NAME;
         this.stateLock = new ReentrantReadWriteLock();
-        this.isOpen = false;
     }
 
     @Override
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
     public void open() {
         stateLock.writeLock().lock();
         try {
-            if (isOpen) {
+            if (writer != null) {
                 log.error("The SQLite connection is already open!");
                 return;
             }
@@ -76,11 +120,18 @@ public class SQLite implements LoriTimeConnectionProvider {
                 return;
             }
 
-            try (Connection ignored = DriverManager.getConnection("jdbc:sqlite:" + databasePath)) {
-                this.isOpen = true;
-                log.info("Connected to SQLite database at " + databasePath);
-            } catch (final SQLException ex) {
+            final Properties pragmas = pragmas();
+            final int readerPoolSize = positiveOrDefault(config.getInt(SQLITE_SECTION + "readerPoolSize",
+                    DEFAULT_READER_POOL_SIZE), DEFAULT_READER_POOL_SIZE);
+            final String jdbcUrl = "jdbc:sqlite:" + databasePath;
+            try {
+                this.writer = HikariDataSourceFactory.createSqlite(jdbcUrl, "LoriTime-SQLiteWriter", 1, pragmas);
+                this.readers = HikariDataSourceFactory.createSqlite(jdbcUrl, "LoriTime-SQLiteReader", readerPoolSize, pragmas);
+                log.info("Connected to SQLite database at " + databasePath + " (" + readerPoolSize
+                        + " reader connections, 1 writer connection)");
+            } catch (final RuntimeException ex) {
                 log.error("Could not connect to the SQLite database!", ex);
+                closePools();
             }
         } finally {
             stateLock.writeLock().unlock();
@@ -89,29 +140,19 @@ public class SQLite implements LoriTimeConnectionProvider {
 
     @Override
     public Connection getConnection() {
-        stateLock.readLock().lock();
-        try {
-            if (!isOpen) {
-                log.error("The SQLite connection is not open!");
-                return null;
-            }
+        return borrow(false);
+    }
 
-            try {
-                return DriverManager.getConnection("jdbc:sqlite:" + databasePath);
-            } catch (final SQLException e) {
-                log.error("Failed to get database connection", e);
-                return null;
-            }
-        } finally {
-            stateLock.readLock().unlock();
-        }
+    @Override
+    public Connection getWriteConnection() {
+        return borrow(true);
     }
 
     @Override
     public boolean isClosed() {
         stateLock.readLock().lock();
         try {
-            return !isOpen;
+            return writer == null;
         } finally {
             stateLock.readLock().unlock();
         }
@@ -121,14 +162,62 @@ public class SQLite implements LoriTimeConnectionProvider {
     public void close() {
         stateLock.writeLock().lock();
         try {
-            if (!isOpen) {
+            if (writer == null) {
                 log.error("Could not disconnect from the SQLite database, as it already was closed.");
                 return;
             }
 
-            this.isOpen = false;
+            closePools();
         } finally {
             stateLock.writeLock().unlock();
         }
     }
+
+    private Connection borrow(final boolean write) {
+        stateLock.readLock().lock();
+        try {
+            if (writer == null) {
+                log.error("The SQLite connection is not open!");
+                return null;
+            }
+
+            try {
+                return write ? writer.getConnection() : readers.getConnection();
+            } catch (final SQLException e) {
+                log.error("Failed to get database connection", e);
+                return null;
+            }
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    private Properties pragmas() {
+        final SQLiteConfig sqliteConfig = new SQLiteConfig();
+        sqliteConfig.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        sqliteConfig.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+        // Negative values are interpreted by SQLite as KiB instead of pages.
+        sqliteConfig.setCacheSize(-positiveOrDefault(config.getInt(SQLITE_SECTION + "cacheSizeKb", DEFAULT_CACHE_SIZE_KB),
+                DEFAULT_CACHE_SIZE_KB));
+        sqliteConfig.setBusyTimeout(positiveOrDefault(config.getInt(SQLITE_SECTION + "busyTimeoutMs", DEFAULT_BUSY_TIMEOUT_MS),
+                DEFAULT_BUSY_TIMEOUT_MS));
+        final long mmapSizeMb = Math.max(0, config.getInt(SQLITE_SECTION + "mmapSizeMb", DEFAULT_MMAP_SIZE_MB));
+        sqliteConfig.setPragma(SQLiteConfig.Pragma.MMAP_SIZE, String.valueOf(mmapSizeMb * 1024L * 1024L));
+        return sqliteConfig.toProperties();
+    }
+
+    private int positiveOrDefault(final int value, final int defaultValue) {
+        return value > 0 ? value : defaultValue;
+    }
+
+    private void closePools() {
+        if (readers != null) {
+            readers.close();
+            readers = null;
+        }
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
 }
@@ -6,17 +6,24 @@ import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
-import java.time.format.DateTimeParseException;
 
 /**
- * Reads timestamp values across JDBC drivers and SQLite text/numeric storage.
+ * Reads timestamp values across JDBC drivers and SQLite epoch millisecond storage.
  */
-final class DatabaseInstantReader {
+public final class DatabaseInstantReader {
 
     private DatabaseInstantReader() {
     }
 
-    /* default */ static Instant readInstant(final ResultSet result, final String column) throws SQLException {
+    /**
+     * Reads a timestamp column.
+     *
+     * @param result result set positioned on a row
+     * @param column column name
+     * @return the timestamp
+     * @throws SQLException if the column cannot be read or holds an unsupported value
+     */
+    public static Instant readInstant(final ResultSet result, final String column) throws SQLException {
         final Object value = result.getObject(column);
         if (value instanceof Timestamp timestamp) {
             return timestamp.toInstant();
@@ -27,27 +34,6 @@ final class DatabaseInstantReader {
         if (value instanceof LocalDateTime localDateTime) {
             return localDateTime.toInstant(ZoneOffset.UTC);
         }
-        if (value instanceof String text) {
-            return readInstant(text);
-        }
         throw new SQLException("Unsupported timestamp value for column " + column + ": " + value);
     }
-
-    private static Instant readInstant(final String text) throws SQLException {
-        try {
-            return Instant.ofEpochMilli(Long.parseLong(text));
-        } catch (NumberFormatException ignored) {
-            // Continue with timestamp formats below.
-        }
-        try {
-            return Timestamp.valueOf(text).toInstant();
-        } catch (IllegalArgumentException ignored) {
-            // Continue with ISO-8601 parsing below.
-        }
-        try {
-            return Instant.parse(text);
-        } catch (DateTimeParseException exception) {
-            throw new SQLException("Unsupported timestamp value: " + text, exception);
-        }
-    }
 }
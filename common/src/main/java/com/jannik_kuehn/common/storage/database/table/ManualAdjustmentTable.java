@@ -5,11 +5,9 @@ import com.jannik_kuehn.common.utils.UuidUtil;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.OptionalLong;
 
 /**
@@ -27,11 +25,6 @@ public final class ManualAdjustmentTable {
      */
     private final PlayerTable playerTable;
 
-    /**
-     * Aggregate query helper for manual adjustments.
-     */
-    private final ManualAdjustmentSumTable sumTable;
-
     /**
      * Creates a manual adjustment table helper.
      *
@@ -41,7 +34,6 @@ public final class ManualAdjustmentTable {
     public ManualAdjustmentTable(final String tableName, final PlayerTable playerTable) {
         this.tableName = tableName;
         this.playerTable = playerTable;
-        this.sumTable = new ManualAdjustmentSumTable(tableName);
     }
 
     /**
@@ -98,51 +90,18 @@ public final class ManualAdjustmentTable {
         }
     }
 
-    /**
-     * Returns aggregate query helper for adjustment totals.
-     *
-     * @return adjustment sum helper
-     */
-    public ManualAdjustmentSumTable sums() {
-        return sumTable;
-    }
-
-    /**
-     * Returns all adjustment totals by player UUID string.
-     *
-     * @param connection database connection
-     * @return totals map
-     * @throws SQLException if the query fails
-     */
-    public Map<String, Long> getAllTotals(final Connection connection) throws SQLException {
-        final Map<String, Long> totals = new HashMap<>();
-        final String sql = "SELECT p.uuid AS uuid, SUM(a.`amount_seconds`) AS total "
-                + "FROM `" + tableName + "` a "
-                + "JOIN `" + playerTable + "` p ON p.id = a.player_id "
-                + "GROUP BY p.uuid";
-        try (PreparedStatement select = connection.prepareStatement(sql);
-             ResultSet result = select.executeQuery()) {
-            while (result.next()) {
-                totals.put(UuidUtil.fromBytes(result.getBytes("uuid")).toString(), result.getLong("total"));
-            }
-        }
-        return totals;
-    }
-
     /**
      * Deletes adjustment history for players inactive before the cutoff expression.
      *
      * @param connection database connection
      * @param cutoffSql  SQL timestamp cutoff expression
+     * @param playerIds  candidate player ids
      * @return deleted rows
      * @throws SQLException if delete fails
      */
-    public int deleteInactiveHistory(final Connection connection, final String cutoffSql) throws SQLException {
-        try (PreparedStatement delete = connection.prepareStatement(
-                "DELETE FROM `" + tableName + "` WHERE `player_id` IN ("
-                        + "SELECT `id` FROM `" + playerTable + "` WHERE `last_seen` IS NOT NULL AND `last_seen` < " + cutoffSql + ")")) {
-            return delete.executeUpdate();
-        }
+    public int deleteInactiveHistory(final Connection connection, final String cutoffSql,
+                                     final List<Long> playerIds) throws SQLException {
+        return playerTable.deleteInactiveHistory(connection, tableName, cutoffSql, playerIds);
     }
 
     /**
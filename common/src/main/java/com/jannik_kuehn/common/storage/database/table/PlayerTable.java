@@ -1,5 +1,6 @@
 package com.jannik_kuehn.common.storage.database.table;
 
+import com.jannik_kuehn.common.storage.database.DatabaseDialect;
 import com.jannik_kuehn.common.storage.model.RecentPlayerIdentity;
 import com.jannik_kuehn.common.utils.UuidUtil;
 
@@ -11,10 +12,14 @@ import java.sql.Statement;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.time.Instant;
-import java.time.format.DateTimeParseException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -25,18 +30,119 @@ import java.util.UUID;
 @SuppressWarnings("PMD.TooManyMethods")
 public class PlayerTable {
 
+    /**
+     * Maximum number of UUIDs bound to one id lookup.
+     */
+    private static final int ID_LOOKUP_CHUNK_SIZE = 500;
+
     /**
      * The table name.
      */
     private final String tableName;
 
+    /**
+     * The database dialect used for the player upsert.
+     */
+    private final DatabaseDialect dialect;
+
+    /**
+     * Prepared SQL reading a player id by UUID.
+     */
+    private final String findIdByUuidSql;
+
+    /**
+     * Prepared SQL reading a player id by name.
+     */
+    private final String findIdByNameSql;
+
+    /**
+     * Prepared SQL reading a player UUID by name.
+     */
+    private final String findUuidByNameSql;
+
+    /**
+     * Prepared SQL reading a player name by UUID.
+     */
+    private final String findNameByUuidSql;
+
+    /**
+     * Prepared SQL prefix reading player ids by UUID, completed by the UUID placeholders and a closing parenthesis.
+     */
+    private final String findIdsByUuidPrefixSql;
+
+    /**
+     * Prepared SQL reading one player id by UUID in the batch lookup.
+     */
+    private final String findIdsByUuidSingleSql;
+
+    /**
+     * Prepared SQL reading a full chunk of player ids by UUID.
+     */
+    private final String findIdsByUuidChunkSql;
+
+    /**
+     * Prepared SQL releasing a name taken by another player.
+     */
+    private final String releaseNameSql;
+
+    /**
+     * Prepared SQL releasing a name taken by a player other than the given id.
+     */
+    private final String releaseNameByIdSql;
+
+    /**
+     * Prepared SQL refreshing the name and last seen timestamp of one player.
+     */
+    private final String updateNameSql;
+
+    /**
+     * Prepared SQL upserting one player and returning its id.
+     */
+    private final String upsertPlayerSql;
+
+    /**
+     * Prepared SQL upserting a batch of players.
+     */
+    private final String upsertPlayersSql;
+
     /**
      * Constructs a new instance of PlayerTable with the specified table name and SQL dialect.
      *
      * @param tableName the name of the table to be managed
+     * @param dialect   the database dialect
      */
-    public PlayerTable(final String tableName) {
+    public PlayerTable(final String tableName, final DatabaseDialect dialect) {
         this.tableName = tableName;
+        this.dialect = dialect;
+        this.findIdByUuidSql = "SELECT `id` FROM `" + tableName + "` WHERE `uuid` = ?";
+        this.findIdByNameSql = "SELECT `id` FROM `" + tableName + "` WHERE `name` = ?";
+        this.findUuidByNameSql = "SELECT `uuid` FROM `" + tableName + "` WHERE `name` = ?";
+        this.findNameByUuidSql = "SELECT `name` FROM `" + tableName + "` WHERE `uuid` = ?";
+        this.findIdsByUuidPrefixSql = "SELECT `id`, `uuid` FROM `" + tableName + "` WHERE `uuid` IN (";
+        this.findIdsByUuidSingleSql = findIdsByUuidSql(1);
+        this.findIdsByUuidChunkSql = findIdsByUuidSql(ID_LOOKUP_CHUNK_SIZE);
+        this.releaseNameSql = "UPDATE `" + tableName + "` SET `name` = NULL WHERE `name` = ? AND `uuid` <> ?";
+        this.releaseNameByIdSql = "UPDATE `" + tableName + "` SET `name` = NULL WHERE `name` = ? AND `id` <> ?";
+        this.updateNameSql = "UPDATE `" + tableName + "` SET `name` = ?, `last_seen` = "
+                + dialect.currentTimestampExpression() + " WHERE `id` = ?";
+        final String insert = "INSERT INTO `" + tableName + "` (`uuid`, `name`, `last_seen`) VALUES (?, ?, ?) ";
+        this.upsertPlayerSql = switch (dialect) {
+            case MYSQL, MARIADB -> insert + "ON DUPLICATE KEY UPDATE `id` = LAST_INSERT_ID(`id`), "
+                    + "`last_seen` = IF(VALUES(`name`) IS NULL, `last_seen`, " + dialect.currentTimestampExpression() + "), "
+                    + "`name` = COALESCE(VALUES(`name`), `name`)";
+            case SQLITE -> insert + "ON CONFLICT(`uuid`) DO UPDATE SET "
+                    + "`last_seen` = CASE WHEN excluded.`name` IS NULL THEN `last_seen` "
+                    + "ELSE " + dialect.currentTimestampExpression() + " END, "
+                    + "`name` = COALESCE(excluded.`name`, `name`) RETURNING `id`";
+        };
+        this.upsertPlayersSql = switch (dialect) {
+            case MYSQL, MARIADB -> insert + "ON DUPLICATE KEY UPDATE "
+                    + "`last_seen` = IF(VALUES(`name`) IS NULL, `last_seen`, VALUES(`last_seen`)), "
+                    + "`name` = COALESCE(VALUES(`name`), `name`)";
+            case SQLITE -> insert + "ON CONFLICT(`uuid`) DO UPDATE SET "
+                    + "`last_seen` = CASE WHEN excluded.`name` IS NULL THEN `last_seen` ELSE excluded.`last_seen` END, "
+                    + "`name` = COALESCE(excluded.`name`, `name`)";
+        };
     }
 
     /**
@@ -64,8 +170,7 @@ public class PlayerTable {
      * @throws SQLException if an error occurs while accessing the database
      */
     public Optional<Long> findIdByUuid(final Connection connection, final UUID uuid) throws SQLException {
-        try (PreparedStatement select = connection.prepareStatement(
-                "SELECT `id` FROM `" + tableName + "` WHERE `uuid` = ?")) {
+        try (PreparedStatement select = connection.prepareStatement(findIdByUuidSql)) {
             select.setBytes(1, UuidUtil.toBytes(uuid));
             try (ResultSet result = select.executeQuery()) {
                 if (result.next()) {
@@ -84,8 +189,7 @@ public class PlayerTable {
      * @return an Optional containing the ID if found, or empty if not found
      */
     public Optional<Long> findIdByName(final Connection connection, final String name) throws SQLException {
-        try (PreparedStatement select = connection.prepareStatement(
-                "SELECT `id` FROM `" + tableName + "` WHERE `name` = ?")) {
+        try (PreparedStatement select = connection.prepareStatement(findIdByNameSql)) {
             select.setString(1, name);
             try (ResultSet result = select.executeQuery()) {
                 if (result.next()) {
@@ -105,8 +209,7 @@ public class PlayerTable {
      * @throws SQLException if a database access error occurs
      */
     public Optional<UUID> findUuidByName(final Connection connection, final String name) throws SQLException {
-        try (PreparedStatement select = connection.prepareStatement(
-                "SELECT `uuid` FROM `" + tableName + "` WHERE `name` = ?")) {
+        try (PreparedStatement select = connection.prepareStatement(findUuidByNameSql)) {
             select.setString(1, name);
             try (ResultSet result = select.executeQuery()) {
                 if (result.next()) {
@@ -125,8 +228,7 @@ public class PlayerTable {
      * @return an Optional containing the name if found, or
      */
     public Optional<String> findNameByUuid(final Connection connection, final UUID uuid) throws SQLException {
-        try (PreparedStatement select = connection.prepareStatement(
-                "SELECT `name` FROM `" + tableName + "` WHERE `uuid` = ?")) {
+        try (PreparedStatement select = connection.prepareStatement(findNameByUuidSql)) {
             select.setBytes(1, UuidUtil.toBytes(uuid));
             try (ResultSet result = select.executeQuery()) {
                 if (result.next()) {
@@ -157,6 +259,50 @@ public class PlayerTable {
         return names;
     }
 
+    /**
+     * Reads the ids of the most recently seen players.
+     *
+     * @param connection the database connection
+     * @param limit      maximum number of players to read
+     * @return player ids keyed by UUID, most recently seen first
+     * @throws SQLException if a database access error occurs
+     */
+    public Map<UUID, Long> getRecentIds(final Connection connection, final int limit) throws SQLException {
+        final Map<UUID, Long> ids = new LinkedHashMap<>();
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT `id`, `uuid` FROM `" + tableName + "` WHERE `last_seen` IS NOT NULL "
+                        + "ORDER BY `last_seen` DESC LIMIT ?")) {
+            select.setInt(1, limit);
+            try (ResultSet result = select.executeQuery()) {
+                while (result.next()) {
+                    ids.put(UuidUtil.fromBytes(result.getBytes("uuid")), result.getLong("id"));
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Refreshes the name and last seen timestamp of a known player.
+     * A different player holding the same name loses it.
+     *
+     * @param connection the database connection
+     * @param playerId   the player id
+     * @param name       the latest player name
+     * @throws SQLException if a database access error occurs
+     */
+    public void updateName(final Connection connection, final long playerId, final String name) throws SQLException {
+        inTransaction(connection, () -> {
+            try (PreparedStatement release = connection.prepareStatement(releaseNameByIdSql)) {
+                release.setString(1, name);
+                release.setLong(2, playerId);
+                release.executeUpdate();
+            }
+            updatePlayerName(connection, playerId, name);
+            return playerId;
+        });
+    }
+
     /**
      * Retrieves player identities observed inside a recent window.
      *
@@ -189,33 +335,20 @@ public class PlayerTable {
         if (value instanceof final Number number) {
             return Optional.of(Instant.ofEpochMilli(number.longValue()));
         }
-        if (value instanceof final String text && !text.isBlank()) {
-            try {
-                return Optional.of(Instant.parse(text));
-            } catch (final DateTimeParseException ignored) {
-                return parseSqlTimestamp(text);
-            }
+        if (value instanceof final LocalDateTime localDateTime) {
+            return Optional.of(localDateTime.toInstant(ZoneOffset.UTC));
         }
         return Optional.empty();
     }
 
-    private Optional<Instant> parseSqlTimestamp(final String text) {
-        try {
-            return Optional.of(Timestamp.valueOf(text).toInstant());
-        } catch (final IllegalArgumentException ex) {
-            try {
-                return Optional.of(Instant.ofEpochMilli(Long.parseLong(text)));
-            } catch (final NumberFormatException ignored) {
-                return Optional.empty();
-            }
-        }
-    }
-
     /**
      * Ensures that a player with the specified UUID exists in the database. If the player exists,
      * their name and last seen timestamp are updated only when a name is provided. If the player
      * does not exist, they are inserted into the database with the provided UUID and optional name.
      *
+     * <p>A provided name is released from its previous holder first. Together with the dialect specific
+     * upsert this needs at most two statements, which run in one transaction.</p>
+     *
      * @param connection the database connection to use for the operation
      * @param uuid       the unique identifier of the player
      * @param name       an Optional containing the name of the player, if available
@@ -223,38 +356,62 @@ public class PlayerTable {
      * @throws SQLException if a database access error occurs during the operation
      */
     public long ensurePlayer(final Connection connection, final UUID uuid, final Optional<String> name) throws SQLException {
-        final Optional<Long> existingId = findIdByUuid(connection, uuid);
-        if (existingId.isPresent()) {
-            if (name.isPresent()) {
-                releaseTakenName(connection, name.get(), uuid);
-                updatePlayerName(connection, existingId.get(), name.get());
-            }
-            return existingId.get();
+        if (name.isEmpty()) {
+            return upsertPlayer(connection, uuid, name);
         }
-
-        if (name.isPresent()) {
+        return inTransaction(connection, () -> {
             releaseTakenName(connection, name.get(), uuid);
-        }
+            return upsertPlayer(connection, uuid, name);
+        });
+    }
 
-        try (PreparedStatement insert = connection.prepareStatement(
-                "INSERT INTO `" + tableName + "` (`uuid`, `name`, `last_seen`) VALUES (?, ?, ?)",
-                Statement.RETURN_GENERATED_KEYS)) {
-            insert.setBytes(1, UuidUtil.toBytes(uuid));
-            if (name.isPresent()) {
-                insert.setString(2, name.get());
-                insert.setTimestamp(3, Timestamp.from(Instant.now()));
-            } else {
-                insert.setNull(2, Types.VARCHAR);
-                insert.setNull(3, Types.TIMESTAMP);
+    /**
+     * Ensures that many players exist with the same name and last seen rules as
+     * {@link #ensurePlayer(Connection, UUID, Optional)}. Taken names are released, players are upserted and their ids
+     * are read back with one batch or query per step instead of one round trip per player.
+     *
+     * <p>The caller is responsible for running this inside a transaction.</p>
+     *
+     * @param connection the database connection to use for the operation
+     * @param players    the players with their optional names
+     * @return the database ids by player UUID
+     * @throws SQLException if a database access error occurs during the operation
+     */
+    public Map<UUID, Long> ensurePlayers(final Connection connection, final Map<UUID, Optional<String>> players)
+            throws SQLException {
+        if (players.isEmpty()) {
+            return Map.of();
+        }
+        try (PreparedStatement release = connection.prepareStatement(releaseNameSql)) {
+            boolean hasNames = false;
+            for (final Map.Entry<UUID, Optional<String>> player : players.entrySet()) {
+                if (player.getValue().isPresent()) {
+                    release.setString(1, player.getValue().get());
+                    release.setBytes(2, UuidUtil.toBytes(player.getKey()));
+                    release.addBatch();
+                    hasNames = true;
+                }
+            }
+            if (hasNames) {
+                release.executeBatch();
             }
-            insert.executeUpdate();
-            try (ResultSet keys = insert.getGeneratedKeys()) {
-                if (keys.next()) {
-                    return keys.getLong(1);
+        }
+        final Timestamp now = Timestamp.from(Instant.now());
+        try (PreparedStatement upsert = connection.prepareStatement(upsertPlayersSql)) {
+            for (final Map.Entry<UUID, Optional<String>> player : players.entrySet()) {
+                upsert.setBytes(1, UuidUtil.toBytes(player.getKey()));
+                if (player.getValue().isPresent()) {
+                    upsert.setString(2, player.getValue().get());
+                    upsert.setTimestamp(3, now);
+                } else {
+                    upsert.setNull(2, Types.VARCHAR);
+                    upsert.setNull(3, Types.TIMESTAMP);
                 }
+                upsert.addBatch();
             }
+            upsert.executeBatch();
         }
-        throw new SQLException("Unable to insert player");
+        return findIdsByUuid(connection, players.keySet());
     }
 
     /**
@@ -273,19 +430,79 @@ public class PlayerTable {
     }
 
     /**
-     * Deletes history rows owned by players inactive before the cutoff expression.
+     * Finds player ids in id order.
+     *
+     * @param connection database connection
+     * @param afterId    only players with a greater id are returned
+     * @param limit      maximum number of ids
+     * @return player ids
+     * @throws SQLException if lookup fails
+     */
+    public List<Long> findIds(final Connection connection, final long afterId, final int limit) throws SQLException {
+        final List<Long> ids = new ArrayList<>();
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT `id` FROM `" + tableName + "` WHERE `id` > ? ORDER BY `id` LIMIT ?")) {
+            select.setLong(1, afterId);
+            select.setInt(2, limit);
+            try (ResultSet result = select.executeQuery()) {
+                while (result.next()) {
+                    ids.add(result.getLong("id"));
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Finds the ids of players inactive before the cutoff expression, in id order.
+     *
+     * @param connection database connection
+     * @param cutoffSql  SQL timestamp cutoff expression
+     * @param afterId    only players with a greater id are returned
+     * @param limit      maximum number of ids
+     * @return inactive player ids
+     * @throws SQLException if lookup fails
+     */
+    public List<Long> findInactiveIds(final Connection connection, final String cutoffSql, final long afterId,
+                                      final int limit) throws SQLException {
+        final List<Long> ids = new ArrayList<>();
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT `id` FROM `" + tableName + "` WHERE `last_seen` IS NOT NULL AND `last_seen` < " + cutoffSql
+                        + " AND `id` > ? ORDER BY `id` LIMIT ?")) {
+            select.setLong(1, afterId);
+            select.setInt(2, limit);
+            try (ResultSet result = select.executeQuery()) {
+                while (result.next()) {
+                    ids.add(result.getLong("id"));
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Deletes history rows owned by the given players if they are still inactive before the cutoff expression.
      *
      * @param connection       database connection
      * @param historyTableName history table name
      * @param cutoffSql        SQL timestamp cutoff expression
+     * @param playerIds        candidate player ids
      * @return deleted rows
      * @throws SQLException if delete fails
      */
-    public int deleteInactiveHistory(final Connection connection, final String historyTableName, final String cutoffSql)
-            throws SQLException {
+    public int deleteInactiveHistory(final Connection connection, final String historyTableName, final String cutoffSql,
+                                     final List<Long> playerIds) throws SQLException {
+        if (playerIds.isEmpty()) {
+            return 0;
+        }
         try (PreparedStatement delete = connection.prepareStatement(
                 "DELETE FROM `" + historyTableName + "` WHERE `player_id` IN ("
-                        + "SELECT `id` FROM `" + tableName + "` WHERE `last_seen` IS NOT NULL AND `last_seen` < " + cutoffSql + ")")) {
+                        + "SELECT `id` FROM `" + tableName + "` WHERE `id` IN ("
+                        + String.join(", ", Collections.nCopies(playerIds.size(), "?")) + ") "
+                        + "AND `last_seen` IS NOT NULL AND `last_seen` < " + cutoffSql + ")")) {
+            for (int i = 0; i < playerIds.size(); i++) {
+                delete.setLong(i + 1, playerIds.get(i));
+            }
             return delete.executeUpdate();
         }
     }
@@ -295,31 +512,110 @@ public class PlayerTable {
         return tableName;
     }
 
+    private Map<UUID, Long> findIdsByUuid(final Connection connection, final Set<UUID> uuids) throws SQLException {
+        final Map<UUID, Long> ids = new LinkedHashMap<>();
+        final List<UUID> pending = new ArrayList<>(uuids);
+        for (int from = 0; from < pending.size(); from += ID_LOOKUP_CHUNK_SIZE) {
+            final List<UUID> chunk = pending.subList(from, Math.min(from + ID_LOOKUP_CHUNK_SIZE, pending.size()));
+            final String sql = switch (chunk.size()) {
+                case 1 -> findIdsByUuidSingleSql;
+                case ID_LOOKUP_CHUNK_SIZE -> findIdsByUuidChunkSql;
+                default -> findIdsByUuidSql(chunk.size());
+            };
+            try (PreparedStatement select = connection.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    select.setBytes(i + 1, UuidUtil.toBytes(chunk.get(i)));
+                }
+                try (ResultSet result = select.executeQuery()) {
+                    while (result.next()) {
+                        ids.put(UuidUtil.fromBytes(result.getBytes("uuid")), result.getLong("id"));
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    private String findIdsByUuidSql(final int uuids) {
+        return findIdsByUuidPrefixSql + String.join(", ", Collections.nCopies(uuids, "?")) + ")";
+    }
+
     private void releaseTakenName(final Connection connection, final String name, final UUID owner) throws SQLException {
-        final Optional<Long> oldHolder = findIdByName(connection, name);
-        if (oldHolder.isEmpty()) {
-            return;
+        try (PreparedStatement release = connection.prepareStatement(releaseNameSql)) {
+            release.setString(1, name);
+            release.setBytes(2, UuidUtil.toBytes(owner));
+            release.executeUpdate();
         }
+    }
 
-        final Optional<Long> ownerId = findIdByUuid(connection, owner);
-        if (ownerId.isPresent() && ownerId.get().equals(oldHolder.get())) {
-            return;
+    private long upsertPlayer(final Connection connection, final UUID uuid, final Optional<String> name) throws SQLException {
+        try (PreparedStatement upsert = dialect == DatabaseDialect.SQLITE
+                ? connection.prepareStatement(upsertPlayerSql)
+                : connection.prepareStatement(upsertPlayerSql, Statement.RETURN_GENERATED_KEYS)) {
+            upsert.setBytes(1, UuidUtil.toBytes(uuid));
+            if (name.isPresent()) {
+                upsert.setString(2, name.get());
+                upsert.setTimestamp(3, Timestamp.from(Instant.now()));
+            } else {
+                upsert.setNull(2, Types.VARCHAR);
+                upsert.setNull(3, Types.TIMESTAMP);
+            }
+            if (dialect == DatabaseDialect.SQLITE) {
+                try (ResultSet result = upsert.executeQuery()) {
+                    if (result.next()) {
+                        return result.getLong(1);
+                    }
+                }
+            } else {
+                upsert.executeUpdate();
+                try (ResultSet keys = upsert.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        return keys.getLong(1);
+                    }
+                }
+            }
         }
+        // MySQL reports no key if the duplicate row was left unchanged.
+        return findIdByUuid(connection, uuid).orElseThrow(() -> new SQLException("Unable to insert player"));
+    }
 
-        try (PreparedStatement unsetName = connection.prepareStatement(
-                "UPDATE `" + tableName + "` SET `name` = NULL WHERE `id` = ?")) {
-            unsetName.setLong(1, oldHolder.get());
-            unsetName.executeUpdate();
+    private long inTransaction(final Connection connection, final PlayerStatement statement) throws SQLException {
+        if (!connection.getAutoCommit()) {
+            return statement.execute();
+        }
+        connection.setAutoCommit(false);
+        try {
+            final long result = statement.execute();
+            connection.commit();
+            return result;
+        } catch (final SQLException | RuntimeException ex) {
+            connection.rollback();
+            throw ex;
+        } finally {
+            connection.setAutoCommit(true);
         }
     }
 
     private void updatePlayerName(final Connection connection, final long playerId, final String name) throws SQLException {
-        try (PreparedStatement update = connection.prepareStatement(
-                "UPDATE `" + tableName + "` SET `name` = ?, `last_seen` = CURRENT_TIMESTAMP WHERE `id` = ?")) {
+        try (PreparedStatement update = connection.prepareStatement(updateNameSql)) {
             update.setString(1, name);
             update.setLong(2, playerId);
             update.executeUpdate();
         }
     }
 
+    /**
+     * Statement sequence that runs inside one transaction.
+     */
+    @FunctionalInterface
+    private interface PlayerStatement {
+
+        /**
+         * Executes the statements.
+         *
+         * @return the affected player id
+         * @throws SQLException if a database access error occurs
+         */
+        long execute() throws SQLException;
+    }
 }
@@ -0,0 +1,85 @@
+package com.jannik_kuehn.common.storage.database.table;
+
+import com.jannik_kuehn.common.api.storage.TimeScope;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects second deltas for materialized player totals within one write transaction.
+ *
+ * <p>Session seconds count toward the global, server and world total of the session world. Adjustment seconds
+ * count toward their own scope and every enclosing scope. Keys stay present with a zero delta, so a scope that
+ * received data gets a total row even if the data adds no seconds.</p>
+ */
+public final class PlayerTotalDeltas {
+
+    /**
+     * Deltas keyed by total key.
+     */
+    private final Map<PlayerTotalTable.Key, Long> deltas;
+
+    /**
+     * Creates an empty delta collection.
+     */
+    public PlayerTotalDeltas() {
+        this.deltas = new LinkedHashMap<>();
+    }
+
+    /**
+     * Adds the seconds of a session.
+     *
+     * @param playerId player id
+     * @param serverId server id of the session world
+     * @param worldId  session world id
+     * @param seconds  seconds to add, negative to remove
+     */
+    public void addSession(final long playerId, final long serverId, final long worldId, final long seconds) {
+        add(PlayerTotalTable.Key.global(playerId), seconds);
+        add(PlayerTotalTable.Key.server(playerId, serverId), seconds);
+        add(PlayerTotalTable.Key.world(playerId, serverId, worldId), seconds);
+    }
+
+    /**
+     * Adds the seconds of a manual adjustment.
+     *
+     * @param playerId  player id
+     * @param scopeType adjustment scope
+     * @param serverId  server id for server and world adjustments
+     * @param worldId   world id for world adjustments
+     * @param seconds   adjusted seconds
+     */
+    public void addAdjustment(final long playerId, final TimeScope.Type scopeType, final long serverId,
+                              final long worldId, final long seconds) {
+        add(PlayerTotalTable.Key.global(playerId), seconds);
+        if (scopeType != TimeScope.Type.GLOBAL) {
+            add(PlayerTotalTable.Key.server(playerId, serverId), seconds);
+        }
+        if (scopeType == TimeScope.Type.WORLD) {
+            add(PlayerTotalTable.Key.world(playerId, serverId, worldId), seconds);
+        }
+    }
+
+    /**
+     * Returns whether no delta was collected.
+     *
+     * @return {@code true} if empty
+     */
+    public boolean isEmpty() {
+        return deltas.isEmpty();
+    }
+
+    /**
+     * Returns the collected deltas.
+     *
+     * @return unmodifiable deltas keyed by total key
+     */
+    public Map<PlayerTotalTable.Key, Long> asMap() {
+        return Collections.unmodifiableMap(deltas);
+    }
+
+    private void add(final PlayerTotalTable.Key key, final long seconds) {
+        deltas.merge(key, seconds, Long::sum);
+    }
+}
@@ -0,0 +1,314 @@
+package com.jannik_kuehn.common.storage.database.table;
+
+import com.jannik_kuehn.common.api.storage.TimeScope;
+import com.jannik_kuehn.common.storage.database.DatabaseDialect;
+import com.jannik_kuehn.common.storage.database.SqlDialect;
+import com.jannik_kuehn.common.utils.UuidUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Table helper for materialized per-player totals.
+ *
+ * <p>Each row holds the summed session and adjustment seconds of one player in one scope. Server and world ids are
+ * {@code 0} for scopes that do not reference them. The rows are kept up to date incrementally by the session and
+ * adjustment writes and can be recomputed from history with {@link #rebuild(Connection)}.</p>
+ */
+public final class PlayerTotalTable {
+
+    /**
+     * Suffix used by the materialized total table.
+     */
+    private static final String TOTAL_SUFFIX = "_player_total";
+
+    /**
+     * Id used for scope references that do not apply.
+     */
+    private static final long NO_REFERENCE = 0L;
+
+    /**
+     * The table name.
+     */
+    private final String tableName;
+
+    /**
+     * The player table helper.
+     */
+    private final PlayerTable playerTable;
+
+    /**
+     * The database dialect.
+     */
+    private final DatabaseDialect dialect;
+
+    /**
+     * Prepared SQL adding seconds to one total, creating the row if missing.
+     */
+    private final String addDeltaSql;
+
+    /**
+     * Prepared SQL deleting the totals of a player id range.
+     */
+    private final String deletePlayerRangeSql;
+
+    /**
+     * Prepared SQL recomputing the totals of a player id range from history.
+     */
+    private final String rebuildPlayerRangeSql;
+
+    /**
+     * Creates a player total table helper.
+     *
+     * @param tableName   total table name
+     * @param playerTable player table helper
+     * @param dialect     database dialect
+     */
+    public PlayerTotalTable(final String tableName, final PlayerTable playerTable, final DatabaseDialect dialect) {
+        this.tableName = tableName;
+        this.playerTable = playerTable;
+        this.dialect = dialect;
+        final String insert = "INSERT INTO `" + tableName + "` "
+                + "(`player_id`, `scope_type`, `server_id`, `world_id`, `total_seconds`) VALUES (?, ?, ?, ?, ?) ";
+        this.deletePlayerRangeSql = "DELETE FROM `" + tableName + "` WHERE `player_id` > ? AND `player_id` <= ?";
+        this.rebuildPlayerRangeSql = rebuildQuery(tablePrefix(), dialect, true);
+        this.addDeltaSql = switch (dialect) {
+            case MYSQL, MARIADB -> insert + "ON DUPLICATE KEY UPDATE `total_seconds` = `total_seconds` + VALUES(`total_seconds`)";
+            case SQLITE -> insert + "ON CONFLICT(`player_id`, `scope_type`, `server_id`, `world_id`) "
+                    + "DO UPDATE SET `total_seconds` = `total_seconds` + excluded.`total_seconds`";
+        };
+    }
+
+    /**
+     * Builds the query that fills an empty total table from session and adjustment history.
+     *
+     * @param tablePrefix table prefix
+     * @param dialect     SQL dialect used for session durations
+     * @return insert query
+     */
+    public static String rebuildQuery(final String tablePrefix, final SqlDialect dialect) {
+        return rebuildQuery(tablePrefix, dialect, false);
+    }
+
+    private static String rebuildQuery(final String tablePrefix, final SqlDialect dialect, final boolean playerRange) {
+        final String time = "`" + tablePrefix + "_time` t ";
+        final String adjustment = "`" + tablePrefix + "_time_adjustment` a ";
+        final String world = "`" + tablePrefix + "_world` w ";
+        final String duration = dialect.durationSecondsExpression("t.`join_time`", "t.`leave_time`");
+        final String timeRange = playerRange ? "WHERE t.`player_id` > ? AND t.`player_id` <= ? " : "";
+        final String adjustmentRange = playerRange ? " AND a.`player_id` > ? AND a.`player_id` <= ?" : "";
+        return "INSERT INTO `" + tablePrefix + TOTAL_SUFFIX + "` "
+                + "(`player_id`, `scope_type`, `server_id`, `world_id`, `total_seconds`) "
+                + "SELECT c.`player_id`, c.`scope_type`, c.`server_id`, c.`world_id`, SUM(c.`seconds`) FROM ("
+                + "SELECT t.`player_id` AS `player_id`, 'GLOBAL' AS `scope_type`, 0 AS `server_id`, 0 AS `world_id`, "
+                + duration + " AS `seconds` FROM " + time + timeRange
+                + "UNION ALL SELECT t.`player_id`, 'SERVER', w.`server_id`, 0, " + duration + " FROM " + time
+                + "JOIN " + world + "ON w.`id` = t.`world_id` " + timeRange
+                + "UNION ALL SELECT t.`player_id`, 'WORLD', w.`server_id`, t.`world_id`, " + duration + " FROM " + time
+                + "JOIN " + world + "ON w.`id` = t.`world_id` " + timeRange
+                + "UNION ALL SELECT a.`player_id`, 'GLOBAL', 0, 0, a.`amount_seconds` FROM " + adjustment
+                + (playerRange ? "WHERE a.`player_id` > ? AND a.`player_id` <= ? " : "")
+                + "UNION ALL SELECT a.`player_id`, 'SERVER', "
+                + "CASE WHEN a.`scope_type` = 'SERVER' THEN a.`server_id` ELSE w.`server_id` END, 0, a.`amount_seconds` "
+                + "FROM " + adjustment + "LEFT JOIN " + world + "ON w.`id` = a.`world_id` "
+                + "WHERE ((a.`scope_type` = 'SERVER' AND a.`server_id` IS NOT NULL) "
+                + "OR (a.`scope_type` = 'WORLD' AND w.`server_id` IS NOT NULL))" + adjustmentRange + " "
+                + "UNION ALL SELECT a.`player_id`, 'WORLD', w.`server_id`, a.`world_id`, a.`amount_seconds` "
+                + "FROM " + adjustment + "JOIN " + world + "ON w.`id` = a.`world_id` "
+                + "WHERE a.`scope_type` = 'WORLD'" + adjustmentRange
+                + ") c GROUP BY c.`player_id`, c.`scope_type`, c.`server_id`, c.`world_id`";
+    }
+
+    /**
+     * Returns the global totals of all players keyed by UUID string.
+     *
+     * @param connection database connection
+     * @return totals map
+     * @throws SQLException if the query fails
+     */
+    public Map<String, Long> getAllGlobalTotals(final Connection connection) throws SQLException {
+        final Map<String, Long> totals = new HashMap<>();
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT p.`uuid` AS uuid, pt.`total_seconds` AS total FROM `" + tableName + "` pt "
+                        + "JOIN `" + playerTable + "` p ON p.`id` = pt.`player_id` "
+                        + "WHERE pt.`scope_type` = 'GLOBAL'");
+             ResultSet result = select.executeQuery()) {
+            while (result.next()) {
+                totals.put(UuidUtil.fromBytes(result.getBytes("uuid")).toString(), result.getLong("total"));
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Adds the collected deltas to the materialized totals as one JDBC batch. Missing rows are created.
+     *
+     * @param connection database connection
+     * @param deltas     deltas to apply
+     * @throws SQLException if the update fails
+     */
+    public void addDeltas(final Connection connection, final PlayerTotalDeltas deltas) throws SQLException {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement upsert = connection.prepareStatement(addDeltaSql)) {
+            for (final Map.Entry<Key, Long> delta : deltas.asMap().entrySet()) {
+                bindKey(upsert, delta.getKey(), 1);
+                upsert.setLong(5, delta.getValue());
+                upsert.addBatch();
+            }
+            upsert.executeBatch();
+        }
+    }
+
+    /**
+     * Recomputes all totals from session and adjustment history.
+     *
+     * @param connection database connection
+     * @return number of total rows written
+     * @throws SQLException if the rebuild fails
+     */
+    public int rebuild(final Connection connection) throws SQLException {
+        try (PreparedStatement delete = connection.prepareStatement("DELETE FROM `" + tableName + "`")) {
+            delete.executeUpdate();
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                rebuildQuery(tablePrefix(), dialect))) {
+            return insert.executeUpdate();
+        }
+    }
+
+    /**
+     * Recomputes the totals of the players with an id in the given range from session and adjustment history, so a
+     * full rebuild can be split into short transactions of player chunks.
+     *
+     * @param connection    database connection
+     * @param afterPlayerId players with a greater id are recomputed
+     * @param lastPlayerId  players up to and including this id are recomputed
+     * @return number of total rows written
+     * @throws SQLException if the rebuild fails
+     */
+    public int rebuildPlayers(final Connection connection, final long afterPlayerId, final long lastPlayerId)
+            throws SQLException {
+        try (PreparedStatement delete = connection.prepareStatement(deletePlayerRangeSql)) {
+            delete.setLong(1, afterPlayerId);
+            delete.setLong(2, lastPlayerId);
+            delete.executeUpdate();
+        }
+        try (PreparedStatement insert = connection.prepareStatement(rebuildPlayerRangeSql)) {
+            for (int index = 1; index < 12; index += 2) {
+                insert.setLong(index, afterPlayerId);
+                insert.setLong(index + 1, lastPlayerId);
+            }
+            return insert.executeUpdate();
+        }
+    }
+
+    /**
+     * Deletes totals of players inactive before the cutoff expression.
+     *
+     * @param connection database connection
+     * @param cutoffSql  SQL timestamp cutoff expression
+     * @param playerIds  candidate player ids
+     * @return deleted rows
+     * @throws SQLException if delete fails
+     */
+    public int deleteInactiveHistory(final Connection connection, final String cutoffSql,
+                                     final List<Long> playerIds) throws SQLException {
+        return playerTable.deleteInactiveHistory(connection, tableName, cutoffSql, playerIds);
+    }
+
+    /**
+     * Deletes all totals of one player.
+     *
+     * @param connection database connection
+     * @param playerId   player id
+     * @return deleted rows
+     * @throws SQLException if delete fails
+     */
+    public int deleteForPlayer(final Connection connection, final long playerId) throws SQLException {
+        try (PreparedStatement delete = connection.prepareStatement(
+                "DELETE FROM `" + tableName + "` WHERE `player_id` = ?")) {
+            delete.setLong(1, playerId);
+            return delete.executeUpdate();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return tableName;
+    }
+
+    private String tablePrefix() {
+        return tableName.substring(0, tableName.length() - TOTAL_SUFFIX.length());
+    }
+
+    private void bindKey(final PreparedStatement statement, final Key key, final int firstIndex) throws SQLException {
+        statement.setLong(firstIndex, key.playerId());
+        statement.setString(firstIndex + 1, key.scopeType().name());
+        statement.setLong(firstIndex + 2, key.serverId());
+        statement.setLong(firstIndex + 3, key.worldId());
+    }
+
+    /**
+     * Primary key of one materialized total.
+     *
+     * @param playerId  player id
+     * @param scopeType scope type
+     * @param serverId  server id, or {@code 0} for the global scope
+     * @param worldId   world id, or {@code 0} for the global and server scopes
+     */
+    public record Key(long playerId, TimeScope.Type scopeType, long serverId, long worldId) {
+
+        /**
+         * Creates a total key.
+         *
+         * @param playerId  player id
+         * @param scopeType scope type
+         * @param serverId  server id, or {@code 0} for the global scope
+         * @param worldId   world id, or {@code 0} for the global and server scopes
+         */
+        public Key {
+            Objects.requireNonNull(scopeType);
+        }
+
+        /**
+         * Creates the key of a global total.
+         *
+         * @param playerId player id
+         * @return total key
+         */
+        public static Key global(final long playerId) {
+            return new Key(playerId, TimeScope.Type.GLOBAL, NO_REFERENCE, NO_REFERENCE);
+        }
+
+        /**
+         * Creates the key of a server total.
+         *
+         * @param playerId player id
+         * @param serverId server id
+         * @return total key
+         */
+        public static Key server(final long playerId, final long serverId) {
+            return new Key(playerId, TimeScope.Type.SERVER, serverId, NO_REFERENCE);
+        }
+
+        /**
+         * Creates the key of a world total.
+         *
+         * @param playerId player id
+         * @param serverId server id of the world
+         * @param worldId  world id
+         * @return total key
+         */
+        public static Key world(final long playerId, final long serverId, final long worldId) {
+            return new Key(playerId, TimeScope.Type.WORLD, serverId, worldId);
+        }
+    }
+}
@@ -5,7 +5,9 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -98,6 +100,25 @@ public class ServerTable {
         return servers;
     }
 
+    /**
+     * Reads all server ids keyed by server name.
+     *
+     * @param connection database connection
+     * @return server ids keyed by server name
+     * @throws SQLException if lookup fails
+     */
+    public Map<String, Long> getAllIds(final Connection connection) throws SQLException {
+        final Map<String, Long> ids = new HashMap<>();
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT `id`, `server` FROM `" + tableName + "`");
+             ResultSet result = select.executeQuery()) {
+            while (result.next()) {
+                ids.put(result.getString("server"), result.getLong("id"));
+            }
+        }
+        return ids;
+    }
+
     @Override
     public String toString() {
         return tableName;
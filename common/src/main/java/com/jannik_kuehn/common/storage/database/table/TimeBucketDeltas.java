@@ -0,0 +1,90 @@
+package com.jannik_kuehn.common.storage.database.table;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects second deltas for daily time buckets within one write transaction.
+ *
+ * <p>Sessions are split at UTC midnight. Each day receives the overlap of the session with that day in whole
+ * seconds, truncated like the ranged session sums, so a bucket matches the ranged session sum of the same day.</p>
+ */
+public final class TimeBucketDeltas {
+
+    /**
+     * Deltas keyed by bucket key.
+     */
+    private final Map<TimeBucketTable.Key, Long> deltas;
+
+    /**
+     * Creates an empty delta collection.
+     */
+    public TimeBucketDeltas() {
+        this.deltas = new LinkedHashMap<>();
+    }
+
+    /**
+     * Adds the seconds of a session to every day it overlaps.
+     *
+     * @param playerId player id
+     * @param worldId  session world id
+     * @param joinMs   join timestamp in epoch milliseconds
+     * @param leaveMs  leave timestamp in epoch milliseconds
+     */
+    public void addSession(final long playerId, final long worldId, final long joinMs, final long leaveMs) {
+        apply(playerId, worldId, joinMs, leaveMs, 1L);
+    }
+
+    /**
+     * Removes the seconds of a session from every day it overlaps.
+     *
+     * @param playerId player id
+     * @param worldId  session world id
+     * @param joinMs   join timestamp in epoch milliseconds
+     * @param leaveMs  leave timestamp in epoch milliseconds
+     */
+    public void removeSession(final long playerId, final long worldId, final long joinMs, final long leaveMs) {
+        apply(playerId, worldId, joinMs, leaveMs, -1L);
+    }
+
+    /**
+     * Returns whether no delta was collected.
+     *
+     * @return {@code true} if empty
+     */
+    public boolean isEmpty() {
+        return deltas.isEmpty();
+    }
+
+    /**
+     * Returns the number of collected bucket deltas.
+     *
+     * @return delta count
+     */
+    public int size() {
+        return deltas.size();
+    }
+
+    /**
+     * Returns the collected deltas.
+     *
+     * @return unmodifiable deltas keyed by bucket key
+     */
+    public Map<TimeBucketTable.Key, Long> asMap() {
+        return Collections.unmodifiableMap(deltas);
+    }
+
+    private void apply(final long playerId, final long worldId, final long joinMs, final long leaveMs, final long sign) {
+        if (leaveMs <= joinMs) {
+            return;
+        }
+        for (long day = Math.floorDiv(joinMs, TimeBucketTable.MILLIS_PER_DAY); TimeBucketTable.dayStartMs(day) < leaveMs; day++) {
+            final long seconds = (Math.min(leaveMs, TimeBucketTable.dayStartMs(day + 1))
+                    - Math.max(joinMs, TimeBucketTable.dayStartMs(day))) / 1000L;
+            if (seconds != 0L) {
+                deltas.merge(new TimeBucketTable.Key(playerId, worldId, day), sign * seconds, Long::sum);
+            }
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.jannik_kuehn.common.storage.database.table;
+
+import com.jannik_kuehn.common.storage.database.DatabaseDialect;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+
+/**
+ * Table helper for daily session time buckets.
+ *
+ * <p>Each row holds the session seconds of one player in one world on one UTC day, stored as epoch day. The rows
+ * are kept up to date incrementally by the session writes and can be recomputed from history with
+ * {@link #rebuild(Connection)}. Ranged lookups sum whole days from this table and only read raw sessions for the
+ * partial days at the range edges.</p>
+ *
+ * <p>After upgrading an existing database, the buckets are filled from history chunk by chunk of players. The last
+ * filled player id is kept in a checkpoint table, so an interrupted backfill continues after a restart.</p>
+ */
+public final class TimeBucketTable {
+
+    /**
+     * Length of one bucket day in milliseconds.
+     */
+    public static final long MILLIS_PER_DAY = 86_400_000L;
+
+    /**
+     * Suffix used by the daily bucket table.
+     */
+    private static final String BUCKET_SUFFIX = "_time_bucket";
+
+    /**
+     * Id of the single backfill checkpoint row.
+     */
+    private static final int BACKFILL_CHECKPOINT_ID = 1;
+
+    /**
+     * Number of sessions read per rebuild chunk.
+     */
+    private static final int REBUILD_CHUNK_SIZE = 1000;
+
+    /**
+     * The table name.
+     */
+    private final String tableName;
+
+    /**
+     * The player table helper.
+     */
+    private final PlayerTable playerTable;
+
+    /**
+     * Prepared SQL adding seconds to one daily bucket, creating the row if missing.
+     */
+    private final String addDeltaSql;
+
+    /**
+     * Creates a daily time bucket table helper.
+     *
+     * @param tableName   bucket table name
+     * @param playerTable player table helper
+     * @param dialect     database dialect
+     */
+    public TimeBucketTable(final String tableName, final PlayerTable playerTable, final DatabaseDialect dialect) {
+        this.tableName = tableName;
+        this.playerTable = playerTable;
+        final String insert = "INSERT INTO `" + tableName + "` (`player_id`, `world_id`, `day`, `seconds`) VALUES (?, ?, ?, ?) ";
+        this.addDeltaSql = switch (dialect) {
+            case MYSQL, MARIADB -> insert + "ON DUPLICATE KEY UPDATE `seconds` = `seconds` + VALUES(`seconds`)";
+            case SQLITE -> insert + "ON CONFLICT(`player_id`, `day`, `world_id`) "
+                    + "DO UPDATE SET `seconds` = `seconds` + excluded.`seconds`";
+        };
+    }
+
+    /**
+     * Returns the start of an epoch day.
+     *
+     * @param day epoch day
+     * @return day start in epoch milliseconds
+     */
+    public static long dayStartMs(final long day) {
+        return day * MILLIS_PER_DAY;
+    }
+
+    /**
+     * Adds the collected deltas to the daily buckets as one JDBC batch. Missing rows are created.
+     *
+     * @param connection database connection
+     * @param deltas     deltas to apply
+     * @throws SQLException if the update fails
+     */
+    public void addDeltas(final Connection connection, final TimeBucketDeltas deltas) throws SQLException {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement upsert = connection.prepareStatement(addDeltaSql)) {
+            for (final Map.Entry<Key, Long> delta : deltas.asMap().entrySet()) {
+                upsert.setLong(1, delta.getKey().playerId());
+                upsert.setLong(2, delta.getKey().worldId());
+                upsert.setLong(3, delta.getKey().day());
+                upsert.setLong(4, delta.getValue());
+                upsert.addBatch();
+            }
+            upsert.executeBatch();
+        }
+    }
+
+    /**
+     * Returns whether the buckets still have to be filled from history. A backfill starts if the buckets are empty
+     * while session history exists, which is the case right after the bucket table was created on an existing
+     * database. The checkpoint of a started backfill is created by this call.
+     *
+     * @param connection database connection
+     * @return {@code true} if the buckets must be filled from history
+     * @throws SQLException if the query fails
+     */
+    public boolean startBackfill(final Connection connection) throws SQLException {
+        if (backfillCheckpoint(connection).isPresent()) {
+            return true;
+        }
+        if (hasRows(connection, tableName) || !hasRows(connection, timeTableName())) {
+            return false;
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO `" + backfillTableName() + "` (`id`, `last_player_id`) VALUES (?, 0)")) {
+            insert.setInt(1, BACKFILL_CHECKPOINT_ID);
+            insert.executeUpdate();
+        }
+        return true;
+    }
+
+    /**
+     * Returns the last player id whose buckets were filled by the running backfill.
+     *
+     * @param connection database connection
+     * @return last filled player id, or empty if no backfill is running
+     * @throws SQLException if the query fails
+     */
+    public OptionalLong backfillCheckpoint(final Connection connection) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT `last_player_id` FROM `" + backfillTableName() + "` WHERE `id` = ?")) {
+            select.setInt(1, BACKFILL_CHECKPOINT_ID);
+            try (ResultSet result = select.executeQuery()) {
+                return result.next() ? OptionalLong.of(result.getLong("last_player_id")) : OptionalLong.empty();
+            }
+        }
+    }
+
+    /**
+     * Recomputes the buckets of a chunk of players from their sessions and moves the backfill checkpoint behind
+     * them. Existing buckets of the players are replaced, so a chunk can be filled again after an interruption.
+     *
+     * @param connection database connection
+     * @param playerIds  player ids in id order
+     * @param deltas     collects the recomputed buckets, applied by the caller
+     * @return number of sessions read
+     * @throws SQLException if the backfill fails
+     */
+    public int backfillPlayers(final Connection connection, final List<Long> playerIds, final TimeBucketDeltas deltas)
+            throws SQLException {
+        final int sessions = rebuildPlayers(connection, playerIds, deltas);
+        try (PreparedStatement update = connection.prepareStatement(
+                "UPDATE `" + backfillTableName() + "` SET `last_player_id` = ? WHERE `id` = ?")) {
+            update.setLong(1, playerIds.get(playerIds.size() - 1));
+            update.setInt(2, BACKFILL_CHECKPOINT_ID);
+            update.executeUpdate();
+        }
+        return sessions;
+    }
+
+    /**
+     * Deletes the buckets of a chunk of players and collects the buckets recomputed from their sessions.
+     *
+     * @param connection database connection
+     * @param playerIds  player ids
+     * @param deltas     collects the recomputed buckets, applied by the caller
+     * @return number of sessions read
+     * @throws SQLException if the buckets cannot be deleted or the sessions cannot be read
+     */
+    public int rebuildPlayers(final Connection connection, final List<Long> playerIds, final TimeBucketDeltas deltas)
+            throws SQLException {
+        final String ids = String.join(", ", Collections.nCopies(playerIds.size(), "?"));
+        try (PreparedStatement delete = connection.prepareStatement(
+                "DELETE FROM `" + tableName + "` WHERE `player_id` IN (" + ids + ")")) {
+            bindIds(delete, playerIds);
+            delete.executeUpdate();
+        }
+        int sessions = 0;
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT `player_id`, `world_id`, `join_time`, `leave_time` FROM `" + timeTableName() + "` "
+                        + "WHERE `player_id` IN (" + ids + ")")) {
+            bindIds(select, playerIds);
+            try (ResultSet result = select.executeQuery()) {
+                while (result.next()) {
+                    deltas.addSession(result.getLong("player_id"), result.getLong("world_id"),
+                            DatabaseInstantReader.readInstant(result, "join_time").toEpochMilli(),
+                            DatabaseInstantReader.readInstant(result, "leave_time").toEpochMilli());
+                    sessions++;
+                }
+            }
+        }
+        return sessions;
+    }
+
+    /**
+     * Removes the backfill checkpoint once all players were filled.
+     *
+     * @param connection database connection
+     * @throws SQLException if the delete fails
+     */
+    public void finishBackfill(final Connection connection) throws SQLException {
+        try (PreparedStatement delete = connection.prepareStatement(
+                "DELETE FROM `" + backfillTableName() + "` WHERE `id` = ?")) {
+            delete.setInt(1, BACKFILL_CHECKPOINT_ID);
+            delete.executeUpdate();
+        }
+    }
+
+    /**
+     * Recomputes all buckets from session history. Sessions are read in id order in chunks, so the history does
+     * not have to fit into memory.
+     *
+     * @param connection database connection
+     * @return number of sessions read
+     * @throws SQLException if the rebuild fails
+     */
+    public int rebuild(final Connection connection) throws SQLException {
+        try (PreparedStatement delete = connection.prepareStatement("DELETE FROM `" + tableName + "`")) {
+            delete.executeUpdate();
+        }
+        int sessions = 0;
+        long lastId = 0L;
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT `id`, `player_id`, `world_id`, `join_time`, `leave_time` FROM `" + timeTableName() + "` "
+                        + "WHERE `id` > ? ORDER BY `id` LIMIT " + REBUILD_CHUNK_SIZE)) {
+            int read;
+            do {
+                read = 0;
+                final TimeBucketDeltas deltas = new TimeBucketDeltas();
+                select.setLong(1, lastId);
+                try (ResultSet result = select.executeQuery()) {
+                    while (result.next()) {
+                        lastId = result.getLong("id");
+                        deltas.addSession(result.getLong("player_id"), result.getLong("world_id"),
+                                DatabaseInstantReader.readInstant(result, "join_time").toEpochMilli(),
+                                DatabaseInstantReader.readInstant(result, "leave_time").toEpochMilli());
+                        read++;
+                    }
+                }
+                addDeltas(connection, deltas);
+                sessions += read;
+            } while (read == REBUILD_CHUNK_SIZE);
+        }
+        return sessions;
+    }
+
+    /**
+     * Deletes buckets of players inactive before the cutoff expression.
+     *
+     * @param connection database connection
+     * @param cutoffSql  SQL timestamp cutoff expression
+     * @param playerIds  candidate player ids
+     * @return deleted rows
+     * @throws SQLException if delete fails
+     */
+    public int deleteInactiveHistory(final Connection connection, final String cutoffSql,
+                                     final List<Long> playerIds) throws SQLException {
+        return playerTable.deleteInactiveHistory(connection, tableName, cutoffSql, playerIds);
+    }
+
+    /**
+     * Deletes all buckets of one player.
+     *
+     * @param connection database connection
+     * @param playerId   player id
+     * @return deleted rows
+     * @throws SQLException if delete fails
+     */
+    public int deleteForPlayer(final Connection connection, final long playerId) throws SQLException {
+        try (PreparedStatement delete = connection.prepareStatement(
+                "DELETE FROM `" + tableName + "` WHERE `player_id` = ?")) {
+            delete.setLong(1, playerId);
+            return delete.executeUpdate();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return tableName;
+    }
+
+    private boolean hasRows(final Connection connection, final String table) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement("SELECT 1 FROM `" + table + "` LIMIT 1");
+             ResultSet result = select.executeQuery()) {
+            return result.next();
+        }
+    }
+
+    private String timeTableName() {
+        return tableName.replace(BUCKET_SUFFIX, "_time");
+    }
+
+    private String backfillTableName() {
+        return tableName + "_backfill";
+    }
+
+    private static void bindIds(final PreparedStatement statement, final List<Long> ids) throws SQLException {
+        for (int i = 0; i < ids.size(); i++) {
+            statement.setLong(i + 1, ids.get(i));
+        }
+    }
+
+    /**
+     * Primary key of one daily bucket.
+     *
+     * @param playerId player id
+     * @param worldId  world id
+     * @param day      epoch day in UTC
+     */
+    public record Key(long playerId, long worldId, long day) {
+    }
+}
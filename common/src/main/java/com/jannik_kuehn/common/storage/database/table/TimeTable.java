@@ -1,9 +1,7 @@
 package com.jannik_kuehn.common.storage.database.table;
 
-import com.jannik_kuehn.common.api.storage.TimeRange;
 import com.jannik_kuehn.common.storage.database.SqlDialect;
 import com.jannik_kuehn.common.storage.model.TimeEntryReason;
-import com.jannik_kuehn.common.utils.UuidUtil;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -11,14 +9,17 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
-import java.time.Clock;
 import java.time.Instant;
-import java.util.EnumSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.OptionalLong;
-import java.util.UUID;
+import java.util.Optional;
 
 /**
  * Table helper for time entries.
@@ -36,135 +37,131 @@ public final class TimeTable {
     private static final String WORLD_SUFFIX = "_world";
 
     /**
-     * Suffix used by the normalized server table.
+     * Shared SQL join for world-scoped time queries.
      */
-    private static final String SERVER_SUFFIX = "_server";
+    private static final String WORLD_TIME_JOIN = "` w ON w.id = t.world_id ";
 
     /**
-     * SQL alias for the session join timestamp.
+     * Shared SQL FROM fragment for the session table.
      */
-    private static final String JOIN_TIME = "t.join_time";
+    private static final String FROM_TIME = "FROM `";
 
     /**
-     * SQL alias for the session leave timestamp.
+     * Shared SQL session table alias fragment.
      */
-    private static final String LEAVE_TIME = "t.leave_time";
+    private static final String TIME_TABLE_ALIAS = "` t ";
 
     /**
-     * Shared SQL join for world-scoped time queries.
+     * Shared SQL JOIN fragment.
      */
-    private static final String WORLD_TIME_JOIN = "` w ON w.id = t.world_id ";
+    private static final String JOIN_TABLE = "JOIN `";
 
     /**
-     * Shared SQL join for server-scoped time queries.
+     * Id of the single compaction watermark row.
      */
-    private static final String SERVER_TIME_JOIN = "` s ON s.id = w.server_id ";
+    private static final int COMPACTION_ROW_ID = 1;
 
     /**
-     * Minimum overlap required for a ranged row to count as data.
+     * Maximum number of session ids bound to one lookup query.
      */
-    private static final long MINIMUM_OVERLAP_SECONDS = 0L;
+    private static final int SESSION_LOOKUP_CHUNK_SIZE = 500;
 
     /**
-     * Shared SQL total alias fragment.
+     * The table name.
      */
-    private static final String TOTAL_ALIAS = ") AS total ";
+    private final String tableName;
 
     /**
-     * Shared SQL FROM fragment for the session table.
+     * The player table name.
      */
-    private static final String FROM_TIME = "FROM `";
+    private final PlayerTable playerTable;
 
     /**
-     * Shared SQL session table alias fragment.
+     * Prepared SQL inserting one session.
      */
-    private static final String TIME_TABLE_ALIAS = "` t ";
+    private final String insertSessionSql;
 
     /**
-     * Shared SQL JOIN fragment.
+     * Prepared SQL closing one session.
      */
-    private static final String JOIN_TABLE = "JOIN `";
+    private final String updateSessionSql;
 
     /**
-     * Shared SQL player join fragment.
+     * Prepared SQL moving one session to another world.
      */
-    private static final String PLAYER_JOIN = "` p ON p.id = t.player_id ";
+    private final String updateSessionWorldSql;
 
     /**
-     * The table name.
+     * Prepared SQL prefix reading stored sessions, completed by the id placeholders and a closing parenthesis.
      */
-    private final String tableName;
+    private final String findSessionsPrefixSql;
 
     /**
-     * The player table name.
+     * Prepared SQL reading one stored session.
      */
-    private final PlayerTable playerTable;
+    private final String findSessionSql;
 
     /**
-     * The {@link SqlDialect} instance.
+     * Prepared SQL reading a full chunk of stored sessions.
      */
-    private final SqlDialect dialect;
+    private final String findSessionChunkSql;
 
     /**
-     * Time source used for duration inserts.
+     * Prepared SQL reading the compaction watermark.
      */
-    private final Clock clock;
+    private final String selectCompactionSql;
 
     /**
-     * Default constructor.
-     *
-     * @param tableName   the table name
-     * @param playerTable the player table name
-     * @param dialect     the {@link SqlDialect} instance
+     * Prepared SQL creating the compaction watermark with a first run.
      */
-    public TimeTable(final String tableName, final PlayerTable playerTable, final SqlDialect dialect) {
-        this(tableName, playerTable, dialect, Clock.systemUTC());
-    }
+    private final String insertCompactionSql;
+
+    /**
+     * Prepared SQL starting a compaction run up to a new cutoff.
+     */
+    private final String startCompactionSql;
+
+    /**
+     * Prepared SQL moving the compaction checkpoint behind a chunk of players.
+     */
+    private final String advanceCompactionSql;
 
     /**
-     * Default constructor with a custom time source.
+     * Prepared SQL moving the watermark to the cutoff of a finished run.
+     */
+    private final String finishCompactionSql;
+
+    /**
+     * Default constructor.
      *
      * @param tableName   the table name
      * @param playerTable the player table name
      * @param dialect     the {@link SqlDialect} instance
-     * @param clock       time source used to create join/leave timestamps
      */
-    /* default */
-    public TimeTable(final String tableName,
-                     final PlayerTable playerTable,
-                     final SqlDialect dialect,
-                     final Clock clock) {
+    public TimeTable(final String tableName, final PlayerTable playerTable, final SqlDialect dialect) {
         this.tableName = tableName;
         this.playerTable = playerTable;
-        this.dialect = dialect;
-        this.clock = Objects.requireNonNull(clock);
-    }
-
-    /**
-     * Inserts or updates a player's session duration with the given reason.
-     *
-     * <p>Reasons {@link TimeEntryReason#PLAYER_LEAVE}, {@link TimeEntryReason#PLAYER_AFK},
-     * {@link TimeEntryReason#PLAYER_AFK_KICK}, {@link TimeEntryReason#AUTO_FLUSH} and
-     * {@link TimeEntryReason#SHUTDOWN_FLUSH} update the latest entry by setting the leave timestamp
-     * to the current moment and replacing the reason. Other reasons create a fresh entry.</p>
-     *
-     * @param connection      the database connection
-     * @param playerId        player id
-     * @param worldId         world id
-     * @param durationSeconds duration in seconds
-     * @param reason          reason for writing the entry
-     * @throws SQLException if persistence fails
-     */
-    public void insertDuration(final Connection connection,
-                               final long playerId,
-                               final long worldId,
-                               final long durationSeconds,
-                               final TimeEntryReason reason) throws SQLException {
-        Objects.requireNonNull(reason);
-        if (shouldUpdateLatest(reason) && updateLatestDuration(connection, playerId, worldId, reason)) {
-            return;
-        }
-        insertNewDuration(connection, playerId, worldId, durationSeconds, reason);
+        this.insertSessionSql = "INSERT INTO `" + tableName
+                + "` (`player_id`, `world_id`, `join_time`, `leave_time`, `reason`) VALUES (?, ?, ?, ?, ?)";
+        this.updateSessionSql = "UPDATE `" + tableName + "` SET `leave_time` = ?, `reason` = ? WHERE `id` = ?";
+        this.updateSessionWorldSql = "UPDATE `" + tableName + "` SET `world_id` = ? WHERE `id` = ?";
+        this.findSessionsPrefixSql = "SELECT t.id AS id, t.player_id AS player_id, t.world_id AS world_id, "
+                + "w.server_id AS server_id, t.join_time AS join_time, t.leave_time AS leave_time "
+                + FROM_TIME + tableName + TIME_TABLE_ALIAS
+                + JOIN_TABLE + tableName.replace(TIME_SUFFIX, WORLD_SUFFIX) + WORLD_TIME_JOIN
+                + "WHERE t.id IN (";
+        final String compactionTable = "`" + tableName + "_compaction`";
+        this.selectCompactionSql = "SELECT `compacted_before`, `target_before`, `last_player_id` FROM "
+                + compactionTable + " WHERE `id` = ?";
+        this.insertCompactionSql = "INSERT INTO " + compactionTable
+                + " (`id`, `compacted_before`, `target_before`, `last_player_id`) VALUES (?, 0, ?, 0)";
+        this.startCompactionSql = "UPDATE " + compactionTable + " SET `target_before` = ?, `last_player_id` = 0 "
+                + "WHERE `id` = ?";
+        this.advanceCompactionSql = "UPDATE " + compactionTable + " SET `last_player_id` = ? WHERE `id` = ?";
+        this.finishCompactionSql = "UPDATE " + compactionTable + " SET `compacted_before` = `target_before`, "
+                + "`last_player_id` = 0 WHERE `id` = ?";
+        this.findSessionSql = findSessionsSql(1);
+        this.findSessionChunkSql = findSessionsSql(SESSION_LOOKUP_CHUNK_SIZE);
     }
 
     /**
@@ -187,9 +184,7 @@ public final class TimeTable {
         Objects.requireNonNull(join);
         Objects.requireNonNull(leave);
         Objects.requireNonNull(reason);
-        try (PreparedStatement insert = connection.prepareStatement(
-                "INSERT INTO `" + tableName + "` (`player_id`, `world_id`, `join_time`, `leave_time`, `reason`) "
-                        + "VALUES (?, ?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+        try (PreparedStatement insert = connection.prepareStatement(insertSessionSql, Statement.RETURN_GENERATED_KEYS)) {
             insert.setLong(1, playerId);
             insert.setLong(2, worldId);
             insert.setTimestamp(3, Timestamp.from(join));
@@ -205,6 +200,33 @@ public final class TimeTable {
         throw new SQLException("Unable to insert session");
     }
 
+    /**
+     * Inserts closed sessions in one batch without reading back their ids.
+     *
+     * @param connection the database connection
+     * @param sessions   sessions to insert
+     * @param reason     persistence reason of all sessions
+     * @throws SQLException if persistence fails
+     */
+    public void insertSessions(final Connection connection, final List<StoredSession> sessions,
+                               final TimeEntryReason reason) throws SQLException {
+        Objects.requireNonNull(reason);
+        if (sessions.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement insert = connection.prepareStatement(insertSessionSql)) {
+            for (final StoredSession session : sessions) {
+                insert.setLong(1, session.playerId());
+                insert.setLong(2, session.worldId());
+                insert.setTimestamp(3, new Timestamp(session.joinMs()));
+                insert.setTimestamp(4, new Timestamp(session.leaveMs()));
+                insert.setString(5, reason.name());
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
     /**
      * Updates the leave timestamp and reason for an existing session row.
      *
@@ -220,8 +242,7 @@ public final class TimeTable {
                               final TimeEntryReason reason) throws SQLException {
         Objects.requireNonNull(leave);
         Objects.requireNonNull(reason);
-        try (PreparedStatement update = connection.prepareStatement(
-                "UPDATE `" + tableName + "` SET `leave_time` = ?, `reason` = ? WHERE `id` = ?")) {
+        try (PreparedStatement update = connection.prepareStatement(updateSessionSql)) {
             update.setTimestamp(1, Timestamp.from(leave));
             update.setString(2, reason.name());
             update.setLong(3, sessionId);
@@ -229,6 +250,32 @@ public final class TimeTable {
         }
     }
 
+    /**
+     * Updates the leave timestamp of multiple session rows with one shared reason as one JDBC batch.
+     *
+     * @param connection           database connection
+     * @param sessionIdToStoppedAt stop timestamps in epoch milliseconds keyed by session id
+     * @param reason               persistence reason
+     * @throws SQLException if the update fails
+     */
+    public void updateSessions(final Connection connection,
+                               final Map<Long, Long> sessionIdToStoppedAt,
+                               final TimeEntryReason reason) throws SQLException {
+        Objects.requireNonNull(reason);
+        if (sessionIdToStoppedAt.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement update = connection.prepareStatement(updateSessionSql)) {
+            for (final Map.Entry<Long, Long> entry : sessionIdToStoppedAt.entrySet()) {
+                update.setTimestamp(1, Timestamp.from(Instant.ofEpochMilli(entry.getValue())));
+                update.setString(2, reason.name());
+                update.setLong(3, entry.getKey());
+                update.addBatch();
+            }
+            update.executeBatch();
+        }
+    }
+
     /**
      * Updates the world context for an existing session row.
      *
@@ -240,8 +287,7 @@ public final class TimeTable {
     public void updateSessionWorld(final Connection connection,
                                    final long sessionId,
                                    final long worldId) throws SQLException {
-        try (PreparedStatement update = connection.prepareStatement(
-                "UPDATE `" + tableName + "` SET `world_id` = ? WHERE `id` = ?")) {
+        try (PreparedStatement update = connection.prepareStatement(updateSessionWorldSql)) {
             update.setLong(1, worldId);
             update.setLong(2, sessionId);
             update.executeUpdate();
@@ -249,186 +295,60 @@ public final class TimeTable {
     }
 
     /**
-     * Calculates the total session duration for a player by summing up the recorded
-     * duration in the database for the specified player UUID.
-     *
-     * @param connection the database connection to use for the query
-     * @param uuid       the unique identifier of the player whose total duration is to be calculated
-     * @return an {@code OptionalLong} containing the total session duration in seconds if present,
-     * or an empty {@code OptionalLong} if no data exists for the specified player
-     * @throws SQLException if an SQL error occurs during the query execution
-     */
-    public OptionalLong sumForPlayer(final Connection connection, final UUID uuid) throws SQLException {
-        final String durationExpression = dialect.durationSecondsExpression(JOIN_TIME, LEAVE_TIME);
-        final String sql = "SELECT SUM(" + durationExpression + TOTAL_ALIAS
-                + FROM_TIME + tableName + TIME_TABLE_ALIAS
-                + JOIN_TABLE + playerTable + PLAYER_JOIN
-                + "WHERE p.uuid = ?";
-        try (PreparedStatement select = connection.prepareStatement(sql)) {
-            select.setBytes(1, UuidUtil.toBytes(uuid));
-            try (ResultSet result = select.executeQuery()) {
-                if (result.next()) {
-                    final long value = result.getLong("total");
-                    if (!result.wasNull()) {
-                        return OptionalLong.of(value);
-                    }
-                }
-            }
-            return OptionalLong.empty();
-        }
-    }
-
-    /**
-     * Calculates the ranged total session duration for a player.
+     * Updates the world context for multiple session rows as one JDBC batch.
      *
-     * @param connection database connection
-     * @param uuid       player UUID
-     * @param range      time range
-     * @return optional duration sum
-     * @throws SQLException if lookup fails
+     * @param connection      database connection
+     * @param sessionWorldIds world ids keyed by session id
+     * @throws SQLException if the update fails
      */
-    public OptionalLong sumForPlayer(final Connection connection, final UUID uuid, final TimeRange range)
-            throws SQLException {
-        final String sql = "SELECT t.`join_time`, t.`leave_time` "
-                + FROM_TIME + tableName + TIME_TABLE_ALIAS
-                + JOIN_TABLE + playerTable + PLAYER_JOIN
-                + "WHERE p.uuid = ?";
-        try (PreparedStatement select = connection.prepareStatement(sql)) {
-            select.setBytes(1, UuidUtil.toBytes(uuid));
-            return optionalRangedTotal(select, range);
+    public void updateSessionWorlds(final Connection connection, final Map<Long, Long> sessionWorldIds) throws SQLException {
+        if (sessionWorldIds.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement update = connection.prepareStatement(updateSessionWorldSql)) {
+            for (final Map.Entry<Long, Long> entry : sessionWorldIds.entrySet()) {
+                update.setLong(1, entry.getValue());
+                update.setLong(2, entry.getKey());
+                update.addBatch();
+            }
+            update.executeBatch();
         }
     }
 
     /**
-     * Calculates the total session duration for a player on one server.
+     * Reads the player, world and timestamps of stored sessions.
      *
      * @param connection database connection
-     * @param uuid       player UUID
-     * @param server     server name
-     * @return optional duration sum
-     * @throws SQLException if lookup fails
+     * @param sessionIds session ids
+     * @return stored sessions keyed by session id, missing ids are omitted
+     * @throws SQLException if the query fails
      */
-    public OptionalLong sumForPlayerAndServer(final Connection connection, final UUID uuid, final String server)
+    public Map<Long, StoredSession> findSessions(final Connection connection, final Collection<Long> sessionIds)
             throws SQLException {
-        final String durationExpression = dialect.durationSecondsExpression(JOIN_TIME, LEAVE_TIME);
-        final String sql = "SELECT SUM(" + durationExpression + TOTAL_ALIAS
-                + FROM_TIME + tableName + TIME_TABLE_ALIAS
-                + JOIN_TABLE + playerTable + PLAYER_JOIN
-                + JOIN_TABLE + worldTableName() + WORLD_TIME_JOIN
-                + JOIN_TABLE + serverTableName() + SERVER_TIME_JOIN
-                + "WHERE p.uuid = ? AND s.server = ?";
-        try (PreparedStatement select = connection.prepareStatement(sql)) {
-            select.setBytes(1, UuidUtil.toBytes(uuid));
-            select.setString(2, server);
-            return optionalTotal(select);
-        }
-    }
-
-    /**
-     * Calculates the ranged total session duration for a player on one server.
-     *
-     * @param connection database connection
-     * @param uuid       player UUID
-     * @param server     server name
-     * @param range      time range
-     * @return optional duration sum
-     * @throws SQLException if lookup fails
-     */
-    public OptionalLong sumForPlayerAndServer(final Connection connection, final UUID uuid,
-                                              final String server, final TimeRange range) throws SQLException {
-        final String sql = "SELECT t.`join_time`, t.`leave_time` "
-                + FROM_TIME + tableName + TIME_TABLE_ALIAS
-                + JOIN_TABLE + playerTable + PLAYER_JOIN
-                + JOIN_TABLE + worldTableName() + WORLD_TIME_JOIN
-                + JOIN_TABLE + serverTableName() + SERVER_TIME_JOIN
-                + "WHERE p.uuid = ? AND s.server = ?";
-        try (PreparedStatement select = connection.prepareStatement(sql)) {
-            select.setBytes(1, UuidUtil.toBytes(uuid));
-            select.setString(2, server);
-            return optionalRangedTotal(select, range);
-        }
-    }
-
-    /**
-     * Calculates the total session duration for a player in one world.
-     *
-     * @param connection database connection
-     * @param uuid       player UUID
-     * @param server     server name
-     * @param world      world name
-     * @return optional duration sum
-     * @throws SQLException if lookup fails
-     */
-    public OptionalLong sumForPlayerAndWorld(final Connection connection, final UUID uuid,
-                                             final String server, final String world) throws SQLException {
-        final String durationExpression = dialect.durationSecondsExpression(JOIN_TIME, LEAVE_TIME);
-        final String sql = "SELECT SUM(" + durationExpression + TOTAL_ALIAS
-                + FROM_TIME + tableName + TIME_TABLE_ALIAS
-                + JOIN_TABLE + playerTable + PLAYER_JOIN
-                + JOIN_TABLE + worldTableName() + WORLD_TIME_JOIN
-                + JOIN_TABLE + serverTableName() + SERVER_TIME_JOIN
-                + "WHERE p.uuid = ? AND s.server = ? AND w.world = ?";
-        try (PreparedStatement select = connection.prepareStatement(sql)) {
-            select.setBytes(1, UuidUtil.toBytes(uuid));
-            select.setString(2, server);
-            select.setString(3, world);
-            return optionalTotal(select);
-        }
-    }
-
-    /**
-     * Calculates the ranged total session duration for a player in one world.
-     *
-     * @param connection database connection
-     * @param uuid       player UUID
-     * @param server     server name
-     * @param world      world name
-     * @param range      time range
-     * @return optional duration sum
-     * @throws SQLException if lookup fails
-     */
-    public OptionalLong sumForPlayerAndWorld(final Connection connection, final UUID uuid,
-                                             final String server, final String world,
-                                             final TimeRange range) throws SQLException {
-        final String sql = "SELECT t.`join_time`, t.`leave_time` "
-                + FROM_TIME + tableName + TIME_TABLE_ALIAS
-                + JOIN_TABLE + playerTable + PLAYER_JOIN
-                + JOIN_TABLE + worldTableName() + WORLD_TIME_JOIN
-                + JOIN_TABLE + serverTableName() + SERVER_TIME_JOIN
-                + "WHERE p.uuid = ? AND s.server = ? AND w.world = ?";
-        try (PreparedStatement select = connection.prepareStatement(sql)) {
-            select.setBytes(1, UuidUtil.toBytes(uuid));
-            select.setString(2, server);
-            select.setString(3, world);
-            return optionalRangedTotal(select, range);
-        }
-    }
-
-    /**
-     * Retrieves the total session duration for all players from the database.
-     * The session duration is calculated by summing up the differences between
-     * join and leave timestamps for each player.
-     *
-     * @param connection the database connection to use for executing the query
-     * @return a map where the keys are player UUIDs (as strings), and the values are
-     * the total session durations in seconds
-     * @throws SQLException if an SQL error occurs during the query execution
-     */
-    public Map<String, Long> getAllTotals(final Connection connection) throws SQLException {
-        final Map<String, Long> totals = new HashMap<>();
-        final String durationExpression = dialect.durationSecondsExpression(JOIN_TIME, LEAVE_TIME);
-        final String sql = "SELECT p.uuid AS uuid, SUM(" + durationExpression + TOTAL_ALIAS
-                + FROM_TIME + tableName + TIME_TABLE_ALIAS
-                + JOIN_TABLE + playerTable + PLAYER_JOIN
-                + "GROUP BY p.uuid";
-        try (PreparedStatement select = connection.prepareStatement(sql)) {
-            try (ResultSet result = select.executeQuery()) {
-                while (result.next()) {
-                    totals.put(UuidUtil.fromBytes(result.getBytes("uuid")).toString(), result.getLong("total"));
+        final Map<Long, StoredSession> sessions = new HashMap<>();
+        final List<Long> ids = new ArrayList<>(new LinkedHashSet<>(sessionIds));
+        for (int start = 0; start < ids.size(); start += SESSION_LOOKUP_CHUNK_SIZE) {
+            final List<Long> chunk = ids.subList(start, Math.min(ids.size(), start + SESSION_LOOKUP_CHUNK_SIZE));
+            final String sql = switch (chunk.size()) {
+                case 1 -> findSessionSql;
+                case SESSION_LOOKUP_CHUNK_SIZE -> findSessionChunkSql;
+                default -> findSessionsSql(chunk.size());
+            };
+            try (PreparedStatement select = connection.prepareStatement(sql)) {
+                for (int index = 0; index < chunk.size(); index++) {
+                    select.setLong(index + 1, chunk.get(index));
+                }
+                try (ResultSet result = select.executeQuery()) {
+                    while (result.next()) {
+                        final long joinMs = DatabaseInstantReader.readInstant(result, "join_time").toEpochMilli();
+                        final long leaveMs = DatabaseInstantReader.readInstant(result, "leave_time").toEpochMilli();
+                        sessions.put(result.getLong("id"), new StoredSession(result.getLong("player_id"),
+                                result.getLong("server_id"), result.getLong("world_id"), joinMs, leaveMs));
+                    }
                 }
             }
         }
-        return totals;
+        return sessions;
     }
 
     /**
@@ -436,11 +356,13 @@ public final class TimeTable {
      *
      * @param connection database connection
      * @param cutoffSql  SQL timestamp cutoff expression
+     * @param playerIds  candidate player ids
      * @return deleted rows
      * @throws SQLException if delete fails
      */
-    public int deleteInactiveHistory(final Connection connection, final String cutoffSql) throws SQLException {
-        return playerTable.deleteInactiveHistory(connection, tableName, cutoffSql);
+    public int deleteInactiveHistory(final Connection connection, final String cutoffSql,
+                                     final List<Long> playerIds) throws SQLException {
+        return playerTable.deleteInactiveHistory(connection, tableName, cutoffSql, playerIds);
     }
 
     /**
@@ -459,101 +381,226 @@ public final class TimeTable {
         }
     }
 
-    private boolean shouldUpdateLatest(final TimeEntryReason reason) {
-        return EnumSet.of(TimeEntryReason.PLAYER_LEAVE, TimeEntryReason.PLAYER_AFK,
-                        TimeEntryReason.PLAYER_AFK_KICK, TimeEntryReason.AUTO_FLUSH, TimeEntryReason.SHUTDOWN_FLUSH)
-                .contains(reason);
-    }
-
-    private void insertNewDuration(final Connection connection,
-                                   final long playerId,
-                                   final long worldId,
-                                   final long durationSeconds,
-                                   final TimeEntryReason reason) throws SQLException {
-        final Instant leave = Instant.now(clock);
-        final Instant join = leave.minusSeconds(durationSeconds);
-        try (PreparedStatement insert = connection.prepareStatement(
-                "INSERT INTO `" + tableName + "` (`player_id`, `world_id`, `join_time`, `leave_time`, `reason`) "
-                        + "VALUES (?, ?, ?, ?, ?)")) {
-            insert.setLong(1, playerId);
-            insert.setLong(2, worldId);
-            insert.setTimestamp(3, Timestamp.from(join));
-            insert.setTimestamp(4, Timestamp.from(leave));
-            insert.setString(5, reason.name());
-            insert.executeUpdate();
+    /**
+     * Starts a compaction run up to the given cutoff. Sessions that ended before the watermark of the last finished
+     * run were already compacted, so the run only covers sessions that ended between the watermark and the cutoff.
+     * An interrupted run keeps its cutoff and continues after its last compacted player.
+     *
+     * @param connection database connection
+     * @param beforeMs   cutoff of a new run in epoch milliseconds
+     * @return {@code true} if a run is in progress afterwards
+     * @throws SQLException if the watermark cannot be read or written
+     */
+    public boolean startCompaction(final Connection connection, final long beforeMs) throws SQLException {
+        final Optional<CompactionWindow> current = readCompaction(connection);
+        if (current.isEmpty()) {
+            try (PreparedStatement insert = connection.prepareStatement(insertCompactionSql)) {
+                insert.setInt(1, COMPACTION_ROW_ID);
+                insert.setLong(2, beforeMs);
+                insert.executeUpdate();
+            }
+            return beforeMs > 0L;
         }
-    }
-
-    private boolean updateLatestDuration(final Connection connection,
-                                         final long playerId,
-                                         final long worldId,
-                                         final TimeEntryReason reason) throws SQLException {
-        final Long entryId = findLatestEntryId(connection, playerId, worldId);
-        if (entryId == null) {
+        if (current.get().isRunning()) {
+            return true;
+        }
+        if (beforeMs <= current.get().fromMs()) {
             return false;
         }
-        try (PreparedStatement update = connection.prepareStatement(
-                "UPDATE `" + tableName + "` SET `leave_time` = ?, `reason` = ? WHERE `id` = ?")) {
-            update.setTimestamp(1, Timestamp.from(Instant.now(clock)));
-            update.setString(2, reason.name());
-            update.setLong(3, entryId);
-            return update.executeUpdate() > 0;
+        try (PreparedStatement update = connection.prepareStatement(startCompactionSql)) {
+            update.setLong(1, beforeMs);
+            update.setInt(2, COMPACTION_ROW_ID);
+            update.executeUpdate();
         }
+        return true;
     }
 
-    private Long findLatestEntryId(final Connection connection, final long playerId, final long worldId) throws SQLException {
+    /**
+     * Returns the window of the running compaction.
+     *
+     * @param connection database connection
+     * @return the running window, or empty if no compaction is running
+     * @throws SQLException if the watermark cannot be read
+     */
+    public Optional<CompactionWindow> compactionWindow(final Connection connection) throws SQLException {
+        return readCompaction(connection).filter(CompactionWindow::isRunning);
+    }
+
+    /**
+     * Merges the closed sessions of the given players that ended inside the compaction window into one row per
+     * player, world and UTC day, and moves the compaction checkpoint behind the players.
+     *
+     * <p>Only sessions that lie within a single day are merged. The merged row starts at the beginning of its day and
+     * lasts the sum of the whole seconds of the merged sessions, so the totals and the daily buckets stay exact and
+     * do not need to be updated. Days with a single session are left unchanged. The window bounds are day starts, so
+     * every day is covered by exactly one run.</p>
+     *
+     * @param connection database connection
+     * @param playerIds  player ids in id order
+     * @param window     the running compaction window
+     * @return number of removed rows
+     * @throws SQLException if the sessions cannot be read or written
+     */
+    public int compactSessions(final Connection connection, final List<Long> playerIds, final CompactionWindow window)
+            throws SQLException {
+        if (playerIds.isEmpty()) {
+            return 0;
+        }
+        final Map<TimeBucketTable.Key, CompactionGroup> groups = new LinkedHashMap<>();
         try (PreparedStatement select = connection.prepareStatement(
-                "SELECT `id` FROM `" + tableName + "` WHERE `player_id` = ? AND `world_id` = ? ORDER BY `leave_time` DESC, `id` DESC LIMIT 1")) {
-            select.setLong(1, playerId);
-            select.setLong(2, worldId);
+                "SELECT `id`, `player_id`, `world_id`, `join_time`, `leave_time` FROM `" + tableName + "` "
+                        + "WHERE `player_id` IN (" + String.join(", ", Collections.nCopies(playerIds.size(), "?"))
+                        + ") AND `leave_time` >= ? AND `leave_time` < ?")) {
+            for (int index = 0; index < playerIds.size(); index++) {
+                select.setLong(index + 1, playerIds.get(index));
+            }
+            select.setTimestamp(playerIds.size() + 1, new Timestamp(window.fromMs()));
+            select.setTimestamp(playerIds.size() + 2, new Timestamp(window.beforeMs()));
             try (ResultSet result = select.executeQuery()) {
-                if (result.next()) {
-                    return result.getLong("id");
+                while (result.next()) {
+                    final long joinMs = DatabaseInstantReader.readInstant(result, "join_time").toEpochMilli();
+                    final long leaveMs = DatabaseInstantReader.readInstant(result, "leave_time").toEpochMilli();
+                    final long day = Math.floorDiv(joinMs, TimeBucketTable.MILLIS_PER_DAY);
+                    if (leaveMs < joinMs || leaveMs > TimeBucketTable.dayStartMs(day + 1)) {
+                        continue;
+                    }
+                    groups.computeIfAbsent(new TimeBucketTable.Key(result.getLong("player_id"),
+                                    result.getLong("world_id"), day), key -> new CompactionGroup())
+                            .add(result.getLong("id"), (leaveMs - joinMs) / 1000L);
                 }
             }
         }
-        return null;
+        final List<Long> mergedIds = new ArrayList<>();
+        final List<StoredSession> compacted = new ArrayList<>();
+        for (final Map.Entry<TimeBucketTable.Key, CompactionGroup> entry : groups.entrySet()) {
+            final CompactionGroup group = entry.getValue();
+            if (group.sessionIds.size() < 2 || group.seconds * 1000L > TimeBucketTable.MILLIS_PER_DAY) {
+                continue;
+            }
+            final TimeBucketTable.Key key = entry.getKey();
+            final long dayStartMs = TimeBucketTable.dayStartMs(key.day());
+            mergedIds.addAll(group.sessionIds);
+            compacted.add(new StoredSession(key.playerId(), 0L, key.worldId(), dayStartMs,
+                    dayStartMs + group.seconds * 1000L));
+        }
+        deleteSessions(connection, mergedIds);
+        insertSessions(connection, compacted, TimeEntryReason.COMPACTED);
+        try (PreparedStatement update = connection.prepareStatement(advanceCompactionSql)) {
+            update.setLong(1, playerIds.get(playerIds.size() - 1));
+            update.setInt(2, COMPACTION_ROW_ID);
+            update.executeUpdate();
+        }
+        return mergedIds.size() - compacted.size();
     }
 
-    private OptionalLong optionalTotal(final PreparedStatement select) throws SQLException {
-        try (ResultSet result = select.executeQuery()) {
-            if (result.next()) {
-                final long value = result.getLong("total");
-                if (!result.wasNull()) {
-                    return OptionalLong.of(value);
-                }
-            }
+    /**
+     * Moves the compaction watermark to the cutoff of the running run once all players were compacted.
+     *
+     * @param connection database connection
+     * @throws SQLException if the watermark cannot be written
+     */
+    public void finishCompaction(final Connection connection) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement(finishCompactionSql)) {
+            update.setInt(1, COMPACTION_ROW_ID);
+            update.executeUpdate();
         }
-        return OptionalLong.empty();
     }
 
-    private OptionalLong optionalRangedTotal(final PreparedStatement select, final TimeRange range) throws SQLException {
-        long total = 0L;
-        boolean matched = false;
-        try (ResultSet result = select.executeQuery()) {
-            while (result.next()) {
-                final long overlap = range.overlapSeconds(
-                        DatabaseInstantReader.readInstant(result, "join_time").toEpochMilli(),
-                        DatabaseInstantReader.readInstant(result, "leave_time").toEpochMilli());
-                if (overlap > MINIMUM_OVERLAP_SECONDS) {
-                    total += overlap;
-                    matched = true;
+    private void deleteSessions(final Connection connection, final List<Long> sessionIds) throws SQLException {
+        for (int start = 0; start < sessionIds.size(); start += SESSION_LOOKUP_CHUNK_SIZE) {
+            final List<Long> chunk = sessionIds.subList(start, Math.min(sessionIds.size(),
+                    start + SESSION_LOOKUP_CHUNK_SIZE));
+            try (PreparedStatement delete = connection.prepareStatement(
+                    "DELETE FROM `" + tableName + "` WHERE `id` IN ("
+                            + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")")) {
+                for (int index = 0; index < chunk.size(); index++) {
+                    delete.setLong(index + 1, chunk.get(index));
                 }
+                delete.executeUpdate();
             }
         }
-        return matched ? OptionalLong.of(total) : OptionalLong.empty();
     }
 
-    private String worldTableName() {
-        return tableName.replace(TIME_SUFFIX, WORLD_SUFFIX);
+    private Optional<CompactionWindow> readCompaction(final Connection connection) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(selectCompactionSql)) {
+            select.setInt(1, COMPACTION_ROW_ID);
+            try (ResultSet result = select.executeQuery()) {
+                if (!result.next()) {
+                    return Optional.empty();
+                }
+                return Optional.of(new CompactionWindow(result.getLong("compacted_before"),
+                        result.getLong("target_before"), result.getLong("last_player_id")));
+            }
+        }
     }
 
-    private String serverTableName() {
-        return tableName.replace(TIME_SUFFIX, SERVER_SUFFIX);
+    private String findSessionsSql(final int ids) {
+        return findSessionsPrefixSql + String.join(", ", Collections.nCopies(ids, "?")) + ")";
     }
 
     @Override
     public String toString() {
         return tableName;
     }
+
+    /**
+     * Player, world and timestamps of one stored session.
+     *
+     * @param playerId player id
+     * @param serverId server id of the session world
+     * @param worldId  world id
+     * @param joinMs   join timestamp in epoch milliseconds
+     * @param leaveMs  leave timestamp in epoch milliseconds
+     */
+    public record StoredSession(long playerId, long serverId, long worldId, long joinMs, long leaveMs) {
+
+        /**
+         * Returns the session duration.
+         *
+         * @return session duration in whole seconds
+         */
+        public long durationSeconds() {
+            return (leaveMs - joinMs) / 1000L;
+        }
+    }
+
+    /**
+     * Window of one compaction run.
+     *
+     * @param fromMs       watermark of the last finished run, sessions that ended before it are already compacted
+     * @param beforeMs     cutoff of the run, sessions that ended at or after it are left unchanged
+     * @param lastPlayerId last player id compacted by the run
+     */
+    public record CompactionWindow(long fromMs, long beforeMs, long lastPlayerId) {
+
+        /**
+         * Returns whether the run still has sessions to compact.
+         *
+         * @return {@code true} if the cutoff lies after the watermark
+         */
+        public boolean isRunning() {
+            return beforeMs > fromMs;
+        }
+    }
+
+    /**
+     * Sessions of one player, world and day that are merged into one row.
+     */
+    private static final class CompactionGroup {
+
+        /**
+         * Ids of the merged sessions.
+         */
+        private final List<Long> sessionIds = new ArrayList<>();
+
+        /**
+         * Sum of the whole seconds of the merged sessions.
+         */
+        private long seconds;
+
+        private void add(final long sessionId, final long sessionSeconds) {
+            sessionIds.add(sessionId);
+            seconds += sessionSeconds;
+        }
+    }
 }
@@ -5,7 +5,9 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -115,6 +117,27 @@ public final class WorldTable {
         return worlds;
     }
 
+    /**
+     * Reads all world ids keyed by server name and world name.
+     *
+     * @param connection database connection
+     * @return world ids keyed by server name and world name
+     * @throws SQLException if lookup fails
+     */
+    public Map<String, Map<String, Long>> getAllIds(final Connection connection) throws SQLException {
+        final Map<String, Map<String, Long>> ids = new HashMap<>();
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT w.`id`, s.`server`, w.`world` FROM `" + tableName + "` w "
+                        + "JOIN `" + serverTable + "` s ON s.`id` = w.`server_id`");
+             ResultSet result = select.executeQuery()) {
+            while (result.next()) {
+                ids.computeIfAbsent(result.getString("server"), server -> new HashMap<>())
+                        .put(result.getString("world"), result.getLong("id"));
+            }
+        }
+        return ids;
+    }
+
     @Override
     public String toString() {
         return tableName;
@@ -0,0 +1,313 @@
+package com.jannik_kuehn.common.storage.leaderboard;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Ranked set of player times for a single scope.
+ *
+ * <p>Players are kept in a treap ordered by time descending and UUID descending, where every node also stores the
+ * size of its subtree. Changing a player's time removes and reinserts the same node, and rank and page lookups
+ * descend by subtree size, so updates and lookups take {@code O(log n)} without re-sorting.</p>
+ *
+ * <p>This class is not thread-safe.</p>
+ */
+final class LeaderboardIndex {
+
+    /**
+     * Nodes by player UUID.
+     */
+    private final Map<UUID, Node> nodes = new HashMap<>();
+
+    /**
+     * Source of the heap priorities that keep the tree balanced.
+     */
+    private final SplittableRandom priorities = new SplittableRandom();
+
+    /**
+     * Root of the tree, {@code null} while the index is empty.
+     */
+    private Node root;
+
+    /**
+     * Sum of the whole seconds of all players.
+     */
+    private long totalSeconds;
+
+    /**
+     * Creates an empty leaderboard index.
+     */
+    /* default */ LeaderboardIndex() {
+        // Empty
+    }
+
+    /**
+     * Adds time to a player, inserting the player if needed.
+     *
+     * @param uuid        player UUID
+     * @param deltaMillis signed time difference in milliseconds
+     */
+    /* default */ void add(final UUID uuid, final long deltaMillis) {
+        final Node node = nodes.get(uuid);
+        set(uuid, node == null ? deltaMillis : node.millis + deltaMillis);
+    }
+
+    /**
+     * Sets the time of a player, inserting the player if needed.
+     *
+     * @param uuid   player UUID
+     * @param millis time in milliseconds
+     */
+    /* default */ void set(final UUID uuid, final long millis) {
+        Node node = nodes.get(uuid);
+        if (node == null) {
+            node = new Node(uuid, priorities.nextInt());
+            nodes.put(uuid, node);
+        } else {
+            root = delete(root, node);
+            totalSeconds -= seconds(node.millis);
+        }
+        node.millis = millis;
+        node.left = null;
+        node.right = null;
+        node.size = 1;
+        root = insert(root, node);
+        totalSeconds += seconds(millis);
+    }
+
+    /**
+     * Removes a player.
+     *
+     * @param uuid player UUID
+     */
+    /* default */ void remove(final UUID uuid) {
+        final Node node = nodes.remove(uuid);
+        if (node != null) {
+            root = delete(root, node);
+            totalSeconds -= seconds(node.millis);
+        }
+    }
+
+    /**
+     * Returns the number of ranked players.
+     *
+     * @return player count
+     */
+    /* default */ int size() {
+        return size(root);
+    }
+
+    /**
+     * Returns the sum of the whole seconds of all players.
+     *
+     * @return total seconds
+     */
+    /* default */ long totalSeconds() {
+        return totalSeconds;
+    }
+
+    /**
+     * Returns the time of a player in whole seconds.
+     *
+     * @param uuid player UUID
+     * @return time in seconds, or empty if the player is not ranked
+     */
+    /* default */ OptionalLong seconds(final UUID uuid) {
+        final Node node = nodes.get(uuid);
+        return node == null ? OptionalLong.empty() : OptionalLong.of(seconds(node.millis));
+    }
+
+    /**
+     * Returns the one-based rank of a player.
+     *
+     * @param uuid player UUID
+     * @return rank, or empty if the player is not ranked
+     */
+    /* default */ OptionalInt rank(final UUID uuid) {
+        final Node target = nodes.get(uuid);
+        if (target == null) {
+            return OptionalInt.empty();
+        }
+        int before = 0;
+        Node current = root;
+        while (current != target) {
+            if (precedes(target, current)) {
+                current = current.left;
+            } else {
+                before += size(current.left) + 1;
+                current = current.right;
+            }
+        }
+        return OptionalInt.of(before + size(target.left) + 1);
+    }
+
+    /**
+     * Collects one page of ranked players in rank order.
+     *
+     * @param offset number of ranked players to skip
+     * @param limit  maximum number of players
+     * @param page   receives the player UUIDs and times in seconds
+     */
+    /* default */ void page(final int offset, final int limit, final List<Ranked> page) {
+        collect(root, offset, (int) Math.min((long) offset + limit, Integer.MAX_VALUE), 0, page);
+    }
+
+    private static void collect(final Node node, final int from, final int to, final int before, final List<Ranked> page) {
+        if (node == null || before >= to || before + node.size <= from) {
+            return;
+        }
+        final int index = before + size(node.left);
+        collect(node.left, from, to, before, page);
+        if (index >= from && index < to) {
+            page.add(new Ranked(node.uuid, seconds(node.millis)));
+        }
+        collect(node.right, from, to, index + 1, page);
+    }
+
+    private static Node insert(final Node parent, final Node node) {
+        if (parent == null) {
+            return node;
+        }
+        Node top = parent;
+        if (precedes(node, parent)) {
+            parent.left = insert(parent.left, node);
+            if (parent.left.priority > parent.priority) {
+                top = rotateRight(parent);
+            }
+        } else {
+            parent.right = insert(parent.right, node);
+            if (parent.right.priority > parent.priority) {
+                top = rotateLeft(parent);
+            }
+        }
+        update(top);
+        return top;
+    }
+
+    private static Node delete(final Node parent, final Node node) {
+        if (parent == node) {
+            return merge(parent.left, parent.right);
+        }
+        if (precedes(node, parent)) {
+            parent.left = delete(parent.left, node);
+        } else {
+            parent.right = delete(parent.right, node);
+        }
+        update(parent);
+        return parent;
+    }
+
+    private static Node merge(final Node left, final Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static Node rotateRight(final Node node) {
+        final Node top = node.left;
+        node.left = top.right;
+        top.right = node;
+        update(node);
+        return top;
+    }
+
+    private static Node rotateLeft(final Node node) {
+        final Node top = node.right;
+        node.right = top.left;
+        top.left = node;
+        update(node);
+        return top;
+    }
+
+    private static void update(final Node node) {
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+    private static int size(final Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static boolean precedes(final Node first, final Node second) {
+        if (first.millis != second.millis) {
+            return first.millis > second.millis;
+        }
+        return first.uuid.compareTo(second.uuid) > 0;
+    }
+
+    private static long seconds(final long millis) {
+        return Math.floorDiv(millis, 1000L);
+    }
+
+    /**
+     * Ranked player time.
+     *
+     * @param uuid    player UUID
+     * @param seconds time in seconds
+     */
+    /* default */ record Ranked(UUID uuid, long seconds) {
+    }
+
+    /**
+     * Tree node of one player.
+     */
+    @SuppressWarnings("PMD.DataClass")
+    private static final class Node {
+
+        /**
+         * Player UUID.
+         */
+        private final UUID uuid;
+
+        /**
+         * Heap priority of the node.
+         */
+        private final int priority;
+
+        /**
+         * Time in milliseconds.
+         */
+        private long millis;
+
+        /**
+         * Left child, ranked before this node.
+         */
+        private Node left;
+
+        /**
+         * Right child, ranked after this node.
+         */
+        private Node right;
+
+        /**
+         * Number of nodes in this subtree.
+         */
+        private int size;
+
+        /**
+         * Creates a tree node.
+         *
+         * @param uuid     player UUID
+         * @param priority heap priority
+         */
+        private Node(final UUID uuid, final int priority) {
+            this.uuid = uuid;
+            this.priority = priority;
+        }
+    }
+}
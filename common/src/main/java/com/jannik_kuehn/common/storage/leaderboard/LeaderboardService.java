@@ -0,0 +1,275 @@
+package com.jannik_kuehn.common.storage.leaderboard;
+
+import com.jannik_kuehn.common.api.storage.TimeScope;
+import com.jannik_kuehn.common.exception.StorageException;
+import com.jannik_kuehn.common.storage.contract.UnifiedStorage;
+import com.jannik_kuehn.common.storage.model.LeaderboardEntry;
+import com.jannik_kuehn.common.storage.model.LeaderboardSummary;
+import com.jannik_kuehn.common.storage.model.ManualTimeAdjustment;
+import com.jannik_kuehn.common.storage.model.PlayerSessionContext;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps the global and per-server leaderboards in memory.
+ *
+ * <p>The leaderboards are loaded from storage once and afterward only receive the time that is written through the
+ * runtime storage: flushed and finished session time of online players and manual adjustments. Rank and page lookups
+ * therefore take {@code O(log n)} and never query storage. World scopes and time ranges are not held in memory and
+ * must be answered by storage.</p>
+ */
+public class LeaderboardService {
+
+    /**
+     * Number of players read per storage page while loading.
+     */
+    private static final int LOAD_PAGE_SIZE = 1000;
+
+    /**
+     * Guards the leaderboards.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Latest known player names.
+     */
+    private final Map<UUID, String> names = new ConcurrentHashMap<>();
+
+    /**
+     * Global leaderboard.
+     */
+    private LeaderboardIndex global = new LeaderboardIndex();
+
+    /**
+     * Server leaderboards by server name.
+     */
+    private Map<String, LeaderboardIndex> servers = new HashMap<>();
+
+    /**
+     * Creates an empty leaderboard service.
+     */
+    public LeaderboardService() {
+        // Empty
+    }
+
+    /**
+     * Replaces the leaderboards with the totals currently held by storage.
+     *
+     * @param storage storage to load from
+     * @throws StorageException if storage cannot be read
+     */
+    public void load(final UnifiedStorage storage) throws StorageException {
+        Objects.requireNonNull(storage, "storage");
+        final Map<UUID, String> loadedNames = new HashMap<>();
+        final LeaderboardIndex loadedGlobal = loadIndex(storage, TimeScope.GLOBAL, loadedNames);
+        final Map<String, LeaderboardIndex> loadedServers = new HashMap<>();
+        for (final String server : storage.getKnownServerNames()) {
+            loadedServers.put(server, loadIndex(storage, TimeScope.server(server), loadedNames));
+        }
+        lock.writeLock().lock();
+        try {
+            global = loadedGlobal;
+            servers = loadedServers;
+            names.putAll(loadedNames);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns whether a scope is answered from memory.
+     *
+     * @param scope time scope
+     * @return true for the global scope and server scopes
+     */
+    public boolean covers(final TimeScope scope) {
+        return scope.type() != TimeScope.Type.WORLD;
+    }
+
+    /**
+     * Adds written session time of a player.
+     *
+     * @param context     session context
+     * @param deltaMillis session time in milliseconds
+     */
+    public void addSessionTime(final PlayerSessionContext context, final long deltaMillis) {
+        context.name().ifPresent(name -> names.put(context.uuid(), name));
+        if (deltaMillis == 0L) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            global.add(context.uuid(), deltaMillis);
+            servers.computeIfAbsent(context.server(), server -> new LeaderboardIndex()).add(context.uuid(), deltaMillis);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds written manual adjustments.
+     *
+     * @param adjustments manual adjustments
+     */
+    public void addAdjustments(final List<ManualTimeAdjustment> adjustments) {
+        lock.writeLock().lock();
+        try {
+            for (final ManualTimeAdjustment adjustment : adjustments) {
+                final long deltaMillis = adjustment.amountSeconds() * 1000L;
+                global.add(adjustment.playerUuid(), deltaMillis);
+                if (adjustment.scope().type() != TimeScope.Type.GLOBAL) {
+                    servers.computeIfAbsent(adjustment.scope().server(), server -> new LeaderboardIndex())
+                            .add(adjustment.playerUuid(), deltaMillis);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Updates the name shown for a player.
+     *
+     * @param uuid player UUID
+     * @param name player name
+     */
+    public void setName(final UUID uuid, final String name) {
+        if (name != null) {
+            names.put(uuid, name);
+        }
+    }
+
+    /**
+     * Removes a player from every leaderboard.
+     *
+     * @param uuid player UUID
+     */
+    public void removePlayer(final UUID uuid) {
+        lock.writeLock().lock();
+        try {
+            global.remove(uuid);
+            for (final LeaderboardIndex server : servers.values()) {
+                server.remove(uuid);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        names.remove(uuid);
+    }
+
+    /**
+     * Reads one page of ranked players.
+     *
+     * @param scope  global or server scope
+     * @param offset number of ranked players to skip
+     * @param limit  maximum number of players
+     * @return ranked players
+     */
+    public List<LeaderboardEntry> page(final TimeScope scope, final int offset, final int limit) {
+        if (offset < 0 || limit <= 0) {
+            return List.of();
+        }
+        final List<LeaderboardIndex.Ranked> ranked = new ArrayList<>(Math.min(limit, LOAD_PAGE_SIZE));
+        lock.readLock().lock();
+        try {
+            final LeaderboardIndex index = index(scope);
+            if (index != null) {
+                index.page(offset, limit, ranked);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        final List<LeaderboardEntry> entries = new ArrayList<>(ranked.size());
+        for (final LeaderboardIndex.Ranked entry : ranked) {
+            entries.add(new LeaderboardEntry(entry.uuid(), Optional.ofNullable(names.get(entry.uuid())),
+                    entry.seconds()));
+        }
+        return entries;
+    }
+
+    /**
+     * Counts the ranked players and sums their time.
+     *
+     * @param scope global or server scope
+     * @return leaderboard summary
+     */
+    public LeaderboardSummary summary(final TimeScope scope) {
+        lock.readLock().lock();
+        try {
+            final LeaderboardIndex index = index(scope);
+            return index == null ? new LeaderboardSummary(0L, 0L)
+                    : new LeaderboardSummary(index.size(), index.totalSeconds());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the one-based rank of a player.
+     *
+     * @param uuid  player UUID
+     * @param scope global or server scope
+     * @return rank, or empty if the player is not ranked in this scope
+     */
+    public OptionalInt rank(final UUID uuid, final TimeScope scope) {
+        lock.readLock().lock();
+        try {
+            final LeaderboardIndex index = index(scope);
+            return index == null ? OptionalInt.empty() : index.rank(uuid);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ranked time of a player.
+     *
+     * @param uuid  player UUID
+     * @param scope global or server scope
+     * @return time in seconds, or empty if the player is not ranked in this scope
+     */
+    public OptionalLong seconds(final UUID uuid, final TimeScope scope) {
+        lock.readLock().lock();
+        try {
+            final LeaderboardIndex index = index(scope);
+            return index == null ? OptionalLong.empty() : index.seconds(uuid);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private LeaderboardIndex index(final TimeScope scope) {
+        return switch (scope.type()) {
+            case GLOBAL -> global;
+            case SERVER -> servers.get(scope.server());
+            case WORLD -> throw new IllegalArgumentException("World scopes are not held in memory");
+        };
+    }
+
+    private static LeaderboardIndex loadIndex(final UnifiedStorage storage, final TimeScope scope,
+                                              final Map<UUID, String> loadedNames) throws StorageException {
+        final LeaderboardIndex index = new LeaderboardIndex();
+        int offset = 0;
+        List<LeaderboardEntry> page;
+        do {
+            page = storage.getLeaderboard(scope, Optional.empty(), offset, LOAD_PAGE_SIZE);
+            for (final LeaderboardEntry entry : page) {
+                index.set(entry.uuid(), entry.seconds() * 1000L);
+                entry.name().ifPresent(name -> loadedNames.put(entry.uuid(), name));
+            }
+            offset += page.size();
+        } while (page.size() == LOAD_PAGE_SIZE);
+        return index;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * In-memory leaderboard that ranks players without querying storage.
+ */
+package com.jannik_kuehn.common.storage.leaderboard;
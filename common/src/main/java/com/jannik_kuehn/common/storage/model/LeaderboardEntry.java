@@ -0,0 +1,25 @@
+package com.jannik_kuehn.common.storage.model;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * One ranked row of a time leaderboard.
+ *
+ * @param uuid    player UUID
+ * @param name    latest known player name
+ * @param seconds player time in the requested scope and range
+ */
+public record LeaderboardEntry(UUID uuid, Optional<String> name, long seconds) {
+
+    /**
+     * Creates an immutable leaderboard entry.
+     *
+     * @param uuid    player UUID
+     * @param name    latest known player name
+     * @param seconds player time in the requested scope and range
+     */
+    public LeaderboardEntry {
+        name = name == null ? Optional.empty() : name;
+    }
+}
@@ -0,0 +1,10 @@
+package com.jannik_kuehn.common.storage.model;
+
+/**
+ * Size and summed time of a time leaderboard.
+ *
+ * @param players      number of ranked players
+ * @param totalSeconds summed time of all ranked players
+ */
+public record LeaderboardSummary(long players, long totalSeconds) {
+}
@@ -0,0 +1,11 @@
+package com.jannik_kuehn.common.storage.model;
+
+/**
+ * Result of processing the history of one chunk of players.
+ *
+ * @param lastPlayerId highest player id of the chunk, the next chunk starts after it
+ * @param players      number of players in the chunk, zero once no players are left
+ * @param removedRows  history rows removed from storage
+ */
+public record PlayerHistoryChunk(long lastPlayerId, int players, int removedRows) {
+}
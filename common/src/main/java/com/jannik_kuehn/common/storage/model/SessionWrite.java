@@ -0,0 +1,84 @@
+package com.jannik_kuehn.common.storage.model;
+
+import java.util.Objects;
+
+/**
+ * Queued session row write.
+ *
+ * <p>Start writes carry a client-side placeholder id. Stop and world writes may reference such a placeholder
+ * as long as the matching start write is part of the same batch.</p>
+ *
+ * @param type        write kind
+ * @param sessionId   persisted session id or placeholder id
+ * @param context     session context for start writes, otherwise {@code null}
+ * @param stoppedAtMs stop timestamp in epoch milliseconds for stop writes
+ * @param reason      persistence reason for start and stop writes, otherwise {@code null}
+ * @param server      server context for world writes, otherwise {@code null}
+ * @param world       world context for world writes, otherwise {@code null}
+ */
+public record SessionWrite(SessionWriteType type, long sessionId, PlayerSessionContext context, long stoppedAtMs,
+                           TimeEntryReason reason, String server, String world) {
+
+    /**
+     * Creates a session write.
+     *
+     * @param type        write kind
+     * @param sessionId   persisted session id or placeholder id
+     * @param context     session context for start writes
+     * @param stoppedAtMs stop timestamp in epoch milliseconds
+     * @param reason      persistence reason
+     * @param server      server context for world writes
+     * @param world       world context for world writes
+     */
+    public SessionWrite {
+        Objects.requireNonNull(type);
+    }
+
+    /**
+     * Creates a start write.
+     *
+     * @param placeholderId client-side placeholder id
+     * @param context       session context
+     * @param reason        start reason
+     * @return start write
+     */
+    public static SessionWrite start(final long placeholderId, final PlayerSessionContext context, final TimeEntryReason reason) {
+        return new SessionWrite(SessionWriteType.START, placeholderId, Objects.requireNonNull(context), context.startedAtMs(),
+                Objects.requireNonNull(reason), null, null);
+    }
+
+    /**
+     * Creates a stop write.
+     *
+     * @param sessionId   persisted session id or placeholder id
+     * @param stoppedAtMs stop timestamp in epoch milliseconds
+     * @param reason      stop reason
+     * @return stop write
+     */
+    public static SessionWrite stop(final long sessionId, final long stoppedAtMs, final TimeEntryReason reason) {
+        return new SessionWrite(SessionWriteType.STOP, sessionId, null, stoppedAtMs, Objects.requireNonNull(reason), null, null);
+    }
+
+    /**
+     * Creates a world context write.
+     *
+     * @param sessionId persisted session id or placeholder id
+     * @param server    canonical server context
+     * @param world     current world context
+     * @return world write
+     */
+    public static SessionWrite world(final long sessionId, final String server, final String world) {
+        return new SessionWrite(SessionWriteType.WORLD, sessionId, null, 0L, null,
+                Objects.requireNonNull(server), Objects.requireNonNull(world));
+    }
+
+    /**
+     * Returns a copy that targets another session id.
+     *
+     * @param resolvedSessionId persisted session id
+     * @return write for the resolved session
+     */
+    public SessionWrite withSessionId(final long resolvedSessionId) {
+        return new SessionWrite(type, resolvedSessionId, context, stoppedAtMs, reason, server, world);
+    }
+}
@@ -0,0 +1,10 @@
+package com.jannik_kuehn.common.storage.model;
+
+/**
+ * Kind of queued session write.
+ */
+public enum SessionWriteType {
+    START,
+    STOP,
+    WORLD
+}
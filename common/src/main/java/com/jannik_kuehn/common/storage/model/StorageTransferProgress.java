@@ -0,0 +1,29 @@
+package com.jannik_kuehn.common.storage.model;
+
+import java.util.Objects;
+
+/**
+ * Progress of a storage-type transfer after one committed batch.
+ *
+ * @param stage         table that is being copied, or the recomputation of the totals
+ * @param copiedRows    rows of this stage copied so far, including rows of an interrupted earlier run; players whose
+ *                      totals were recomputed for {@link Stage#TOTALS}
+ * @param rowsPerSecond rows or players of this stage processed per second in the current run
+ */
+public record StorageTransferProgress(Stage stage, long copiedRows, long rowsPerSecond) {
+
+    public StorageTransferProgress {
+        Objects.requireNonNull(stage, "stage");
+    }
+
+    /**
+     * Stages of a storage-type transfer, in order. The table copies are followed by the recomputation of the totals
+     * and daily buckets of the target.
+     */
+    public enum Stage {
+        PLAYERS,
+        SESSIONS,
+        ADJUSTMENTS,
+        TOTALS
+    }
+}
@@ -63,6 +63,17 @@ public enum TimeEntryReason {
     /**
      * Plugin shutdown persisted remaining online cache.
      */
-    SHUTDOWN_FLUSH
+    SHUTDOWN_FLUSH,
+
+    /**
+     * Closed sessions of one player, world and day were merged into this row.
+     */
+    COMPACTED,
+
+    /**
+     * Online time of a session that was still open when the server stopped unexpectedly, replayed from the local
+     * session journal.
+     */
+    CRASH_RECOVERY
 }
 
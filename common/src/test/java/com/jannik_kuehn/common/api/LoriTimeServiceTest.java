@@ -4,8 +4,7 @@ import com.jannik_kuehn.common.LoriTimePlugin;
 import com.jannik_kuehn.common.api.storage.TimeRange;
 import com.jannik_kuehn.common.api.storage.TimeScope;
 import com.jannik_kuehn.common.exception.StorageException;
-import com.jannik_kuehn.common.scheduler.PluginScheduler;
-import com.jannik_kuehn.common.scheduler.PluginTask;
+import com.jannik_kuehn.common.scheduler.StorageExecutor;
 import com.jannik_kuehn.common.service.LoriTimeServiceImpl;
 import com.jannik_kuehn.common.storage.contract.UnifiedStorage;
 import com.jannik_kuehn.common.storage.model.ManualTimeAdjustment;
@@ -18,6 +17,8 @@ import org.junit.jupiter.api.parallel.ResourceLock;
 import java.lang.reflect.Field;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalLong;
 import java.util.UUID;
@@ -45,13 +46,13 @@ class LoriTimeServiceTest {
         resetApi();
         plugin = mock(LoriTimePlugin.class);
         storage = mock(UnifiedStorage.class);
-        final PluginScheduler scheduler = mock(PluginScheduler.class);
+        final StorageExecutor executor = mock(StorageExecutor.class);
         when(plugin.getStorage()).thenReturn(storage);
-        when(plugin.getScheduler()).thenReturn(scheduler);
+        when(plugin.getStorageExecutor()).thenReturn(executor);
         doAnswer(invocation -> {
             invocation.<Runnable>getArgument(0).run();
-            return mock(PluginTask.class);
-        }).when(scheduler).runAsyncOnce(any());
+            return true;
+        }).when(executor).execute(any(Runnable.class));
         service = new LoriTimeServiceImpl(plugin);
     }
 
@@ -168,6 +169,24 @@ class LoriTimeServiceTest {
                 "Expected facade to expose ranged scoped time");
     }
 
+    @Test
+    void returnsOnlineTimesOfManyPlayersWithOneStorageCall() throws StorageException {
+        final TimeRange range = TimeRange.between(Instant.ofEpochSecond(1), Instant.ofEpochSecond(10));
+        when(storage.getTimes(List.of(PLAYER_ID, ACTOR_ID), TimeScope.GLOBAL)).thenReturn(Map.of(PLAYER_ID, 120L));
+        when(storage.getTimes(List.of(PLAYER_ID), TimeScope.server("survival"), range))
+                .thenReturn(Map.of(PLAYER_ID, 5L));
+
+        assertAll(
+                () -> assertEquals(Map.of(PLAYER_ID, Duration.ofSeconds(120)),
+                        service.getOnlineTimes(List.of(PLAYER_ID, ACTOR_ID), TimeScope.GLOBAL).join(),
+                        "Expected facade to expose bulk times without unknown players"),
+                () -> assertEquals(Map.of(PLAYER_ID, Duration.ofSeconds(5)),
+                        service.getOnlineTimes(List.of(PLAYER_ID), TimeScope.server("survival"), range).join(),
+                        "Expected facade to expose ranged bulk times")
+        );
+        verify(storage, never()).getTime(any(UUID.class), any(TimeScope.class));
+    }
+
     @Test
     void addsScopedManualAdjustment() throws StorageException {
         service.addTime(PLAYER_ID, Duration.ofSeconds(30), TimeScope.server("survival")).join();
@@ -16,6 +16,7 @@ import com.jannik_kuehn.common.player.LoriTimePlayerConverter;
 import com.jannik_kuehn.common.player.TrackedLoriTimePlayer;
 import com.jannik_kuehn.common.scheduler.PluginScheduler;
 import com.jannik_kuehn.common.scheduler.PluginTask;
+import com.jannik_kuehn.common.storage.contract.AdminStorageMaintenance;
 import com.jannik_kuehn.common.storage.contract.UnifiedStorage;
 import com.jannik_kuehn.common.storage.model.ManualTimeAdjustment;
 import com.jannik_kuehn.common.storage.model.TimeEntryReason;
@@ -396,6 +397,18 @@ class SenderRoleCommandTest {
         verify(updater).isUpdateAvailable();
     }
 
+    @Test
+    void adminCommandRoutesRebuildTotals() throws StorageException {
+        final CommandContext context = new CommandContext();
+        final CommonConsoleSender sender = mock(CommonConsoleSender.class);
+        final AdminStorageMaintenance maintenance = mock(AdminStorageMaintenance.class);
+        when(context.plugin().getAdminStorageMaintenance()).thenReturn(Optional.of(maintenance));
+        final LoriTimeAdminCommand command = prepareAdminCommand(context, sender);
+
+        command.execute(sender, "rebuildtotals");
+        verify(maintenance).rebuildTotals();
+    }
+
     @Test
     void modifyCommandRoutesAddMutation() throws StorageException {
         final CommandContext context = new CommandContext();
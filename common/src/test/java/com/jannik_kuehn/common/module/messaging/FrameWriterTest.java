@@ -0,0 +1,59 @@
+package com.jannik_kuehn.common.module.messaging;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("PMD.UnitTestContainsTooManyAsserts")
+class FrameWriterTest {
+
+    private static final UUID PLAYER = UUID.fromString("44174cf6-e76c-4994-899c-3387284ecd62");
+
+    @Test
+    void readsBackEveryFieldAfterTheBufferGrew() throws IOException {
+        final FrameWriter writer = new FrameWriter(16);
+        final byte[] frame = writer.reset(0)
+                .writeUuid(PLAYER)
+                .writeByte(200)
+                .writeVarInt(-1)
+                .writeVarLong(Long.MIN_VALUE)
+                .writeVarLong(Long.MAX_VALUE)
+                .writeString("wörld_nether")
+                .writeBoolean(true)
+                .toByteArray();
+
+        final FrameReader reader = new FrameReader(frame, 0);
+        assertEquals(PLAYER, reader.readUuid(), "Expected the UUID");
+        assertEquals(200, reader.readByte(), "Expected the unsigned byte");
+        assertEquals(-1, reader.readVarInt(), "Expected the negative integer");
+        assertEquals(Long.MIN_VALUE, reader.readVarLong(), "Expected the smallest long");
+        assertEquals(Long.MAX_VALUE, reader.readVarLong(), "Expected the largest long");
+        assertEquals("wörld_nether", reader.readString(), "Expected the UTF-8 string");
+        assertTrue(reader.readBoolean(), "Expected the boolean");
+        assertThrows(EOFException.class, reader::readByte, "Expected the end of the frame");
+    }
+
+    @Test
+    void writesSmallNumbersInOneByteAndReusesTheBuffer() {
+        final FrameWriter writer = new FrameWriter(16);
+        assertEquals(1, writer.reset(0).writeVarLong(-64L).toByteArray().length, "Expected one byte for -64");
+        assertEquals(2, writer.reset(0).writeVarLong(64L).toByteArray().length, "Expected two bytes for 64");
+        assertArrayEquals(new byte[]{7}, writer.reset(0).writeByte(7).toByteArray(),
+                "Expected a reset to drop the previous frame");
+    }
+
+    @Test
+    void rejectsTruncatedFields() {
+        final byte[] frame = new FrameWriter(16).reset(0).writeString("lobby").toByteArray();
+
+        assertThrows(EOFException.class, () -> new FrameReader(Arrays.copyOf(frame, 3), 0).readString(),
+                "Expected a truncated string to be rejected");
+        assertThrows(IOException.class, () -> new FrameReader(new byte[]{-1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 1}, 0)
+                .readVarLong(), "Expected an overlong number to be rejected");
+    }
+}
@@ -2,6 +2,8 @@ package com.jannik_kuehn.common.module.messaging;
 
 import com.github.roleplaycauldron.spellbook.core.logger.LoggerFactory;
 import com.jannik_kuehn.common.LoriTimePlugin;
+import com.jannik_kuehn.common.api.storage.TimeScope;
+import com.jannik_kuehn.common.config.Configuration;
 import com.jannik_kuehn.common.exception.StorageException;
 import com.jannik_kuehn.common.module.afk.AfkStatusProvider;
 import com.jannik_kuehn.common.module.afk.AfkTransitionType;
@@ -9,15 +11,20 @@ import com.jannik_kuehn.common.platform.CommonPlayerSender;
 import com.jannik_kuehn.common.platform.CommonServer;
 import com.jannik_kuehn.common.player.LoriTimePlayerConverter;
 import com.jannik_kuehn.common.player.TrackedLoriTimePlayer;
-import com.jannik_kuehn.common.scheduler.PluginScheduler;
-import com.jannik_kuehn.common.scheduler.PluginTask;
+import com.jannik_kuehn.common.scheduler.StorageExecutor;
 import com.jannik_kuehn.common.storage.contract.TimeAccumulator;
 import com.jannik_kuehn.common.storage.contract.UnifiedStorage;
+import com.jannik_kuehn.common.storage.model.PlayerSessionContext;
 import com.jannik_kuehn.common.storage.model.TimeEntryReason;
+import com.jannik_kuehn.common.utils.UuidUtil;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalLong;
 import java.util.UUID;
@@ -32,6 +39,8 @@ class PluginMessagingTest {
 
     private static final UUID PLAYER = UUID.fromString("44174cf6-e76c-4994-899c-3387284ecd62");
 
+    private static final UUID OTHER_PLAYER = UUID.fromString("22fc9749-1470-4998-b74f-22add1f4dbb3");
+
     @Test
     void ignoresStaleRemoteSessionMessage() throws StorageException {
         final LoriTimePlugin plugin = pluginWithInlineScheduler();
@@ -107,7 +116,7 @@ class PluginMessagingTest {
         final CapturingPluginMessaging messaging = new CapturingPluginMessaging(plugin);
 
         messaging.processPluginMessage("loritime:storage", messaging.data(PLAYER, StorageMessageType.WORLD.wireValue(),
-                StorageMessageProtocol.VERSION, "world_nether", 7_000L));
+                StorageMessageProtocol.LEGACY_VERSION, "world_nether", 7_000L));
 
         verify(accumulator).updateWorldContext(PLAYER, "world_nether", 7_000L);
     }
@@ -120,7 +129,7 @@ class PluginMessagingTest {
         final CapturingPluginMessaging messaging = new CapturingPluginMessaging(plugin);
 
         messaging.processPluginMessage("loritime:storage", messaging.data(PLAYER, StorageMessageType.WORLD_SWITCH.wireValue(),
-                StorageMessageProtocol.VERSION, "world_nether", 7_000L));
+                StorageMessageProtocol.LEGACY_VERSION, "world_nether", 7_000L));
 
         verify(accumulator).switchWorldContext(PLAYER, "world_nether", 7_000L);
     }
@@ -159,7 +168,7 @@ class PluginMessagingTest {
         final CapturingPluginMessaging messaging = new CapturingPluginMessaging(plugin);
 
         messaging.processPluginMessage("loritime:storage", messaging.data(PLAYER, StorageMessageType.WORLD.wireValue(),
-                StorageMessageProtocol.VERSION));
+                StorageMessageProtocol.LEGACY_VERSION));
 
         verifyNoInteractions(accumulator);
     }
@@ -183,12 +192,128 @@ class PluginMessagingTest {
         assertEquals(44L, sent.payload()[2], "Expected the correct payload element");
     }
 
+    @Test
+    void notifiesSupportedSubscriptionsAndTimeChanges() throws StorageException {
+        final LoriTimePlugin plugin = pluginWithInlineScheduler();
+        when(plugin.getStorage()).thenReturn(mock(UnifiedStorage.class));
+        final CapturingPluginMessaging messaging = new CapturingPluginMessaging(plugin);
+
+        messaging.processPluginMessage("loritime:storage", messaging.data(PLAYER,
+                StorageMessageType.SUBSCRIBE.wireValue(), 999));
+        messaging.processPluginMessage("loritime:storage", messaging.data(PLAYER,
+                StorageMessageType.SUBSCRIBE.wireValue(), StorageMessageProtocol.LEGACY_VERSION));
+        messaging.processPluginMessage("loritime:storage", messaging.data(OTHER_PLAYER,
+                StorageMessageType.ADD.wireValue(), 12L));
+
+        assertEquals(List.of(PLAYER), messaging.subscriptions, "Expected only the supported subscription");
+        assertEquals(List.of(OTHER_PLAYER), messaging.timeChanges, "Expected the added time to be announced");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {StorageMessageProtocol.LEGACY_VERSION, StorageMessageProtocol.VERSION})
+    void encodesTimeSnapshotsThatDecodeOnTheLocalClock(final int protocolVersion) throws StorageException {
+        final LoriTimePlugin plugin = pluginWithInlineScheduler(protocolVersion);
+        final UnifiedStorage storage = mock(UnifiedStorage.class);
+        final TimeAccumulator accumulator = mock(TimeAccumulator.class);
+        when(plugin.getStorage()).thenReturn(storage);
+        when(plugin.getAccumulator()).thenReturn(accumulator);
+        when(storage.getTimes(List.of(PLAYER, OTHER_PLAYER), TimeScope.GLOBAL)).thenReturn(Map.of(PLAYER, 90L));
+        when(accumulator.getActiveSessionContext(PLAYER)).thenReturn(Optional.of(
+                new PlayerSessionContext(PLAYER, "Lorias_", "lobby", "spawn", 0L)));
+        when(accumulator.getActiveSessionContext(OTHER_PLAYER)).thenReturn(Optional.empty());
+        final CapturingPluginMessaging messaging = new CapturingPluginMessaging(plugin);
+
+        final List<byte[]> frames = messaging.encodeTimeSnapshot(List.of(PLAYER, OTHER_PLAYER));
+
+        assertEquals(1, frames.size(), "Expected both players in one frame");
+        final byte[] frame = frames.getFirst();
+        assertEquals(PLAYER, UuidUtil.fromBytes(Arrays.copyOf(frame, 16)),
+                "Expected the first player at the start of the frame");
+        assertEquals(protocolVersion == StorageMessageProtocol.VERSION ? protocolVersion : 0, frame[16],
+                "Expected the version byte only in binary frames");
+        assertEquals(List.of(new PushedPlayerTime(PLAYER, 90L, 5_000L, true),
+                new PushedPlayerTime(OTHER_PLAYER, 0L, 5_000L, false)), messaging.decodeReceivedTimes(frame, 5_000L),
+                "Expected the pushed times anchored at the local receive time");
+    }
+
+    @Test
+    void appliesBinaryStorageFramesFromTheSlave() throws StorageException {
+        final LoriTimePlugin plugin = pluginWithInlineScheduler();
+        final TimeAccumulator accumulator = mock(TimeAccumulator.class);
+        final UnifiedStorage storage = mock(UnifiedStorage.class);
+        when(plugin.getAccumulator()).thenReturn(accumulator);
+        when(plugin.getStorage()).thenReturn(storage);
+        final CapturingPluginMessaging slave = new CapturingPluginMessaging(plugin);
+        final CapturingPluginMessaging master = new CapturingPluginMessaging(plugin);
+
+        slave.sendWorldContext(PLAYER, "world_nether", 7_000L, false);
+        slave.sendWorldContext(PLAYER, "wörld_end", 8_000L, true);
+        slave.sendTimeSubscription(PLAYER);
+        slave.sentFrames.forEach(frame -> master.processPluginMessage(frame.channel(), frame.frame()));
+
+        assertTrue(slave.sentMessages.isEmpty(), "Expected no version 2 payloads");
+        verify(accumulator).updateWorldContext(PLAYER, "world_nether", 7_000L);
+        verify(accumulator).switchWorldContext(PLAYER, "wörld_end", 8_000L);
+        assertEquals(List.of(PLAYER), master.subscriptions, "Expected the binary subscription");
+    }
+
+    @Test
+    void answersBinaryReadRequestWithBinaryTime() throws StorageException {
+        final LoriTimePlugin plugin = pluginWithInlineScheduler();
+        final UnifiedStorage storage = mock(UnifiedStorage.class);
+        final TimeAccumulator accumulator = mock(TimeAccumulator.class);
+        when(plugin.getStorage()).thenReturn(storage);
+        when(plugin.getAccumulator()).thenReturn(accumulator);
+        when(storage.getTime(PLAYER)).thenReturn(OptionalLong.of(44L));
+        when(accumulator.getActiveSessionContext(PLAYER)).thenReturn(Optional.empty());
+        final CapturingPluginMessaging slave = new CapturingPluginMessaging(plugin);
+        final CapturingPluginMessaging master = new CapturingPluginMessaging(plugin);
+
+        slave.sendTimeRequest(PLAYER);
+        master.processPluginMessage("loritime:storage", slave.sentFrames.getFirst().frame());
+
+        assertTrue(master.sentMessages.isEmpty(), "Expected the answer in the version of the request");
+        assertEquals(List.of(new PushedPlayerTime(PLAYER, 44L, 9_000L, false)),
+                slave.decodeReceivedTimes(master.sentFrames.getFirst().frame(), 9_000L),
+                "Expected the time and the counting state in the answer");
+    }
+
+    @Test
+    void sendsVersionTwoPayloadsWhenConfigured() {
+        final CapturingPluginMessaging messaging = new CapturingPluginMessaging(
+                pluginWithInlineScheduler(StorageMessageProtocol.LEGACY_VERSION));
+
+        messaging.sendTimeRequest(PLAYER);
+        messaging.sendAfkTransition(PLAYER, AfkTransitionType.START, 15L);
+
+        assertTrue(messaging.sentFrames.isEmpty(), "Expected no binary frames");
+        assertArrayEquals(new Object[]{PLAYER, StorageMessageType.GET.wireValue()},
+                messaging.sentMessages.getFirst().payload(), "Expected the version 2 read request");
+        assertArrayEquals(new Object[]{PLAYER, AfkMessageProtocol.LEGACY_VERSION, AfkTransitionType.START.name(), 15L},
+                messaging.sentMessages.get(1).payload(), "Expected the version 2 AFK transition");
+    }
+
+    @Test
+    void ignoresUnsupportedBinaryFrameVersion() throws StorageException {
+        final LoriTimePlugin plugin = pluginWithInlineScheduler();
+        final UnifiedStorage storage = mock(UnifiedStorage.class);
+        when(plugin.getStorage()).thenReturn(storage);
+        final CapturingPluginMessaging messaging = new CapturingPluginMessaging(plugin);
+        messaging.sendTimeRequest(PLAYER);
+        final byte[] frame = messaging.sentFrames.getFirst().frame();
+        frame[16] = 4;
+
+        messaging.processPluginMessage("loritime:storage", frame);
+
+        verifyNoInteractions(storage);
+    }
+
     @Test
     void appliesSupportedAfkStartMessage() {
         final AfkMessagingContext context = new AfkMessagingContext();
         final CapturingPluginMessaging messaging = new CapturingPluginMessaging(context.plugin());
 
-        messaging.processPluginMessage("loritime:afk", messaging.data(PLAYER, AfkMessageProtocol.VERSION,
+        messaging.processPluginMessage("loritime:afk", messaging.data(PLAYER, AfkMessageProtocol.LEGACY_VERSION,
                 AfkTransitionType.START.name(), 15L));
 
         verify(context.afkStatusProvider()).setPlayerAFK(context.player(), 15L);
@@ -199,12 +324,27 @@ class PluginMessagingTest {
         final AfkMessagingContext context = new AfkMessagingContext();
         final CapturingPluginMessaging messaging = new CapturingPluginMessaging(context.plugin());
 
-        messaging.processPluginMessage("loritime:afk", messaging.data(PLAYER, AfkMessageProtocol.VERSION,
+        messaging.processPluginMessage("loritime:afk", messaging.data(PLAYER, AfkMessageProtocol.LEGACY_VERSION,
                 AfkTransitionType.RESUME.name()));
 
         verify(context.afkStatusProvider()).resumePlayerAFK(context.player());
     }
 
+    @Test
+    void appliesBinaryAfkFrames() {
+        final AfkMessagingContext context = new AfkMessagingContext();
+        final CapturingPluginMessaging messaging = new CapturingPluginMessaging(context.plugin());
+
+        messaging.sendAfkTransition(PLAYER, AfkTransitionType.START, 15L);
+        messaging.sendAfkTransition(PLAYER, AfkTransitionType.RESUME, 0L);
+        messaging.sendAfkTransition(PLAYER, AfkTransitionType.KICK, 0L);
+        messaging.sentFrames.forEach(frame -> messaging.processPluginMessage(frame.channel(), frame.frame()));
+
+        verify(context.afkStatusProvider()).setPlayerAFK(context.player(), 15L);
+        verify(context.afkStatusProvider()).resumePlayerAFK(context.player());
+        verifyNoMoreInteractions(context.afkStatusProvider());
+    }
+
     @Test
     void ignoresUnsupportedAfkProtocolVersion() {
         final AfkMessagingContext context = new AfkMessagingContext();
@@ -220,7 +360,7 @@ class PluginMessagingTest {
         final AfkMessagingContext context = new AfkMessagingContext();
         final CapturingPluginMessaging messaging = new CapturingPluginMessaging(context.plugin());
 
-        messaging.processPluginMessage("loritime:afk", messaging.data(PLAYER, AfkMessageProtocol.VERSION, "INVALID", 15L));
+        messaging.processPluginMessage("loritime:afk", messaging.data(PLAYER, AfkMessageProtocol.LEGACY_VERSION, "INVALID", 15L));
 
         verifyNoInteractions(context.afkStatusProvider());
     }
@@ -230,7 +370,7 @@ class PluginMessagingTest {
         final AfkMessagingContext context = new AfkMessagingContext();
         final CapturingPluginMessaging messaging = new CapturingPluginMessaging(context.plugin());
 
-        messaging.processPluginMessage("loritime:afk", messaging.data(PLAYER, AfkMessageProtocol.VERSION,
+        messaging.processPluginMessage("loritime:afk", messaging.data(PLAYER, AfkMessageProtocol.LEGACY_VERSION,
                 AfkTransitionType.KICK.name()));
 
         verifyNoInteractions(context.afkStatusProvider());
@@ -251,7 +391,7 @@ class PluginMessagingTest {
         final AfkMessagingContext context = new AfkMessagingContext();
         final CapturingPluginMessaging messaging = new CapturingPluginMessaging(context.plugin());
 
-        messaging.processPluginMessage("loritime:afk", messaging.data(PLAYER, AfkMessageProtocol.VERSION,
+        messaging.processPluginMessage("loritime:afk", messaging.data(PLAYER, AfkMessageProtocol.LEGACY_VERSION,
                 AfkTransitionType.START.name()));
 
         verifyNoInteractions(context.afkStatusProvider());
@@ -271,15 +411,25 @@ class PluginMessagingTest {
     }
 
     private LoriTimePlugin pluginWithInlineScheduler() {
+        return pluginWithInlineScheduler(StorageMessageProtocol.VERSION);
+    }
+
+    private LoriTimePlugin pluginWithInlineScheduler(final int protocolVersion) {
         final LoriTimePlugin plugin = mock(LoriTimePlugin.class);
-        final PluginScheduler scheduler = mock(PluginScheduler.class);
+        final StorageExecutor executor = mock(StorageExecutor.class);
+        final Configuration config = mock(Configuration.class);
         when(plugin.getLoggerFactory()).thenReturn(new LoggerFactory(Logger.getLogger("test")));
-        when(plugin.getScheduler()).thenReturn(scheduler);
+        when(plugin.getConfig()).thenReturn(config);
+        when(config.getInt("multiSetup.protocolVersion", StorageMessageProtocol.VERSION)).thenReturn(protocolVersion);
+        when(plugin.getStorageExecutor()).thenReturn(executor);
         doAnswer(invocation -> {
             invocation.<Runnable>getArgument(0).run();
-            return (PluginTask) () -> {
-            };
-        }).when(scheduler).runAsyncOnce(any());
+            return true;
+        }).when(executor).execute(any(Runnable.class));
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return true;
+        }).when(executor).executeInOrder(any(), any());
         return plugin;
     }
 
@@ -287,6 +437,12 @@ class PluginMessagingTest {
 
         private final List<SentMessage> sentMessages = new ArrayList<>();
 
+        private final List<SentFrame> sentFrames = new ArrayList<>();
+
+        private final List<UUID> subscriptions = new ArrayList<>();
+
+        private final List<UUID> timeChanges = new ArrayList<>();
+
         private CapturingPluginMessaging(final LoriTimePlugin loriTimePlugin) {
             super(loriTimePlugin);
         }
@@ -296,6 +452,21 @@ class PluginMessagingTest {
             sentMessages.add(new SentMessage(channelIdentifier, message));
         }
 
+        @Override
+        public void sendPluginFrame(final String channelIdentifier, final UUID playerUUID, final byte[] frame) {
+            sentFrames.add(new SentFrame(channelIdentifier, frame));
+        }
+
+        @Override
+        protected void subscribeTimes(final UUID playerUUID) {
+            subscriptions.add(playerUUID);
+        }
+
+        @Override
+        protected void timeChanged(final UUID playerUUID) {
+            timeChanges.add(playerUUID);
+        }
+
         private byte[] data(final Object... message) {
             return getDataAsByte(message);
         }
@@ -304,6 +475,9 @@ class PluginMessagingTest {
     private record SentMessage(String channel, Object[] payload) {
     }
 
+    private record SentFrame(String channel, byte[] frame) {
+    }
+
     private record AfkMessagingContext(LoriTimePlugin plugin, AfkStatusProvider afkStatusProvider,
                                        TrackedLoriTimePlayer player) {
 
@@ -0,0 +1,126 @@
+package com.jannik_kuehn.common.scheduler;
+
+import com.github.roleplaycauldron.spellbook.core.logger.WrappedLogger;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("PMD.UnitTestContainsTooManyAsserts")
+class StorageExecutorTest {
+
+    @Test
+    void coalescesQueuedKeysAndRunsOtherTasksOnTheCallerWhenFull() throws InterruptedException {
+        final StorageExecutor executor = new StorageExecutor(mock(WrappedLogger.class), 1, 1, 1, false,
+                StorageExecutor.OverloadPolicy.COALESCE);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch blocking = new CountDownLatch(1);
+        final AtomicInteger refreshes = new AtomicInteger();
+        final AtomicReference<Thread> callerThread = new AtomicReference<>();
+        executor.execute(() -> {
+            blocking.countDown();
+            awaitQuietly(release);
+        });
+        assertTrue(blocking.await(5, TimeUnit.SECONDS), "Expected the blocking task to start");
+
+        assertTrue(executor.execute("refresh", refreshes::incrementAndGet), "Expected the refresh to be queued");
+        assertTrue(executor.execute("refresh", refreshes::incrementAndGet), "Expected the refresh to be merged");
+        assertFalse(executor.execute("other", refreshes::incrementAndGet),
+                "Expected a keyed task to be dropped while the queue is full");
+        assertTrue(executor.execute(() -> callerThread.set(Thread.currentThread())),
+                "Expected an unkeyed task to run on the caller while the queue is full");
+
+        assertSame(Thread.currentThread(), callerThread.get(), "Expected the task to run on the submitting thread");
+        final StorageExecutor.Metrics metrics = executor.metrics();
+        assertEquals(1, metrics.queueDepth(), "Expected the merged refresh in the queue");
+        assertEquals(1L, metrics.coalesced(), "Expected one merged refresh");
+        assertEquals(1L, metrics.rejected(), "Expected one dropped refresh");
+        assertEquals(1L, metrics.callerRuns(), "Expected one task on the caller");
+
+        release.countDown();
+        executor.shutdown(5_000L);
+        assertEquals(1, refreshes.get(), "Expected the merged refreshes to run once");
+    }
+
+    @Test
+    void rejectsTasksWhenFullAndAfterShutdown() throws InterruptedException {
+        final StorageExecutor executor = new StorageExecutor(mock(WrappedLogger.class), 1, 1, 1, true,
+                StorageExecutor.OverloadPolicy.REJECT);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch blocking = new CountDownLatch(1);
+        executor.execute(() -> {
+            blocking.countDown();
+            awaitQuietly(release);
+        });
+        assertTrue(blocking.await(5, TimeUnit.SECONDS), "Expected the blocking task to start");
+        assertTrue(executor.execute(() -> {
+        }), "Expected the queued task to be accepted");
+
+        assertFalse(executor.execute(() -> {
+        }), "Expected the task to be dropped while the queue is full");
+
+        release.countDown();
+        executor.shutdown(5_000L);
+        assertFalse(executor.execute(() -> {
+        }), "Expected tasks to be dropped after shutdown");
+        assertEquals(2L, executor.metrics().rejected(), "Expected both dropped tasks to be counted");
+    }
+
+    @Test
+    void keepsTheOrderOfEachPlayerWhileLanesRunInParallel() throws InterruptedException {
+        final StorageExecutor executor = new StorageExecutor(mock(WrappedLogger.class), 1, 4, 4, false,
+                StorageExecutor.OverloadPolicy.REJECT);
+        final List<UUID> players = new ArrayList<>();
+        final Map<UUID, List<Integer>> executed = new ConcurrentHashMap<>();
+        for (int i = 0; i < 16; i++) {
+            final UUID player = new UUID(0L, i);
+            players.add(player);
+            executed.put(player, Collections.synchronizedList(new ArrayList<>()));
+        }
+
+        for (int event = 0; event < 200; event++) {
+            for (final UUID player : players) {
+                final int order = event;
+                assertTrue(executor.executeInOrder(player, () -> executed.get(player).add(order)),
+                        "Expected the ordered task not to be dropped");
+            }
+        }
+        executor.shutdown(5_000L);
+
+        final List<Integer> expected = IntStream.range(0, 200).boxed().toList();
+        for (final UUID player : players) {
+            assertEquals(expected, executed.get(player), "Expected the tasks of a player in submit order");
+        }
+        assertEquals(0L, executor.metrics().rejected(), "Expected no dropped ordered task");
+    }
+
+    @Test
+    void parsesConfiguredPolicies() {
+        assertEquals(StorageExecutor.OverloadPolicy.CALLER_RUNS,
+                StorageExecutor.OverloadPolicy.parse("caller-runs", StorageExecutor.OverloadPolicy.COALESCE),
+                "Expected the dashed policy name to be parsed");
+        assertEquals(StorageExecutor.OverloadPolicy.COALESCE,
+                StorageExecutor.OverloadPolicy.parse("unknown", StorageExecutor.OverloadPolicy.COALESCE),
+                "Expected unknown names to use the default");
+    }
+
+    private static void awaitQuietly(final CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
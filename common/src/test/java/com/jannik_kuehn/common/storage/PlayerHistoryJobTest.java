@@ -0,0 +1,55 @@
+package com.jannik_kuehn.common.storage;
+
+import com.github.roleplaycauldron.spellbook.core.logger.WrappedLogger;
+import com.jannik_kuehn.common.exception.StorageException;
+import com.jannik_kuehn.common.storage.database.UnifiedDatabaseStorage;
+import com.jannik_kuehn.common.storage.model.PlayerHistoryChunk;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("PMD.UnitTestContainsTooManyAsserts")
+class PlayerHistoryJobTest {
+
+    @Test
+    void deletesChunksUntilNoInactivePlayersAreLeft() throws StorageException {
+        final UnifiedDatabaseStorage storage = mock(UnifiedDatabaseStorage.class);
+        when(storage.deleteInactiveHistoryChunk(365L, 0L, 2)).thenReturn(new PlayerHistoryChunk(4L, 2, 30));
+        when(storage.deleteInactiveHistoryChunk(365L, 4L, 2)).thenReturn(new PlayerHistoryChunk(9L, 1, 12));
+        when(storage.deleteInactiveHistoryChunk(365L, 9L, 2)).thenReturn(new PlayerHistoryChunk(9L, 0, 0));
+        final AtomicInteger reloads = new AtomicInteger();
+        final PlayerHistoryJob cleanup = new PlayerHistoryJob(mock(WrappedLogger.class), "Storage cleanup",
+                afterPlayerId -> storage.deleteInactiveHistoryChunk(365L, afterPlayerId, 2), 0L,
+                reloads::incrementAndGet);
+
+        assertFalse(cleanup.progress().finished(), "Expected the cleanup not to be finished before it ran");
+        cleanup.run();
+
+        final PlayerHistoryJob.Progress progress = cleanup.progress();
+        assertTrue(progress.finished(), "Expected the cleanup to be finished");
+        assertEquals(3L, progress.players(), "Expected the players of all chunks");
+        assertEquals(42L, progress.removedRows(), "Expected the rows of all chunks");
+        assertEquals(1, reloads.get(), "Expected one callback after rows were deleted");
+    }
+
+    @Test
+    void stopsAfterCancellationWithoutCallbackIfNothingWasDeleted() throws StorageException {
+        final UnifiedDatabaseStorage storage = mock(UnifiedDatabaseStorage.class);
+        when(storage.deleteInactiveHistoryChunk(anyLong(), anyLong(), anyInt()))
+                .thenReturn(new PlayerHistoryChunk(1L, 1, 0));
+        final AtomicInteger reloads = new AtomicInteger();
+        final PlayerHistoryJob cleanup = new PlayerHistoryJob(mock(WrappedLogger.class), "Storage cleanup",
+                afterPlayerId -> storage.deleteInactiveHistoryChunk(365L, afterPlayerId, 1), 0L,
+                reloads::incrementAndGet);
+
+        cleanup.cancel();
+        cleanup.run();
+
+        verify(storage, times(1)).deleteInactiveHistoryChunk(anyLong(), anyLong(), anyInt());
+        assertTrue(cleanup.progress().finished(), "Expected the cancelled cleanup to be finished");
+        assertEquals(0, reloads.get(), "Expected no callback without deleted rows");
+    }
+}
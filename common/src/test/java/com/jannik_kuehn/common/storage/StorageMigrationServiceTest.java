@@ -15,6 +15,7 @@ import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.UUID;
 import java.util.logging.Logger;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -54,6 +55,31 @@ class StorageMigrationServiceTest {
         assertEquals(expectedMigrationResult(), migrationResult(legacyDataFolder), "legacy flat files should be imported once");
     }
 
+    @Test
+    void streamsLargeFlatFilesInChunksWithQuotedScalars() throws IOException, StorageException, SQLException {
+        final File legacyDataFolder = new File(dataFolder, "data");
+        Files.createDirectories(legacyDataFolder.toPath());
+        final StringBuilder names = new StringBuilder("# legacy names\n");
+        final StringBuilder times = new StringBuilder();
+        for (int i = 0; i < 2_500; i++) {
+            final UUID uuid = new UUID(1L, i);
+            names.append(i % 2 == 0 ? "'" + i + "'" : "player" + i).append(": ").append(uuid).append('\n');
+            times.append('"').append(uuid).append("\": ").append(i).append('\n');
+        }
+        Files.writeString(new File(legacyDataFolder, "names.yml").toPath(), names);
+        Files.writeString(new File(legacyDataFolder, "time.yml").toPath(), times);
+
+        new StorageMigrationService(pluginWithConfig(config()), dataFolder).migrateIfNecessary();
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + new File(dataFolder, "loritime.db"))) {
+            assertEquals(2_500, countRows(connection, TABLE_PREFIX + "_player"), "Expected one player per legacy entry");
+            assertEquals(2_500, countRows(connection, TABLE_PREFIX + "_time"), "Expected one session per legacy entry");
+            assertEquals(1_234, sumTime(connection, "1234"), "Expected quoted names to be unquoted");
+            assertEquals(2_499, sumTime(connection, "player2499"), "Expected the last chunk to be imported");
+            assertEquals(2_499 * 2_500 / 2, countTotal(connection), "Expected the totals of all chunks");
+        }
+    }
+
     private LoriTimePlugin pluginWithConfig(final Configuration config) {
         final LoriTimePlugin plugin = mock(LoriTimePlugin.class);
         when(plugin.getLoggerFactory()).thenReturn(new LoggerFactory(Logger.getLogger("test")));
@@ -107,6 +133,15 @@ class StorageMigrationServiceTest {
         }
     }
 
+    private int countTotal(final Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT SUM(`total_seconds`) FROM `" + TABLE_PREFIX
+                     + "_player_total` WHERE `scope_type` = 'GLOBAL'")) {
+            requireRow(resultSet, "total query should return a row");
+            return resultSet.getInt(1);
+        }
+    }
+
     private String singleString(final Connection connection, final String sql) throws SQLException {
         try (Statement statement = connection.createStatement();
              ResultSet resultSet = statement.executeQuery(sql)) {
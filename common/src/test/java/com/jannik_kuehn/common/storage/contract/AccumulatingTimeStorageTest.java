@@ -4,14 +4,21 @@ import com.github.roleplaycauldron.spellbook.core.logger.WrappedLogger;
 import com.jannik_kuehn.common.api.storage.TimeRange;
 import com.jannik_kuehn.common.api.storage.TimeScope;
 import com.jannik_kuehn.common.exception.StorageException;
+import com.jannik_kuehn.common.storage.leaderboard.LeaderboardService;
+import com.jannik_kuehn.common.storage.model.LeaderboardEntry;
+import com.jannik_kuehn.common.storage.model.LeaderboardSummary;
 import com.jannik_kuehn.common.storage.model.ManualTimeAdjustment;
 import com.jannik_kuehn.common.storage.model.PlayerSessionChunk;
 import com.jannik_kuehn.common.storage.model.PlayerSessionContext;
 import com.jannik_kuehn.common.storage.model.RecentPlayerIdentity;
 import com.jannik_kuehn.common.storage.model.SessionContextDefaults;
+import com.jannik_kuehn.common.storage.model.SessionWrite;
 import com.jannik_kuehn.common.storage.model.TimeEntryReason;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.File;
+import java.nio.file.Path;
 import java.sql.SQLException;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -67,6 +74,45 @@ class AccumulatingTimeStorageTest {
         assertTrue(storage.sessions.getFirst().durationSeconds() >= 6L, "Expected duration to be at least 6 seconds");
     }
 
+    @Test
+    void flushWritesAllOnlineSessionsInOneBulkUpdate() throws StorageException {
+        final FakeUnifiedStorage storage = new FakeUnifiedStorage();
+        final AccumulatingTimeStorage accumulator = accumulator(storage);
+        final UUID second = UUID.fromString("5bb8c1d4-8a8c-4b8e-9f0e-6f3f7a0c2d11");
+        final long start = System.currentTimeMillis() - 5_000L;
+
+        accumulator.startAccumulating(PLAYER, "Lorias_", "lobby", "spawn", start);
+        accumulator.startAccumulating(second, "Other", "lobby", "spawn", start);
+        accumulator.flushOnlineTimeCache();
+
+        assertEquals(1, storage.bulkUpdates, "Expected one bulk update for all online sessions");
+        assertEquals(TimeEntryReason.AUTO_FLUSH, storage.sessions.get(0).reason(), "Expected the first session to be flushed");
+        assertEquals(TimeEntryReason.AUTO_FLUSH, storage.sessions.get(1).reason(), "Expected the second session to be flushed");
+    }
+
+    @Test
+    void leaderboardReceivesFlushedSessionTimeAndAdjustments() throws StorageException {
+        final FakeUnifiedStorage storage = new FakeUnifiedStorage();
+        final LeaderboardService leaderboard = new LeaderboardService();
+        final AccumulatingTimeStorage accumulator = new AccumulatingTimeStorage(mock(WrappedLogger.class), storage,
+                null, leaderboard);
+        final long start = System.currentTimeMillis() - 5_000L;
+
+        accumulator.startAccumulating(PLAYER, "Lorias_", "lobby", "spawn", start);
+        assertEquals(List.of(), accumulator.getLeaderboard(TimeScope.GLOBAL, Optional.empty(), 0, 8),
+                "Expected unsaved online time to stay out of the leaderboard");
+        accumulator.flushOnlineTimeCache();
+        accumulator.addTime(new ManualTimeAdjustment(PLAYER, 100L, TimeEntryReason.MANUAL_ADJUSTMENT, "Console",
+                TimeScope.server("lobby")));
+
+        final List<LeaderboardEntry> page = accumulator.getLeaderboard(TimeScope.server("lobby"), Optional.empty(), 0, 8);
+        assertEquals(1, page.size(), "Expected the flushed player on the server leaderboard");
+        assertEquals(Optional.of("Lorias_"), page.getFirst().name(), "Expected the session name");
+        assertTrue(page.getFirst().seconds() >= 105L, "Expected flushed session time plus the adjustment");
+        assertEquals(1L, accumulator.getLeaderboardSummary(TimeScope.GLOBAL, Optional.empty()).players(),
+                "Expected the global summary from memory");
+    }
+
     @Test
     void closePersistsShutdownFlush() throws StorageException {
         final FakeUnifiedStorage storage = new FakeUnifiedStorage();
@@ -303,10 +349,144 @@ class AccumulatingTimeStorageTest {
                 "Expected non-overlapping active time to be excluded");
     }
 
+    @Test
+    void bulkTotalsAddActiveTimeOnlyToOnlinePlayersWithMatchingScope() throws StorageException {
+        final FakeUnifiedStorage storage = new FakeUnifiedStorage();
+        final AccumulatingTimeStorage accumulator = accumulator(storage);
+        final UUID offline = UUID.fromString("5bb8c1d4-8a8c-4b8e-9f0e-6f3f7a0c2d11");
+        final long start = System.currentTimeMillis() - 10_000L;
+        storage.addTime(offline, 30L, TimeEntryReason.MANUAL_ADJUSTMENT);
+
+        accumulator.startAccumulating(PLAYER, "Lorias_", "survival", "world", start);
+
+        final Map<UUID, Long> totals = accumulator.getTimes(List.of(PLAYER, offline, PLAYER), TimeScope.GLOBAL);
+        assertTrue(totals.get(PLAYER) >= 10L && totals.get(PLAYER) < 20L,
+                "Expected the active time of the online player once");
+        assertEquals(30L, totals.get(offline), "Expected the stored time of the offline player");
+        assertEquals(0L, accumulator.getTimes(List.of(PLAYER), TimeScope.server("lobby")).get(PLAYER),
+                "Expected no active time for a non-matching server");
+
+        final TimeRange range = TimeRange.between(Instant.ofEpochMilli(start + 5_000L),
+                Instant.ofEpochMilli(System.currentTimeMillis() + 1_000L));
+        final Map<UUID, Long> ranged = accumulator.getTimes(List.of(PLAYER, offline),
+                TimeScope.world("survival", "world"), range);
+        assertTrue(ranged.get(PLAYER) >= 5L, "Expected the overlapping active time in the ranged totals");
+        assertEquals(30L, ranged.get(offline), "Expected the stored ranged time of the offline player");
+    }
+
+    @Test
+    void writeBehindQueuesSessionWritesUntilFlush() throws StorageException {
+        final FakeUnifiedStorage storage = new FakeUnifiedStorage();
+        final AccumulatingTimeStorage accumulator = writeBehindAccumulator(storage);
+
+        accumulator.startAccumulating(PLAYER, "Lorias_", "lobby", "spawn", 1_000L);
+        accumulator.switchContext(PLAYER, "Lorias_", "survival", "nether", 4_000L);
+        accumulator.stopAccumulatingAndSaveOnlineTime(PLAYER, 9_000L, TimeEntryReason.PLAYER_LEAVE);
+
+        assertTrue(storage.sessions.isEmpty(), "Expected session writes to stay queued before a flush");
+        accumulator.flushOnlineTimeCache();
+
+        assertEquals(1, storage.batches, "Expected all queued writes to be written as one batch");
+        assertEquals(2, storage.sessions.size(), "Expected two session chunks after the flush");
+        assertEquals(TimeEntryReason.SERVER_SWITCH, storage.sessions.get(0).reason(), "Expected the reason to be SERVER_SWITCH");
+        assertEquals(3L, storage.sessions.get(0).durationSeconds(), "Expected the correct duration for the first context");
+        assertEquals(TimeEntryReason.PLAYER_LEAVE, storage.sessions.get(1).reason(), "Expected the reason to be PLAYER_LEAVE");
+        assertEquals(5L, storage.sessions.get(1).durationSeconds(), "Expected the correct duration for the second context");
+        accumulator.close();
+    }
+
+    @Test
+    void writeBehindResolvesPlaceholderAcrossBatches() throws StorageException {
+        final FakeUnifiedStorage storage = new FakeUnifiedStorage();
+        final AccumulatingTimeStorage accumulator = writeBehindAccumulator(storage);
+
+        accumulator.startAccumulating(PLAYER, "Lorias_", "survival", "world", 1_000L);
+        accumulator.flushOnlineTimeCache();
+        accumulator.updateWorldContext(PLAYER, "nether", 2_000L);
+        accumulator.stopAccumulatingAndSaveOnlineTime(PLAYER, 8_000L, TimeEntryReason.PLAYER_LEAVE);
+        accumulator.flushOnlineTimeCache();
+
+        assertEquals(1, storage.sessions.size(), "Expected later writes to target the persisted session");
+        assertEquals("nether", storage.sessions.getFirst().world(), "Expected the world update to be applied");
+        assertEquals(8_000L, storage.sessions.getFirst().stoppedAtMs(), "Expected the stop to be applied");
+        accumulator.close();
+    }
+
+    @Test
+    void writeBehindKeepsFailingBatchesUntilTheStorageRecovers() throws StorageException {
+        final FakeUnifiedStorage storage = new FakeUnifiedStorage();
+        final WriteBehindSessionJournal journal = new WriteBehindSessionJournal(mock(WrappedLogger.class), storage,
+                100, 60_000L);
+        final AccumulatingTimeStorage accumulator = new AccumulatingTimeStorage(mock(WrappedLogger.class), storage,
+                journal);
+        storage.failingBatches = 4;
+
+        accumulator.startAccumulating(PLAYER, "Lorias_", "survival", "world", 1_000L);
+        for (int attempt = 0; attempt < 4; attempt++) {
+            assertThrows(StorageException.class, journal::flush,
+                    "Expected the outage to fail the flush");
+        }
+        accumulator.stopAccumulatingAndSaveOnlineTime(PLAYER, 8_000L, TimeEntryReason.PLAYER_LEAVE);
+        accumulator.flushOnlineTimeCache();
+
+        assertEquals(1, storage.sessions.size(), "Expected the started session to survive the outage");
+        assertEquals(8_000L, storage.sessions.getFirst().stoppedAtMs(), "Expected the stop to resolve the placeholder");
+        accumulator.close();
+    }
+
+    @Test
+    void writeBehindCloseFlushesQueuedWrites() throws StorageException {
+        final FakeUnifiedStorage storage = new FakeUnifiedStorage();
+        final AccumulatingTimeStorage accumulator = writeBehindAccumulator(storage);
+
+        accumulator.startAccumulating(PLAYER, "Lorias_", "lobby", "spawn", System.currentTimeMillis() - 3_000L);
+        accumulator.close();
+
+        assertEquals(1, storage.sessions.size(), "Expected one session chunk after close");
+        assertEquals(TimeEntryReason.SHUTDOWN_FLUSH, storage.sessions.getFirst().reason(), "Expected the reason to be SHUTDOWN_FLUSH");
+        assertTrue(storage.closed, "Expected close to have been called");
+    }
+
+    @Test
+    void recoveryJournalReplaysTimeAfterTheLastFlushUpToTheLastHeartbeat(@TempDir final Path dataFolder)
+            throws StorageException {
+        final FakeUnifiedStorage storage = new FakeUnifiedStorage();
+        final File file = dataFolder.resolve("session-journal.dat").toFile();
+        final SessionRecoveryJournal journal = SessionRecoveryJournal.open(mock(WrappedLogger.class), file, 1);
+        final AccumulatingTimeStorage accumulator = new AccumulatingTimeStorage(mock(WrappedLogger.class), storage,
+                null, null, journal);
+        final UUID second = UUID.fromString("5bb8c1d4-8a8c-4b8e-9f0e-6f3f7a0c2d11");
+        final long start = System.currentTimeMillis() - 60_000L;
+
+        accumulator.startAccumulating(PLAYER, "Lorias_", "lobby", "spawn", start);
+        accumulator.startAccumulating(second, "Other", "lobby", "spawn", start);
+        accumulator.stopAccumulatingAndSaveOnlineTime(second, start + 1_000L, TimeEntryReason.PLAYER_LEAVE);
+        accumulator.switchWorldContext(PLAYER, "nether", start + 2_000L);
+        accumulator.flushOnlineTimeCache();
+        final long flushedAt = storage.sessions.getLast().stoppedAtMs();
+        journal.heartbeat(flushedAt + 30_000L);
+        journal.close();
+
+        final SessionRecoveryJournal reopened = SessionRecoveryJournal.open(mock(WrappedLogger.class), file, 1);
+        final List<PlayerSessionChunk> unfinished = reopened.unfinishedSessions();
+        assertEquals(List.of(new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "lobby", "nether", flushedAt,
+                        flushedAt + 30_000L, TimeEntryReason.CRASH_RECOVERY)), unfinished,
+                "Expected only the open session from its last flush up to its last heartbeat");
+        reopened.clear();
+        assertEquals(List.of(), reopened.unfinishedSessions(), "Expected no open session after the replay");
+        reopened.close();
+    }
+
     private AccumulatingTimeStorage accumulator(final FakeUnifiedStorage storage) {
         return new AccumulatingTimeStorage(mock(WrappedLogger.class), storage);
     }
 
+    private AccumulatingTimeStorage writeBehindAccumulator(final FakeUnifiedStorage storage) {
+        final WriteBehindSessionJournal journal = new WriteBehindSessionJournal(mock(WrappedLogger.class), storage,
+                100, 60_000L);
+        return new AccumulatingTimeStorage(mock(WrappedLogger.class), storage, journal);
+    }
+
     private static final class FakeUnifiedStorage implements UnifiedStorage {
 
         private final List<PlayerSessionChunk> sessions = new ArrayList<>();
@@ -315,6 +495,12 @@ class AccumulatingTimeStorageTest {
 
         private final List<TimeEntryReason> directWriteReasons = new ArrayList<>();
 
+        private int batches;
+
+        private int failingBatches;
+
+        private int bulkUpdates;
+
         private boolean closed;
 
         @Override
@@ -428,6 +614,25 @@ class AccumulatingTimeStorageTest {
                     previous.startedAtMs(), previous.stoppedAtMs(), previous.reason()));
         }
 
+        @Override
+        public void updateSessions(final Map<Long, Long> sessionIdToStoppedAt, final TimeEntryReason reason)
+                throws StorageException {
+            if (!sessionIdToStoppedAt.isEmpty()) {
+                bulkUpdates++;
+            }
+            UnifiedStorage.super.updateSessions(sessionIdToStoppedAt, reason);
+        }
+
+        @Override
+        public Map<Long, Long> writeSessions(final List<SessionWrite> writes) throws StorageException {
+            batches++;
+            if (failingBatches > 0) {
+                failingBatches--;
+                throw new StorageException("Storage is unavailable");
+            }
+            return UnifiedStorage.super.writeSessions(writes);
+        }
+
         @Override
         public void persistSession(final PlayerSessionChunk session) {
             sessions.add(session);
@@ -438,6 +643,17 @@ class AccumulatingTimeStorageTest {
             return Map.of();
         }
 
+        @Override
+        public List<LeaderboardEntry> getLeaderboard(final TimeScope scope, final Optional<TimeRange> range,
+                                                     final int offset, final int limit) {
+            return List.of();
+        }
+
+        @Override
+        public LeaderboardSummary getLeaderboardSummary(final TimeScope scope, final Optional<TimeRange> range) {
+            return new LeaderboardSummary(0L, 0L);
+        }
+
         @Override
         public void deletePlayer(final UUID uniqueId) throws SQLException {
             adjustments.remove(uniqueId);
@@ -8,17 +8,25 @@ import com.jannik_kuehn.common.exception.StorageException;
 import com.jannik_kuehn.common.storage.database.migration.DatabaseMigrationPreflight;
 import com.jannik_kuehn.common.storage.database.table.ManualAdjustmentTable;
 import com.jannik_kuehn.common.storage.database.table.PlayerTable;
+import com.jannik_kuehn.common.storage.database.table.PlayerTotalTable;
 import com.jannik_kuehn.common.storage.database.table.ServerTable;
+import com.jannik_kuehn.common.storage.database.table.TimeBucketTable;
 import com.jannik_kuehn.common.storage.database.table.TimeTable;
 import com.jannik_kuehn.common.storage.database.table.WorldTable;
+import com.jannik_kuehn.common.storage.model.PlayerHistoryChunk;
+import com.jannik_kuehn.common.storage.model.LeaderboardEntry;
+import com.jannik_kuehn.common.storage.model.LeaderboardSummary;
 import com.jannik_kuehn.common.storage.model.ManualTimeAdjustment;
 import com.jannik_kuehn.common.storage.model.PlayerSessionChunk;
+import com.jannik_kuehn.common.storage.model.PlayerSessionContext;
 import com.jannik_kuehn.common.storage.model.RecentPlayerIdentity;
+import com.jannik_kuehn.common.storage.model.SessionWrite;
 import com.jannik_kuehn.common.storage.model.StorageDeleteRequest;
 import com.jannik_kuehn.common.storage.model.StorageMaintenanceConfirmation;
 import com.jannik_kuehn.common.storage.model.StorageMaintenancePreview;
 import com.jannik_kuehn.common.storage.model.StorageMaintenanceScope;
 import com.jannik_kuehn.common.storage.model.StorageTransferMapping;
+import com.jannik_kuehn.common.storage.model.StorageTransferProgress;
 import com.jannik_kuehn.common.storage.model.StorageTransferRequest;
 import com.jannik_kuehn.common.storage.model.TimeEntryReason;
 import org.junit.jupiter.api.Test;
@@ -33,7 +41,9 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalLong;
 import java.util.UUID;
@@ -94,6 +104,25 @@ class UnifiedDatabaseStorageTest {
         assertEquals(0, countRows(TABLE_PREFIX + "_time_adjustment"), "Expected no time adjustments");
     }
 
+    @Test
+    void deletePlayerRollsBackWhenOneTableFails() throws Exception {
+        try (UnifiedDatabaseStorage storage = storage()) {
+
+            storage.persistSession(new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "survival", "world",
+                    1_000L, 11_000L, TimeEntryReason.PLAYER_LEAVE));
+            try (Connection connection = openSqlite();
+                 Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DROP TABLE `" + TABLE_PREFIX + "_time_bucket`");
+            }
+
+            assertThrows(StorageException.class, () -> storage.deletePlayer(PLAYER),
+                    "Expected the failing delete to be reported");
+            assertEquals(Optional.of(PLAYER), storage.getUuid("Lorias_"), "Expected the player to be kept");
+            assertEquals(OptionalLong.of(10L), storage.getTime(PLAYER), "Expected the total to be kept");
+        }
+        assertEquals(1, countRows(TABLE_PREFIX + "_time"), "Expected the session to be kept");
+    }
+
     @Test
     void inactiveCleanupDeletesOnlyHistory() throws Exception {
         try (UnifiedDatabaseStorage storage = storage()) {
@@ -104,7 +133,8 @@ class UnifiedDatabaseStorageTest {
             storage.addTime(new ManualTimeAdjustment(PLAYER, 5L, TimeEntryReason.MANUAL_ADJUSTMENT, "CONSOLE"));
             try (Connection connection = openSqlite();
                  Statement statement = connection.createStatement()) {
-                statement.executeUpdate("UPDATE `" + TABLE_PREFIX + "_player` SET `last_seen` = DATETIME('now', '-400 days')");
+                statement.executeUpdate("UPDATE `" + TABLE_PREFIX + "_player` SET `last_seen` = "
+                        + "CAST((julianday('now', '-400 days') - 2440587.5) * 86400000 AS INTEGER)");
             }
 
             assertEquals(2, storage.deleteInactiveHistory(365L), "Expected two rows to be deleted");
@@ -114,6 +144,101 @@ class UnifiedDatabaseStorageTest {
         assertEquals(0, countRows(TABLE_PREFIX + "_time_adjustment"), "Expected no time adjustments");
     }
 
+    @Test
+    void inactiveCleanupDeletesHistoryInChunksOfPlayers() throws Exception {
+        final UUID second = UUID.fromString("5bb8c1d4-8a8c-4b8e-9f0e-6f3f7a0c2d11");
+        try (UnifiedDatabaseStorage storage = storage()) {
+
+            storage.persistSession(new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "survival", "world",
+                    1_000L, 11_000L, TimeEntryReason.PLAYER_LEAVE));
+            storage.persistSession(new PlayerSessionChunk(second, Optional.of("Other"), "survival", "world",
+                    1_000L, 21_000L, TimeEntryReason.PLAYER_LEAVE));
+            try (Connection connection = openSqlite();
+                 Statement statement = connection.createStatement()) {
+                statement.executeUpdate("UPDATE `" + TABLE_PREFIX + "_player` SET `last_seen` = "
+                        + "CAST((julianday('now', '-400 days') - 2440587.5) * 86400000 AS INTEGER)");
+            }
+
+            final PlayerHistoryChunk first = storage.deleteInactiveHistoryChunk(365L, 0L, 1);
+            assertEquals(1, first.players(), "Expected the chunk to be limited to one player");
+            assertEquals(1, first.removedRows(), "Expected the session of the first player to be deleted");
+            assertEquals(1, countRows(TABLE_PREFIX + "_time"), "Expected the second player to be kept for now");
+
+            final PlayerHistoryChunk next = storage.deleteInactiveHistoryChunk(365L, first.lastPlayerId(), 1);
+            assertEquals(1, next.removedRows(), "Expected the session of the second player to be deleted");
+            assertEquals(0, storage.deleteInactiveHistoryChunk(365L, next.lastPlayerId(), 1).players(),
+                    "Expected no inactive players after the last chunk");
+            assertEquals(OptionalLong.empty(), storage.getTime(second), "Expected the total to be deleted too");
+        }
+        assertEquals(0, countRows(TABLE_PREFIX + "_time"), "Expected no time entries");
+    }
+
+    @Test
+    void sessionCompactionMergesOldSessionsPerDayWithoutChangingTotals() throws Exception {
+        final long day = 86_400_000L;
+        try (UnifiedDatabaseStorage storage = storage()) {
+            storage.persistSessions(List.of(
+                    new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "survival", "world",
+                            day + 1_000L, day + 11_500L, TimeEntryReason.AUTO_FLUSH),
+                    new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "survival", "world",
+                            day + 60_000L, day + 80_700L, TimeEntryReason.WORLD_SWITCH),
+                    new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "survival", "world",
+                            day + 90_000L, day + 95_900L, TimeEntryReason.PLAYER_LEAVE),
+                    new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "survival", "world",
+                            2 * day - 4_000L, 2 * day + 6_000L, TimeEntryReason.PLAYER_LEAVE),
+                    new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "survival", "world",
+                            3 * day, 3 * day + 7_000L, TimeEntryReason.PLAYER_LEAVE)));
+            final TimeRange firstDay = TimeRange.between(Instant.ofEpochMilli(day), Instant.ofEpochMilli(2 * day));
+            final OptionalLong totalBefore = storage.getTime(PLAYER);
+            final OptionalLong dayBefore = storage.getTime(PLAYER, TimeScope.GLOBAL, firstDay);
+
+            assertTrue(storage.startSessionCompaction(30L), "Expected a first compaction run to start");
+            final PlayerHistoryChunk chunk = storage.compactSessionsChunk(0L, 10);
+
+            assertEquals(1, chunk.players(), "Expected the player to be processed");
+            assertEquals(2, chunk.removedRows(), "Expected three sessions of one day to become one row");
+            assertEquals(3, countRows(TABLE_PREFIX + "_time"), "Expected sessions crossing midnight to be kept");
+            assertEquals(OptionalLong.of(52L), totalBefore, "Expected the whole seconds of every session");
+            assertEquals(totalBefore, storage.getTime(PLAYER), "Expected the total to stay exact");
+            assertEquals(dayBefore, storage.getTime(PLAYER, TimeScope.GLOBAL, firstDay),
+                    "Expected the whole-day range to stay exact");
+            storage.rebuildTotals();
+            assertEquals(totalBefore, storage.getTime(PLAYER), "Expected the compacted rows to rebuild the same total");
+            assertEquals(0, storage.compactSessionsChunk(chunk.lastPlayerId(), 10).players(),
+                    "Expected the run to finish after the last player");
+            assertFalse(storage.startSessionCompaction(30L), "Expected a second run with the same cutoff to be skipped");
+        }
+    }
+
+    @Test
+    void sessionCompactionOnlyReadsSessionsThatAgedSinceTheLastRun() throws Exception {
+        final long day = 86_400_000L;
+        final long twentyDaysAgo = TimeBucketTable.dayStartMs(Math.floorDiv(System.currentTimeMillis(), day) - 20);
+        try (UnifiedDatabaseStorage storage = storage()) {
+            storage.persistSessions(List.of(
+                    new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "survival", "world",
+                            day + 1_000L, day + 11_000L, TimeEntryReason.AUTO_FLUSH),
+                    new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "survival", "world",
+                            day + 20_000L, day + 30_000L, TimeEntryReason.PLAYER_LEAVE)));
+            assertTrue(storage.startSessionCompaction(30L), "Expected a first compaction run to start");
+            assertEquals(1, storage.compactSessionsChunk(0L, 10).removedRows(), "Expected the old day to be merged");
+            storage.compactSessionsChunk(Long.MAX_VALUE, 10);
+
+            storage.persistSessions(List.of(
+                    new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "survival", "world",
+                            day + 40_000L, day + 50_000L, TimeEntryReason.AUTO_FLUSH),
+                    new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "survival", "world",
+                            twentyDaysAgo + 1_000L, twentyDaysAgo + 2_000L, TimeEntryReason.AUTO_FLUSH),
+                    new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "survival", "world",
+                            twentyDaysAgo + 3_000L, twentyDaysAgo + 4_000L, TimeEntryReason.PLAYER_LEAVE)));
+            assertTrue(storage.startSessionCompaction(10L), "Expected a run with a later cutoff to start");
+            assertEquals(1, storage.compactSessionsChunk(0L, 10).removedRows(),
+                    "Expected only the sessions between both cutoffs to be merged");
+            assertEquals(3, countRows(TABLE_PREFIX + "_time"),
+                    "Expected the session behind the first cutoff to be left to that run");
+        }
+    }
+
     @Test
     void inactiveCleanupSkipsRecentPlayers() throws Exception {
         try (UnifiedDatabaseStorage storage = storage()) {
@@ -150,7 +275,8 @@ class UnifiedDatabaseStorageTest {
             storage.setPlayerName(PLAYER, "Lorias_");
             try (Connection connection = openSqlite();
                  Statement statement = connection.createStatement()) {
-                statement.executeUpdate("UPDATE `" + TABLE_PREFIX + "_player` SET `last_seen` = DATETIME('now', '-40 days')");
+                statement.executeUpdate("UPDATE `" + TABLE_PREFIX + "_player` SET `last_seen` = "
+                        + "CAST((julianday('now', '-40 days') - 2440587.5) * 86400000 AS INTEGER)");
             }
 
             assertTrue(storage.getRecentPlayerIdentities(30L).isEmpty(), "Expected inactive player to be skipped");
@@ -293,6 +419,55 @@ class UnifiedDatabaseStorageTest {
         }
     }
 
+    @Test
+    void rangedTotalsAreEmptyForUnknownPlayersAndScopes() throws Exception {
+        final TimeRange range = TimeRange.between(Instant.ofEpochMilli(0L), Instant.ofEpochMilli(60_000L));
+        try (UnifiedDatabaseStorage storage = storage()) {
+
+            storage.setPlayerName(PLAYER, "Lorias_");
+            storage.persistSession(new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "survival", "world",
+                    0L, 10_000L, TimeEntryReason.PLAYER_LEAVE));
+
+            assertEquals(OptionalLong.of(10L), storage.getTime(PLAYER, TimeScope.GLOBAL, range),
+                    "Expected the ranged global total");
+            assertTrue(storage.getTime(UUID.randomUUID(), TimeScope.GLOBAL, range).isEmpty(),
+                    "Expected no ranged total for an unknown player");
+            assertTrue(storage.getTime(PLAYER, TimeScope.server("lobby"), range).isEmpty(),
+                    "Expected no ranged total for an unknown server");
+            assertTrue(storage.getTime(PLAYER, TimeScope.world("survival", "nether"), range).isEmpty(),
+                    "Expected no ranged total for an unknown world");
+        }
+    }
+
+    @Test
+    void bulkTotalsMatchSingleLookupsAndSkipPlayersWithoutTime() throws Exception {
+        final UUID second = UUID.fromString("5bb8c1d4-8a8c-4b8e-9f0e-6f3f7a0c2d11");
+        final UUID unknown = UUID.fromString("0f7c4d35-3d39-4c79-9d0c-2c6a5bde4f20");
+        final TimeRange range = TimeRange.between(Instant.ofEpochMilli(5_000L), Instant.ofEpochMilli(25_000L));
+        try (UnifiedDatabaseStorage storage = storage()) {
+
+            storage.persistSession(new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "survival", "world",
+                    0L, 10_000L, TimeEntryReason.PLAYER_LEAVE));
+            storage.persistSession(new PlayerSessionChunk(second, Optional.of("Other"), "lobby", "spawn",
+                    20_000L, 40_000L, TimeEntryReason.PLAYER_LEAVE));
+            storage.addTime(new ManualTimeAdjustment(second, 3L, TimeEntryReason.MANUAL_ADJUSTMENT, "CONSOLE"));
+            final List<UUID> players = List.of(PLAYER, second, unknown);
+
+            assertEquals(Map.of(PLAYER, 10L, second, 23L), storage.getTimes(players, TimeScope.GLOBAL),
+                    "Expected the global totals of all known players");
+            assertEquals(Map.of(PLAYER, 10L), storage.getTimes(players, TimeScope.world("survival", "world")),
+                    "Expected only players with time in the world");
+            assertEquals(Map.of(), storage.getTimes(players, TimeScope.server("missing")),
+                    "Expected no totals for an unknown server");
+            assertEquals(Map.of(PLAYER, storage.getTime(PLAYER, TimeScope.GLOBAL, range).orElseThrow(),
+                            second, storage.getTime(second, TimeScope.GLOBAL, range).orElseThrow()),
+                    storage.getTimes(players, TimeScope.GLOBAL, range),
+                    "Expected the ranged totals to match the single lookups");
+            assertEquals(Map.of(second, 5L), storage.getTimes(players, TimeScope.server("lobby"), range),
+                    "Expected only players with time in the server and range");
+        }
+    }
+
     @Test
     void scopedAdjustmentSchemaStoresScopeReferences() throws Exception {
         try (UnifiedDatabaseStorage storage = storage()) {
@@ -479,6 +654,68 @@ class UnifiedDatabaseStorageTest {
         }
     }
 
+    @Test
+    void maintenanceStorageTypeTransferResumesAfterLastCommittedBatch() throws Exception {
+        try (UnifiedDatabaseStorage source = storage();
+             UnifiedDatabaseStorage target = storage(targetDataFolder)) {
+
+            source.persistSession(new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "survival", "world",
+                    1_000L, 11_000L, TimeEntryReason.PLAYER_LEAVE));
+            source.addTime(new ManualTimeAdjustment(PLAYER, 5L, TimeEntryReason.MANUAL_ADJUSTMENT, "CONSOLE",
+                    TimeScope.server("survival")));
+            final List<StorageTransferProgress> reported = new ArrayList<>();
+
+            final StorageMaintenancePreview first = source.previewStorageTransferTo(target);
+            assertThrows(IllegalStateException.class, () -> source.applyStorageTransferTo(target, first.confirmation(),
+                    progress -> {
+                        throw new IllegalStateException("interrupted");
+                    }), "Expected the interruption to abort the transfer");
+            assertEquals(Optional.of(PLAYER), target.getUuid("Lorias_"), "Expected the first batch to stay committed");
+
+            final StorageMaintenancePreview second = source.previewStorageTransferTo(target);
+            assertTrue(second.targetDataExists(), "Expected the partial target to be detected");
+            source.applyStorageTransferTo(target, second.confirmation(), reported::add);
+
+            assertEquals(OptionalLong.of(15L), target.getTime(PLAYER), "Expected the copied global total");
+            assertEquals(OptionalLong.of(15L), target.getTime(PLAYER, TimeScope.server("survival")),
+                    "Expected the copied server total");
+            assertEquals(List.of(StorageTransferProgress.Stage.SESSIONS, StorageTransferProgress.Stage.ADJUSTMENTS,
+                            StorageTransferProgress.Stage.TOTALS),
+                    reported.stream().map(StorageTransferProgress::stage).toList(),
+                    "Expected only the remaining stages to be copied");
+            assertThrows(StorageException.class, () -> source.applyStorageTransferTo(target,
+                            source.previewStorageTransferTo(target).confirmation()),
+                    "Expected a finished transfer to leave no checkpoint behind");
+        }
+    }
+
+    @Test
+    void maintenanceStorageTypeTransferResumesTotalsAfterLastCommittedChunk() throws Exception {
+        try (UnifiedDatabaseStorage source = storage();
+             UnifiedDatabaseStorage target = storage(targetDataFolder)) {
+
+            source.persistSession(new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "survival", "world",
+                    1_000L, 11_000L, TimeEntryReason.PLAYER_LEAVE));
+            final List<StorageTransferProgress> reported = new ArrayList<>();
+
+            final StorageMaintenancePreview first = source.previewStorageTransferTo(target);
+            assertThrows(IllegalStateException.class, () -> source.applyStorageTransferTo(target, first.confirmation(),
+                    progress -> {
+                        if (progress.stage() == StorageTransferProgress.Stage.TOTALS) {
+                            throw new IllegalStateException("interrupted");
+                        }
+                    }), "Expected the interruption to abort the transfer");
+            assertEquals(OptionalLong.of(10L), target.getTime(PLAYER), "Expected the first totals chunk to stay committed");
+
+            source.applyStorageTransferTo(target, source.previewStorageTransferTo(target).confirmation(), reported::add);
+
+            assertEquals(List.of(), reported, "Expected no chunk to be recomputed again");
+            assertEquals(OptionalLong.of(10L), target.getTime(PLAYER, TimeScope.GLOBAL,
+                            TimeRange.between(Instant.ofEpochMilli(0L), Instant.ofEpochMilli(86_400_000L))),
+                    "Expected the daily buckets of the target to be filled");
+        }
+    }
+
     @Test
     void maintenanceStorageTypeTransferRejectsNonEmptyTarget() throws Exception {
         try (UnifiedDatabaseStorage source = storage();
@@ -498,6 +735,261 @@ class UnifiedDatabaseStorageTest {
         }
     }
 
+    @Test
+    void leaderboardPagesPlayersByTotalInSql() throws Exception {
+        final UUID second = UUID.fromString("5bb8c1d4-8a8c-4b8e-9f0e-6f3f7a0c2d11");
+        final UUID third = UUID.fromString("0c9d6c1e-2f4b-4f0e-9a3d-8c1b2a3d4e5f");
+        try (UnifiedDatabaseStorage storage = storage()) {
+            storage.persistSession(new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "survival", "world",
+                    0L, 10_000L, TimeEntryReason.PLAYER_LEAVE));
+            storage.persistSession(new PlayerSessionChunk(second, Optional.of("Other"), "lobby", "world",
+                    0L, 30_000L, TimeEntryReason.PLAYER_LEAVE));
+            storage.persistSession(new PlayerSessionChunk(third, Optional.of("Third"), "survival", "world",
+                    0L, 20_000L, TimeEntryReason.PLAYER_LEAVE));
+
+            assertEquals(List.of(new LeaderboardEntry(second, Optional.of("Other"), 30L),
+                            new LeaderboardEntry(third, Optional.of("Third"), 20L)),
+                    storage.getLeaderboard(TimeScope.GLOBAL, Optional.empty(), 0, 2), "Expected the first page");
+            assertEquals(List.of(new LeaderboardEntry(PLAYER, Optional.of("Lorias_"), 10L)),
+                    storage.getLeaderboard(TimeScope.GLOBAL, Optional.empty(), 2, 2), "Expected the second page");
+            assertEquals(new LeaderboardSummary(3L, 60L),
+                    storage.getLeaderboardSummary(TimeScope.GLOBAL, Optional.empty()), "Expected the global summary");
+            assertEquals(List.of(new LeaderboardEntry(third, Optional.of("Third"), 20L),
+                            new LeaderboardEntry(PLAYER, Optional.of("Lorias_"), 10L)),
+                    storage.getLeaderboard(TimeScope.server("survival"), Optional.empty(), 0, 8),
+                    "Expected only survival players");
+            assertEquals(new LeaderboardSummary(0L, 0L),
+                    storage.getLeaderboardSummary(TimeScope.server("unknown"), Optional.empty()),
+                    "Expected an empty summary for an unknown server");
+        }
+    }
+
+    @Test
+    void rangedLeaderboardRanksTimeWithinRange() throws Exception {
+        final UUID second = UUID.fromString("5bb8c1d4-8a8c-4b8e-9f0e-6f3f7a0c2d11");
+        final TimeRange range = TimeRange.between(Instant.ofEpochMilli(5_000L), Instant.ofEpochMilli(25_000L));
+        try (UnifiedDatabaseStorage storage = storage()) {
+            storage.persistSession(new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "survival", "world",
+                    0L, 20_000L, TimeEntryReason.PLAYER_LEAVE));
+            storage.persistSession(new PlayerSessionChunk(second, Optional.of("Other"), "survival", "world",
+                    20_000L, 100_000L, TimeEntryReason.PLAYER_LEAVE));
+            storage.addTime(new ManualTimeAdjustment(second, 3L, TimeEntryReason.MANUAL_ADJUSTMENT, "CONSOLE",
+                    TimeScope.world("survival", "world")));
+            updateAdjustmentCreatedAt(Instant.ofEpochMilli(10_000L));
+
+            assertEquals(List.of(new LeaderboardEntry(PLAYER, Optional.of("Lorias_"), 15L),
+                            new LeaderboardEntry(second, Optional.of("Other"), 8L)),
+                    storage.getLeaderboard(TimeScope.world("survival", "world"), Optional.of(range), 0, 8),
+                    "Expected ranged sessions and adjustments to be ranked");
+            assertEquals(new LeaderboardSummary(2L, 23L),
+                    storage.getLeaderboardSummary(TimeScope.server("survival"), Optional.of(range)),
+                    "Expected the ranged summary");
+        }
+    }
+
+    @Test
+    void writeSessionsAppliesBatchWithPlaceholders() throws Exception {
+        try (UnifiedDatabaseStorage storage = storage()) {
+            final long existing = storage.startSession(new PlayerSessionContext(PLAYER, "Lorias_", "survival", "world", 1_000L),
+                    TimeEntryReason.PLAYER_JOIN);
+
+            final Map<Long, Long> started = storage.writeSessions(List.of(
+                    SessionWrite.stop(existing, 6_000L, TimeEntryReason.WORLD_SWITCH),
+                    SessionWrite.start(-1L, new PlayerSessionContext(PLAYER, "Lorias_", "survival", "nether", 6_000L),
+                            TimeEntryReason.PLAYER_JOIN),
+                    SessionWrite.world(-1L, "survival", "the_end"),
+                    SessionWrite.stop(-1L, 16_000L, TimeEntryReason.PLAYER_LEAVE)));
+
+            assertEquals(1, started.size(), "Expected one resolved placeholder");
+            assertTrue(started.get(-1L) > existing, "Expected the placeholder to resolve to a new session id");
+            assertEquals(OptionalLong.of(15L), storage.getTime(PLAYER), "Expected both sessions to be persisted");
+            assertEquals(OptionalLong.of(10L), storage.getTime(PLAYER, TimeScope.world("survival", "the_end")),
+                    "Expected the world update to target the placeholder session");
+        }
+    }
+
+    @Test
+    void updateSessionsWritesAllStopTimestamps() throws Exception {
+        final UUID second = UUID.fromString("5bb8c1d4-8a8c-4b8e-9f0e-6f3f7a0c2d11");
+        try (UnifiedDatabaseStorage storage = storage()) {
+            final long first = storage.startSession(new PlayerSessionContext(PLAYER, "Lorias_", "survival", "world", 1_000L),
+                    TimeEntryReason.PLAYER_JOIN);
+            final long other = storage.startSession(new PlayerSessionContext(second, "Other", "survival", "world", 2_000L),
+                    TimeEntryReason.PLAYER_JOIN);
+
+            storage.updateSessions(Map.of(first, 11_000L, other, 7_000L), TimeEntryReason.AUTO_FLUSH);
+
+            assertEquals(OptionalLong.of(10L), storage.getTime(PLAYER), "Expected the first session to be updated");
+            assertEquals(OptionalLong.of(5L), storage.getTime(second), "Expected the second session to be updated");
+        }
+    }
+
+    @Test
+    void deletedPlayerIsRecreatedAfterIdentityCacheEviction() throws Exception {
+        try (UnifiedDatabaseStorage storage = storage()) {
+
+            storage.setPlayerName(PLAYER, "Lorias_");
+            storage.persistSession(new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "survival", "world",
+                    1_000L, 11_000L, TimeEntryReason.PLAYER_LEAVE));
+            storage.deletePlayer(PLAYER);
+            storage.persistSession(new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "survival", "world",
+                    20_000L, 23_000L, TimeEntryReason.PLAYER_LEAVE));
+
+            assertEquals(Optional.of(PLAYER), storage.getUuid("Lorias_"), "Expected the player to be recreated");
+            assertEquals(OptionalLong.of(3L), storage.getTime(PLAYER), "Expected only the new session");
+        }
+    }
+
+    @Test
+    void cachedPlayerReclaimsNameTakenByAnotherPlayer() throws Exception {
+        final UUID other = UUID.fromString("0f6a4d1c-6b8e-4c39-9a52-3f1f7c2d9b10");
+        try (UnifiedDatabaseStorage storage = storage()) {
+
+            storage.persistSession(new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "survival", "world",
+                    1_000L, 11_000L, TimeEntryReason.PLAYER_LEAVE));
+            storage.persistSession(new PlayerSessionChunk(other, Optional.of("Lorias_"), "survival", "world",
+                    1_000L, 11_000L, TimeEntryReason.PLAYER_LEAVE));
+            storage.persistSession(new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "survival", "world",
+                    20_000L, 22_000L, TimeEntryReason.PLAYER_LEAVE));
+
+            assertEquals(Optional.of(PLAYER), storage.getUuid("Lorias_"), "Expected the cached player to reclaim the name");
+            assertEquals(Optional.empty(), storage.getName(other), "Expected the other player to lose the name");
+        }
+    }
+
+    @Test
+    void deletedWorldIsRecreatedAfterIdentityCacheEviction() throws Exception {
+        try (UnifiedDatabaseStorage storage = storage()) {
+
+            storage.warmIdentityCache(10);
+            storage.persistSession(new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "survival", "world",
+                    1_000L, 11_000L, TimeEntryReason.PLAYER_LEAVE));
+            final StorageDeleteRequest request = new StorageDeleteRequest(StorageMaintenanceScope.world("survival", "world"));
+            storage.applyDelete(request, storage.previewDelete(request).confirmation());
+            storage.persistSession(new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "survival", "world",
+                    20_000L, 22_000L, TimeEntryReason.PLAYER_LEAVE));
+
+            assertEquals(OptionalLong.of(2L), storage.getTime(PLAYER, TimeScope.world("survival", "world")),
+                    "Expected the session to be written to the recreated world");
+        }
+    }
+
+    @Test
+    void materializedTotalsFollowSessionUpdatesWorldSwitchesAndAdjustments() throws Exception {
+        try (UnifiedDatabaseStorage storage = storage()) {
+            final long sessionId = storage.startSession(new PlayerSessionContext(PLAYER, "Lorias_", "survival", "world", 1_000L),
+                    TimeEntryReason.PLAYER_JOIN);
+            assertEquals(OptionalLong.of(0L), storage.getTime(PLAYER), "Expected a started session to count as data");
+
+            storage.updateSession(sessionId, 5_000L, TimeEntryReason.AUTO_FLUSH);
+            storage.updateSessionWorld(sessionId, "survival", "nether");
+            storage.updateSessions(Map.of(sessionId, 11_000L), TimeEntryReason.PLAYER_LEAVE);
+            storage.addTime(new ManualTimeAdjustment(PLAYER, 4L, TimeEntryReason.MANUAL_ADJUSTMENT, "CONSOLE",
+                    TimeScope.world("survival", "nether")));
+            storage.addTimes(Map.of(PLAYER, -3L), TimeEntryReason.MANUAL_ADJUSTMENT);
+
+            assertEquals(OptionalLong.of(11L), storage.getTime(PLAYER), "Expected the global total to follow all writes");
+            assertEquals(OptionalLong.of(14L), storage.getTime(PLAYER, TimeScope.server("survival")),
+                    "Expected the server total to include the world adjustment");
+            assertEquals(OptionalLong.of(14L), storage.getTime(PLAYER, TimeScope.world("survival", "nether")),
+                    "Expected the switched world to own the session");
+            assertEquals(11L, storage.getAllTimeEntries().get(PLAYER.toString()), "Expected the global total");
+        }
+    }
+
+    @Test
+    void rebuildTotalsRestoresTotalsFromHistory() throws Exception {
+        try (UnifiedDatabaseStorage storage = storage()) {
+            storage.persistSession(new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "survival", "world",
+                    1_000L, 11_000L, TimeEntryReason.PLAYER_LEAVE));
+            storage.persistSession(new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "lobby", "spawn",
+                    1_000L, 5_000L, TimeEntryReason.PLAYER_LEAVE));
+            storage.addTime(new ManualTimeAdjustment(PLAYER, 3L, TimeEntryReason.MANUAL_ADJUSTMENT, "CONSOLE",
+                    TimeScope.server("survival")));
+            storage.addTime(new ManualTimeAdjustment(PLAYER, 2L, TimeEntryReason.MANUAL_ADJUSTMENT, "CONSOLE",
+                    TimeScope.world("survival", "world")));
+            storage.addTime(new ManualTimeAdjustment(PLAYER, 7L, TimeEntryReason.MANUAL_ADJUSTMENT, "CONSOLE"));
+            try (Connection connection = openSqlite();
+                 Statement statement = connection.createStatement()) {
+                statement.executeUpdate("UPDATE `" + TABLE_PREFIX + "_player_total` SET `total_seconds` = 0");
+            }
+
+            assertEquals(5, storage.rebuildTotals(), "Expected one row per player scope");
+            assertEquals(OptionalLong.of(26L), storage.getTime(PLAYER), "Expected the rebuilt global total");
+            assertEquals(OptionalLong.of(15L), storage.getTime(PLAYER, TimeScope.server("survival")),
+                    "Expected the rebuilt server total");
+            assertEquals(OptionalLong.of(12L), storage.getTime(PLAYER, TimeScope.world("survival", "world")),
+                    "Expected the rebuilt world total");
+            assertEquals(OptionalLong.of(4L), storage.getTime(PLAYER, TimeScope.world("lobby", "spawn")),
+                    "Expected the rebuilt world total");
+        }
+    }
+
+    @Test
+    void rangedTotalsCombineDailyBucketsWithPartialEdgeDays() throws Exception {
+        final long dayStart = TimeBucketTable.dayStartMs(20_000L);
+        final long hour = 3_600_000L;
+        final TimeRange range = TimeRange.between(Instant.ofEpochMilli(dayStart + 23 * hour),
+                Instant.ofEpochMilli(dayStart + 49 * hour));
+        try (UnifiedDatabaseStorage storage = storage()) {
+            final long sessionId = storage.startSession(new PlayerSessionContext(PLAYER, Optional.of("Lorias_"),
+                    "survival", "world", dayStart + 22 * hour), TimeEntryReason.PLAYER_JOIN);
+            storage.updateSession(sessionId, dayStart + 50 * hour, TimeEntryReason.PLAYER_LEAVE);
+            storage.persistSession(new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "lobby", "spawn",
+                    dayStart + 24 * hour + 10_000L, dayStart + 24 * hour + 40_000L, TimeEntryReason.PLAYER_LEAVE));
+
+            assertEquals(OptionalLong.of(26 * 3_600L + 30L), storage.getTime(PLAYER, TimeScope.GLOBAL, range),
+                    "Expected both edge hours, the whole day and the short session");
+            assertEquals(OptionalLong.of(26 * 3_600L), storage.getTime(PLAYER, TimeScope.server("survival"), range),
+                    "Expected the split session on its server");
+            assertEquals(OptionalLong.of(30L), storage.getTime(PLAYER, TimeScope.world("lobby", "spawn"), range),
+                    "Expected the whole-day bucket of the short session");
+
+            storage.updateSessionWorld(sessionId, "survival", "nether");
+
+            assertTrue(storage.getTime(PLAYER, TimeScope.world("survival", "world"), range).isEmpty(),
+                    "Expected the buckets to leave the old world");
+            assertEquals(OptionalLong.of(26 * 3_600L), storage.getTime(PLAYER, TimeScope.world("survival", "nether"), range),
+                    "Expected the buckets to follow the session world");
+        }
+    }
+
+    @Test
+    void backfillTimeBucketsFillsBucketsFromHistoryInChunks() throws Exception {
+        final UUID second = UUID.fromString("5bb8c1d4-8a8c-4b8e-9f0e-6f3f7a0c2d11");
+        final long dayStart = TimeBucketTable.dayStartMs(20_000L);
+        final TimeRange range = TimeRange.between(Instant.ofEpochMilli(dayStart - 1_000L),
+                Instant.ofEpochMilli(dayStart + 2 * TimeBucketTable.MILLIS_PER_DAY));
+        try (UnifiedDatabaseStorage storage = storage()) {
+            storage.persistSession(new PlayerSessionChunk(PLAYER, Optional.of("Lorias_"), "survival", "world",
+                    dayStart + 1_000L, dayStart + TimeBucketTable.MILLIS_PER_DAY + 1_000L, TimeEntryReason.PLAYER_LEAVE));
+            storage.persistSession(new PlayerSessionChunk(second, Optional.of("Other"), "survival", "world",
+                    dayStart, dayStart + TimeBucketTable.MILLIS_PER_DAY, TimeEntryReason.PLAYER_LEAVE));
+            assertFalse(storage.startTimeBucketBackfill(), "Expected maintained buckets to need no backfill");
+            try (Connection connection = openSqlite();
+                 Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DELETE FROM `" + TABLE_PREFIX + "_time_bucket`");
+            }
+
+            assertTrue(storage.startTimeBucketBackfill(), "Expected emptied buckets to need a backfill");
+            assertEquals(OptionalLong.of(86_400L), storage.getTime(PLAYER, TimeScope.GLOBAL, range),
+                    "Expected ranged lookups to read raw sessions until the backfill finished");
+
+            final PlayerHistoryChunk first = storage.backfillTimeBucketsChunk(0L, 1);
+            assertEquals(1, first.players(), "Expected one player per chunk");
+            assertTrue(storage.startTimeBucketBackfill(), "Expected an interrupted backfill to continue after a restart");
+            assertEquals(1, storage.backfillTimeBucketsChunk(0L, 1).players(),
+                    "Expected the restarted backfill to continue after the checkpoint");
+            assertEquals(0, storage.backfillTimeBucketsChunk(first.lastPlayerId() + 1, 1).players(),
+                    "Expected no players to be left");
+
+            assertFalse(storage.startTimeBucketBackfill(), "Expected the finished backfill to remove its checkpoint");
+            assertEquals(OptionalLong.of(86_400L), storage.getTime(PLAYER, TimeScope.GLOBAL, range),
+                    "Expected the backfilled buckets to serve the whole days");
+        }
+        assertEquals(3, countRows(TABLE_PREFIX + "_time_bucket"), "Expected the buckets of both players");
+    }
+
     private UnifiedDatabaseStorage storage() throws StorageException {
         return storage(dataFolder);
     }
@@ -506,13 +998,17 @@ class UnifiedDatabaseStorageTest {
         final LoggerFactory loggerFactory = new LoggerFactory(Logger.getLogger("test"));
         final DatabaseStorage databaseStorage = new DatabaseStorage(loggerFactory, config(), folder);
         new DatabaseMigrationPreflight(databaseStorage, loggerFactory.create(DatabaseMigrationPreflight.class)).migrateIfNecessary();
-        final PlayerTable playerTable = new PlayerTable(TABLE_PREFIX + "_player");
+        final PlayerTable playerTable = new PlayerTable(TABLE_PREFIX + "_player", databaseStorage.getDialect());
         final ServerTable serverTable = new ServerTable(TABLE_PREFIX + "_server");
         final WorldTable worldTable = new WorldTable(TABLE_PREFIX + "_world", serverTable);
         final TimeTable timeTable = new TimeTable(TABLE_PREFIX + "_time", playerTable, databaseStorage.getDialect());
         final ManualAdjustmentTable adjustmentTable = new ManualAdjustmentTable(TABLE_PREFIX + "_time_adjustment", playerTable);
+        final PlayerTotalTable totalTable = new PlayerTotalTable(TABLE_PREFIX + "_player_total", playerTable,
+                databaseStorage.getDialect());
+        final TimeBucketTable bucketTable = new TimeBucketTable(TABLE_PREFIX + "_time_bucket", playerTable,
+                databaseStorage.getDialect());
         return new UnifiedDatabaseStorage(databaseStorage.getProvider(), playerTable, serverTable, worldTable,
-                timeTable, adjustmentTable, databaseStorage.getDialect());
+                timeTable, adjustmentTable, totalTable, bucketTable, databaseStorage.getDialect());
     }
 
     private Configuration config() {
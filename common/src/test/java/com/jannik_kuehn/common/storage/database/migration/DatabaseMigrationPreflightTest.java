@@ -43,7 +43,7 @@ class DatabaseMigrationPreflightTest {
         migrate();
 
         try (Connection connection = openSqlite()) {
-            final DatabaseSnapshot expected = new DatabaseSnapshot(2, false, true, true, true, true, true, 0, 0, null, "global");
+            final DatabaseSnapshot expected = new DatabaseSnapshot(10, false, true, true, true, true, true, 0, 0, null, "global");
             assertEquals(expected, snapshot(connection), "versioned databases should use the update path");
         }
     }
@@ -53,7 +53,7 @@ class DatabaseMigrationPreflightTest {
         migrate();
 
         try (Connection connection = openSqlite()) {
-            final DatabaseSnapshot expected = new DatabaseSnapshot(2, false, true, true, true, true, true, 0, 0, null, "global");
+            final DatabaseSnapshot expected = new DatabaseSnapshot(10, false, true, true, true, true, true, 0, 0, null, "global");
             assertEquals(expected, snapshot(connection), "fresh databases should run first startup schema creation");
         }
     }
@@ -81,12 +81,99 @@ class DatabaseMigrationPreflightTest {
         migrate();
 
         try (Connection connection = openSqlite()) {
-            final DatabaseSnapshot expected = new DatabaseSnapshot(2, false, true, true, true, true, true,
+            final DatabaseSnapshot expected = new DatabaseSnapshot(10, false, true, true, true, true, true,
                     1, 1, "LEGACY_IMPORT", "global");
             assertEquals(expected, snapshot(connection), "legacy v1 aggregate data should be imported into scoped storage");
         }
     }
 
+    @Test
+    void convertsLegacyTextTimestampsToEpochMillis() throws Exception {
+        try (Connection connection = openSqlite()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("CREATE TABLE `" + TABLE_PREFIX + "` ("
+                        + "`id` INTEGER PRIMARY KEY AUTOINCREMENT,"
+                        + "`uuid` BLOB NOT NULL UNIQUE,"
+                        + "`name` TEXT UNIQUE,"
+                        + "`time` INTEGER NOT NULL DEFAULT 0"
+                        + ")");
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO `" + TABLE_PREFIX + "` (`uuid`, `name`, `time`) VALUES (?, ?, ?)")) {
+                insert.setBytes(1, UuidUtil.toBytes(PLAYER_UUID));
+                insert.setString(2, "Lorias_");
+                insert.setLong(3, 123L);
+                insert.executeUpdate();
+            }
+        }
+
+        migrate();
+
+        try (Connection connection = openSqlite()) {
+            assertEquals("integer", singleString(connection,
+                    "SELECT typeof(`join_time`) FROM `" + TABLE_PREFIX + "_time`"), "join time should be converted");
+            assertEquals("integer", singleString(connection,
+                    "SELECT typeof(`last_seen`) FROM `" + TABLE_PREFIX + "_player`"), "last seen should be converted");
+            assertEquals("123000", singleString(connection,
+                    "SELECT `leave_time` - `join_time` FROM `" + TABLE_PREFIX + "_time`"), "duration should be kept");
+            assertEquals("INTEGER", singleString(connection,
+                    "SELECT `type` FROM pragma_table_info('" + TABLE_PREFIX + "_time_adjustment') "
+                            + "WHERE `name` = 'created_at'"), "created at should be declared as integer");
+        }
+    }
+
+    @Test
+    void recomputesTotalsOfVersionTwoTextSessionsAfterConversion() throws Exception {
+        try (Connection connection = openSqlite()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("CREATE TABLE `" + TABLE_PREFIX + "_version` (`version_no` INTEGER NOT NULL)");
+                statement.executeUpdate("INSERT INTO `" + TABLE_PREFIX + "_version` (`version_no`) VALUES (1), (2)");
+                statement.executeUpdate("CREATE TABLE `" + TABLE_PREFIX + "_player` ("
+                        + "`id` INTEGER PRIMARY KEY AUTOINCREMENT, `uuid` BLOB NOT NULL UNIQUE, "
+                        + "`name` TEXT UNIQUE, `last_seen` TEXT NULL)");
+                statement.executeUpdate("CREATE TABLE `" + TABLE_PREFIX + "_server` ("
+                        + "`id` INTEGER PRIMARY KEY AUTOINCREMENT, `server` TEXT NOT NULL UNIQUE)");
+                statement.executeUpdate("CREATE TABLE `" + TABLE_PREFIX + "_world` ("
+                        + "`id` INTEGER PRIMARY KEY AUTOINCREMENT, `server_id` INTEGER NOT NULL, "
+                        + "`world` TEXT NOT NULL, UNIQUE(`server_id`, `world`))");
+                statement.executeUpdate("CREATE TABLE `" + TABLE_PREFIX + "_time` ("
+                        + "`id` INTEGER PRIMARY KEY AUTOINCREMENT, `player_id` INTEGER NOT NULL, "
+                        + "`world_id` INTEGER NOT NULL, `join_time` TEXT NOT NULL, `leave_time` TEXT NOT NULL, "
+                        + "`reason` TEXT NOT NULL DEFAULT 'UNSPECIFIED')");
+                statement.executeUpdate("CREATE TABLE `" + TABLE_PREFIX + "_time_adjustment` ("
+                        + "`id` INTEGER PRIMARY KEY AUTOINCREMENT, `player_id` INTEGER NOT NULL, "
+                        + "`scope_type` TEXT NOT NULL DEFAULT 'GLOBAL', `server_id` INTEGER NULL, "
+                        + "`world_id` INTEGER NULL, `amount_seconds` INTEGER NOT NULL, "
+                        + "`reason` TEXT NOT NULL DEFAULT 'MANUAL_ADJUSTMENT', `actor_uuid` BLOB NULL, "
+                        + "`actor_name` TEXT NOT NULL, `created_at` TEXT NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+                statement.executeUpdate("INSERT INTO `" + TABLE_PREFIX + "_server` (`server`) VALUES ('survival')");
+                statement.executeUpdate("INSERT INTO `" + TABLE_PREFIX + "_world` (`server_id`, `world`) VALUES (1, 'world')");
+                statement.executeUpdate("INSERT INTO `" + TABLE_PREFIX + "_time` "
+                        + "(`player_id`, `world_id`, `join_time`, `leave_time`, `reason`) VALUES "
+                        + "(1, 1, '2024-05-01 10:00:00.000', '2024-05-01 10:02:03.000', 'PLAYER_LEAVE'), "
+                        + "(1, 1, '2024-05-02 08:00:00.000', '2024-05-02 08:00:10.000', 'PLAYER_LEAVE')");
+                statement.executeUpdate("INSERT INTO `" + TABLE_PREFIX + "_time_adjustment` "
+                        + "(`player_id`, `amount_seconds`, `actor_name`) VALUES (1, 7, 'Console')");
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO `" + TABLE_PREFIX + "_player` (`uuid`, `name`, `last_seen`) VALUES (?, ?, ?)")) {
+                insert.setBytes(1, UuidUtil.toBytes(PLAYER_UUID));
+                insert.setString(2, "Lorias_");
+                insert.setString(3, "2024-05-02 08:00:10.000");
+                insert.executeUpdate();
+            }
+        }
+
+        migrate();
+
+        try (Connection connection = openSqlite()) {
+            assertEquals("140", singleString(connection, "SELECT `total_seconds` FROM `" + TABLE_PREFIX + "_player_total` "
+                    + "WHERE `scope_type` = 'GLOBAL'"), "Expected the global total to include the converted sessions");
+            assertEquals("133", singleString(connection, "SELECT `total_seconds` FROM `" + TABLE_PREFIX + "_player_total` "
+                    + "WHERE `scope_type` = 'WORLD'"), "Expected the world total to include the converted sessions");
+        }
+    }
+
     private void migrate() throws StorageException {
         final LoggerFactory loggerFactory = new LoggerFactory(Logger.getLogger("test"));
         final DatabaseStorage storage = new DatabaseStorage(loggerFactory, config(), dataFolder);
@@ -0,0 +1,133 @@
+package com.jannik_kuehn.common.storage.database.table;
+
+import com.github.roleplaycauldron.spellbook.core.logger.LoggerFactory;
+import com.jannik_kuehn.common.config.Configuration;
+import com.jannik_kuehn.common.exception.StorageException;
+import com.jannik_kuehn.common.storage.database.DatabaseStorage;
+import com.jannik_kuehn.common.storage.database.migration.DatabaseMigrationPreflight;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("PMD.UnitTestContainsTooManyAsserts")
+class PlayerTableTest {
+
+    private static final String TABLE_PREFIX = "loritime";
+
+    private static final UUID PLAYER = UUID.fromString("44174cf6-e76c-4994-899c-3387284ecd62");
+
+    private static final UUID OTHER = UUID.fromString("5bb8c1d4-8a8c-4b8e-9f0e-6f3f7a0c2d11");
+
+    @TempDir
+    private File dataFolder;
+
+    private DatabaseStorage databaseStorage;
+
+    private PlayerTable playerTable;
+
+    @BeforeEach
+    void setUp() throws StorageException {
+        final LoggerFactory loggerFactory = new LoggerFactory(Logger.getLogger("test"));
+        databaseStorage = new DatabaseStorage(loggerFactory, config(), dataFolder);
+        new DatabaseMigrationPreflight(databaseStorage, loggerFactory.create(DatabaseMigrationPreflight.class)).migrateIfNecessary();
+        playerTable = new PlayerTable(TABLE_PREFIX + "_player", databaseStorage.getDialect());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        databaseStorage.getProvider().close();
+    }
+
+    @Test
+    void ensurePlayerKeepsIdAndUpdatesName() throws Exception {
+        try (Connection connection = databaseStorage.getProvider().getConnection()) {
+            final long inserted = playerTable.ensurePlayer(connection, PLAYER, Optional.of("Lorias_"));
+            final long renamed = playerTable.ensurePlayer(connection, PLAYER, Optional.of("Lorias"));
+
+            assertEquals(inserted, renamed, "Expected the existing id to be returned");
+            assertEquals(Optional.of("Lorias"), playerTable.findNameByUuid(connection, PLAYER), "Expected the new name");
+        }
+    }
+
+    @Test
+    void ensurePlayerWithoutNameKeepsStoredName() throws Exception {
+        try (Connection connection = databaseStorage.getProvider().getConnection()) {
+            final long inserted = playerTable.ensurePlayer(connection, PLAYER, Optional.of("Lorias_"));
+
+            assertEquals(inserted, playerTable.ensurePlayer(connection, PLAYER, Optional.empty()),
+                    "Expected the existing id to be returned");
+            assertEquals(Optional.of("Lorias_"), playerTable.findNameByUuid(connection, PLAYER), "Expected the name to remain");
+        }
+    }
+
+    @Test
+    void ensurePlayerReleasesNameFromPreviousHolder() throws Exception {
+        try (Connection connection = databaseStorage.getProvider().getConnection()) {
+            final long previousHolder = playerTable.ensurePlayer(connection, OTHER, Optional.of("Lorias_"));
+            final long newHolder = playerTable.ensurePlayer(connection, PLAYER, Optional.of("Lorias_"));
+
+            assertNotEquals(previousHolder, newHolder, "Expected a new player row");
+            assertEquals(Optional.of(PLAYER), playerTable.findUuidByName(connection, "Lorias_"), "Expected the name to move");
+            assertEquals(Optional.empty(), playerTable.findNameByUuid(connection, OTHER), "Expected the old holder to lose the name");
+            assertTrue(connection.getAutoCommit(), "Expected auto-commit to be restored");
+        }
+    }
+
+    @Test
+    void ensurePlayerOnJoinNeedsAtMostTwoStatements() throws Exception {
+        final AtomicInteger statements = new AtomicInteger();
+        try (Connection connection = databaseStorage.getProvider().getConnection()) {
+            playerTable.ensurePlayer(connection, OTHER, Optional.of("Lorias_"));
+            playerTable.ensurePlayer(connection, PLAYER, Optional.of("Lorias"));
+            final Connection counting = countingConnection(connection, statements);
+
+            playerTable.ensurePlayer(counting, PLAYER, Optional.of("Lorias_"));
+            final int nameTakeover = statements.getAndSet(0);
+            playerTable.ensurePlayer(counting, PLAYER, Optional.of("Lorias_"));
+            final int rejoin = statements.getAndSet(0);
+            playerTable.ensurePlayer(counting, UUID.randomUUID(), Optional.of("Newcomer"));
+            final int firstJoin = statements.get();
+
+            // The previous lookup based join needed up to five statements.
+            assertEquals(2, nameTakeover, "Expected name release and upsert only");
+            assertEquals(2, rejoin, "Expected name release and upsert only");
+            assertEquals(2, firstJoin, "Expected name release and upsert only");
+        }
+    }
+
+    private Connection countingConnection(final Connection connection, final AtomicInteger statements) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("prepare")) {
+                        statements.incrementAndGet();
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (final InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private Configuration config() {
+        final Configuration config = mock(Configuration.class);
+        when(config.getString("storageMethod")).thenReturn("sqlite");
+        when(config.getString("storageMethod", "sqlite")).thenReturn("sqlite");
+        when(config.getString("data.tablePrefix", TABLE_PREFIX)).thenReturn(TABLE_PREFIX);
+        return config;
+    }
+}
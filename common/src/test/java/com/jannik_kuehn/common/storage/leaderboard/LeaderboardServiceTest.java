@@ -0,0 +1,103 @@
+package com.jannik_kuehn.common.storage.leaderboard;
+
+import com.jannik_kuehn.common.api.storage.TimeScope;
+import com.jannik_kuehn.common.exception.StorageException;
+import com.jannik_kuehn.common.storage.contract.UnifiedStorage;
+import com.jannik_kuehn.common.storage.model.LeaderboardEntry;
+import com.jannik_kuehn.common.storage.model.LeaderboardSummary;
+import com.jannik_kuehn.common.storage.model.ManualTimeAdjustment;
+import com.jannik_kuehn.common.storage.model.PlayerSessionContext;
+import com.jannik_kuehn.common.storage.model.TimeEntryReason;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("PMD.UnitTestContainsTooManyAsserts")
+class LeaderboardServiceTest {
+
+    private static final UUID FIRST = UUID.fromString("44174cf6-e76c-4994-899c-3387284ecd62");
+
+    private static final UUID SECOND = UUID.fromString("5bb8c1d4-8a8c-4b8e-9f0e-6f3f7a0c2d11");
+
+    @Test
+    void ranksAndPagesMatchFullSortAfterRandomUpdates() {
+        final LeaderboardService leaderboard = new LeaderboardService();
+        final Random random = new Random(42L);
+        final List<UUID> players = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            players.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+        final Map<UUID, Long> expected = new HashMap<>();
+        for (int i = 0; i < 5_000; i++) {
+            final UUID player = players.get(random.nextInt(players.size()));
+            final long seconds = random.nextInt(600) - 100L;
+            leaderboard.addSessionTime(new PlayerSessionContext(player, "p" + i, "lobby", "spawn", 0L), seconds * 1000L);
+            expected.merge(player, seconds, Long::sum);
+            if (i % 500 == 0) {
+                leaderboard.removePlayer(player);
+                expected.remove(player);
+            }
+        }
+        final List<UUID> sorted = expected.keySet().stream()
+                .sorted(Comparator.comparingLong((UUID player) -> expected.get(player))
+                        .thenComparing(Comparator.naturalOrder()).reversed())
+                .toList();
+
+        assertEquals(new LeaderboardSummary(sorted.size(), expected.values().stream().mapToLong(Long::longValue).sum()),
+                leaderboard.summary(TimeScope.GLOBAL), "Expected the summary over all ranked players");
+        for (int rank = 0; rank < sorted.size(); rank++) {
+            assertEquals(OptionalInt.of(rank + 1), leaderboard.rank(sorted.get(rank), TimeScope.GLOBAL),
+                    "Expected the rank of the full sort");
+        }
+        for (int offset = 0; offset < sorted.size(); offset += 8) {
+            final List<UUID> page = leaderboard.page(TimeScope.GLOBAL, offset, 8).stream()
+                    .map(LeaderboardEntry::uuid).toList();
+            assertEquals(sorted.subList(offset, Math.min(offset + 8, sorted.size())), page,
+                    "Expected the page of the full sort");
+        }
+        assertEquals(leaderboard.summary(TimeScope.GLOBAL), leaderboard.summary(TimeScope.server("lobby")),
+                "Expected the server leaderboard to receive the same session time");
+    }
+
+    @Test
+    void loadsFromStorageAndMergesWrittenTimeByScope() throws StorageException {
+        final UnifiedStorage storage = mock(UnifiedStorage.class);
+        when(storage.getKnownServerNames()).thenReturn(Set.of("lobby", "survival"));
+        when(storage.getLeaderboard(eq(TimeScope.GLOBAL), eq(Optional.empty()), anyInt(), anyInt()))
+                .thenReturn(List.of(new LeaderboardEntry(FIRST, Optional.of("Lorias_"), 100L),
+                        new LeaderboardEntry(SECOND, Optional.of("Other"), 50L)));
+        when(storage.getLeaderboard(eq(TimeScope.server("lobby")), eq(Optional.empty()), anyInt(), anyInt()))
+                .thenReturn(List.of(new LeaderboardEntry(FIRST, Optional.of("Lorias_"), 100L)));
+        when(storage.getLeaderboard(eq(TimeScope.server("survival")), eq(Optional.empty()), anyInt(), anyInt()))
+                .thenReturn(List.of(new LeaderboardEntry(SECOND, Optional.of("Other"), 50L)));
+        final LeaderboardService leaderboard = new LeaderboardService();
+
+        leaderboard.load(storage);
+        leaderboard.addSessionTime(new PlayerSessionContext(SECOND, "Renamed", "survival", "spawn", 0L), 40_500L);
+        leaderboard.addAdjustments(List.of(new ManualTimeAdjustment(SECOND, 20L, TimeEntryReason.MANUAL_ADJUSTMENT,
+                "Console", TimeScope.world("survival", "nether"))));
+
+        assertEquals(List.of(new LeaderboardEntry(SECOND, Optional.of("Renamed"), 110L),
+                        new LeaderboardEntry(FIRST, Optional.of("Lorias_"), 100L)),
+                leaderboard.page(TimeScope.GLOBAL, 0, 8), "Expected written time to reorder the global leaderboard");
+        assertEquals(new LeaderboardSummary(1L, 110L), leaderboard.summary(TimeScope.server("survival")),
+                "Expected world adjustments to count for their server");
+        assertEquals(OptionalInt.of(1), leaderboard.rank(FIRST, TimeScope.server("lobby")),
+                "Expected the other server leaderboard to be unchanged");
+        assertEquals(List.of(), leaderboard.page(TimeScope.server("unknown"), 0, 8),
+                "Expected an empty page for servers without time");
+    }
+}
@@ -13,12 +13,14 @@ import com.jannik_kuehn.loritimepaper.afk.PaperSlavedAfkHandling;
 import com.jannik_kuehn.loritimepaper.command.PaperCommand;
 import com.jannik_kuehn.loritimepaper.listener.LoriTimeUpdatePaperListener;
 import com.jannik_kuehn.loritimepaper.listener.PaperPlayerAfkListener;
+import com.jannik_kuehn.loritimepaper.listener.PlaceholderTimePaperListener;
 import com.jannik_kuehn.loritimepaper.listener.PlayerNamePaperListener;
 import com.jannik_kuehn.loritimepaper.listener.TimeAccumulatorPaperListener;
 import com.jannik_kuehn.loritimepaper.messenger.PaperPluginMessenger;
 import com.jannik_kuehn.loritimepaper.messenger.SlaveReadCache;
 import com.jannik_kuehn.loritimepaper.messenger.SlaveSessionReporter;
 import com.jannik_kuehn.loritimepaper.placeholder.LoriTimePlaceholder;
+import com.jannik_kuehn.loritimepaper.placeholder.StoragePlaceholderTimeCache;
 import com.jannik_kuehn.loritimepaper.schedule.PaperScheduleAdapter;
 import com.jannik_kuehn.loritimepaper.util.PaperMetrics;
 import com.jannik_kuehn.loritimepaper.util.PaperServer;
@@ -95,7 +97,10 @@ public class LoriTimePaper extends JavaPlugin {
         registerProfileCommands(RuntimeCommandProfile.BACKEND_CANONICAL);
 
         if (Bukkit.getPluginManager().getPlugin("PlaceholderAPI") != null && loriTimePlugin.getConfig().getBoolean("integrations.PlaceholderAPI", true)) {
-            new LoriTimePlaceholder(loriTimePlugin, loriTimePlugin.getStorage()).register();
+            final StoragePlaceholderTimeCache timeCache = new StoragePlaceholderTimeCache(loriTimePlugin,
+                    loriTimePlugin.getStorage());
+            Bukkit.getPluginManager().registerEvents(new PlaceholderTimePaperListener(timeCache), this);
+            new LoriTimePlaceholder(loriTimePlugin, timeCache).register();
         }
     }
 
@@ -4,7 +4,6 @@ import com.github.roleplaycauldron.spellbook.core.logger.WrappedLogger;
 import com.jannik_kuehn.common.api.LoriTimePlayer;
 import com.jannik_kuehn.common.module.afk.AfkHandling;
 import com.jannik_kuehn.common.module.afk.AfkTransitionType;
-import com.jannik_kuehn.common.module.messaging.AfkMessageProtocol;
 import com.jannik_kuehn.loritimepaper.LoriTimePaper;
 
 /**
@@ -36,14 +35,14 @@ public class PaperSlavedAfkHandling extends AfkHandling {
     public void executePlayerAfk(final LoriTimePlayer loriTimePlayer, final long timeToRemove) {
         log.debug("Executing AFK for player: " + loriTimePlayer.getName() + ". Time to remove: "
                 + timeToRemove + ". Sending PluginMessage");
-        loriTimePaper.getPaperPluginMessenger().sendPluginMessage("loritime:afk",
-                loriTimePlayer.getUniqueId(), AfkMessageProtocol.VERSION, AfkTransitionType.START.name(), timeToRemove);
+        loriTimePaper.getPaperPluginMessenger().sendAfkTransition(loriTimePlayer.getUniqueId(), AfkTransitionType.START,
+                timeToRemove);
     }
 
     @Override
     public void executePlayerResume(final LoriTimePlayer loriTimePlayer) {
         log.debug("Executing resume for player: " + loriTimePlayer.getName() + ". Sending PluginMessage");
-        loriTimePaper.getPaperPluginMessenger().sendPluginMessage("loritime:afk",
-                loriTimePlayer.getUniqueId(), AfkMessageProtocol.VERSION, AfkTransitionType.RESUME.name());
+        loriTimePaper.getPaperPluginMessenger().sendAfkTransition(loriTimePlayer.getUniqueId(), AfkTransitionType.RESUME,
+                0L);
     }
 }
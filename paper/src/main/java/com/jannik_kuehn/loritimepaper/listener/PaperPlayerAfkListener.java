@@ -92,7 +92,7 @@ public class PaperPlayerAfkListener implements Listener {
     }
 
     private void updateAfkStatus(final TrackedLoriTimePlayer player) {
-        loriTimePlugin.getScheduler().runAsyncOnce(() -> {
+        loriTimePlugin.getStorageExecutor().execute("afk-reset:" + player.getUniqueId(), () -> {
             loriTimePlugin.getAfkStatusProvider().resetTimer(player);
         });
     }
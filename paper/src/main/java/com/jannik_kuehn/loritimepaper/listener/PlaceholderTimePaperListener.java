@@ -0,0 +1,58 @@
+package com.jannik_kuehn.loritimepaper.listener;
+
+import com.jannik_kuehn.loritimepaper.placeholder.StoragePlaceholderTimeCache;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * Listener for re-anchoring the live placeholder times of players.
+ */
+public class PlaceholderTimePaperListener implements Listener {
+    /**
+     * The {@link StoragePlaceholderTimeCache} instance.
+     */
+    private final StoragePlaceholderTimeCache timeCache;
+
+    /**
+     * The default constructor.
+     *
+     * @param timeCache The {@link StoragePlaceholderTimeCache} instance.
+     */
+    public PlaceholderTimePaperListener(final StoragePlaceholderTimeCache timeCache) {
+        this.timeCache = timeCache;
+    }
+
+    /**
+     * Re-anchors the live time when a player joins the server.
+     *
+     * @param event The {@link PlayerJoinEvent} event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void playerJoin(final PlayerJoinEvent event) {
+        timeCache.reanchor(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Re-anchors the live time when a player changes worlds.
+     *
+     * @param event The {@link PlayerChangedWorldEvent} event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void playerChangedWorld(final PlayerChangedWorldEvent event) {
+        timeCache.reanchor(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Removes the live time when a player leaves the server.
+     *
+     * @param event The {@link PlayerQuitEvent} event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void playerQuit(final PlayerQuitEvent event) {
+        timeCache.forget(event.getPlayer().getUniqueId());
+    }
+}
@@ -46,7 +46,7 @@ public class PlayerNamePaperListener implements Listener {
         final UUID uuid = player.getUniqueId();
         final String name = player.getName();
         loriTimePlugin.rememberPlayerName(uuid, name);
-        loriTimePlugin.getScheduler().runAsyncOnce(() -> {
+        loriTimePlugin.getStorageExecutor().execute(() -> {
             try {
                 loriTimePlugin.getStorage().setPlayerName(uuid, name);
             } catch (final StorageException e) {
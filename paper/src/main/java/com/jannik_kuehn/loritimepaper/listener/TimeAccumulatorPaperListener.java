@@ -51,7 +51,7 @@ public class TimeAccumulatorPaperListener implements Listener {
         final long now = System.currentTimeMillis();
         loriTimePlugin.rememberPlayerName(uuid, name);
         loriTimePlugin.rememberScope(server, world);
-        loriTimePlugin.getScheduler().runAsyncOnce(() -> {
+        loriTimePlugin.getStorageExecutor().executeInOrder(uuid, () -> {
             try {
                 loriTimePlugin.getAccumulator().startAccumulating(uuid, name, server, world, now);
             } catch (final StorageException e) {
@@ -69,7 +69,7 @@ public class TimeAccumulatorPaperListener implements Listener {
     public void playerQuit(final PlayerQuitEvent event) {
         final UUID uuid = event.getPlayer().getUniqueId();
         final long now = System.currentTimeMillis();
-        loriTimePlugin.getScheduler().runAsyncOnce(() -> {
+        loriTimePlugin.getStorageExecutor().executeInOrder(uuid, () -> {
             try {
                 final TimeEntryReason reason = loriTimePlugin.consumeAfkKick(uuid)
                         ? TimeEntryReason.PLAYER_AFK_KICK : TimeEntryReason.PLAYER_LEAVE;
@@ -95,7 +95,7 @@ public class TimeAccumulatorPaperListener implements Listener {
         final long now = System.currentTimeMillis();
         loriTimePlugin.rememberPlayerName(uuid, name);
         loriTimePlugin.rememberScope(server, world);
-        loriTimePlugin.getScheduler().runAsyncOnce(() -> {
+        loriTimePlugin.getStorageExecutor().executeInOrder(uuid, () -> {
             try {
                 loriTimePlugin.getAccumulator().switchContext(uuid, name, server, world, now);
             } catch (final StorageException e) {
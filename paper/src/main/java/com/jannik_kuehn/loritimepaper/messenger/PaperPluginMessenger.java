@@ -35,23 +35,26 @@ public class PaperPluginMessenger extends PluginMessaging {
 
     @Override
     public void sendPluginMessage(final String channelIdentifier, final Object... message) {
+        final byte[] data = getDataAsByte(message);
+        if (data != null) {
+            sendPluginFrame(channelIdentifier, (UUID) message[0], data);
+        } else {
+            log.warn("could not send plugin message, data is null");
+        }
+    }
+
+    @Override
+    public void sendPluginFrame(final String channelIdentifier, final UUID playerUUID, final byte[] frame) {
         if (!paperPlugin.isEnabled()) {
             log.debug("Skipping plugin message because the Paper plugin is disabled");
             return;
         }
 
         log.debug("Sending PluginMessage with channel: " + channelIdentifier);
-        final UUID uuid = (UUID) message[0];
-        final byte[] data = getDataAsByte(message);
-
-        if (data != null) {
-            final Player paperPlayer = paperPlugin.getServer().getPlayer(uuid);
-            if (paperPlayer != null) {
-                log.debug("Sending PluginMessage to player: " + paperPlayer.getName());
-                paperPlayer.sendPluginMessage(paperPlugin, channelIdentifier, data);
-            }
-        } else {
-            log.warn("could not send plugin message, data is null");
+        final Player paperPlayer = paperPlugin.getServer().getPlayer(playerUUID);
+        if (paperPlayer != null) {
+            log.debug("Sending PluginMessage to player: " + paperPlayer.getName());
+            paperPlayer.sendPluginMessage(paperPlugin, channelIdentifier, frame);
         }
     }
 }
@@ -2,11 +2,11 @@ package com.jannik_kuehn.loritimepaper.messenger;
 
 import com.github.roleplaycauldron.spellbook.core.logger.WrappedLogger;
 import com.jannik_kuehn.common.module.messaging.PluginMessaging;
-import com.jannik_kuehn.common.module.messaging.StorageMessageProtocol;
-import com.jannik_kuehn.common.module.messaging.StorageMessageType;
-import com.jannik_kuehn.common.utils.UuidUtil;
+import com.jannik_kuehn.common.module.messaging.PushedPlayerTime;
 import com.jannik_kuehn.loritimepaper.LoriTimePaper;
+import com.jannik_kuehn.loritimepaper.placeholder.LiveTime;
 import com.jannik_kuehn.loritimepaper.placeholder.PlaceholderTimeCache;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
@@ -14,18 +14,20 @@ import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.plugin.messaging.PluginMessageListener;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
-import java.io.EOFException;
-import java.io.IOException;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.OptionalLong;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Read cache for slave instances.
+ *
+ * <p>The cache subscribes to the live times the master pushes for all players on this server. Every pushed time
+ * carries the seconds at an anchor and whether the time is counting, so placeholders tick locally between pushes
+ * without a plugin message per render. A single read request is only sent for a player without a pushed time, for
+ * example before the first push after a join.</p>
  */
 public class SlaveReadCache extends PluginMessaging implements PluginMessageListener, Listener, PlaceholderTimeCache {
     /**
@@ -39,9 +41,14 @@ public class SlaveReadCache extends PluginMessaging implements PluginMessageList
     private final WrappedLogger log;
 
     /**
-     * The cached times.
+     * The live times by player UUID.
      */
-    private final Map<UUID, Long> cachedTimes;
+    private final Map<UUID, LiveTime> cachedTimes;
+
+    /**
+     * Player UUIDs with a read request waiting for the master's answer.
+     */
+    private final Set<UUID> pendingReads;
 
     /**
      * Initializes a new instance of the {@code SlaveReadCache} class.
@@ -54,6 +61,7 @@ public class SlaveReadCache extends PluginMessaging implements PluginMessageList
         this.pluginMessenger = pluginMessenger;
         this.log = loriTimePaper.getPlugin().getLoggerFactory().create(SlaveReadCache.class);
         this.cachedTimes = new ConcurrentHashMap<>();
+        this.pendingReads = ConcurrentHashMap.newKeySet();
     }
 
     /**
@@ -69,19 +77,23 @@ public class SlaveReadCache extends PluginMessaging implements PluginMessageList
 
     @Override
     public OptionalLong getCachedTime(final UUID uuid) {
-        final Long value = cachedTimes.get(uuid);
-        return value == null ? OptionalLong.empty() : OptionalLong.of(value);
+        final LiveTime value = cachedTimes.get(uuid);
+        return value == null ? OptionalLong.empty() : OptionalLong.of(value.secondsAt(System.currentTimeMillis()));
     }
 
     /**
-     * Sends a request to refresh the cached time data for the specified UUID. This method utilizes
-     * the plugin messaging system to communicate the request to the designated storage channel.
+     * Sends a request to refresh the cached time data for the specified UUID, unless the master already pushes the
+     * time of the player or a request is still waiting for its answer. This method utilizes the plugin messaging
+     * system to communicate the request to the designated storage channel.
      *
      * @param uuid The unique identifier of the entity for which the refresh request is being made.
      */
     @Override
     public void requestRefresh(final UUID uuid) {
-        pluginMessenger.sendPluginMessage(SLAVED_TIME_STORAGE, uuid, StorageMessageType.GET.wireValue());
+        if (cachedTimes.containsKey(uuid) || !pendingReads.add(uuid)) {
+            return;
+        }
+        sendTimeRequest(uuid);
     }
 
     @Override
@@ -89,23 +101,19 @@ public class SlaveReadCache extends PluginMessaging implements PluginMessageList
         if (!SLAVED_TIME_STORAGE.equalsIgnoreCase(channel)) {
             return;
         }
-        try (ByteArrayInputStream byteInputStream = new ByteArrayInputStream(message);
-             DataInputStream input = new DataInputStream(byteInputStream)) {
-            final byte[] uuidBytes = new byte[16];
-            input.readFully(uuidBytes);
-            final UUID playerUUID = UuidUtil.fromBytes(uuidBytes);
-            final String action = input.readUTF();
-            final Optional<StorageMessageType> messageType = StorageMessageProtocol.parseType(action);
-            if (messageType.isPresent() && messageType.get() == StorageMessageType.SEND) {
-                cachedTimes.put(playerUUID, input.readLong());
-            } else {
-                log.warn("Storage plugin message ignored by slave read cache for player " + playerUUID
-                        + ": unexpected operation '" + action + "'");
+        final long now = System.currentTimeMillis();
+        applyTimes(decodeReceivedTimes(message, now), now);
+    }
+
+    private void applyTimes(final List<PushedPlayerTime> times, final long now) {
+        log.debug("Received the times of " + times.size() + " players from the master");
+        for (final PushedPlayerTime time : times) {
+            // The master may still count a player on this server who just left it.
+            if (Bukkit.getPlayer(time.uuid()) == null) {
+                continue;
             }
-        } catch (final EOFException e) {
-            log.warn("Storage plugin message ignored by slave read cache: malformed payload");
-        } catch (final IOException e) {
-            log.error("Storage plugin message failed during slave read cache decoding", e);
+            cachedTimes.put(time.uuid(), new LiveTime(time.baseSeconds(), time.anchorMs(), time.counting(), now));
+            pendingReads.remove(time.uuid());
         }
     }
 
@@ -114,10 +122,15 @@ public class SlaveReadCache extends PluginMessaging implements PluginMessageList
         pluginMessenger.sendPluginMessage(channelIdentifier, message);
     }
 
+    @Override
+    public void sendPluginFrame(final String channelIdentifier, final UUID playerUUID, final byte[] frame) {
+        pluginMessenger.sendPluginFrame(channelIdentifier, playerUUID, frame);
+    }
+
     /**
-     * Handles the event triggered when a player joins the server. Upon a player joining, their unique identifier (UUID)
-     * is mapped to an initial cached time in the local cache. Additionally, an asynchronous task is scheduled
-     * to request a refresh of the cached time data for the player after a delay.
+     * Handles the event triggered when a player joins the server. Upon a player joining, an asynchronous task is
+     * scheduled to subscribe this server to the pushed times after a delay, so the master pushes the times of all
+     * players on this server including the new one.
      *
      * @param event The {@link PlayerJoinEvent} that is triggered when a player joins the server. This event provides
      *              access to the player's data and interactions, including their unique identifier.
@@ -125,8 +138,7 @@ public class SlaveReadCache extends PluginMessaging implements PluginMessageList
     @EventHandler
     public void onPlayerJoin(final PlayerJoinEvent event) {
         final UUID uuid = event.getPlayer().getUniqueId();
-        cachedTimes.put(uuid, 0L);
-        loriTimePlugin.getScheduler().runAsyncOnceLater(1L, () -> requestRefresh(uuid));
+        loriTimePlugin.getScheduler().runAsyncOnceLater(1L, () -> sendTimeSubscription(uuid));
     }
 
     /**
@@ -140,5 +152,6 @@ public class SlaveReadCache extends PluginMessaging implements PluginMessageList
     @EventHandler
     public void onPlayerLeave(final PlayerQuitEvent event) {
         cachedTimes.remove(event.getPlayer().getUniqueId());
+        pendingReads.remove(event.getPlayer().getUniqueId());
     }
 }
@@ -2,7 +2,6 @@ package com.jannik_kuehn.loritimepaper.messenger;
 
 import com.github.roleplaycauldron.spellbook.core.logger.WrappedLogger;
 import com.jannik_kuehn.common.module.messaging.PluginMessaging;
-import com.jannik_kuehn.common.module.messaging.StorageMessageType;
 import com.jannik_kuehn.common.scheduler.PluginTask;
 import com.jannik_kuehn.loritimepaper.LoriTimePaper;
 import org.bukkit.entity.Player;
@@ -114,14 +113,12 @@ public class SlaveSessionReporter extends PluginMessaging implements Listener, A
 
     private void sendWorld(final ActiveRemoteWorld context) {
         log.debug("Reporting remote world context for player " + context.uuid());
-        sendPluginMessage(SLAVED_TIME_STORAGE, context.uuid(), StorageMessageType.WORLD.wireValue(), STORAGE_PROTOCOL_VERSION,
-                context.world(), context.observedAtMs());
+        sendWorldContext(context.uuid(), context.world(), context.observedAtMs(), false);
     }
 
     private void sendWorldSwitch(final ActiveRemoteWorld context) {
         log.debug("Reporting remote world switch for player " + context.uuid());
-        sendPluginMessage(SLAVED_TIME_STORAGE, context.uuid(), StorageMessageType.WORLD_SWITCH.wireValue(), STORAGE_PROTOCOL_VERSION,
-                context.world(), context.observedAtMs());
+        sendWorldContext(context.uuid(), context.world(), context.observedAtMs(), true);
     }
 
     /**
@@ -135,6 +132,18 @@ public class SlaveSessionReporter extends PluginMessaging implements Listener, A
         pluginMessenger.sendPluginMessage(channelIdentifier, message);
     }
 
+    /**
+     * Sends a plugin message frame through the Paper messenger.
+     *
+     * @param channelIdentifier the target channel.
+     * @param playerUUID        the player whose connection carries the frame.
+     * @param frame             the encoded frame.
+     */
+    @Override
+    public void sendPluginFrame(final String channelIdentifier, final UUID playerUUID, final byte[] frame) {
+        pluginMessenger.sendPluginFrame(channelIdentifier, playerUUID, frame);
+    }
+
     /**
      * Stops the periodic flush task and clears local session context.
      */
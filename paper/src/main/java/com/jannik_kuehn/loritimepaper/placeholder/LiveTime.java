@@ -0,0 +1,22 @@
+package com.jannik_kuehn.loritimepaper.placeholder;
+
+/**
+ * Live placeholder time of a player, extrapolated locally from an anchor.
+ *
+ * @param baseSeconds   the online time in seconds at the anchor
+ * @param anchorMs      time of the anchor in epoch milliseconds
+ * @param counting      {@code true} if the time grows after the anchor
+ * @param refreshedAtMs time of the last read from the source in epoch milliseconds, zero if a re-anchor is due
+ */
+public record LiveTime(long baseSeconds, long anchorMs, boolean counting, long refreshedAtMs) {
+
+    /**
+     * Extrapolates the online time.
+     *
+     * @param nowMs the current time in epoch milliseconds
+     * @return the online time in seconds
+     */
+    public long secondsAt(final long nowMs) {
+        return counting ? baseSeconds + Math.max(0L, nowMs - anchorMs) / 1000L : baseSeconds;
+    }
+}
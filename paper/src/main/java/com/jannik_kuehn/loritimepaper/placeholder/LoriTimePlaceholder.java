@@ -3,7 +3,6 @@ package com.jannik_kuehn.loritimepaper.placeholder;
 import com.github.roleplaycauldron.spellbook.core.logger.WrappedLogger;
 import com.jannik_kuehn.common.LoriTimePlugin;
 import com.jannik_kuehn.common.player.TrackedLoriTimePlayer;
-import com.jannik_kuehn.common.storage.contract.UnifiedStorage;
 import com.jannik_kuehn.common.utils.TimeUtil;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
@@ -33,16 +32,6 @@ public class LoriTimePlaceholder extends PlaceholderExpansion {
      */
     private final WrappedLogger log;
 
-    /**
-     * Creates a placeholder expansion backed by storage.
-     *
-     * @param plugin  LoriTime plugin runtime
-     * @param storage storage used for placeholder time lookups
-     */
-    public LoriTimePlaceholder(final LoriTimePlugin plugin, final UnifiedStorage storage) {
-        this(plugin, new StoragePlaceholderTimeCache(plugin, storage));
-    }
-
     /**
      * Creates a placeholder expansion with an explicit time cache.
      *
@@ -2,20 +2,40 @@ package com.jannik_kuehn.loritimepaper.placeholder;
 
 import com.github.roleplaycauldron.spellbook.core.logger.WrappedLogger;
 import com.jannik_kuehn.common.LoriTimePlugin;
+import com.jannik_kuehn.common.api.storage.TimeScope;
 import com.jannik_kuehn.common.exception.StorageException;
 import com.jannik_kuehn.common.storage.contract.UnifiedStorage;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.OptionalLong;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Async-refreshing placeholder cache for canonical storage instances.
+ *
+ * <p>Every online player has a live time made of the stored seconds at an anchor time and whether the time is
+ * counting. Rendering adds the wall-clock time since the anchor while the player has an active session, so the
+ * placeholders tick every second without a storage lookup. The time is re-anchored from the storage after a
+ * configurable time to live, on join and world change, and when the session stops or starts again, for example on
+ * AFK transitions. Re-anchors of all due players are collected for one batch interval and read together with a
+ * single bulk storage lookup.</p>
  */
 public final class StoragePlaceholderTimeCache implements PlaceholderTimeCache {
 
+    /**
+     * Coalescing key of the batched refresh on the storage executor.
+     */
+    private static final String REFRESH_KEY = "placeholder-refresh";
+
     /**
      * Backing LoriTime plugin.
      */
@@ -32,15 +52,65 @@ public final class StoragePlaceholderTimeCache implements PlaceholderTimeCache {
     private final WrappedLogger log;
 
     /**
-     * Cached time values by player UUID.
+     * Time in milliseconds a live time is extrapolated before it is re-anchored from the storage.
+     */
+    private final long ttlMs;
+
+    /**
+     * Time in seconds refresh requests are collected before they are read in one batch.
      */
-    private final Map<UUID, Long> cachedTimes;
+    private final long batchIntervalSeconds;
 
     /**
-     * Player UUIDs with a currently scheduled refresh.
+     * Live time values by player UUID.
+     */
+    private final Map<UUID, LiveTime> cachedTimes;
+
+    /**
+     * Player UUIDs with a currently scheduled or running refresh.
      */
     private final Set<UUID> refreshesInProgress;
 
+    /**
+     * Player UUIDs waiting for the next batch.
+     */
+    private final Set<UUID> dueRefreshes;
+
+    /**
+     * Player UUIDs that left while their refresh was scheduled or running, guarded by {@link #refreshLock}.
+     */
+    private final Set<UUID> forgottenRefreshes;
+
+    /**
+     * Lock ordering a leaving player against the results of a running refresh.
+     */
+    private final Object refreshLock;
+
+    /**
+     * {@code true} while the next batch is scheduled.
+     */
+    private final AtomicBoolean batchScheduled;
+
+    /**
+     * Number of reads answered from the cache.
+     */
+    private final AtomicLong hits;
+
+    /**
+     * Number of reads without a cached time.
+     */
+    private final AtomicLong misses;
+
+    /**
+     * Number of refreshed player times.
+     */
+    private final AtomicLong refreshedPlayers;
+
+    /**
+     * Number of batched storage lookups.
+     */
+    private final AtomicLong refreshBatches;
+
     /**
      * Creates a cache backed by asynchronous storage refreshes.
      *
@@ -51,30 +121,158 @@ public final class StoragePlaceholderTimeCache implements PlaceholderTimeCache {
         this.plugin = plugin;
         this.storage = storage;
         this.log = plugin.getLoggerFactory().create(StoragePlaceholderTimeCache.class);
+        this.ttlMs = TimeUnit.SECONDS.toMillis(
+                Math.max(0, plugin.getConfig().getInt("placeholderCache.ttlSeconds", 60)));
+        this.batchIntervalSeconds = Math.max(1, plugin.getConfig().getInt("placeholderCache.batchIntervalSeconds", 1));
         this.cachedTimes = new ConcurrentHashMap<>();
         this.refreshesInProgress = ConcurrentHashMap.newKeySet();
+        this.dueRefreshes = ConcurrentHashMap.newKeySet();
+        this.forgottenRefreshes = new HashSet<>();
+        this.refreshLock = new Object();
+        this.batchScheduled = new AtomicBoolean();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.refreshedPlayers = new AtomicLong();
+        this.refreshBatches = new AtomicLong();
     }
 
     @Override
     public OptionalLong getCachedTime(final UUID uniqueId) {
-        final Long value = cachedTimes.get(uniqueId);
-        return value == null ? OptionalLong.empty() : OptionalLong.of(value);
+        final LiveTime cached = cachedTimes.get(uniqueId);
+        if (cached == null) {
+            misses.incrementAndGet();
+            return OptionalLong.empty();
+        }
+        hits.incrementAndGet();
+        final long now = System.currentTimeMillis();
+        final boolean counting = isCounting(uniqueId);
+        if (counting == cached.counting()) {
+            return OptionalLong.of(cached.secondsAt(now));
+        }
+        // The session stopped or started since the anchor, freeze or resume here and re-anchor with the next batch.
+        final LiveTime switched = new LiveTime(cached.secondsAt(now), now, counting, 0L);
+        cachedTimes.replace(uniqueId, cached, switched);
+        return OptionalLong.of(switched.baseSeconds());
     }
 
     @Override
     public void requestRefresh(final UUID uniqueId) {
+        final LiveTime cached = cachedTimes.get(uniqueId);
+        if (cached != null && System.currentTimeMillis() - cached.refreshedAtMs() < ttlMs) {
+            return;
+        }
         if (!refreshesInProgress.add(uniqueId)) {
             return;
         }
-        plugin.getScheduler().runAsyncOnce(() -> {
-            try {
-                final OptionalLong time = storage.getTime(uniqueId);
-                cachedTimes.put(uniqueId, time.orElse(0L));
-            } catch (final StorageException e) {
-                log.error("Error while refreshing the online time placeholder cache for player " + uniqueId, e);
-            } finally {
-                refreshesInProgress.remove(uniqueId);
+        dueRefreshes.add(uniqueId);
+        if (batchScheduled.compareAndSet(false, true)) {
+            plugin.getScheduler().runAsyncOnceLater(batchIntervalSeconds, this::submitBatch);
+        }
+    }
+
+    /**
+     * Re-anchors the live time of a player from the storage with the next batch, keeping the current value until then.
+     *
+     * @param uniqueId player UUID
+     */
+    public void reanchor(final UUID uniqueId) {
+        cachedTimes.computeIfPresent(uniqueId, (key, cached) -> new LiveTime(cached.baseSeconds(), cached.anchorMs(),
+                cached.counting(), 0L));
+        synchronized (refreshLock) {
+            // The player is back, so a refresh that is still running may cache the time again.
+            forgottenRefreshes.remove(uniqueId);
+        }
+        requestRefresh(uniqueId);
+    }
+
+    /**
+     * Removes the live time of a player who left. A refresh that is scheduled or running for the player does not
+     * cache the time again.
+     *
+     * @param uniqueId player UUID
+     */
+    public void forget(final UUID uniqueId) {
+        synchronized (refreshLock) {
+            cachedTimes.remove(uniqueId);
+            if (refreshesInProgress.contains(uniqueId)) {
+                forgottenRefreshes.add(uniqueId);
+            }
+        }
+    }
+
+    /**
+     * Returns the cache counters.
+     *
+     * @return the counters since the cache was created
+     */
+    public Stats stats() {
+        return new Stats(hits.get(), misses.get(), refreshedPlayers.get(), refreshBatches.get());
+    }
+
+    private void submitBatch() {
+        batchScheduled.set(false);
+        // A batch that is still queued reads all due players when it runs, so a second one is merged into it.
+        if (!plugin.getStorageExecutor().execute(REFRESH_KEY, this::refreshDue)) {
+            // The storage executor is overloaded, the next placeholder request retries the refresh.
+            finishRefreshes(drainDue());
+        }
+    }
+
+    private void refreshDue() {
+        final List<UUID> batch = drainDue();
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            final Map<UUID, Long> times = storage.getTimes(batch, TimeScope.GLOBAL);
+            final long now = System.currentTimeMillis();
+            synchronized (refreshLock) {
+                for (final UUID uniqueId : batch) {
+                    if (forgottenRefreshes.remove(uniqueId)) {
+                        continue;
+                    }
+                    cachedTimes.put(uniqueId, new LiveTime(times.getOrDefault(uniqueId, 0L), now,
+                            isCounting(uniqueId), now));
+                }
             }
-        });
+            refreshedPlayers.addAndGet(batch.size());
+            refreshBatches.incrementAndGet();
+            log.debug("Refreshed the online time placeholder cache of " + batch.size() + " players. " + stats());
+        } catch (final StorageException e) {
+            log.error("Error while refreshing the online time placeholder cache for " + batch.size() + " players", e);
+        } finally {
+            finishRefreshes(batch);
+        }
+    }
+
+    private void finishRefreshes(final List<UUID> batch) {
+        synchronized (refreshLock) {
+            forgottenRefreshes.removeAll(batch);
+            refreshesInProgress.removeAll(batch);
+        }
+    }
+
+    private boolean isCounting(final UUID uniqueId) {
+        return plugin.getAccumulator().getActiveSessionContext(uniqueId).isPresent();
+    }
+
+    private List<UUID> drainDue() {
+        final List<UUID> batch = new ArrayList<>();
+        for (final Iterator<UUID> iterator = dueRefreshes.iterator(); iterator.hasNext();) {
+            batch.add(iterator.next());
+            iterator.remove();
+        }
+        return batch;
+    }
+
+    /**
+     * Counters of the placeholder cache.
+     *
+     * @param hits             reads answered from the live times
+     * @param misses           reads without a live time
+     * @param refreshedPlayers re-anchored player times
+     * @param refreshBatches   batched storage lookups
+     */
+    public record Stats(long hits, long misses, long refreshedPlayers, long refreshBatches) {
     }
 }
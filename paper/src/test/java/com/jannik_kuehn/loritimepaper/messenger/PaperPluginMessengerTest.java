@@ -2,6 +2,7 @@ package com.jannik_kuehn.loritimepaper.messenger;
 
 import com.github.roleplaycauldron.spellbook.core.logger.LoggerFactory;
 import com.jannik_kuehn.common.LoriTimePlugin;
+import com.jannik_kuehn.common.config.Configuration;
 import com.jannik_kuehn.loritimepaper.LoriTimePaper;
 import org.junit.jupiter.api.Test;
 
@@ -20,6 +21,7 @@ class PaperPluginMessengerTest {
         final LoriTimePaper paperPlugin = mock(LoriTimePaper.class);
         final LoriTimePlugin plugin = mock(LoriTimePlugin.class);
         when(plugin.getLoggerFactory()).thenReturn(new LoggerFactory(Logger.getLogger("test")));
+        when(plugin.getConfig()).thenReturn(mock(Configuration.class));
         when(paperPlugin.getPlugin()).thenReturn(plugin);
         when(paperPlugin.isEnabled()).thenReturn(false);
 
@@ -0,0 +1,167 @@
+package com.jannik_kuehn.loritimepaper.placeholder;
+
+import com.github.roleplaycauldron.spellbook.core.logger.LoggerFactory;
+import com.jannik_kuehn.common.LoriTimePlugin;
+import com.jannik_kuehn.common.api.storage.TimeScope;
+import com.jannik_kuehn.common.config.Configuration;
+import com.jannik_kuehn.common.exception.StorageException;
+import com.jannik_kuehn.common.scheduler.PluginScheduler;
+import com.jannik_kuehn.common.scheduler.StorageExecutor;
+import com.jannik_kuehn.common.storage.contract.TimeAccumulator;
+import com.jannik_kuehn.common.storage.contract.UnifiedStorage;
+import com.jannik_kuehn.common.storage.model.PlayerSessionContext;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SuppressWarnings("PMD.UnitTestContainsTooManyAsserts")
+class StoragePlaceholderTimeCacheTest {
+
+    private static final UUID PLAYER_ID = UUID.fromString("44174cf6-e76c-4994-899c-3387284ecd62");
+
+    private static final UUID OTHER_ID = UUID.fromString("22fc9749-1470-4998-b74f-22add1f4dbb3");
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void collectsDueRefreshesIntoOneBulkLookupAndKeepsFreshTimes() throws StorageException {
+        final UnifiedStorage storage = mock(UnifiedStorage.class);
+        final PluginScheduler scheduler = mock(PluginScheduler.class);
+        final StoragePlaceholderTimeCache cache = new StoragePlaceholderTimeCache(plugin(scheduler, 60), storage);
+        when(storage.getTimes(any(Collection.class), eq(TimeScope.GLOBAL))).thenReturn(Map.of(PLAYER_ID, 42L));
+
+        assertEquals(OptionalLong.empty(), cache.getCachedTime(PLAYER_ID), "Expected a miss before the refresh");
+        cache.requestRefresh(PLAYER_ID);
+        cache.requestRefresh(OTHER_ID);
+        cache.requestRefresh(PLAYER_ID);
+        final ArgumentCaptor<Runnable> batch = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).runAsyncOnceLater(eq(1L), batch.capture());
+        batch.getValue().run();
+
+        final ArgumentCaptor<Collection<UUID>> players = ArgumentCaptor.forClass(Collection.class);
+        verify(storage).getTimes(players.capture(), eq(TimeScope.GLOBAL));
+        assertEquals(Set.of(PLAYER_ID, OTHER_ID), Set.copyOf(players.getValue()),
+                "Expected both players in one bulk lookup");
+        assertEquals(OptionalLong.of(42L), cache.getCachedTime(PLAYER_ID), "Expected the refreshed time");
+        assertEquals(OptionalLong.of(0L), cache.getCachedTime(OTHER_ID), "Expected zero for a player without time");
+
+        cache.requestRefresh(PLAYER_ID);
+        verify(scheduler, times(1)).runAsyncOnceLater(anyLong(), any());
+        assertEquals(new StoragePlaceholderTimeCache.Stats(2L, 1L, 2L, 1L), cache.stats(),
+                "Expected the fresh time to be used without a second refresh");
+    }
+
+    @Test
+    void refreshesAgainOnceTheTimeToLiveExpired() throws StorageException {
+        final UnifiedStorage storage = mock(UnifiedStorage.class);
+        final PluginScheduler scheduler = mock(PluginScheduler.class);
+        final StoragePlaceholderTimeCache cache = new StoragePlaceholderTimeCache(plugin(scheduler, 0), storage);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(scheduler).runAsyncOnceLater(anyLong(), any());
+
+        cache.requestRefresh(PLAYER_ID);
+        cache.requestRefresh(PLAYER_ID);
+
+        assertEquals(2L, cache.stats().refreshBatches(), "Expected an expired time to be refreshed again");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void freezesWhenTheSessionStopsAndReanchorsWithTheNextBatch() throws StorageException {
+        final UnifiedStorage storage = mock(UnifiedStorage.class);
+        final PluginScheduler scheduler = mock(PluginScheduler.class);
+        final TimeAccumulator accumulator = mock(TimeAccumulator.class);
+        final StoragePlaceholderTimeCache cache = new StoragePlaceholderTimeCache(plugin(scheduler, 60, accumulator),
+                storage);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(scheduler).runAsyncOnceLater(anyLong(), any());
+        when(accumulator.getActiveSessionContext(PLAYER_ID)).thenReturn(Optional.of(
+                new PlayerSessionContext(PLAYER_ID, "Lorias_", "survival", "world", 0L)));
+        when(storage.getTimes(any(Collection.class), eq(TimeScope.GLOBAL)))
+                .thenReturn(Map.of(PLAYER_ID, 100L), Map.of(PLAYER_ID, 40L));
+
+        cache.requestRefresh(PLAYER_ID);
+        final long counting = cache.getCachedTime(PLAYER_ID).orElseThrow();
+        cache.requestRefresh(PLAYER_ID);
+        assertEquals(1L, cache.stats().refreshBatches(), "Expected the counting time to be extrapolated locally");
+
+        when(accumulator.getActiveSessionContext(PLAYER_ID)).thenReturn(Optional.empty());
+        assertTrue(cache.getCachedTime(PLAYER_ID).orElseThrow() >= counting,
+                "Expected the time to freeze at the stop");
+        cache.requestRefresh(PLAYER_ID);
+        assertEquals(OptionalLong.of(40L), cache.getCachedTime(PLAYER_ID),
+                "Expected the stopped session to be re-anchored from the storage");
+
+        cache.forget(PLAYER_ID);
+        assertEquals(OptionalLong.empty(), cache.getCachedTime(PLAYER_ID), "Expected no time after the player left");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void doesNotCachePlayersWhoLeftWhileTheirRefreshWasRunning() throws StorageException {
+        final UnifiedStorage storage = mock(UnifiedStorage.class);
+        final PluginScheduler scheduler = mock(PluginScheduler.class);
+        final StoragePlaceholderTimeCache cache = new StoragePlaceholderTimeCache(plugin(scheduler, 60), storage);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(scheduler).runAsyncOnceLater(anyLong(), any());
+        when(storage.getTimes(any(Collection.class), eq(TimeScope.GLOBAL))).thenAnswer(invocation -> {
+            cache.forget(PLAYER_ID);
+            return Map.of(PLAYER_ID, 42L);
+        });
+
+        cache.requestRefresh(PLAYER_ID);
+        assertEquals(OptionalLong.empty(), cache.getCachedTime(PLAYER_ID),
+                "Expected no time for a player who left during the refresh");
+
+        when(storage.getTimes(any(Collection.class), eq(TimeScope.GLOBAL))).thenReturn(Map.of(PLAYER_ID, 50L));
+        cache.reanchor(PLAYER_ID);
+        assertEquals(OptionalLong.of(50L), cache.getCachedTime(PLAYER_ID),
+                "Expected the time to be cached again after the player rejoined");
+    }
+
+    private LoriTimePlugin plugin(final PluginScheduler scheduler, final int ttlSeconds) {
+        return plugin(scheduler, ttlSeconds, mock(TimeAccumulator.class));
+    }
+
+    private LoriTimePlugin plugin(final PluginScheduler scheduler, final int ttlSeconds,
+                                  final TimeAccumulator accumulator) {
+        final LoriTimePlugin plugin = mock(LoriTimePlugin.class);
+        final Configuration config = mock(Configuration.class);
+        final StorageExecutor executor = mock(StorageExecutor.class);
+        when(plugin.getLoggerFactory()).thenReturn(new LoggerFactory(Logger.getLogger("test")));
+        when(plugin.getConfig()).thenReturn(config);
+        when(plugin.getScheduler()).thenReturn(scheduler);
+        when(plugin.getStorageExecutor()).thenReturn(executor);
+        when(plugin.getAccumulator()).thenReturn(accumulator);
+        when(config.getInt("placeholderCache.ttlSeconds", 60)).thenReturn(ttlSeconds);
+        when(config.getInt("placeholderCache.batchIntervalSeconds", 1)).thenReturn(1);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return true;
+        }).when(executor).execute(any(), any(Runnable.class));
+        return plugin;
+    }
+}
@@ -145,7 +145,10 @@ public class LoriTimeVelocity {
 
     private void enableRemainingFeatures() {
         proxyServer.getChannelRegistrar().register(MinecraftChannelIdentifier.from("loritime:storage"));
-        proxyServer.getEventManager().register(this, new VelocityPluginMessenger(this));
+        final VelocityPluginMessenger pluginMessenger = new VelocityPluginMessenger(this);
+        proxyServer.getEventManager().register(this, pluginMessenger);
+        final long pushInterval = Math.max(1, loriTimePlugin.getConfig().getInt("multiSetup.timePushSeconds", 30));
+        loriTimePlugin.getScheduler().scheduleAsync(pushInterval, pushInterval, pluginMessenger::pushSubscribedServers);
         if (loriTimePlugin.isAfkEnabled()) {
             proxyServer.getChannelRegistrar().register(MinecraftChannelIdentifier.from("loritime:afk"));
             loriTimePlugin.enableAfkFeature(new MasteredAfkPlayerHandling(loriTimePlugin));
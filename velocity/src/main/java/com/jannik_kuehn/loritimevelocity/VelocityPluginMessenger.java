@@ -1,6 +1,7 @@
 package com.jannik_kuehn.loritimevelocity;
 
 import com.github.roleplaycauldron.spellbook.core.logger.WrappedLogger;
+import com.jannik_kuehn.common.exception.StorageException;
 import com.jannik_kuehn.common.module.messaging.PluginMessaging;
 import com.jannik_kuehn.common.platform.CommonPlayerSender;
 import com.velocitypowered.api.event.Subscribe;
@@ -8,15 +9,27 @@ import com.velocitypowered.api.event.connection.PluginMessageEvent;
 import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.ServerConnection;
 import com.velocitypowered.api.proxy.messages.MinecraftChannelIdentifier;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The {@link PluginMessaging} implementation for Velocity.
  * This class is responsible for sending and receiving PluginMessages.
+ *
+ * <p>Backend servers that subscribed get the live times of all their players pushed in batched snapshot frames, on
+ * subscription, after time changes and periodically, so their placeholders never have to ask for a single time.</p>
  */
 public class VelocityPluginMessenger extends PluginMessaging {
+    /**
+     * Prefix of the coalescing key of a snapshot push on the storage executor.
+     */
+    private static final String PUSH_KEY_PREFIX = "time-push:";
+
     /**
      * The {@link LoriTimeVelocity} instance.
      */
@@ -27,6 +40,11 @@ public class VelocityPluginMessenger extends PluginMessaging {
      */
     private final WrappedLogger log;
 
+    /**
+     * Names of the backend servers that subscribed to pushed times.
+     */
+    private final Set<String> subscribedServers;
+
     /**
      * Creates a new {@link VelocityPluginMessenger} instance.
      *
@@ -36,6 +54,16 @@ public class VelocityPluginMessenger extends PluginMessaging {
         super(loriTimeVelocity.getPlugin());
         this.loriTimeVelocity = loriTimeVelocity;
         this.log = loriTimeVelocity.getPlugin().getLoggerFactory().create(VelocityPluginMessenger.class, "VelocityPluginMessenger");
+        this.subscribedServers = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Pushes the live times of the players on every subscribed backend server.
+     */
+    public void pushSubscribedServers() {
+        for (final String serverName : subscribedServers) {
+            schedulePush(serverName);
+        }
     }
 
     /**
@@ -64,30 +92,74 @@ public class VelocityPluginMessenger extends PluginMessaging {
     }
 
     @Override
+    @SuppressWarnings("PMD.AvoidLiteralsInIfCondition")
     public void sendPluginMessage(final String channelIdentifier, final Object... message) {
-        final ServerConnection connection = getConnection(message);
+        if (message.length <= 1 || !(message[0] instanceof UUID)) {
+            log.debug("Could not find a connection to send the PluginMessage");
+            return;
+        }
+        sendPluginFrame(channelIdentifier, (UUID) message[0], getDataAsByte(message));
+    }
+
+    @Override
+    public void sendPluginFrame(final String channelIdentifier, final UUID playerUUID, final byte[] frame) {
+        final ServerConnection connection = getConnection(playerUUID);
         if (connection == null) {
             log.debug("Could not find a connection to send the PluginMessage");
             return;
         }
 
         final MinecraftChannelIdentifier identifier = MinecraftChannelIdentifier.from(channelIdentifier);
-        final byte[] data = getDataAsByte(message);
         log.debug("Sending PluginMessage with channel: " + channelIdentifier);
-        connection.sendPluginMessage(identifier, data);
+        connection.sendPluginMessage(identifier, frame);
     }
 
-    @SuppressWarnings("PMD.AvoidLiteralsInIfCondition")
-    private ServerConnection getConnection(final Object... message) {
-        if (message.length <= 1) {
-            return null;
-        }
+    @Override
+    protected void subscribeTimes(final UUID playerUUID) {
+        currentServerName(playerUUID).ifPresent(serverName -> {
+            if (subscribedServers.add(serverName)) {
+                log.debug("Backend server '" + serverName + "' subscribed to pushed times");
+            }
+            schedulePush(serverName);
+        });
+    }
 
-        if (!(message[0] instanceof UUID)) {
-            return null;
+    @Override
+    protected void timeChanged(final UUID playerUUID) {
+        currentServerName(playerUUID).filter(subscribedServers::contains).ifPresent(this::schedulePush);
+    }
+
+    private void schedulePush(final String serverName) {
+        // A push that is still queued reads the players of the server when it runs, so a second one is merged into it.
+        loriTimePlugin.getStorageExecutor().execute(PUSH_KEY_PREFIX + serverName, () -> pushServer(serverName));
+    }
+
+    private void pushServer(final String serverName) {
+        final Optional<RegisteredServer> server = loriTimeVelocity.getProxyServer().getServer(serverName);
+        if (server.isEmpty()) {
+            subscribedServers.remove(serverName);
+            return;
         }
+        final List<UUID> players = server.get().getPlayersConnected().stream().map(Player::getUniqueId).toList();
+        try {
+            final MinecraftChannelIdentifier identifier = MinecraftChannelIdentifier.from(SLAVED_TIME_STORAGE);
+            for (final byte[] frame : encodeTimeSnapshot(players)) {
+                server.get().sendPluginMessage(identifier, frame);
+            }
+            log.debug("Pushed the times of " + players.size() + " players to backend server '" + serverName + "'");
+        } catch (final StorageException e) {
+            log.error("Could not push the times of the players on backend server '" + serverName + "'", e);
+        }
+    }
+
+    private Optional<String> currentServerName(final UUID playerUUID) {
+        return loriTimeVelocity.getProxyServer().getPlayer(playerUUID)
+                .flatMap(Player::getCurrentServer)
+                .map(connection -> connection.getServerInfo().getName());
+    }
 
-        final Optional<CommonPlayerSender> optionalCommonSender = loriTimePlugin.getServer().getPlayer((UUID) message[0]);
+    private ServerConnection getConnection(final UUID playerUUID) {
+        final Optional<CommonPlayerSender> optionalCommonSender = loriTimePlugin.getServer().getPlayer(playerUUID);
         if (optionalCommonSender.isEmpty()) {
             return null;
         }
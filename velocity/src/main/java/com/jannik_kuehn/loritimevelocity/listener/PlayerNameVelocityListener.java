@@ -45,7 +45,7 @@ public class PlayerNameVelocityListener {
         final UUID uuid = player.getUniqueId();
         final String name = player.getUsername();
         loriTimePlugin.rememberPlayerName(uuid, name);
-        loriTimePlugin.getScheduler().runAsyncOnce(() -> {
+        loriTimePlugin.getStorageExecutor().execute(() -> {
             try {
                 loriTimePlugin.getStorage().setPlayerName(uuid, name);
             } catch (final StorageException ex) {
@@ -48,7 +48,7 @@ public class TimeAccumulatorVelocityListener {
         final long now = System.currentTimeMillis();
         loriTimePlugin.rememberPlayerName(uuid, name);
         loriTimePlugin.rememberScope(server, SessionContextDefaults.WORLD);
-        loriTimePlugin.getScheduler().runAsyncOnce(() -> {
+        loriTimePlugin.getStorageExecutor().executeInOrder(uuid, () -> {
             try {
                 loriTimePlugin.getAccumulator().switchContext(uuid, name, server, SessionContextDefaults.WORLD, now);
             } catch (final StorageException ex) {
@@ -66,7 +66,7 @@ public class TimeAccumulatorVelocityListener {
     public void onDisconnect(final DisconnectEvent event) {
         final UUID uuid = event.getPlayer().getUniqueId();
         final long now = System.currentTimeMillis();
-        loriTimePlugin.getScheduler().runAsyncOnce(() -> {
+        loriTimePlugin.getStorageExecutor().executeInOrder(uuid, () -> {
             try {
                 final TimeEntryReason reason = loriTimePlugin.consumeAfkKick(uuid)
                         ? TimeEntryReason.PLAYER_AFK_KICK : TimeEntryReason.PLAYER_LEAVE;